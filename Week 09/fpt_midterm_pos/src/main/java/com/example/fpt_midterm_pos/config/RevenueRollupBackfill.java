@@ -0,0 +1,38 @@
+package com.example.fpt_midterm_pos.config;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.stereotype.Component;
+
+import com.example.fpt_midterm_pos.data.repository.InvoiceRepository;
+import com.example.fpt_midterm_pos.data.repository.RevenueRollupRepository;
+import com.example.fpt_midterm_pos.service.RevenueService;
+
+/**
+ * Backfills the revenue rollups on startup when they are still empty while invoices already exist, which is the case the first time the application runs against a database created before the rollups.
+ */
+@Component
+public class RevenueRollupBackfill implements ApplicationRunner {
+
+    private final RevenueService revenueService;
+    private final RevenueRollupRepository revenueRollupRepository;
+    private final InvoiceRepository invoiceRepository;
+
+    @Autowired
+    public RevenueRollupBackfill(
+        RevenueService revenueService,
+        RevenueRollupRepository revenueRollupRepository,
+        InvoiceRepository invoiceRepository) {
+        this.revenueService = revenueService;
+        this.revenueRollupRepository = revenueRollupRepository;
+        this.invoiceRepository = invoiceRepository;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (revenueRollupRepository.count() == 0 && invoiceRepository.count() > 0) {
+            revenueService.rebuildRevenue();
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package com.example.fpt_midterm_pos.controller;
+
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.example.fpt_midterm_pos.dto.EntityCacheStatsDTO;
+import com.example.fpt_midterm_pos.service.EntityCacheService;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+
+@RestController
+@RequestMapping("/api/v1/cache")
+public class CacheController {
+
+    private final EntityCacheService entityCacheService;
+
+    @Autowired
+    public CacheController(EntityCacheService entityCacheService) {
+        this.entityCacheService = entityCacheService;
+    }
+
+    /**
+     * Retrieves the Hibernate statistics of the second-level cache regions of the Product and Customer entities.
+     *
+     * @return A ResponseEntity containing a list of EntityCacheStatsDTO objects with the size, hit, miss and put counts of every region, along with an HTTP status code of 200 (OK).
+     */
+    @Operation(summary = "Retrieve the entity cache statistics.")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Entity cache statistics retrieved successfully")
+    })
+    @GetMapping("/entities/stats")
+    public ResponseEntity<List<EntityCacheStatsDTO>> getEntityCacheStats() {
+        return ResponseEntity.status(HttpStatus.OK).body(entityCacheService.getStats());
+    }
+}
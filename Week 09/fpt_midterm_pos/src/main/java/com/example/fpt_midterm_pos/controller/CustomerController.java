@@ -66,6 +66,35 @@ public class CustomerController {
         return ResponseEntity.status(HttpStatus.OK).body(customerPage);
     }
 
+    /**
+     * Searches the ACTIVE customers by phone number or by name prefix, for the front desk and checkout lookups.
+     *
+     * @param phoneNumber The phone number of the customer, with or without the +62 country code.
+     * @param name The start of the customer name.
+     * @param page The index of the page to retrieve. Defaults to 0.
+     * @param size The number of customers to retrieve per page. Defaults to 20.
+     * @return A {@link ResponseEntity} containing a {@link Page} of {@link CustomerShowDTO} objects representing the matching customers on the specified page.
+     * @apiNote Exactly one of the phone number and name must be given. If no customers match, a {@link ResponseEntity} with status code 204 (No Content) is returned.
+     */
+    @Operation(summary = "Search ACTIVE Customers by phone number or name prefix.")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Customers retrieved successfully"),
+        @ApiResponse(responseCode = "204", description = "Customers not found"),
+        @ApiResponse(responseCode = "400", description = "Invalid search parameters")
+    })
+    @GetMapping("/search")
+    public ResponseEntity<Page<CustomerShowDTO>> searchCustomer(@RequestParam(required = false) String phoneNumber, @RequestParam(required = false) String name,
+            @RequestParam(defaultValue = "0") int page, @RequestParam(defaultValue = "20") int size) {
+        Pageable pageable = PageRequest.of(page, size);
+        Page<CustomerShowDTO> customerPage = customerService.searchActiveCustomer(phoneNumber, name, pageable);
+
+        if (customerPage.isEmpty()) {
+            return ResponseEntity.status(HttpStatus.NO_CONTENT).build();
+        }
+
+        return ResponseEntity.status(HttpStatus.OK).body(customerPage);
+    }
+
     /**
      * Creates a new Customer.
      *
@@ -0,0 +1,81 @@
+package com.example.fpt_midterm_pos.controller;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.UUID;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.example.fpt_midterm_pos.dto.ExportJobDTO;
+import com.example.fpt_midterm_pos.service.ExportJobService;
+import com.example.fpt_midterm_pos.utils.DownloadUtils;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+@RestController
+@RequestMapping("/api/v1/exports")
+public class ExportJobController {
+
+    private final ExportJobService exportJobService;
+
+    @Autowired
+    public ExportJobController(ExportJobService exportJobService) {
+        this.exportJobService = exportJobService;
+    }
+
+    /**
+     * Retrieves the status and progress of an export job.
+     *
+     * @param id The unique identifier of the export job.
+     * @return A ResponseEntity containing the ExportJobDTO object of the job and an HTTP status code of 200 (OK).
+     * @apiNote If the export job is not found or has expired, a ResponseEntity with status code 404 (Not Found) is returned.
+     */
+    @Operation(summary = "Retrieve the status of an export job.")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Export job retrieved successfully"),
+        @ApiResponse(responseCode = "404", description = "Export job not found")
+    })
+    @GetMapping("/{id}")
+    public ResponseEntity<ExportJobDTO> getExportJob(@PathVariable UUID id) {
+        ExportJobDTO exportJobDTO = exportJobService.findById(id);
+        return ResponseEntity.status(HttpStatus.OK).body(exportJobDTO);
+    }
+
+    /**
+     * Downloads the file written by a completed export job, or the single byte range of it given in the Range header.
+     *
+     * @param id The unique identifier of the export job.
+     * @param request The HttpServletRequest object carrying the optional Range header.
+     * @param response The HttpServletResponse object to which the file will be written.
+     * @throws IOException If an error occurs while sending the file.
+     * @apiNote If the export job is not completed, a ResponseEntity with status code 400 (Bad Request) is returned. If it is not found or has expired, a ResponseEntity with status code 404 (Not Found) is returned.
+     */
+    @Operation(summary = "Download the file of a completed export job.")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Export file downloaded successfully"),
+        @ApiResponse(responseCode = "206", description = "Export file range downloaded successfully"),
+        @ApiResponse(responseCode = "400", description = "Export job is not completed"),
+        @ApiResponse(responseCode = "404", description = "Export job not found"),
+        @ApiResponse(responseCode = "416", description = "Range not satisfiable")
+    })
+    @GetMapping("/{id}/download")
+    public void downloadExportJob(@PathVariable UUID id, HttpServletRequest request, HttpServletResponse response) throws IOException {
+        ExportJobDTO exportJobDTO = exportJobService.findById(id);
+        Path resultFile = exportJobService.acquireResultFile(id);
+        try {
+            DownloadUtils.send(resultFile, exportJobDTO.getContentType(), exportJobDTO.getFileName(), request, response);
+        } finally {
+            exportJobService.releaseResultFile(id);
+        }
+    }
+}
@@ -2,6 +2,7 @@ package com.example.fpt_midterm_pos.controller;
 
 import java.io.IOException;
 import java.util.Date;
+import java.util.List;
 import java.util.UUID;
 
 import javax.validation.Valid;
@@ -11,6 +12,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.http.ContentDisposition;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
@@ -22,18 +24,27 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 import com.example.fpt_midterm_pos.data.model.Customer;
+import com.example.fpt_midterm_pos.dto.CursorSliceDTO;
+import com.example.fpt_midterm_pos.dto.ExportJobDTO;
 import com.example.fpt_midterm_pos.dto.InvoiceDTO;
 import com.example.fpt_midterm_pos.dto.InvoiceDetailsSearchCriteriaDTO;
 import com.example.fpt_midterm_pos.dto.InvoiceSaveDTO;
 import com.example.fpt_midterm_pos.dto.InvoiceSearchCriteriaDTO;
+import com.example.fpt_midterm_pos.dto.RevenueBucketDTO;
 import com.example.fpt_midterm_pos.dto.RevenueShowDTO;
+import com.example.fpt_midterm_pos.exception.BadRequestException;
+import com.example.fpt_midterm_pos.service.CheckoutBatchService;
 import com.example.fpt_midterm_pos.service.CustomerService;
+import com.example.fpt_midterm_pos.service.ExportJobService;
+import com.example.fpt_midterm_pos.service.IdempotencyService;
 import com.example.fpt_midterm_pos.service.InvoiceService;
+import com.example.fpt_midterm_pos.service.RevenueService;
 
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
@@ -45,33 +56,51 @@ import jakarta.servlet.http.HttpServletResponse;
 @Validated
 public class InvoiceController {
 
+    private static final String EXCEL_CONTENT_TYPE = "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet";
+    private static final String ZIP_CONTENT_TYPE = "application/zip";
+
     private final InvoiceService invoiceService;
     private final CustomerService customerService;
+    private final RevenueService revenueService;
+    private final ExportJobService exportJobService;
+    private final IdempotencyService idempotencyService;
+    private final CheckoutBatchService checkoutBatchService;
 
     @Autowired
-    public InvoiceController(InvoiceService invoiceService, CustomerService customerService) {
+    public InvoiceController(InvoiceService invoiceService, CustomerService customerService, RevenueService revenueService, ExportJobService exportJobService, IdempotencyService idempotencyService, CheckoutBatchService checkoutBatchService) {
         this.invoiceService = invoiceService;
         this.customerService = customerService;
+        this.revenueService = revenueService;
+        this.exportJobService = exportJobService;
+        this.idempotencyService = idempotencyService;
+        this.checkoutBatchService = checkoutBatchService;
     }
 
     /**
      * Retrieves all Invoices based on the provided search criteria.
      *
      * @param criteria The search criteria to filter the invoices.
-     * @param page The page number to retrieve. Defaults to 0.
+     * @param page The page number to retrieve. Defaults to 0. Ignored when a cursor is given.
      * @param size The number of invoices to retrieve per page. Defaults to 20.
-     * @return A {@link ResponseEntity} containing a {@link Page} of {@link InvoiceDTO} objects representing the retrieved invoices.
+     * @param cursor The keyset cursor to continue from. When present, even empty for the first slice, the invoices are read with keyset pagination and a {@link CursorSliceDTO} without total count is returned, whose {@code nextCursor} fetches the following slice.
+     * @return A {@link ResponseEntity} containing a {@link Slice} of {@link InvoiceDTO} objects representing the retrieved invoices, which is a {@link Page} unless a cursor is given.
      * @apiNote If no invoices are found based on the provided criteria, a {@link ResponseEntity} with status code 204 (No Content) is returned.
      */
     @Operation(summary = "Retrieve all Invoices with criteria.")
     @ApiResponses(value = {
         @ApiResponse(responseCode = "200", description = "Invoices retrieved successfully"),
-        @ApiResponse(responseCode = "204", description = "Invoices not found")
+        @ApiResponse(responseCode = "204", description = "Invoices not found"),
+        @ApiResponse(responseCode = "400", description = "Invalid cursor or sort criteria")
     })
     @GetMapping
-    public ResponseEntity<Page<InvoiceDTO>> getInvoices(InvoiceSearchCriteriaDTO criteria, @RequestParam(defaultValue = "0") int page, @RequestParam(defaultValue = "20") int size) {
-        Pageable pageable = PageRequest.of(page, size);
-        Page<InvoiceDTO> invoices = invoiceService.findByCriteria(criteria, pageable);
+    public ResponseEntity<Slice<InvoiceDTO>> getInvoices(InvoiceSearchCriteriaDTO criteria, @RequestParam(defaultValue = "0") int page, @RequestParam(defaultValue = "20") int size, @RequestParam(required = false) String cursor) {
+        Slice<InvoiceDTO> invoices;
+        if (cursor != null) {
+            invoices = invoiceService.findByCriteria(criteria, cursor, size);
+        } else {
+            Pageable pageable = PageRequest.of(page, size);
+            invoices = invoiceService.findByCriteria(criteria, pageable);
+        }
 
         if (invoices.isEmpty()) {
             return ResponseEntity.status(HttpStatus.NO_CONTENT).build();
@@ -99,18 +128,60 @@ public class InvoiceController {
     }
 
     /**
-     * Creates a new Invoice.
+     * This method retrieves the revenue of every day, week, or month between two dates, to draw a revenue chart with a single call.
+     *
+     * @param start The date of the first bucket.
+     * @param end The date of the last bucket, inclusive.
+     * @param granularity The length of a bucket (day, week, or month).
+     * @return A {@link ResponseEntity} containing the list of {@link RevenueBucketDTO} objects, one per bucket, with zero for the buckets without invoices.
+     * @apiNote If the end is before the start or the range holds too many buckets, a {@link ResponseEntity} with status code 400 (Bad Request) is returned.
+     */
+    @Operation(summary = "Create report Revenue Invoice series by day or week or month.")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Revenue series created successfully"),
+        @ApiResponse(responseCode = "400", description = "Invalid date range or granularity")
+    })
+    @GetMapping(value = "/revenue/series")
+    public ResponseEntity<List<RevenueBucketDTO>> getRevenueSeries(@RequestParam Date start, @RequestParam Date end, @RequestParam String granularity) {
+        List<RevenueBucketDTO> revenueSeries = invoiceService.getInvoicesRevenueSeries(start, end, granularity);
+        return ResponseEntity.status(HttpStatus.OK).body(revenueSeries);
+    }
+
+    /**
+     * Rebuilds the daily, monthly and yearly revenue rollups from the invoices, to backfill or repair them.
+     *
+     * @return A {@link ResponseEntity} with status code 200 (OK) once the rollups are rebuilt.
+     * @apiNote Invoices saved while the rebuild runs may be missed, so it should be run while the store is quiet.
+     */
+    @Operation(summary = "Rebuild the revenue rollups from the invoices.")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Revenue rollups rebuilt successfully")
+    })
+    @PostMapping(value = "/revenue/rebuild")
+    public ResponseEntity<Void> rebuildRevenue() {
+        revenueService.rebuildRevenue();
+        return ResponseEntity.status(HttpStatus.OK).build();
+    }
+
+    /**
+     * Creates a new Invoice. When the group-commit checkout is enabled, the Invoice is queued and created together with the other checkouts of the next few milliseconds in a single transaction, and the request returns once that transaction has committed.
      *
      * @param invoiceDTO The InvoiceSaveDTO object containing the details of the new Invoice to be created.
+     * @param idempotencyKey The optional key identifying the checkout, sent again by the terminal when it retries the request. A retry with the same key returns the Invoice created by the first request instead of creating another one.
      * @return A ResponseEntity containing the newly created InvoiceDTO object and an HTTP status code of 201 (Created) upon successful creation.
+     * @see IdempotencyService#execute(String, Object, java.util.function.Supplier)
+     * @see CheckoutBatchService#submit(InvoiceSaveDTO)
      */
     @Operation(summary = "Create a new Invoice.")
     @ApiResponses(value = {
-        @ApiResponse(responseCode = "201", description = "Invoice created successfully")
+        @ApiResponse(responseCode = "201", description = "Invoice created successfully, or already created by an earlier request with the same idempotency key"),
+        @ApiResponse(responseCode = "400", description = "Invalid idempotency key, or key already used for a different request")
     })
     @PostMapping
-    public ResponseEntity<InvoiceDTO> createInvoice(@Valid @RequestBody InvoiceSaveDTO invoiceDTO) {
-        InvoiceDTO createdInvoice = invoiceService.createInvoice(invoiceDTO);
+    public ResponseEntity<InvoiceDTO> createInvoice(@Valid @RequestBody InvoiceSaveDTO invoiceDTO, @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey) {
+        InvoiceDTO createdInvoice = idempotencyService.execute(idempotencyKey, invoiceDTO, () -> checkoutBatchService.isEnabled()
+                ? checkoutBatchService.createInvoice(invoiceDTO)
+                : invoiceService.createInvoice(invoiceDTO));
         return ResponseEntity.status(HttpStatus.CREATED).body(createdInvoice);
     }
 
@@ -139,13 +210,14 @@ public class InvoiceController {
      * @param id The unique identifier of the Invoice to be exported.
      * @return A ResponseEntity containing the PDF data as a byte array.
      * @throws IOException If an error occurs while exporting the PDF.
-     * @apiNote If the Invoice is successfully exported, a ResponseEntity with status code 200 (OK) is returned. If the Invoice is not found, a ResponseEntity with status code 204 (No Content) is returned.
+     * @apiNote If the Invoice is successfully exported, a ResponseEntity with status code 200 (OK) is returned. If the Invoice is not found, a ResponseEntity with status code 204 (No Content) is returned. If the queue of PDF renders is full, a ResponseEntity with status code 503 (Service Unavailable) is returned.
      * @see InvoiceService#exportInvoiceToPDF(UUID)
      */
     @Operation(summary = "Export the Invoice details data into PDF.")
     @ApiResponses(value = {
         @ApiResponse(responseCode = "200", description = "Invoice exported successfully"),
-        @ApiResponse(responseCode = "204", description = "Invoice not found")
+        @ApiResponse(responseCode = "204", description = "Invoice not found"),
+        @ApiResponse(responseCode = "503", description = "Too many PDF renders")
     })
     @GetMapping("/{id}/export")
     public ResponseEntity<byte[]> exportInvoiceToPDF(@PathVariable UUID id) throws IOException {
@@ -163,6 +235,7 @@ public class InvoiceController {
      * Exports the Invoice details data into an Excel file based on the provided search criteria.
      *
      * @param criteria The search criteria to filter the invoices, including the customer ID, month, and year.
+     * @param streaming Whether the invoices are streamed into the Excel file while they are read, which keeps the memory used constant. Defaults to true, false builds the whole Excel file in memory first.
      * @param response The HTTPServletResponse object to which the Excel file will be written.
      * @throws IOException If an error occurs while exporting the Excel file.
      * @apiNote If the Invoice is successfully exported, a ResponseEntity with status code 200 (OK) is returned. If the Invoice is not found, a ResponseEntity with status code 204 (No Content) is returned.
@@ -173,7 +246,7 @@ public class InvoiceController {
         @ApiResponse(responseCode = "204", description = "Invoice not found")
     })
     @GetMapping("/excel")
-    public void exportInvoiceToExcel(InvoiceDetailsSearchCriteriaDTO criteria, HttpServletResponse response) throws IOException {
+    public void exportInvoiceToExcel(InvoiceDetailsSearchCriteriaDTO criteria, @RequestParam(defaultValue = "true") boolean streaming, HttpServletResponse response) throws IOException {
         if (criteria.getCustomerId() == null && criteria.getMonth() == null && criteria.getYear() == null) {
             response.setContentType("application/json");
             response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
@@ -181,14 +254,121 @@ public class InvoiceController {
             return;
         }
 
+        String fileName = buildReportFileName(criteria, ".xlsx");
+
+        response.setContentType(EXCEL_CONTENT_TYPE);
+        response.setHeader("Content-Disposition", "attachment; filename=" + fileName);
+
+        if (streaming) {
+            invoiceService.exportInvoiceToExcelByFilter(criteria, response.getOutputStream());
+            return;
+        }
+
+        try (Workbook workbook = invoiceService.exportInvoiceToExcelByFilter(criteria)) {
+            workbook.write(response.getOutputStream());
+            response.getOutputStream().flush();
+        } catch (IOException e) {
+            throw new IOException(e.getMessage());
+        }
+    }
+
+    /**
+     * Submits an export job that writes the Invoice details data into a PDF file in the background.
+     *
+     * @param id The unique identifier of the Invoice to be exported.
+     * @return A ResponseEntity containing the ExportJobDTO object of the queued job and an HTTP status code of 202 (Accepted).
+     * @apiNote The job is polled and downloaded through {@link ExportJobController}. If the export queue is full, a ResponseEntity with status code 503 (Service Unavailable) is returned.
+     */
+    @Operation(summary = "Submit an export job of the Invoice details data into PDF.")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "202", description = "Invoice export job submitted"),
+        @ApiResponse(responseCode = "503", description = "Too many export jobs")
+    })
+    @PostMapping("/{id}/export/jobs")
+    public ResponseEntity<ExportJobDTO> submitInvoicePDFExport(@PathVariable UUID id) {
+        ExportJobDTO exportJobDTO = exportJobService.submit("invoice_" + id + ".pdf", MediaType.APPLICATION_PDF_VALUE,
+                (outputStream, progress) -> invoiceService.exportInvoiceToPDF(id, outputStream, progress));
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(exportJobDTO);
+    }
+
+    /**
+     * Submits an export job that writes the Invoice details data into an Excel file in the background, based on the provided search criteria.
+     *
+     * @param criteria The search criteria to filter the invoices, including the customer ID, month, and year.
+     * @return A ResponseEntity containing the ExportJobDTO object of the queued job and an HTTP status code of 202 (Accepted).
+     * @throws BadRequestException If none of the customer ID, month, or year is given.
+     * @apiNote The job is polled and downloaded through {@link ExportJobController}. If the export queue is full, a ResponseEntity with status code 503 (Service Unavailable) is returned.
+     */
+    @Operation(summary = "Submit an export job of the Invoice details data into Excel.")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "202", description = "Invoice export job submitted"),
+        @ApiResponse(responseCode = "400", description = "No criterion selected"),
+        @ApiResponse(responseCode = "503", description = "Too many export jobs")
+    })
+    @PostMapping("/excel/jobs")
+    public ResponseEntity<ExportJobDTO> submitInvoiceExcelExport(InvoiceDetailsSearchCriteriaDTO criteria) {
+        requireCriterion(criteria);
+
+        ExportJobDTO exportJobDTO = exportJobService.submit(buildReportFileName(criteria, ".xlsx"), EXCEL_CONTENT_TYPE,
+                (outputStream, progress) -> invoiceService.exportInvoiceToExcelByFilter(criteria, outputStream, progress));
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(exportJobDTO);
+    }
+
+    /**
+     * Exports the PDF of every Invoice selected by the provided search criteria into a ZIP archive, streamed while the PDFs are rendered.
+     *
+     * @param criteria The search criteria to filter the invoices, including the customer ID, month, and year.
+     * @param response The HTTPServletResponse object to which the ZIP archive will be written.
+     * @throws IOException If an error occurs while exporting the ZIP archive.
+     * @throws BadRequestException If none of the customer ID, month, or year is given.
+     * @apiNote If no invoice matches the criteria, an empty ZIP archive is returned.
+     */
+    @Operation(summary = "Export the PDF of every Invoice with criteria into a ZIP archive.")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Invoices exported successfully"),
+        @ApiResponse(responseCode = "400", description = "No criterion selected")
+    })
+    @GetMapping("/pdf")
+    public void exportInvoicesToPDF(InvoiceDetailsSearchCriteriaDTO criteria, HttpServletResponse response) throws IOException {
+        requireCriterion(criteria);
+
+        String fileName = buildReportFileName(criteria, ".zip");
+        response.setContentType(ZIP_CONTENT_TYPE);
+        response.setHeader("Content-Disposition", "attachment; filename=" + fileName);
+
+        invoiceService.exportInvoicesToPDFByFilter(criteria, response.getOutputStream());
+    }
+
+    /**
+     * Submits an export job that writes the PDF of every Invoice selected by the provided search criteria into a ZIP archive in the background.
+     *
+     * @param criteria The search criteria to filter the invoices, including the customer ID, month, and year.
+     * @return A ResponseEntity containing the ExportJobDTO object of the queued job and an HTTP status code of 202 (Accepted).
+     * @throws BadRequestException If none of the customer ID, month, or year is given.
+     * @apiNote The job is polled and downloaded through {@link ExportJobController}. If the export queue is full, a ResponseEntity with status code 503 (Service Unavailable) is returned.
+     */
+    @Operation(summary = "Submit an export job of the PDF of every Invoice with criteria into a ZIP archive.")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "202", description = "Invoices export job submitted"),
+        @ApiResponse(responseCode = "400", description = "No criterion selected"),
+        @ApiResponse(responseCode = "503", description = "Too many export jobs")
+    })
+    @PostMapping("/pdf/jobs")
+    public ResponseEntity<ExportJobDTO> submitInvoicesPDFExport(InvoiceDetailsSearchCriteriaDTO criteria) {
+        requireCriterion(criteria);
+
+        ExportJobDTO exportJobDTO = exportJobService.submit(buildReportFileName(criteria, ".zip"), ZIP_CONTENT_TYPE,
+                (outputStream, progress) -> invoiceService.exportInvoicesToPDFByFilter(criteria, outputStream, progress));
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(exportJobDTO);
+    }
+
+    // Name the report file after the customer, month, and year it is filtered by
+    private String buildReportFileName(InvoiceDetailsSearchCriteriaDTO criteria, String extension) {
         StringBuilder fileNameBuilder = new StringBuilder("invoice_report");
-        String customerName = "";
-        String fileName;
 
         if (criteria.getCustomerId() != null) {
             Customer customer = customerService.findById(criteria.getCustomerId());
-            customerName = customer.getName().replaceAll("\\s+", "_");
-            fileNameBuilder.append("_").append(customerName);
+            fileNameBuilder.append("_").append(customer.getName().replaceAll("\\s+", "_"));
         }
         if (criteria.getMonth() != null) {
             fileNameBuilder.append("_").append(criteria.getMonth());
@@ -197,21 +377,13 @@ public class InvoiceController {
             fileNameBuilder.append("_").append(criteria.getYear());
         }
 
-        if (criteria.getCustomerId() != null && criteria.getMonth() != null && criteria.getYear() != null) {
-            fileName = "invoice_report_" + customerName + "_" + criteria.getMonth() + "_" + criteria.getYear() + ".xlsx";
-        } else {
-            fileNameBuilder.append(".xlsx");
-            fileName = fileNameBuilder.toString();
-        }
-
-        response.setContentType("application/vnd.openxmlformats-officedocument.spreadsheetml.sheet");
-        response.setHeader("Content-Disposition", "attachment; filename=" + fileName);
+        return fileNameBuilder.append(extension).toString();
+    }
 
-        try (Workbook workbook = invoiceService.exportInvoiceToExcelByFilter(criteria)) {
-            workbook.write(response.getOutputStream());
-            response.getOutputStream().flush();
-        } catch (IOException e) {
-            throw new IOException(e.getMessage());
+    // Reject reports that are not narrowed down by any criterion
+    private void requireCriterion(InvoiceDetailsSearchCriteriaDTO criteria) {
+        if (criteria.getCustomerId() == null && criteria.getMonth() == null && criteria.getYear() == null) {
+            throw new BadRequestException("Please select at least one criterion: Customer ID, Month, or Year.");
         }
     }
 }
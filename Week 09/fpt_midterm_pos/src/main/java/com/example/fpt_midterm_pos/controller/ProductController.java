@@ -20,12 +20,19 @@ import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.multipart.MultipartFile;
 
+import com.example.fpt_midterm_pos.data.model.ProductImportMode;
 import com.example.fpt_midterm_pos.data.model.Status;
+import com.example.fpt_midterm_pos.dto.ProductCacheStatsDTO;
 import com.example.fpt_midterm_pos.dto.ProductDTO;
+import com.example.fpt_midterm_pos.dto.ProductImportSummaryDTO;
 import com.example.fpt_midterm_pos.dto.ProductSaveDTO;
 import com.example.fpt_midterm_pos.dto.ProductSearchCriteriaDTO;
 import com.example.fpt_midterm_pos.dto.ProductShowDTO;
+import com.example.fpt_midterm_pos.dto.ProductSuggestionDTO;
+import com.example.fpt_midterm_pos.service.ProductCacheService;
+import com.example.fpt_midterm_pos.service.ProductImportService;
 import com.example.fpt_midterm_pos.service.ProductService;
+import com.example.fpt_midterm_pos.service.StockService;
 
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
@@ -38,10 +45,16 @@ import jakarta.validation.Valid;
 public class ProductController {
 
     private final ProductService productService;
+    private final StockService stockService;
+    private final ProductImportService productImportService;
+    private final ProductCacheService productCacheService;
 
     @Autowired
-    public ProductController(ProductService productService) {
+    public ProductController(ProductService productService, StockService stockService, ProductImportService productImportService, ProductCacheService productCacheService) {
         this.productService = productService;
+        this.stockService = stockService;
+        this.productImportService = productImportService;
+        this.productCacheService = productCacheService;
     }
 
     /**
@@ -70,6 +83,24 @@ public class ProductController {
         return ResponseEntity.status(HttpStatus.OK).body(products);
     }
 
+    /**
+     * Suggests the active Products whose name has a word starting with the typed prefix, for the cashier lookup.
+     *
+     * @param prefix The text typed so far.
+     * @param limit The maximum number of Products to suggest, between 1 and 50. Defaults to 10.
+     * @return A ResponseEntity containing a list of ProductSuggestionDTO objects with the ID and name of the suggested Products and an HTTP status code of 200 (OK), with an empty list when nothing matches.
+     */
+    @Operation(summary = "Suggest Products by name prefix.")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Product suggestions retrieved successfully"),
+        @ApiResponse(responseCode = "400", description = "Invalid limit")
+    })
+    @GetMapping("/suggest")
+    public ResponseEntity<List<ProductSuggestionDTO>> suggestProducts(@RequestParam String prefix, @RequestParam(defaultValue = "10") int limit) {
+        List<ProductSuggestionDTO> suggestions = productService.suggestProducts(prefix, limit);
+        return ResponseEntity.status(HttpStatus.OK).body(suggestions);
+    }
+
     /**
      * Creates a new Product.
      *
@@ -145,16 +176,71 @@ public class ProductController {
      * Imports the Product data from an Excel file.
      *
      * @param file The MultipartFile object containing the Excel file with the Product data.
-     * @return A ResponseEntity containing a List of ProductDTO objects representing the imported Products, along with an HTTP status code of 200 (OK) upon successful import.
-     * @apiNote The imported Products will be saved in the system's database.
+     * @param mode INSERT to add every row as a new Product, or UPSERT to update the Products with the same name and add only the others. Defaults to INSERT.
+     * @return A ResponseEntity containing a ProductImportSummaryDTO object with the number of inserted, updated, unchanged and failed rows and the row numbers of the failed rows, along with an HTTP status code of 200 (OK) once the import has finished.
+     * @apiNote The imported Products are saved in the system's database chunk by chunk, so rows that fail do not prevent the others from being imported.
      */
     @Operation(summary = "Import the Product data from Excel.")
     @ApiResponses(value = {
-        @ApiResponse(responseCode = "200", description = "Product imported successfully")
+        @ApiResponse(responseCode = "200", description = "Product import finished"),
+        @ApiResponse(responseCode = "400", description = "Invalid or unreadable Excel file")
     })
     @PostMapping("/upload")
-    public ResponseEntity<List<ProductDTO>> uploadExcel(@RequestParam("file") MultipartFile file) {
-        List<ProductDTO> products = productService.saveProductsFromExcel(file);
-        return ResponseEntity.status(HttpStatus.OK).body(products);
+    public ResponseEntity<ProductImportSummaryDTO> uploadExcel(@RequestParam("file") MultipartFile file, @RequestParam(defaultValue = "INSERT") ProductImportMode mode) {
+        ProductImportSummaryDTO summary = productImportService.importProducts(file, mode);
+        return ResponseEntity.status(HttpStatus.OK).body(summary);
+    }
+
+    /**
+     * Splits the stock of a hot Product across several sub-counters, so concurrent checkouts of it do not queue on a single row.
+     *
+     * @param id The unique identifier of the Product to be split.
+     * @param shards The number of sub-counters to split the stock across. Defaults to 4.
+     * @return A ResponseEntity containing the ProductDTO object with its total stock and an HTTP status code of 200 (OK) upon successful split.
+     * @apiNote If the Product with the given ID is not found, a ResponseEntity with status code 404 (Not Found) is returned.
+     */
+    @Operation(summary = "Split the stock of a hot Product across sub-counters.")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Product stock split successfully"),
+        @ApiResponse(responseCode = "400", description = "Product stock already split or invalid number of sub-counters"),
+        @ApiResponse(responseCode = "404", description = "Product not found")
+    })
+    @PutMapping("/{id}/stock/split")
+    public ResponseEntity<ProductDTO> splitProductStock(@PathVariable UUID id, @RequestParam(defaultValue = "4") int shards) {
+        ProductDTO productDTO = stockService.splitStock(id, shards);
+        return ResponseEntity.status(HttpStatus.OK).body(productDTO);
+    }
+
+    /**
+     * Merges the sub-counters of a split Product back into its stock.
+     *
+     * @param id The unique identifier of the Product to be merged.
+     * @return A ResponseEntity containing the ProductDTO object with its merged stock and an HTTP status code of 200 (OK) upon successful merge.
+     * @apiNote If the Product with the given ID is not found, a ResponseEntity with status code 404 (Not Found) is returned.
+     */
+    @Operation(summary = "Merge the stock sub-counters of a Product back.")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Product stock merged successfully"),
+        @ApiResponse(responseCode = "400", description = "Product stock is not split"),
+        @ApiResponse(responseCode = "404", description = "Product not found")
+    })
+    @PutMapping("/{id}/stock/merge")
+    public ResponseEntity<ProductDTO> mergeProductStock(@PathVariable UUID id) {
+        ProductDTO productDTO = stockService.mergeStock(id);
+        return ResponseEntity.status(HttpStatus.OK).body(productDTO);
+    }
+
+    /**
+     * Retrieves the metrics of the in-memory Product cache used by checkout.
+     *
+     * @return A ResponseEntity containing a ProductCacheStatsDTO object with the cache size and its hit, miss, eviction and expiration counts, along with an HTTP status code of 200 (OK).
+     */
+    @Operation(summary = "Retrieve the Product cache metrics.")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Product cache metrics retrieved successfully")
+    })
+    @GetMapping("/cache/stats")
+    public ResponseEntity<ProductCacheStatsDTO> getProductCacheStats() {
+        return ResponseEntity.status(HttpStatus.OK).body(productCacheService.getStats());
     }
-}
+}
\ No newline at end of file
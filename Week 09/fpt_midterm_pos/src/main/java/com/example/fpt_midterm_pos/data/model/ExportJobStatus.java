@@ -0,0 +1,8 @@
+package com.example.fpt_midterm_pos.data.model;
+
+public enum ExportJobStatus {
+    QUEUED,
+    RUNNING,
+    COMPLETED,
+    FAILED
+}
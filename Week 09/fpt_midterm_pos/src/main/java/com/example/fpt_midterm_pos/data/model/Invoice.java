@@ -9,11 +9,12 @@ import jakarta.persistence.CascadeType;
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.FetchType;
-import jakarta.persistence.GeneratedValue;
-import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
+import jakarta.persistence.NamedAttributeNode;
+import jakarta.persistence.NamedEntityGraph;
 import jakarta.persistence.OneToMany;
 import jakarta.persistence.Table;
 import lombok.AllArgsConstructor;
@@ -24,12 +25,24 @@ import lombok.NoArgsConstructor;
 @NoArgsConstructor
 @AllArgsConstructor
 @Entity
-@Table(name = "Invoice")
+@Table(name = "Invoice", indexes = {
+    // Backs the (date, id) keyset pagination of the invoice list and every date range filter
+    @Index(name = "idx_invoice_date_id", columnList = "date, ID"),
+    // Backs the date range filters of a single customer
+    @Index(name = "idx_invoice_customer_date", columnList = "customer_id, date")
+})
+// Everything the PDF, the update and the DTO of an invoice read, joined into the query that loads it
+@NamedEntityGraph(name = Invoice.WITH_CUSTOMER_AND_DETAILS, attributeNodes = {
+    @NamedAttributeNode("customer"),
+    @NamedAttributeNode("invoiceDetails")
+})
 public class Invoice {
+
+    public static final String WITH_CUSTOMER_AND_DETAILS = "Invoice.withCustomerAndDetails";
     
     @Id
     @Column(name = "ID", columnDefinition = "BINARY(16)", updatable = false, nullable = false)
-    @GeneratedValue(strategy = GenerationType.AUTO)
+    @TimeOrderedUuid
     private UUID id;
 
     @Column(name = "amount", nullable = false)
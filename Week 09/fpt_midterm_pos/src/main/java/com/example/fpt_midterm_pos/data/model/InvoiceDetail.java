@@ -6,6 +6,7 @@ import jakarta.persistence.Column;
 import jakarta.persistence.EmbeddedId;
 import jakarta.persistence.Entity;
 import jakarta.persistence.FetchType;
+import jakarta.persistence.Index;
 import jakarta.persistence.ManyToOne;
 import jakarta.persistence.MapsId;
 import jakarta.persistence.Table;
@@ -17,7 +18,10 @@ import lombok.NoArgsConstructor;
 @NoArgsConstructor
 @AllArgsConstructor
 @Entity
-@Table(name = "InvoiceDetails")
+@Table(name = "InvoiceDetails", indexes = {
+    // The primary key starts with the invoice, so lookups by product need their own index
+    @Index(name = "idx_invoice_details_product", columnList = "product_id")
+})
 public class InvoiceDetail {
     
     @EmbeddedId
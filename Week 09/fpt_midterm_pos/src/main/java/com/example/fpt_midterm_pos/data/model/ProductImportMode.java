@@ -0,0 +1,8 @@
+package com.example.fpt_midterm_pos.data.model;
+
+public enum ProductImportMode {
+    // Every row is inserted as a new product
+    INSERT,
+    // Rows update the existing product with the same name, and only the others are inserted
+    UPSERT
+}
@@ -0,0 +1,25 @@
+package com.example.fpt_midterm_pos.data.model;
+
+import java.io.Serializable;
+import java.util.UUID;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Embeddable;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.NoArgsConstructor;
+
+@Data
+@Embeddable
+@EqualsAndHashCode
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductStockShardKey implements Serializable {
+
+    @Column(name = "productId", columnDefinition = "BINARY(16)", nullable = false)
+    private UUID productId;
+
+    @Column(name = "shardNo", nullable = false)
+    private Integer shardNo;
+}
@@ -0,0 +1,18 @@
+package com.example.fpt_midterm_pos.data.model;
+
+import java.time.LocalDate;
+
+public enum RevenuePeriod {
+    DAY,
+    MONTH,
+    YEAR;
+
+    // Find the first day of the period the given day falls in
+    public LocalDate startOf(LocalDate date) {
+        return switch (this) {
+            case DAY -> date;
+            case MONTH -> date.withDayOfMonth(1);
+            case YEAR -> date.withDayOfYear(1);
+        };
+    }
+}
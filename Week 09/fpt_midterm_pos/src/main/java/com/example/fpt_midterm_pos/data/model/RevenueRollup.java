@@ -0,0 +1,23 @@
+package com.example.fpt_midterm_pos.data.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.EmbeddedId;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "RevenueRollup")
+public class RevenueRollup {
+
+    @EmbeddedId
+    private RevenueRollupKey id;
+
+    @Column(name = "amount", nullable = false)
+    private Double amount;
+}
@@ -0,0 +1,28 @@
+package com.example.fpt_midterm_pos.data.model;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Embeddable;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.NoArgsConstructor;
+
+@Data
+@Embeddable
+@EqualsAndHashCode
+@NoArgsConstructor
+@AllArgsConstructor
+public class RevenueRollupKey implements Serializable {
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "period", nullable = false)
+    private RevenuePeriod period;
+
+    @Column(name = "periodStart", nullable = false)
+    private LocalDate periodStart;
+}
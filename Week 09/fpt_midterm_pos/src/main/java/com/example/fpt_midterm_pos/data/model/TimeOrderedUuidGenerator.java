@@ -0,0 +1,27 @@
+package com.example.fpt_midterm_pos.data.model;
+
+import java.util.EnumSet;
+
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.generator.BeforeExecutionGenerator;
+import org.hibernate.generator.EventType;
+import org.hibernate.generator.EventTypeSets;
+
+import com.example.fpt_midterm_pos.utils.UUIDUtils;
+
+/**
+ * Generates the entity keys as time-ordered UUIDs, so the inserts append to the primary key index. An entity opts in by
+ * annotating its ID with {@link TimeOrderedUuid}, and can go back to random UUIDs with {@code @UuidGenerator} instead.
+ */
+public class TimeOrderedUuidGenerator implements BeforeExecutionGenerator {
+
+    @Override
+    public Object generate(SharedSessionContractImplementor session, Object owner, Object currentValue, EventType eventType) {
+        return UUIDUtils.timeOrdered();
+    }
+
+    @Override
+    public EnumSet<EventType> getEventTypes() {
+        return EventTypeSets.INSERT_ONLY;
+    }
+}
@@ -5,14 +5,30 @@ import java.util.UUID;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import com.example.fpt_midterm_pos.data.model.Customer;
 import com.example.fpt_midterm_pos.data.model.Status;
+import com.example.fpt_midterm_pos.dto.CustomerShowDTO;
 
 @Repository
 public interface CustomerRepository extends JpaRepository<Customer, UUID> {
 
-    // Find customer data by considering the status.
-    Page<Customer> findByStatus(Status status, Pageable pageable);
+    // Find the list columns of the customer data by considering the status.
+    @Query("SELECT new com.example.fpt_midterm_pos.dto.CustomerShowDTO(c.id, c.name, c.phoneNumber) FROM Customer c " +
+           "WHERE c.status = :status")
+    Page<CustomerShowDTO> findByStatus(@Param("status") Status status, Pageable pageable);
+
+    // Find customers by their exact phone number and status, a single probe of the phone number index.
+    @Query("SELECT new com.example.fpt_midterm_pos.dto.CustomerShowDTO(c.id, c.name, c.phoneNumber) FROM Customer c " +
+           "WHERE c.phoneNumber = :phoneNumber AND c.status = :status")
+    Page<CustomerShowDTO> findByPhoneNumberAndStatus(@Param("phoneNumber") String phoneNumber, @Param("status") Status status, Pageable pageable);
+
+    // Find customers whose name starts with the given prefix by status, a range of the status and name index read in order.
+    @Query("SELECT new com.example.fpt_midterm_pos.dto.CustomerShowDTO(c.id, c.name, c.phoneNumber) FROM Customer c " +
+           "WHERE c.status = :status AND c.name LIKE :#{escape(#prefix)}% ESCAPE :#{escapeCharacter()} " +
+           "ORDER BY c.name ASC")
+    Page<CustomerShowDTO> findByStatusAndNameStartingWithOrderByNameAsc(@Param("status") Status status, @Param("prefix") String prefix, Pageable pageable);
 }
@@ -1,11 +1,24 @@
 package com.example.fpt_midterm_pos.data.repository;
 
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import com.example.fpt_midterm_pos.data.model.InvoiceDetail;
 import com.example.fpt_midterm_pos.data.model.InvoiceDetailKey;
+import com.example.fpt_midterm_pos.dto.InvoiceDetailRowDTO;
 
 @Repository
 public interface InvoiceDetailRepository extends JpaRepository<InvoiceDetail, InvoiceDetailKey> {
+
+    // Find the list columns of the details of the given invoices in one query, used to fill a page of the invoice list
+    @Query("SELECT new com.example.fpt_midterm_pos.dto.InvoiceDetailRowDTO(" +
+           "d.id.invoiceId, d.id.productId, d.productName, d.quantity, d.price, d.amount) " +
+           "FROM InvoiceDetail d WHERE d.id.invoiceId IN :invoiceIds")
+    List<InvoiceDetailRowDTO> findRowsByInvoiceIdIn(@Param("invoiceIds") Collection<UUID> invoiceIds);
 }
@@ -1,28 +1,40 @@
 package com.example.fpt_midterm_pos.data.repository;
 
+import java.util.Collection;
 import java.util.Date;
 import java.util.UUID;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import com.example.fpt_midterm_pos.data.model.Invoice;
+import com.example.fpt_midterm_pos.dto.InvoiceExcelRowDTO;
+import com.example.fpt_midterm_pos.dto.InvoiceRowDTO;
 import com.example.fpt_midterm_pos.dto.InvoiceSearchCriteriaDTO;
 
+import jakarta.persistence.QueryHint;
+
+import static org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.HibernateHints.HINT_READ_ONLY;
+
 @Repository
 public interface InvoiceRepository extends JpaRepository<Invoice, UUID> {
 
-       // Find all invoice data from the given filter criteria
-       @Query("SELECT i FROM Invoice i WHERE " +
+       // Find the list columns of the invoices from the given filter criteria within the half-open date range [from, to), with the customer name joined
+       @Query("SELECT new com.example.fpt_midterm_pos.dto.InvoiceRowDTO(i.id, i.amount, i.date, i.customer.id, i.customer.name) FROM Invoice i WHERE " +
               "(:#{#criteria.customerName} IS NULL OR i.customer.name LIKE %:#{#criteria.customerName}%) AND " +
               "(:#{#criteria.customerId} IS NULL OR i.customer.id = :#{#criteria.customerId}) AND " +
-              "(:#{#criteria.startDate} IS NULL OR :#{#criteria.endDate} IS NULL OR i.date BETWEEN :#{#criteria.startDate} AND :#{#criteria.endDate}) AND " +
-              "(:#{#criteria.month} IS NULL OR MONTH(i.date) = :#{#criteria.month}) " +
+              "i.date >= :from AND i.date < :to AND " +
+              "(:month IS NULL OR MONTH(i.date) = :month) " +
               "ORDER BY " +
               "CASE WHEN :#{#criteria.sortByDate} IS NULL THEN i.date ELSE NULL END ASC, " +
               "CASE WHEN :#{#criteria.sortByDate} = 'asc' THEN i.date END ASC, " +
@@ -30,28 +42,123 @@ public interface InvoiceRepository extends JpaRepository<Invoice, UUID> {
               "CASE WHEN :#{#criteria.sortByAmount} IS NULL THEN i.amount ELSE NULL END ASC, " +
               "CASE WHEN :#{#criteria.sortByAmount} = 'asc' THEN i.amount END ASC, " +
               "CASE WHEN :#{#criteria.sortByAmount} = 'desc' THEN i.amount END DESC")
-       Page<Invoice> findByFilters(@Param("criteria") InvoiceSearchCriteriaDTO criteria, Pageable pageable);
+       Page<InvoiceRowDTO> findByFilters(@Param("criteria") InvoiceSearchCriteriaDTO criteria,
+                                         @Param("from") Date from,
+                                         @Param("to") Date to,
+                                         @Param("month") Integer month,
+                                         Pageable pageable);
 
+       // Find the list columns of the invoices from the given filter criteria within [from, to) that come after the (date, id) cursor, oldest first
+       @Query("SELECT new com.example.fpt_midterm_pos.dto.InvoiceRowDTO(i.id, i.amount, i.date, i.customer.id, i.customer.name) FROM Invoice i WHERE " +
+              "(:#{#criteria.customerName} IS NULL OR i.customer.name LIKE %:#{#criteria.customerName}%) AND " +
+              "(:#{#criteria.customerId} IS NULL OR i.customer.id = :#{#criteria.customerId}) AND " +
+              "i.date >= :from AND i.date < :to AND " +
+              "(:month IS NULL OR MONTH(i.date) = :month) AND " +
+              "(:cursorDate IS NULL OR i.date > :cursorDate OR (i.date = :cursorDate AND i.id > :cursorId)) " +
+              "ORDER BY i.date ASC, i.id ASC")
+       List<InvoiceRowDTO> findByFiltersAfter(@Param("criteria") InvoiceSearchCriteriaDTO criteria,
+                                              @Param("from") Date from,
+                                              @Param("to") Date to,
+                                              @Param("month") Integer month,
+                                              @Param("cursorDate") Date cursorDate,
+                                              @Param("cursorId") UUID cursorId,
+                                              Pageable pageable);
 
-       // Find all invoice data from the given filter criteria
-       @Query("SELECT i FROM Invoice i " +
-              "JOIN FETCH i.invoiceDetails d " +
-              "WHERE (:customerId IS NULL OR i.customer.id = :customerId) " +
+       // Find the list columns of the invoices from the given filter criteria within [from, to) that come before the (date, id) cursor, newest first
+       @Query("SELECT new com.example.fpt_midterm_pos.dto.InvoiceRowDTO(i.id, i.amount, i.date, i.customer.id, i.customer.name) FROM Invoice i WHERE " +
+              "(:#{#criteria.customerName} IS NULL OR i.customer.name LIKE %:#{#criteria.customerName}%) AND " +
+              "(:#{#criteria.customerId} IS NULL OR i.customer.id = :#{#criteria.customerId}) AND " +
+              "i.date >= :from AND i.date < :to AND " +
+              "(:month IS NULL OR MONTH(i.date) = :month) AND " +
+              "(:cursorDate IS NULL OR i.date < :cursorDate OR (i.date = :cursorDate AND i.id < :cursorId)) " +
+              "ORDER BY i.date DESC, i.id DESC")
+       List<InvoiceRowDTO> findByFiltersBefore(@Param("criteria") InvoiceSearchCriteriaDTO criteria,
+                                               @Param("from") Date from,
+                                               @Param("to") Date to,
+                                               @Param("month") Integer month,
+                                               @Param("cursorDate") Date cursorDate,
+                                               @Param("cursorId") UUID cursorId,
+                                               Pageable pageable);
+
+       // Stream one flat row per invoice detail within the half-open date range [from, to) forward-only, with the customer already joined
+       @QueryHints({ @QueryHint(name = HINT_FETCH_SIZE, value = "500"), @QueryHint(name = HINT_READ_ONLY, value = "true") })
+       @Query("SELECT new com.example.fpt_midterm_pos.dto.InvoiceExcelRowDTO(" +
+              "i.id, c.id, c.name, i.amount, d.id.productId, d.productName, d.price, d.quantity, d.amount) " +
+              "FROM InvoiceDetail d JOIN d.invoice i JOIN i.customer c " +
+              "WHERE i.date >= :from AND i.date < :to " +
+              "AND (:month IS NULL OR MONTH(i.date) = :month) " +
+              "ORDER BY i.date, i.id")
+       Stream<InvoiceExcelRowDTO> streamRowsForExcel(@Param("from") Date from,
+                                                     @Param("to") Date to,
+                                                     @Param("month") Integer month);
+
+       // Stream one flat row per invoice detail of the given customer within the half-open date range [from, to) forward-only, with the customer already joined
+       @QueryHints({ @QueryHint(name = HINT_FETCH_SIZE, value = "500"), @QueryHint(name = HINT_READ_ONLY, value = "true") })
+       @Query("SELECT new com.example.fpt_midterm_pos.dto.InvoiceExcelRowDTO(" +
+              "i.id, c.id, c.name, i.amount, d.id.productId, d.productName, d.price, d.quantity, d.amount) " +
+              "FROM InvoiceDetail d JOIN d.invoice i JOIN i.customer c " +
+              "WHERE c.id = :customerId " +
+              "AND i.date >= :from AND i.date < :to " +
               "AND (:month IS NULL OR MONTH(i.date) = :month) " +
-              "AND (:year IS NULL OR YEAR(i.date) = :year)")
-       List<Invoice> findByFiltersForExcel(@Param("customerId") UUID customerId,
-                                          @Param("month") Integer month,
-                                          @Param("year") Integer year);
-
-       // Calculate total revenue by given year
-       @Query("SELECT SUM(i.amount) FROM Invoice i WHERE YEAR(i.date) = :year")
-       Double findTotalRevenueByYear(@Param("year") int year);
-
-       // Calculate total revenue by given month
-       @Query("SELECT SUM(i.amount) FROM Invoice i WHERE YEAR(i.date) = :year AND MONTH(i.date) = :month")
-       Double findTotalRevenueByMonth(@Param("year") int year, @Param("month") int month);
-
-       // Calculate total revenue by given date
-       @Query("SELECT SUM(i.amount) FROM Invoice i WHERE DATE(i.date) = :date")
-       Double findTotalRevenueByDay(@Param("date") Date date);
+              "ORDER BY i.date, i.id")
+       Stream<InvoiceExcelRowDTO> streamRowsByCustomerForExcel(@Param("customerId") UUID customerId,
+                                                               @Param("from") Date from,
+                                                               @Param("to") Date to,
+                                                               @Param("month") Integer month);
+
+       // Count the invoice details within the half-open date range [from, to), used to report the progress of an Excel export
+       @Query("SELECT COUNT(d) FROM InvoiceDetail d JOIN d.invoice i " +
+              "WHERE i.date >= :from AND i.date < :to " +
+              "AND (:month IS NULL OR MONTH(i.date) = :month)")
+       long countRowsForExcel(@Param("from") Date from,
+                              @Param("to") Date to,
+                              @Param("month") Integer month);
+
+       // Count the invoice details of the given customer within the half-open date range [from, to), used to report the progress of an Excel export
+       @Query("SELECT COUNT(d) FROM InvoiceDetail d JOIN d.invoice i " +
+              "WHERE i.customer.id = :customerId " +
+              "AND i.date >= :from AND i.date < :to " +
+              "AND (:month IS NULL OR MONTH(i.date) = :month)")
+       long countRowsByCustomerForExcel(@Param("customerId") UUID customerId,
+                                        @Param("from") Date from,
+                                        @Param("to") Date to,
+                                        @Param("month") Integer month);
+
+       // Find the IDs of the invoices within the half-open date range [from, to) in export order, used to render their PDFs in chunks
+       @Query("SELECT i.id FROM Invoice i " +
+              "WHERE i.date >= :from AND i.date < :to " +
+              "AND (:month IS NULL OR MONTH(i.date) = :month) " +
+              "ORDER BY i.date, i.id")
+       List<UUID> findIdsForPDF(@Param("from") Date from,
+                                @Param("to") Date to,
+                                @Param("month") Integer month);
+
+       // Find the IDs of the invoices of the given customer within the half-open date range [from, to) in export order, used to render their PDFs in chunks
+       @Query("SELECT i.id FROM Invoice i " +
+              "WHERE i.customer.id = :customerId " +
+              "AND i.date >= :from AND i.date < :to " +
+              "AND (:month IS NULL OR MONTH(i.date) = :month) " +
+              "ORDER BY i.date, i.id")
+       List<UUID> findIdsByCustomerForPDF(@Param("customerId") UUID customerId,
+                                          @Param("from") Date from,
+                                          @Param("to") Date to,
+                                          @Param("month") Integer month);
+
+       // Find the invoice with its customer and details already joined, in one query instead of one per association
+       @EntityGraph(Invoice.WITH_CUSTOMER_AND_DETAILS)
+       @Query("SELECT i FROM Invoice i WHERE i.id = :id")
+       Optional<Invoice> findWithCustomerAndDetailsById(@Param("id") UUID id);
+
+       // Find the given invoices with their customer and details already joined, everything their PDF shows
+       @EntityGraph(Invoice.WITH_CUSTOMER_AND_DETAILS)
+       @Query("SELECT i FROM Invoice i " +
+              "WHERE i.id IN :ids " +
+              "ORDER BY i.date, i.id")
+       List<Invoice> findAllForPDFByIdIn(@Param("ids") Collection<UUID> ids);
+
+       // Stream the total revenue of every distinct invoice date forward-only, used to rebuild the revenue rollups
+       // The dates are left for the caller to group by day, in the same time zone as the rollups of new invoices
+       @QueryHints({ @QueryHint(name = HINT_FETCH_SIZE, value = "500"), @QueryHint(name = HINT_READ_ONLY, value = "true") })
+       @Query("SELECT i.date, SUM(i.amount) FROM Invoice i GROUP BY i.date")
+       Stream<Object[]> streamTotalRevenueByDate();
 }
\ No newline at end of file
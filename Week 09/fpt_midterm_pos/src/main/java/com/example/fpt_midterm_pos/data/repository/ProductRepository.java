@@ -1,18 +1,24 @@
 package com.example.fpt_midterm_pos.data.repository;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
 
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
 import com.example.fpt_midterm_pos.data.model.Product;
 import com.example.fpt_midterm_pos.data.model.Status;
+import com.example.fpt_midterm_pos.dto.ProductShowDTO;
 
-public interface ProductRepository extends JpaRepository<Product, UUID> {
+import jakarta.persistence.LockModeType;
+
+public interface ProductRepository extends JpaRepository<Product, UUID>, ProductRepositoryCustom {
         
         // Find all the product that containing name with active status
         List<Product> findByNameContainingAndStatus(String name, Status status);
@@ -23,15 +29,36 @@ public interface ProductRepository extends JpaRepository<Product, UUID> {
         // Find all the product with given status and containing name
         Page<Product> findByStatusAndNameContaining(Status status, String name, Pageable pageable);
 
-        // Find all product data from the given filter criteria
-        @Query("SELECT p FROM Product p WHERE " +
+        // Find the list columns of the product data from the given filter criteria, the stock of a split product summed over its sub-counters
+        @Query("SELECT new com.example.fpt_midterm_pos.dto.ProductShowDTO(p.id, p.name, p.price, " +
+                "CAST(p.quantity + COALESCE((SELECT SUM(s.quantity) FROM ProductStockShard s WHERE s.id.productId = p.id), 0) AS Integer)) " +
+                "FROM Product p WHERE " +
                 "p.status = :status AND " +
                 "(:name IS NULL OR p.name LIKE %:name%) AND " +
                 "(:minPrice IS NULL OR p.price >= :minPrice) AND " +
                 "(:maxPrice IS NULL OR p.price <= :maxPrice)")
-        Page<Product> findByFilters(@Param("status") Status status,
+        Page<ProductShowDTO> findByFilters(@Param("status") Status status,
                                         @Param("name") String name,
                                         @Param("minPrice") Double minPrice,
                                         @Param("maxPrice") Double maxPrice,
                                         Pageable pageable);
-}
+
+        // Find the list columns of the product data among the given IDs, resolved by the name index, from the remaining filter criteria, the stock of a split product summed over its sub-counters
+        @Query("SELECT new com.example.fpt_midterm_pos.dto.ProductShowDTO(p.id, p.name, p.price, " +
+                "CAST(p.quantity + COALESCE((SELECT SUM(s.quantity) FROM ProductStockShard s WHERE s.id.productId = p.id), 0) AS Integer)) " +
+                "FROM Product p WHERE " +
+                "p.id IN :ids AND " +
+                "p.status = :status AND " +
+                "(:minPrice IS NULL OR p.price >= :minPrice) AND " +
+                "(:maxPrice IS NULL OR p.price <= :maxPrice)")
+        Page<ProductShowDTO> findByIdsAndFilters(@Param("ids") Collection<UUID> ids,
+                                        @Param("status") Status status,
+                                        @Param("minPrice") Double minPrice,
+                                        @Param("maxPrice") Double maxPrice,
+                                        Pageable pageable);
+
+        // Find the product by its id and lock the row until the transaction ends
+        @Lock(LockModeType.PESSIMISTIC_WRITE)
+        @Query("SELECT p FROM Product p WHERE p.id = :id")
+        Optional<Product> findByIdForUpdate(@Param("id") UUID id);
+}
\ No newline at end of file
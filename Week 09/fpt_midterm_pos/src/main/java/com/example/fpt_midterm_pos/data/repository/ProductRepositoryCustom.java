@@ -0,0 +1,28 @@
+package com.example.fpt_midterm_pos.data.repository;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+import com.example.fpt_midterm_pos.data.model.Product;
+
+public interface ProductRepositoryCustom {
+
+    // Atomically decrease the stock of every given product that still has enough quantity, in a single JDBC batch.
+    // Returns the IDs of the products whose stock was insufficient and therefore left untouched.
+    Set<UUID> batchDecrementQuantity(Map<UUID, Integer> quantities);
+
+    // Increase the stock of every given product in a single JDBC batch
+    void batchIncrementQuantity(Map<UUID, Integer> quantities);
+
+    // Insert the given new products with plain JDBC batches of the given size, bypassing the persistence context
+    void batchInsert(List<Product> products, int batchSize);
+
+    // Write the price, quantity and status of the given existing products with plain JDBC batches of the given size
+    void batchUpdatePriceAndQuantity(List<Product> products, int batchSize);
+
+    // Pass the ID, name, price, quantity and status of every product to the given action, oldest first, without managing the entities
+    void forEachProduct(Consumer<Product> action);
+}
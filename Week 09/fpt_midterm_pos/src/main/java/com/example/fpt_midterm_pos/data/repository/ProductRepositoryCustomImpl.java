@@ -0,0 +1,183 @@
+package com.example.fpt_midterm_pos.data.repository;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.example.fpt_midterm_pos.data.model.Product;
+import com.example.fpt_midterm_pos.data.model.Status;
+import com.example.fpt_midterm_pos.utils.UUIDUtils;
+
+import jakarta.persistence.Cache;
+import jakarta.persistence.EntityManagerFactory;
+
+public class ProductRepositoryCustomImpl implements ProductRepositoryCustom {
+
+    private static final String DECREMENT_QUANTITY_SQL =
+            "UPDATE product SET quantity = quantity - ?, updated_at = ? WHERE id = ? AND quantity >= ?";
+    private static final String INCREMENT_QUANTITY_SQL =
+            "UPDATE product SET quantity = quantity + ?, updated_at = ? WHERE id = ?";
+    private static final String INSERT_PRODUCT_SQL =
+            "INSERT INTO product (id, name, price, status, quantity, created_at, updated_at) VALUES (?, ?, ?, ?, ?, ?, ?)";
+    private static final String UPDATE_PRICE_AND_QUANTITY_SQL =
+            "UPDATE product SET price = ?, quantity = ?, status = ?, updated_at = ? WHERE id = ?";
+    private static final String SELECT_PRODUCTS_SQL =
+            "SELECT id, name, price, quantity, status FROM product ORDER BY created_at, id";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    public ProductRepositoryCustomImpl(JdbcTemplate jdbcTemplate, EntityManagerFactory entityManagerFactory) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.entityManagerFactory = entityManagerFactory;
+    }
+
+    /**
+     * Decreases the stock of every given product with one batched conditional {@code UPDATE} statement. Each statement only matches while the stored quantity still covers the request, so the check and the write happen atomically in the database and concurrent checkouts can never oversell.
+     * The statements bypass Hibernate, so the products are evicted from the second-level cache.
+     *
+     * @param quantities The quantity to subtract, keyed by product ID.
+     * @return The IDs of the products that did not have enough stock. Their rows are left untouched.
+     */
+    @Override
+    public Set<UUID> batchDecrementQuantity(Map<UUID, Integer> quantities) {
+        if (quantities.isEmpty()) {
+            return Collections.emptySet();
+        }
+
+        Timestamp now = new Timestamp(System.currentTimeMillis());
+        List<UUID> productIds = new ArrayList<>(quantities.size());
+        List<Object[]> batchArgs = new ArrayList<>(quantities.size());
+        quantities.forEach((productId, quantity) -> {
+            productIds.add(productId);
+            batchArgs.add(new Object[] { quantity, now, UUIDUtils.toBytes(productId), quantity });
+        });
+
+        int[] updateCounts = jdbcTemplate.batchUpdate(DECREMENT_QUANTITY_SQL, batchArgs);
+        evictFromSecondLevelCache(productIds);
+
+        Set<UUID> insufficient = new HashSet<>();
+        for (int i = 0; i < updateCounts.length; i++) {
+            if (updateCounts[i] == 0) {
+                insufficient.add(productIds.get(i));
+            }
+        }
+        return insufficient;
+    }
+
+    /**
+     * Increases the stock of every given product with one batched {@code UPDATE} statement, evicting the products from the second-level cache.
+     *
+     * @param quantities The quantity to add, keyed by product ID.
+     */
+    @Override
+    public void batchIncrementQuantity(Map<UUID, Integer> quantities) {
+        if (quantities.isEmpty()) {
+            return;
+        }
+
+        Timestamp now = new Timestamp(System.currentTimeMillis());
+        List<Object[]> batchArgs = new ArrayList<>(quantities.size());
+        quantities.forEach((productId, quantity) ->
+                batchArgs.add(new Object[] { quantity, now, UUIDUtils.toBytes(productId) }));
+
+        jdbcTemplate.batchUpdate(INCREMENT_QUANTITY_SQL, batchArgs);
+        evictFromSecondLevelCache(quantities.keySet());
+    }
+
+    /**
+     * Inserts the given new products with batched {@code INSERT} statements sent through JDBC, so a large import neither keeps its entities in the persistence context nor pays one round trip per row. Products without an ID are given a new time-ordered one, and the status, quantity and timestamps are written as set on each product.
+     * On MySQL the batches are only sent as multi-row inserts when the connection URL enables {@code rewriteBatchedStatements}.
+     *
+     * @param products The new products to insert.
+     * @param batchSize The number of rows sent to the database per JDBC batch.
+     */
+    @Override
+    public void batchInsert(List<Product> products, int batchSize) {
+        if (products.isEmpty()) {
+            return;
+        }
+
+        jdbcTemplate.batchUpdate(INSERT_PRODUCT_SQL, products, batchSize, (ps, product) -> {
+            if (product.getId() == null) {
+                product.setId(UUIDUtils.timeOrdered());
+            }
+            ps.setBytes(1, UUIDUtils.toBytes(product.getId()));
+            ps.setString(2, product.getName());
+            ps.setDouble(3, product.getPrice());
+            ps.setString(4, product.getStatus().name());
+            ps.setInt(5, product.getQuantity());
+            ps.setTimestamp(6, new Timestamp(product.getCreatedAt().getTime()));
+            ps.setTimestamp(7, new Timestamp(product.getUpdatedAt().getTime()));
+        });
+    }
+
+    /**
+     * Writes the price, quantity and status of the given existing products with batched {@code UPDATE} statements sent through JDBC, so only the rows passed in are touched and none of them is read first. The products are evicted from the second-level cache.
+     *
+     * @param products The products to update, identified by their ID.
+     * @param batchSize The number of rows sent to the database per JDBC batch.
+     */
+    @Override
+    public void batchUpdatePriceAndQuantity(List<Product> products, int batchSize) {
+        if (products.isEmpty()) {
+            return;
+        }
+
+        jdbcTemplate.batchUpdate(UPDATE_PRICE_AND_QUANTITY_SQL, products, batchSize, (ps, product) -> {
+            ps.setDouble(1, product.getPrice());
+            ps.setInt(2, product.getQuantity());
+            ps.setString(3, product.getStatus().name());
+            ps.setTimestamp(4, new Timestamp(product.getUpdatedAt().getTime()));
+            ps.setBytes(5, UUIDUtils.toBytes(product.getId()));
+        });
+        evictFromSecondLevelCache(products.stream().map(Product::getId).toList());
+    }
+
+    /**
+     * Reads every product row by row and passes it to the given action as a detached {@link Product} holding only its ID, name, price, quantity and status. The rows are not kept by the persistence context, so a whole catalog can be scanned without growing the session.
+     *
+     * @param action The action every product is passed to, oldest first.
+     */
+    @Override
+    public void forEachProduct(Consumer<Product> action) {
+        jdbcTemplate.query(SELECT_PRODUCTS_SQL, rs -> {
+            Product product = new Product();
+            product.setId(UUIDUtils.fromBytes(rs.getBytes("id")));
+            product.setName(rs.getString("name"));
+            product.setPrice(rs.getDouble("price"));
+            product.setQuantity(rs.getInt("quantity"));
+            product.setStatus(Status.valueOf(rs.getString("status")));
+            action.accept(product);
+        });
+    }
+
+    // Drop the cached copies right away so this transaction reads the rows again, and once more after commit
+    // in case a concurrent read cached the previous rows meanwhile
+    private void evictFromSecondLevelCache(Collection<UUID> productIds) {
+        Cache cache = entityManagerFactory.getCache();
+        productIds.forEach(productId -> cache.evict(Product.class, productId));
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            List<UUID> evicted = List.copyOf(productIds);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    evicted.forEach(productId -> cache.evict(Product.class, productId));
+                }
+            });
+        }
+    }
+}
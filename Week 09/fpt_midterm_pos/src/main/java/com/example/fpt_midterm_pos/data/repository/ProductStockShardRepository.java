@@ -0,0 +1,58 @@
+package com.example.fpt_midterm_pos.data.repository;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import com.example.fpt_midterm_pos.data.model.ProductStockShard;
+import com.example.fpt_midterm_pos.data.model.ProductStockShardKey;
+
+import jakarta.persistence.LockModeType;
+
+@Repository
+public interface ProductStockShardRepository extends JpaRepository<ProductStockShard, ProductStockShardKey> {
+
+       // Atomically decrease one sub-counter, only when it still holds enough stock
+       @Modifying
+       @Query("UPDATE ProductStockShard s SET s.quantity = s.quantity - :quantity " +
+              "WHERE s.id.productId = :productId AND s.id.shardNo = :shardNo AND s.quantity >= :quantity")
+       int decrementQuantity(@Param("productId") UUID productId,
+                             @Param("shardNo") int shardNo,
+                             @Param("quantity") int quantity);
+
+       // Increase one sub-counter
+       @Modifying
+       @Query("UPDATE ProductStockShard s SET s.quantity = s.quantity + :quantity " +
+              "WHERE s.id.productId = :productId AND s.id.shardNo = :shardNo")
+       int incrementQuantity(@Param("productId") UUID productId,
+                             @Param("shardNo") int shardNo,
+                             @Param("quantity") int quantity);
+
+       // Lock every sub-counter of a product, used when a request has to be served from several of them
+       @Lock(LockModeType.PESSIMISTIC_WRITE)
+       @Query("SELECT s FROM ProductStockShard s WHERE s.id.productId = :productId ORDER BY s.id.shardNo")
+       List<ProductStockShard> findAllForUpdate(@Param("productId") UUID productId);
+
+       // Find the number of sub-counters of those of the given products whose stock is split
+       @Query("SELECT s.id.productId, COUNT(s) FROM ProductStockShard s WHERE s.id.productId IN :productIds GROUP BY s.id.productId")
+       List<Object[]> countShardsByProductIdIn(@Param("productIds") Collection<UUID> productIds);
+
+       // Find every product whose stock is split
+       @Query("SELECT DISTINCT s.id.productId FROM ProductStockShard s")
+       Set<UUID> findSplitProductIds();
+
+       // Check whether the stock of the product is split
+       boolean existsByIdProductId(UUID productId);
+
+       // Sum the stock over every sub-counter of a product, 0 when its stock is not split
+       @Query("SELECT COALESCE(SUM(s.quantity), 0) FROM ProductStockShard s WHERE s.id.productId = :productId")
+       int sumQuantityByProductId(@Param("productId") UUID productId);
+}
@@ -0,0 +1,21 @@
+package com.example.fpt_midterm_pos.data.repository;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import com.example.fpt_midterm_pos.data.model.RevenuePeriod;
+import com.example.fpt_midterm_pos.data.model.RevenueRollup;
+import com.example.fpt_midterm_pos.data.model.RevenueRollupKey;
+
+@Repository
+public interface RevenueRollupRepository extends JpaRepository<RevenueRollup, RevenueRollupKey>, RevenueRollupRepositoryCustom {
+
+    // Range scan over the primary key, which starts with the period
+    @Query("SELECT r FROM RevenueRollup r WHERE r.id.period = :period AND r.id.periodStart >= :from AND r.id.periodStart < :to ORDER BY r.id.periodStart")
+    List<RevenueRollup> findByPeriodBetween(@Param("period") RevenuePeriod period, @Param("from") LocalDate from, @Param("to") LocalDate to);
+}
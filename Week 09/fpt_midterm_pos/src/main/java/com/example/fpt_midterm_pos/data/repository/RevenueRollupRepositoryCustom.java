@@ -0,0 +1,11 @@
+package com.example.fpt_midterm_pos.data.repository;
+
+import java.util.Map;
+
+import com.example.fpt_midterm_pos.data.model.RevenueRollupKey;
+
+public interface RevenueRollupRepositoryCustom {
+
+    // Add every given amount to its rollup row, creating the rows that do not exist yet
+    void addAmounts(Map<RevenueRollupKey, Double> amounts);
+}
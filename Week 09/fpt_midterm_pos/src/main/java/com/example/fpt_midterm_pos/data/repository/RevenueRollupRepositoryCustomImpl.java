@@ -0,0 +1,44 @@
+package com.example.fpt_midterm_pos.data.repository;
+
+import java.sql.Date;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.example.fpt_midterm_pos.data.model.RevenueRollupKey;
+
+public class RevenueRollupRepositoryCustomImpl implements RevenueRollupRepositoryCustom {
+
+    private static final String ADD_AMOUNT_SQL =
+            "INSERT INTO revenue_rollup (period, period_start, amount) VALUES (?, ?, ?) " +
+            "ON DUPLICATE KEY UPDATE amount = amount + VALUES(amount)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    public RevenueRollupRepositoryCustomImpl(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Adds every given amount to its rollup row with one batched {@code INSERT ... ON DUPLICATE KEY UPDATE} statement, so the change is applied as a delta in the database without reading the row first, and a rollup row that does not exist yet is inserted by the same statement. Each row is locked once by the upsert itself, rather than by an update followed by an insert racing the concurrent transactions for the same new period.
+     *
+     * @param amounts The amount to add, which may be negative, keyed by rollup period.
+     */
+    @Override
+    public void addAmounts(Map<RevenueRollupKey, Double> amounts) {
+        if (amounts.isEmpty()) {
+            return;
+        }
+
+        List<Object[]> batchArgs = new ArrayList<>(amounts.size());
+        for (Map.Entry<RevenueRollupKey, Double> entry : amounts.entrySet()) {
+            batchArgs.add(new Object[] { entry.getKey().getPeriod().name(), Date.valueOf(entry.getKey().getPeriodStart()), entry.getValue() });
+        }
+
+        jdbcTemplate.batchUpdate(ADD_AMOUNT_SQL, batchArgs);
+    }
+}
@@ -0,0 +1,20 @@
+package com.example.fpt_midterm_pos.dto;
+
+import java.util.UUID;
+
+import com.example.fpt_midterm_pos.data.model.Status;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CachedProductDTO {
+    private UUID id;
+    private String name;
+    private Double price;
+    // Only active products are kept in the cache, inactive ones are returned as loaded
+    private Status status;
+}
@@ -0,0 +1,23 @@
+package com.example.fpt_midterm_pos.dto;
+
+import java.util.List;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.SliceImpl;
+
+/**
+ * A {@link org.springframework.data.domain.Slice} read with keyset pagination. It carries no total count, only the opaque cursor to pass back to fetch the next slice, which is {@code null} on the last slice.
+ */
+public class CursorSliceDTO<T> extends SliceImpl<T> {
+
+    private final String nextCursor;
+
+    public CursorSliceDTO(List<T> content, Pageable pageable, String nextCursor) {
+        super(content, pageable, nextCursor != null);
+        this.nextCursor = nextCursor;
+    }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+}
@@ -0,0 +1,18 @@
+package com.example.fpt_midterm_pos.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class EntityCacheStatsDTO {
+    // The second-level cache region, named after the cached entity
+    private String region;
+    private long size;
+    private long hits;
+    private long misses;
+    private long puts;
+    private double hitRate;
+}
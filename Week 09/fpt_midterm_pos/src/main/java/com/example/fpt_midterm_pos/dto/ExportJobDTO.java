@@ -0,0 +1,24 @@
+package com.example.fpt_midterm_pos.dto;
+
+import java.util.Date;
+import java.util.UUID;
+
+import com.example.fpt_midterm_pos.data.model.ExportJobStatus;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ExportJobDTO {
+    private UUID id;
+    private String fileName;
+    private String contentType;
+    private ExportJobStatus status;
+    private int progress;
+    private String error;
+    private Date createdAt;
+    private Date completedAt;
+}
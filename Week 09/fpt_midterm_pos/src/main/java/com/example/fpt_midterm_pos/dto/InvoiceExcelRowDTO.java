@@ -0,0 +1,22 @@
+package com.example.fpt_midterm_pos.dto;
+
+import java.util.UUID;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class InvoiceExcelRowDTO {
+    private UUID invoiceId;
+    private UUID customerId;
+    private String customerName;
+    private Double amount;
+    private UUID productId;
+    private String productName;
+    private Double price;
+    private Integer quantity;
+    private Double productAmount;
+}
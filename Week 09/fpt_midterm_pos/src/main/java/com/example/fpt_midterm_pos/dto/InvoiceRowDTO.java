@@ -0,0 +1,19 @@
+package com.example.fpt_midterm_pos.dto;
+
+import java.util.Date;
+import java.util.UUID;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class InvoiceRowDTO {
+    private UUID id;
+    private Double amount;
+    private Date date;
+    private UUID customerId;
+    private String customerName;
+}
@@ -23,6 +23,7 @@ public class InvoiceSearchCriteriaDTO {
     private Date endDate;
     
     private Integer month;
+    private Integer year;
     private String sortByDate;
     private String sortByAmount;
 }
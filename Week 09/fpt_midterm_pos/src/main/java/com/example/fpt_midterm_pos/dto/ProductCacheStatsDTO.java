@@ -0,0 +1,19 @@
+package com.example.fpt_midterm_pos.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductCacheStatsDTO {
+    private int size;
+    private int maxEntries;
+    private long hits;
+    private long misses;
+    // Entries dropped to stay within the maximum size, and entries dropped because they outlived the TTL
+    private long evictions;
+    private long expirations;
+    private double hitRate;
+}
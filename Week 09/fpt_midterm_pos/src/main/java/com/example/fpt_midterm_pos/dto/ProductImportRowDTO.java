@@ -0,0 +1,16 @@
+package com.example.fpt_midterm_pos.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductImportRowDTO {
+    // The row number as shown by the spreadsheet, the header being row 1
+    private int rowNumber;
+    private ProductSaveDTO product;
+    // Why the row could not be read, in which case there is no product
+    private String error;
+}
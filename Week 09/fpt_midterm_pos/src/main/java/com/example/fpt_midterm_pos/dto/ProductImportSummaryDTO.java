@@ -0,0 +1,23 @@
+package com.example.fpt_midterm_pos.dto;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductImportSummaryDTO {
+    private long totalRows;
+    // Rows inserted as new products
+    private long importedRows;
+    // Rows that changed the price or quantity of an existing product, and rows that matched one without changing it
+    private long updatedRows;
+    private long unchangedRows;
+    private long failedRows;
+    // The spreadsheet numbers of the failed rows in ascending order, limited to the first ones while the counts stay exact
+    private List<Integer> failedRowNumbers;
+    private long durationMillis;
+}
@@ -0,0 +1,15 @@
+package com.example.fpt_midterm_pos.dto;
+
+import java.time.LocalDate;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RevenueBucketDTO {
+    private LocalDate start;
+    private Double amount;
+}
@@ -4,7 +4,9 @@ import java.io.IOException;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
 
+import org.springframework.dao.PessimisticLockingFailureException;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
@@ -52,6 +54,34 @@ public class GlobalExceptionHandler {
         return new ResponseEntity<>(errorResponse, HttpStatus.BAD_REQUEST);
     }
 
+    /**
+     * Handles {@link PessimisticLockingFailureException}, raised when a transaction lost a lock conflict on contended stock rows and was rolled back, so the client may safely retry it.
+     *
+     * @param e the {@link PessimisticLockingFailureException} to handle
+     * @return a {@link ResponseEntity} containing a map with an error message
+     */
+    @ExceptionHandler(PessimisticLockingFailureException.class)
+    @ResponseStatus(HttpStatus.CONFLICT)
+    public ResponseEntity<Map<String, String>> handlePessimisticLockingFailureException(PessimisticLockingFailureException e) {
+        Map<String, String> errorResponse = new HashMap<>();
+        errorResponse.put(ERROR, "The request conflicted with a concurrent update, please retry");
+        return new ResponseEntity<>(errorResponse, HttpStatus.CONFLICT);
+    }
+
+    /**
+     * Handles {@link RejectedExecutionException}, raised when the queue of one of the bounded executors, such as the export jobs or the PDF rendering, is full, so the client should retry once the queued work has drained. The message does not name the executor, since any of them can reject the request.
+     *
+     * @param e the {@link RejectedExecutionException} to handle
+     * @return a {@link ResponseEntity} containing a map with an error message
+     */
+    @ExceptionHandler(RejectedExecutionException.class)
+    @ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+    public ResponseEntity<Map<String, String>> handleRejectedExecutionException(RejectedExecutionException e) {
+        Map<String, String> errorResponse = new HashMap<>();
+        errorResponse.put(ERROR, "The server is busy, please retry later");
+        return new ResponseEntity<>(errorResponse, HttpStatus.SERVICE_UNAVAILABLE);
+    }
+
     /**
      * Handles generic exceptions by creating a response entity containing an error message.
      *
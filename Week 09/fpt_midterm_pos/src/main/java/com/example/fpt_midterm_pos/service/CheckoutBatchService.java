@@ -0,0 +1,18 @@
+package com.example.fpt_midterm_pos.service;
+
+import java.util.concurrent.CompletableFuture;
+
+import com.example.fpt_midterm_pos.dto.InvoiceDTO;
+import com.example.fpt_midterm_pos.dto.InvoiceSaveDTO;
+
+public interface CheckoutBatchService {
+
+    // Checks whether checkouts are written through the group-commit queue.
+    boolean isEnabled();
+
+    // Queues a new invoice to be created with the next batch, completing the future once its batch has committed.
+    CompletableFuture<InvoiceDTO> submit(InvoiceSaveDTO invoiceSaveDTO);
+
+    // Queues a new invoice to be created with the next batch and waits until its batch has committed.
+    InvoiceDTO createInvoice(InvoiceSaveDTO invoiceSaveDTO);
+}
@@ -18,6 +18,9 @@ public interface CustomerService {
     // Retrieves a paginated list of all customers.
     Page<CustomerShowDTO> findAllActiveCustomer(Pageable pageable);
 
+    // Searches the active customers by phone number or name prefix.
+    Page<CustomerShowDTO> searchActiveCustomer(String phoneNumber, String name, Pageable pageable);
+
     // Creating a new customer.
     CustomerDTO createCustomer(@Valid CustomerSaveDTO customerSaveDTO);
 
@@ -0,0 +1,11 @@
+package com.example.fpt_midterm_pos.service;
+
+import java.util.List;
+
+import com.example.fpt_midterm_pos.dto.EntityCacheStatsDTO;
+
+public interface EntityCacheService {
+
+    // Reports the size of every second-level cache region and how many entity loads hit or missed it.
+    List<EntityCacheStatsDTO> getStats();
+}
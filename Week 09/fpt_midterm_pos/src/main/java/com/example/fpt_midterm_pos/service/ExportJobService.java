@@ -0,0 +1,21 @@
+package com.example.fpt_midterm_pos.service;
+
+import java.nio.file.Path;
+import java.util.UUID;
+
+import com.example.fpt_midterm_pos.dto.ExportJobDTO;
+
+public interface ExportJobService {
+
+    // Submits an export job that writes its file through the given producer in the background.
+    ExportJobDTO submit(String fileName, String contentType, ExportProducer producer);
+
+    // Retrieves the status and progress of an export job.
+    ExportJobDTO findById(UUID id);
+
+    // Retrieves the file written by a completed export job and keeps it until the download is released.
+    Path acquireResultFile(UUID id);
+
+    // Releases a download of the file written by an export job, which may be deleted once it has expired.
+    void releaseResultFile(UUID id);
+}
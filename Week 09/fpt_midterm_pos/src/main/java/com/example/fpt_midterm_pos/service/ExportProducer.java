@@ -0,0 +1,11 @@
+package com.example.fpt_midterm_pos.service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+@FunctionalInterface
+public interface ExportProducer {
+
+    // Writes the exported file to the given output stream, reporting its progress.
+    void produce(OutputStream outputStream, ExportProgress progress) throws IOException;
+}
@@ -0,0 +1,23 @@
+package com.example.fpt_midterm_pos.service;
+
+public interface ExportProgress {
+
+    // Progress that is not reported anywhere, for exports that do not run as a job.
+    ExportProgress NONE = new ExportProgress() {
+        @Override
+        public void start(long total) {
+            // Nothing to report
+        }
+
+        @Override
+        public void advance() {
+            // Nothing to report
+        }
+    };
+
+    // Reports how many units of work the export has in total.
+    void start(long total);
+
+    // Reports that one more unit of work of the export is done.
+    void advance();
+}
@@ -0,0 +1,9 @@
+package com.example.fpt_midterm_pos.service;
+
+import java.util.function.Supplier;
+
+public interface IdempotencyService {
+
+    // Runs the action once per idempotency key, replaying its result to the retries and to the concurrent duplicates of the request.
+    <T> T execute(String key, Object request, Supplier<T> action);
+}
@@ -1,8 +1,10 @@
 package com.example.fpt_midterm_pos.service;
 
 import java.io.IOException;
+import java.io.OutputStream;
 import java.util.UUID;
 import java.util.Date;
+import java.util.List;
 
 import com.example.fpt_midterm_pos.dto.*;
 import org.apache.poi.ss.usermodel.Workbook;
@@ -18,18 +20,42 @@ public interface InvoiceService {
     // Find invoices based on the provided criteria.
     Page<InvoiceDTO> findByCriteria(InvoiceSearchCriteriaDTO criteria, Pageable pageable);
 
+    // Find invoices based on the provided criteria, continuing after the given keyset cursor.
+    CursorSliceDTO<InvoiceDTO> findByCriteria(InvoiceSearchCriteriaDTO criteria, String cursor, int size);
+
     // Creating a new invoice.
     InvoiceDTO createInvoice(@Valid InvoiceSaveDTO invoiceSaveDTO);
 
+    // Creates several new invoices in a single transaction, failing all of them when any one is invalid.
+    List<InvoiceDTO> createInvoices(List<InvoiceSaveDTO> invoiceSaveDTOs);
+
     // Updates an existing invoice with the provided invoice details.
     InvoiceDTO updateInvoice(UUID id, @Valid InvoiceSaveDTO invoiceSaveDTO) throws BadRequestException;
 
     // Generates a PDF representation of the specified invoice.
     byte[] exportInvoiceToPDF(UUID id) throws IOException;
 
+    // Writes a PDF representation of the specified invoice to the given output stream, reporting the progress of an export job.
+    void exportInvoiceToPDF(UUID id, OutputStream outputStream, ExportProgress progress) throws IOException;
+
     // Generates a Excel representation of the specified invoice.
     Workbook exportInvoiceToExcelByFilter(InvoiceDetailsSearchCriteriaDTO invoiceDetailsSearchCriteriaDTO);
 
+    // Streams an Excel representation of the specified invoice straight to the given output stream.
+    void exportInvoiceToExcelByFilter(InvoiceDetailsSearchCriteriaDTO invoiceDetailsSearchCriteriaDTO, OutputStream outputStream) throws IOException;
+
+    // Streams an Excel representation of the specified invoice to the given output stream, reporting the progress of an export job.
+    void exportInvoiceToExcelByFilter(InvoiceDetailsSearchCriteriaDTO invoiceDetailsSearchCriteriaDTO, OutputStream outputStream, ExportProgress progress) throws IOException;
+
+    // Streams a ZIP archive of the PDF representations of the specified invoices straight to the given output stream.
+    void exportInvoicesToPDFByFilter(InvoiceDetailsSearchCriteriaDTO invoiceDetailsSearchCriteriaDTO, OutputStream outputStream) throws IOException;
+
+    // Streams a ZIP archive of the PDF representations of the specified invoices to the given output stream, reporting the progress of an export job.
+    void exportInvoicesToPDFByFilter(InvoiceDetailsSearchCriteriaDTO invoiceDetailsSearchCriteriaDTO, OutputStream outputStream, ExportProgress progress) throws IOException;
+
     // Retrieves the total revenue for a given date, month, or year based on the provided revenueBy parameter.
     RevenueShowDTO getInvoicesRevenue(Date date, String revenueBy);
+
+    // Retrieves the total revenue of every day, week, or month between the given dates based on the provided granularity parameter.
+    List<RevenueBucketDTO> getInvoicesRevenueSeries(Date start, Date end, String granularity);
 }
\ No newline at end of file
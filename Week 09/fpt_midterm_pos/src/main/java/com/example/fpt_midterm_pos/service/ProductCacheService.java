@@ -0,0 +1,24 @@
+package com.example.fpt_midterm_pos.service;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.UUID;
+
+import com.example.fpt_midterm_pos.data.model.Product;
+import com.example.fpt_midterm_pos.dto.CachedProductDTO;
+import com.example.fpt_midterm_pos.dto.ProductCacheStatsDTO;
+
+public interface ProductCacheService {
+
+    // Finds the name, price and status of the given products, serving active products from memory and loading the others with a single query.
+    Map<UUID, CachedProductDTO> findAllById(Collection<UUID> productIds);
+
+    // Replaces the cached copy of the product once the current transaction commits, or drops it when the product is no longer active.
+    void refresh(Product product);
+
+    // Drops the cached copies of the given products once the current transaction commits.
+    void evict(Collection<UUID> productIds);
+
+    // Reports the size of the cache and how many lookups hit or missed it.
+    ProductCacheStatsDTO getStats();
+}
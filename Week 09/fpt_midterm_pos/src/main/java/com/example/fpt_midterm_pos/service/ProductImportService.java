@@ -0,0 +1,12 @@
+package com.example.fpt_midterm_pos.service;
+
+import org.springframework.web.multipart.MultipartFile;
+
+import com.example.fpt_midterm_pos.data.model.ProductImportMode;
+import com.example.fpt_midterm_pos.dto.ProductImportSummaryDTO;
+
+public interface ProductImportService {
+
+    // Imports the products of an Excel file chunk by chunk, inserting them or updating the products with the same name, and summarizes how many rows were written or failed.
+    ProductImportSummaryDTO importProducts(MultipartFile file, ProductImportMode mode);
+}
@@ -0,0 +1,25 @@
+package com.example.fpt_midterm_pos.service;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+
+import com.example.fpt_midterm_pos.data.model.Product;
+import com.example.fpt_midterm_pos.dto.ProductSuggestionDTO;
+
+public interface ProductNameIndexService {
+
+    // Finds the IDs of the active products whose name contains the given text, or nothing when the index cannot narrow the search down.
+    Optional<Set<UUID>> findActiveIdsByName(String name);
+
+    // Suggests at most the given number of active products having a word of their name start with the given prefix, ordered from that word on.
+    List<ProductSuggestionDTO> suggest(String prefix, int limit);
+
+    // Adds or replaces the name and status of the given products once the current transaction commits.
+    void index(Collection<Product> products);
+
+    // Replaces only the status of the given already indexed products once the current transaction commits.
+    void updateStatus(Collection<Product> products);
+}
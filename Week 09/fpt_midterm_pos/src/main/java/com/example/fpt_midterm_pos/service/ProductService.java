@@ -9,7 +9,6 @@ import jakarta.validation.Valid;
 
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
-import org.springframework.web.multipart.MultipartFile;
 
 import com.example.fpt_midterm_pos.data.model.Status;
 
@@ -18,6 +17,9 @@ public interface ProductService {
     // Find products based on the provided criteria.
     Page<ProductShowDTO> findByCriteria(ProductSearchCriteriaDTO criteria, Pageable pageable);
 
+    // Suggest active products whose name has a word starting with the typed prefix.
+    List<ProductSuggestionDTO> suggestProducts(String prefix, int limit);
+
     // Creating a new product.
     ProductDTO createProduct(@Valid ProductSaveDTO productSaveDTO);
 
@@ -26,7 +28,4 @@ public interface ProductService {
 
     // Updates the status of an existing product.
     ProductDTO updateProductStatus(UUID id, Status status);
-
-    // Saves a list of products from a Excel file to the database.
-    List<ProductDTO> saveProductsFromExcel(MultipartFile file);
 }
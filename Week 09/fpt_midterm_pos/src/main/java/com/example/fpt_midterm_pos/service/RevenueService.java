@@ -0,0 +1,25 @@
+package com.example.fpt_midterm_pos.service;
+
+import java.time.LocalDate;
+import java.util.Date;
+import java.util.Map;
+
+import com.example.fpt_midterm_pos.data.model.RevenuePeriod;
+
+public interface RevenueService {
+
+    // Adds the amount of an invoice dated on the given date to the daily, monthly and yearly revenue rollups.
+    void addRevenue(Date date, double amount);
+
+    // Moves the amount of an updated invoice from its old date and amount to its new date and amount in the revenue rollups.
+    void moveRevenue(Date oldDate, double oldAmount, Date newDate, double newAmount);
+
+    // Retrieves the revenue of the period of the given type that contains the given day.
+    double findRevenue(RevenuePeriod period, LocalDate date);
+
+    // Retrieves the revenue of every period of the given type starting within the given half-open range, leaving out the periods without revenue.
+    Map<LocalDate, Double> findRevenues(RevenuePeriod period, LocalDate from, LocalDate to);
+
+    // Rebuilds every revenue rollup from the invoices.
+    void rebuildRevenue();
+}
@@ -0,0 +1,35 @@
+package com.example.fpt_midterm_pos.service;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+import com.example.fpt_midterm_pos.data.model.Product;
+import com.example.fpt_midterm_pos.dto.ProductDTO;
+
+public interface StockService {
+
+    // Atomically decreases the stock of the given products, failing when any of them has insufficient stock.
+    void decrementStock(Map<UUID, Integer> quantities);
+
+    // Returns stock to the given products.
+    void incrementStock(Map<UUID, Integer> quantities);
+
+    // Splits the stock of a hot product across the given number of sub-counters.
+    ProductDTO splitStock(UUID productId, int shards);
+
+    // Folds the sub-counters of a split product back into its stock.
+    ProductDTO mergeStock(UUID productId);
+
+    // Checks whether the stock of the product is currently split across sub-counters.
+    boolean isSplit(UUID productId);
+
+    // Returns the IDs of every product whose stock is currently split across sub-counters.
+    Set<UUID> findSplitProductIds();
+
+    // Replaces the stock of the product, spreading it over the sub-counters when the stock is split.
+    void replaceStock(Product product, int quantity);
+
+    // Returns the total stock of the product, over its own row and all its sub-counters.
+    int getTotalStock(Product product);
+}
@@ -0,0 +1,193 @@
+package com.example.fpt_midterm_pos.service.impl;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+
+import com.example.fpt_midterm_pos.dto.InvoiceDTO;
+import com.example.fpt_midterm_pos.dto.InvoiceSaveDTO;
+import com.example.fpt_midterm_pos.service.CheckoutBatchService;
+import com.example.fpt_midterm_pos.service.InvoiceService;
+
+import jakarta.annotation.PreDestroy;
+
+@Service
+public class CheckoutBatchServiceImpl implements CheckoutBatchService {
+
+    private static final Logger log = LoggerFactory.getLogger(CheckoutBatchServiceImpl.class);
+
+    private static final long IDLE_POLL_MILLIS = 100;
+
+    private final InvoiceService invoiceService;
+    private final boolean enabled;
+    private final int maxBatchSize;
+    private final long maxDelayNanos;
+    // Only created when the group commit is enabled
+    private final BlockingQueue<PendingCheckout> queue;
+    private final ExecutorService writer;
+    private volatile boolean running = true;
+
+    @Autowired
+    public CheckoutBatchServiceImpl(
+        InvoiceService invoiceService,
+        @Value("${checkout.group-commit.enabled:false}") boolean enabled,
+        @Value("${checkout.group-commit.queue-capacity:1000}") int queueCapacity,
+        @Value("${checkout.group-commit.max-batch-size:50}") int maxBatchSize,
+        @Value("${checkout.group-commit.max-delay:PT0.005S}") Duration maxDelay) {
+        this.invoiceService = invoiceService;
+        this.enabled = enabled;
+        this.maxBatchSize = maxBatchSize;
+        this.maxDelayNanos = maxDelay.toNanos();
+        if (enabled) {
+            this.queue = new ArrayBlockingQueue<>(queueCapacity);
+            this.writer = Executors.newSingleThreadExecutor(new CustomizableThreadFactory("checkout-writer-"));
+            writer.execute(this::runWriter);
+        } else {
+            this.queue = null;
+            this.writer = null;
+        }
+    }
+
+    /**
+     * Checks whether checkouts are written through the group-commit queue, as configured by {@code checkout.group-commit.enabled}.
+     *
+     * @return {@code true} if the checkouts should be submitted to this service, {@code false} if they should create their invoice directly.
+     */
+    @Override
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Queues a new invoice to be created by the writer thread, which drains the queue in batches of up to the configured maximum size, waiting no longer than the configured delay for a batch to fill up, and creates each batch in a single transaction, so hundreds of checkouts per second share a few commits instead of paying one each.
+     * When a batch fails, its invoices are created again one by one in their own transaction, so an invalid invoice only fails its own future and the rest of its batch is still created. When the queue is full, or the group commit is disabled and there is no writer thread, the invoice is created right away on the calling thread instead.
+     *
+     * @param invoiceSaveDTO The {@link InvoiceSaveDTO} object containing the details for creating a new invoice.
+     * @return A future completed with the created invoice once its batch has committed, or with the exception that failed it.
+     */
+    @Override
+    public CompletableFuture<InvoiceDTO> submit(InvoiceSaveDTO invoiceSaveDTO) {
+        PendingCheckout checkout = new PendingCheckout(invoiceSaveDTO, new CompletableFuture<>());
+        if (!running) {
+            checkout.result().completeExceptionally(new RejectedExecutionException("Checkout writer is shut down"));
+        } else if (!enabled || !queue.offer(checkout)) {
+            create(checkout);
+        }
+        return checkout.result();
+    }
+
+    /**
+     * Queues a new invoice to be created with the next batch and waits until its batch has committed.
+     *
+     * @param invoiceSaveDTO The {@link InvoiceSaveDTO} object containing the details for creating a new invoice.
+     * @return The newly created invoice as a DTO.
+     * @see #submit(InvoiceSaveDTO)
+     */
+    @Override
+    public InvoiceDTO createInvoice(InvoiceSaveDTO invoiceSaveDTO) {
+        try {
+            return submit(invoiceSaveDTO).join();
+        } catch (CompletionException e) {
+            throw unchecked(e.getCause());
+        }
+    }
+
+    // Write whatever is still queued before the application stops
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        running = false;
+        if (writer == null) {
+            return;
+        }
+        writer.shutdown();
+        if (!writer.awaitTermination(30, TimeUnit.SECONDS)) {
+            writer.shutdownNow();
+        }
+    }
+
+    private void runWriter() {
+        List<PendingCheckout> batch = new ArrayList<>(maxBatchSize);
+        try {
+            while (running || !queue.isEmpty()) {
+                PendingCheckout first = queue.poll(IDLE_POLL_MILLIS, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+
+                // Fill the batch up to its maximum size, waiting no longer than the maximum delay since its first checkout
+                long deadline = System.nanoTime() + maxDelayNanos;
+                queue.drainTo(batch, maxBatchSize - batch.size());
+                while (batch.size() < maxBatchSize) {
+                    PendingCheckout next = queue.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                    queue.drainTo(batch, maxBatchSize - batch.size());
+                }
+
+                write(batch);
+                batch.clear();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            RejectedExecutionException rejected = new RejectedExecutionException("Checkout writer is shut down");
+            batch.forEach(checkout -> checkout.result().completeExceptionally(rejected));
+            queue.forEach(checkout -> checkout.result().completeExceptionally(rejected));
+        }
+    }
+
+    // Create the whole batch in one transaction, or every invoice in its own once the batch failed
+    private void write(List<PendingCheckout> batch) {
+        if (batch.size() > 1) {
+            try {
+                List<InvoiceDTO> created = invoiceService.createInvoices(batch.stream().map(PendingCheckout::request).toList());
+                for (int i = 0; i < batch.size(); i++) {
+                    batch.get(i).result().complete(created.get(i));
+                }
+                return;
+            } catch (Throwable e) {
+                log.debug("Checkout batch of {} invoices failed, creating them one by one", batch.size(), e);
+            }
+        }
+        batch.forEach(this::create);
+    }
+
+    private void create(PendingCheckout checkout) {
+        try {
+            checkout.result().complete(invoiceService.createInvoice(checkout.request()));
+        } catch (Throwable e) {
+            checkout.result().completeExceptionally(e);
+        }
+    }
+
+    // Rethrow the failure of a checkout as it was thrown by the invoice service
+    private static RuntimeException unchecked(Throwable cause) {
+        if (cause instanceof RuntimeException runtimeException) {
+            return runtimeException;
+        }
+        if (cause instanceof Error error) {
+            throw error;
+        }
+        return new IllegalStateException(cause);
+    }
+
+    private record PendingCheckout(InvoiceSaveDTO request, CompletableFuture<InvoiceDTO> result) {
+    }
+}
@@ -2,11 +2,13 @@ package com.example.fpt_midterm_pos.service.impl;
 
 import java.util.Date;
 import java.util.UUID;
+import java.util.regex.Pattern;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.validation.annotation.Validated;
 
 import com.example.fpt_midterm_pos.data.model.Customer;
@@ -15,6 +17,7 @@ import com.example.fpt_midterm_pos.data.repository.CustomerRepository;
 import com.example.fpt_midterm_pos.dto.CustomerDTO;
 import com.example.fpt_midterm_pos.dto.CustomerSaveDTO;
 import com.example.fpt_midterm_pos.dto.CustomerShowDTO;
+import com.example.fpt_midterm_pos.exception.BadRequestException;
 import com.example.fpt_midterm_pos.exception.DuplicateStatusException;
 import com.example.fpt_midterm_pos.exception.ResourceNotFoundException;
 import com.example.fpt_midterm_pos.mapper.CustomerMapper;
@@ -36,16 +39,44 @@ public class CustomerServiceImpl implements CustomerService {
     }
 
     private static final String CUSTOMER_NOT_FOUND = "Customer not found";
+    private static final String INVALID_PHONE_NUMBER = "Phone number must start with +62, 62 or 0 and contain 9 to 13 digits after the country code";
+
+    private static final Pattern PHONE_SEPARATORS = Pattern.compile("[\\s\\-.()]");
+    private static final Pattern PHONE_NUMBER = Pattern.compile("^\\+62\\d{9,13}$");
 
     /**
-     * Retrieves a paginated list of all customers from the repository.
+     * Retrieves a paginated list of all customers from the repository. Only the columns shown in the list are selected, straight into the DTOs, without loading the customer entities.
      *
      * @param pageable The pagination parameters, including the page number and size.
      * @return A Page object containing a list of {@link CustomerShowDTO} objects representing the customers on the specified page.
      */
     @Override
+    @Transactional(readOnly = true)
     public Page<CustomerShowDTO> findAllActiveCustomer(Pageable pageable) {
-        return customerRepository.findByStatus(Status.ACTIVE, pageable).map(customerMapper::toCustomerShowDTO);
+        return customerRepository.findByStatus(Status.ACTIVE, pageable);
+    }
+
+    /**
+     * Searches the active customers either by phone number or by name prefix. The phone number is normalized to the stored +62 format first, so "0812-3456-789", "62 812 3456 789" and "+628123456789" all find the same customer with an exact match on the phone number index. The name prefix is matched from the start of the name on a range of the status and name index, in name order, with the case sensitivity of the column collation.
+     *
+     * @param phoneNumber The phone number of the customer, or null to search by name.
+     * @param name The start of the customer name, or null to search by phone number.
+     * @param pageable The pagination parameters, including the page number and size.
+     * @return A Page object containing a list of {@link CustomerShowDTO} objects representing the matching customers on the specified page.
+     * @throws BadRequestException If neither or both of the phone number and name are given, or if the phone number cannot be normalized.
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public Page<CustomerShowDTO> searchActiveCustomer(String phoneNumber, String name, Pageable pageable) {
+        boolean byPhoneNumber = phoneNumber != null && !phoneNumber.isBlank();
+        boolean byName = name != null && !name.isBlank();
+        if (byPhoneNumber == byName) {
+            throw new BadRequestException("Search by either phone number or name");
+        }
+
+        return byPhoneNumber
+                ? customerRepository.findByPhoneNumberAndStatus(normalizePhoneNumber(phoneNumber), Status.ACTIVE, pageable)
+                : customerRepository.findByStatusAndNameStartingWithOrderByNameAsc(Status.ACTIVE, name.strip(), pageable);
     }
 
     /**
@@ -120,4 +151,18 @@ public class CustomerServiceImpl implements CustomerService {
         Customer updatedCustomer = customerRepository.save(custCheck);
         return customerMapper.toCustomerDTO(updatedCustomer);
     }
+
+    // Bring a phone number typed at the front desk to the stored +62 format, an unencoded "+" in a query string arrives as a space
+    static String normalizePhoneNumber(String phoneNumber) {
+        String normalized = PHONE_SEPARATORS.matcher(phoneNumber).replaceAll("");
+        if (normalized.startsWith("0")) {
+            normalized = "+62" + normalized.substring(1);
+        } else if (normalized.startsWith("62")) {
+            normalized = "+" + normalized;
+        }
+        if (!PHONE_NUMBER.matcher(normalized).matches()) {
+            throw new BadRequestException(INVALID_PHONE_NUMBER);
+        }
+        return normalized;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,53 @@
+package com.example.fpt_midterm_pos.service.impl;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import com.example.fpt_midterm_pos.dto.EntityCacheStatsDTO;
+import com.example.fpt_midterm_pos.service.EntityCacheService;
+
+import jakarta.persistence.EntityManagerFactory;
+
+@Service
+public class EntityCacheServiceImpl implements EntityCacheService {
+
+    private final EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    public EntityCacheServiceImpl(EntityManagerFactory entityManagerFactory) {
+        this.entityManagerFactory = entityManagerFactory;
+    }
+
+    /**
+     * Reports the Hibernate statistics of every second-level cache region, sorted by region name. The counts are only collected while {@code hibernate.generate_statistics} is enabled, and are zero otherwise.
+     *
+     * @return A list of {@link EntityCacheStatsDTO} objects with the size, hit, miss and put counts and the hit rate of every region.
+     */
+    @Override
+    public List<EntityCacheStatsDTO> getStats() {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        return Arrays.stream(statistics.getSecondLevelCacheRegionNames())
+                .sorted()
+                .map(region -> toStats(region, statistics.getCacheRegionStatistics(region)))
+                .filter(Objects::nonNull)
+                .toList();
+    }
+
+    private static EntityCacheStatsDTO toStats(String region, CacheRegionStatistics regionStatistics) {
+        if (regionStatistics == null) {
+            return null;
+        }
+        long hits = regionStatistics.getHitCount();
+        long lookups = hits + regionStatistics.getMissCount();
+        double hitRate = lookups == 0 ? 0.0 : (double) hits / lookups;
+        return new EntityCacheStatsDTO(region, regionStatistics.getElementCountInMemory(), hits, regionStatistics.getMissCount(),
+                regionStatistics.getPutCount(), hitRate);
+    }
+}
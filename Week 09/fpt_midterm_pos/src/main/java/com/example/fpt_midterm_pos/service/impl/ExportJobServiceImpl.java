@@ -0,0 +1,279 @@
+package com.example.fpt_midterm_pos.service.impl;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.Date;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+
+import com.example.fpt_midterm_pos.data.model.ExportJobStatus;
+import com.example.fpt_midterm_pos.dto.ExportJobDTO;
+import com.example.fpt_midterm_pos.exception.BadRequestException;
+import com.example.fpt_midterm_pos.exception.ResourceNotFoundException;
+import com.example.fpt_midterm_pos.service.ExportJobService;
+import com.example.fpt_midterm_pos.service.ExportProducer;
+import com.example.fpt_midterm_pos.service.ExportProgress;
+
+import jakarta.annotation.PreDestroy;
+
+@Service
+public class ExportJobServiceImpl implements ExportJobService {
+
+    private static final Logger log = LoggerFactory.getLogger(ExportJobServiceImpl.class);
+
+    private static final String PART_SUFFIX = ".part";
+
+    private final Path spoolDir;
+    private final Duration retention;
+    private final ThreadPoolExecutor executor;
+    private final Map<UUID, ExportJob> jobs = new ConcurrentHashMap<>();
+
+    @Autowired
+    public ExportJobServiceImpl(
+        @Value("${export.spool-dir:${java.io.tmpdir}/fpt-pos-exports}") String spoolDir,
+        @Value("${export.jobs.threads:2}") int threads,
+        @Value("${export.jobs.queue-capacity:20}") int queueCapacity,
+        @Value("${export.jobs.retention:PT1H}") Duration retention) throws IOException {
+        this.spoolDir = Paths.get(spoolDir);
+        this.retention = retention;
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), new CustomizableThreadFactory("export-job-"),
+                new ThreadPoolExecutor.AbortPolicy());
+
+        Files.createDirectories(this.spoolDir);
+        deleteSpoolFiles();
+    }
+
+    /**
+     * Submits an export job, which runs on the dedicated export executor instead of the request thread and writes its file into the spool directory. The executor has a fixed number of threads and a bounded queue, so a burst of exports cannot exhaust the memory or the database connections.
+     * Jobs finished longer ago than the retention are forgotten and their files deleted on every submission.
+     *
+     * @param fileName The file name the result is downloaded as.
+     * @param contentType The content type of the result.
+     * @param producer The producer that writes the file and reports its progress.
+     * @return The {@link ExportJobDTO} of the queued job, whose ID is used to poll and download it.
+     * @throws RejectedExecutionException If the queue of the export executor is full.
+     */
+    @Override
+    public ExportJobDTO submit(String fileName, String contentType, ExportProducer producer) {
+        purgeExpiredJobs();
+
+        ExportJob job = new ExportJob(UUID.randomUUID(), fileName, contentType);
+        jobs.put(job.id, job);
+        try {
+            executor.execute(() -> run(job, producer));
+        } catch (RejectedExecutionException e) {
+            jobs.remove(job.id);
+            throw e;
+        }
+
+        return job.toDTO();
+    }
+
+    /**
+     * Retrieves the status and progress of an export job.
+     *
+     * @param id The unique identifier of the export job.
+     * @return The {@link ExportJobDTO} of the job.
+     * @throws ResourceNotFoundException If the job does not exist or has expired.
+     */
+    @Override
+    public ExportJobDTO findById(UUID id) {
+        return findJob(id).toDTO();
+    }
+
+    /**
+     * Retrieves the spool file written by a completed export job for a download. The file is not deleted by the purge of expired jobs until the download is released, so every call must be followed by {@link #releaseResultFile(UUID)} once the file has been sent.
+     *
+     * @param id The unique identifier of the export job.
+     * @return The path of the file in the spool directory.
+     * @throws ResourceNotFoundException If the job does not exist or has expired.
+     * @throws BadRequestException If the job has not completed.
+     */
+    @Override
+    public Path acquireResultFile(UUID id) {
+        ExportJob job = findJob(id);
+        if (job.status != ExportJobStatus.COMPLETED) {
+            throw new BadRequestException("Export job is not completed");
+        }
+        synchronized (job) {
+            if (job.purged) {
+                throw new ResourceNotFoundException("Export job not found");
+            }
+            job.downloads++;
+        }
+        return resultFile(job.id);
+    }
+
+    /**
+     * Releases a download of the spool file acquired with {@link #acquireResultFile(UUID)}.
+     *
+     * @param id The unique identifier of the export job.
+     */
+    @Override
+    public void releaseResultFile(UUID id) {
+        ExportJob job = jobs.get(id);
+        if (job != null) {
+            synchronized (job) {
+                job.downloads--;
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    // Run the producer into a partial file, which only replaces the result file once it is complete
+    private void run(ExportJob job, ExportProducer producer) {
+        job.status = ExportJobStatus.RUNNING;
+        Path partFile = spoolDir.resolve(job.id + PART_SUFFIX);
+        try {
+            try (OutputStream outputStream = new BufferedOutputStream(Files.newOutputStream(partFile))) {
+                producer.produce(outputStream, job);
+            }
+            Files.move(partFile, resultFile(job.id), StandardCopyOption.ATOMIC_MOVE);
+            job.complete(ExportJobStatus.COMPLETED, null);
+        } catch (Exception e) {
+            log.warn("Export job {} failed", job.id, e);
+            deleteQuietly(partFile);
+            job.complete(ExportJobStatus.FAILED, e.getMessage());
+        }
+    }
+
+    private ExportJob findJob(UUID id) {
+        ExportJob job = jobs.get(id);
+        if (job == null) {
+            throw new ResourceNotFoundException("Export job not found");
+        }
+        return job;
+    }
+
+    private Path resultFile(UUID id) {
+        return spoolDir.resolve(id.toString());
+    }
+
+    // Forget the jobs finished longer ago than the retention, along with their files, except those still being downloaded
+    private void purgeExpiredJobs() {
+        long expiredBefore = System.currentTimeMillis() - retention.toMillis();
+        jobs.values().removeIf(job -> {
+            Date completedAt = job.completedAt;
+            if (completedAt == null || completedAt.getTime() >= expiredBefore) {
+                return false;
+            }
+            synchronized (job) {
+                if (job.downloads > 0) {
+                    return false;
+                }
+                job.purged = true;
+            }
+            deleteQuietly(resultFile(job.id));
+            return true;
+        });
+    }
+
+    // The jobs only live in memory, so the files left by a previous run can no longer be downloaded
+    private void deleteSpoolFiles() throws IOException {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(spoolDir)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                if (isSpoolFileName(name.endsWith(PART_SUFFIX) ? name.substring(0, name.length() - PART_SUFFIX.length()) : name)) {
+                    deleteQuietly(file);
+                }
+            }
+        }
+    }
+
+    // Only the files named after a job ID belong to the spool
+    private static boolean isSpoolFileName(String name) {
+        try {
+            return UUID.fromString(name).toString().equals(name);
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    // A file that cannot be deleted is only logged, so it never fails the job or the submission that cleans it up
+    private static void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.warn("Could not delete export file {}", file, e);
+        }
+    }
+
+    /**
+     * The state of an export job, which is also the progress its producer reports to.
+     */
+    private static final class ExportJob implements ExportProgress {
+
+        private final UUID id;
+        private final String fileName;
+        private final String contentType;
+        private final Date createdAt = new Date();
+        private final AtomicLong total = new AtomicLong();
+        private final AtomicLong done = new AtomicLong();
+        private volatile ExportJobStatus status = ExportJobStatus.QUEUED;
+        private volatile String error;
+        private volatile Date completedAt;
+        // Guarded by the job itself
+        private int downloads;
+        private boolean purged;
+
+        ExportJob(UUID id, String fileName, String contentType) {
+            this.id = id;
+            this.fileName = fileName;
+            this.contentType = contentType;
+        }
+
+        @Override
+        public void start(long total) {
+            this.total.set(total);
+        }
+
+        @Override
+        public void advance() {
+            done.incrementAndGet();
+        }
+
+        void complete(ExportJobStatus status, String error) {
+            this.error = error;
+            this.completedAt = new Date();
+            this.status = status;
+        }
+
+        // The percentage of work done, which only reaches 100 once the file is complete
+        int progress() {
+            if (status == ExportJobStatus.COMPLETED) {
+                return 100;
+            }
+            long totalWork = total.get();
+            return totalWork <= 0 ? 0 : (int) Math.min(99, done.get() * 100 / totalWork);
+        }
+
+        ExportJobDTO toDTO() {
+            return new ExportJobDTO(id, fileName, contentType, status, progress(), error, createdAt, completedAt);
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package com.example.fpt_midterm_pos.service.impl;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.example.fpt_midterm_pos.exception.BadRequestException;
+import com.example.fpt_midterm_pos.service.IdempotencyService;
+
+@Service
+public class IdempotencyServiceImpl implements IdempotencyService {
+
+    private static final int MAX_KEY_LENGTH = 255;
+
+    private final int maxEntries;
+    private final long ttlNanos;
+
+    // Guarded by itself, in insertion order so the oldest keys come first
+    private final Map<String, KeyEntry> entries = new LinkedHashMap<>();
+
+    @Autowired
+    public IdempotencyServiceImpl(
+        @Value("${idempotency.max-entries:10000}") int maxEntries,
+        @Value("${idempotency.ttl:PT24H}") Duration ttl) {
+        this.maxEntries = maxEntries;
+        this.ttlNanos = ttl.toNanos();
+    }
+
+    /**
+     * Runs the action for the first request with the given idempotency key, and hands its result to every later request with the same key until the key expires, without running the action again. A duplicate arriving while the first request is still running waits for it and gets the same result, so a retried checkout neither decreases the stock twice nor creates a second invoice.
+     * A failed action is not remembered, so the request can be retried once the failure is fixed, while the duplicates that waited for it fail the same way. Expired keys are dropped whenever a new key is added, and only the most recent finished keys are kept, up to the configured maximum. A key whose action is still running is never dropped, so a duplicate can always find it.
+     *
+     * @param key The idempotency key sent by the client, or nothing to run the action without any replay.
+     * @param request The request the key was sent with, which must be equal for every use of the key.
+     * @param action The action to be run once for the key.
+     * @return The result of the action, run now or replayed from the first request with the key.
+     * @throws BadRequestException If the key is blank or too long, or was already used for a different request.
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T execute(String key, Object request, Supplier<T> action) {
+        if (key == null) {
+            return action.get();
+        }
+        if (key.isBlank() || key.length() > MAX_KEY_LENGTH) {
+            throw new BadRequestException("Idempotency key must be between 1 and " + MAX_KEY_LENGTH + " characters");
+        }
+
+        KeyEntry entry;
+        boolean owner = false;
+        synchronized (entries) {
+            entry = entries.get(key);
+            if (entry != null && entry.result().isDone() && System.nanoTime() - entry.createdAt() >= ttlNanos) {
+                entries.remove(key);
+                entry = null;
+            }
+            if (entry == null) {
+                entry = new KeyEntry(request, new CompletableFuture<>(), System.nanoTime());
+                entries.put(key, entry);
+                owner = true;
+                purge(entry.createdAt());
+            }
+        }
+        if (!owner && !entry.request().equals(request)) {
+            throw new BadRequestException("Idempotency key was already used for a different request");
+        }
+
+        if (owner) {
+            try {
+                T result = action.get();
+                entry.result().complete(result);
+                return result;
+            } catch (Throwable e) {
+                forget(key, entry);
+                entry.result().completeExceptionally(e);
+                throw e;
+            }
+        }
+        try {
+            return (T) entry.result().join();
+        } catch (CompletionException e) {
+            throw unchecked(e.getCause());
+        }
+    }
+
+    // Drop the finished keys that expired, then the oldest finished ones over the maximum, skipping the keys still running
+    private void purge(long now) {
+        Iterator<KeyEntry> iterator = entries.values().iterator();
+        while (iterator.hasNext()) {
+            KeyEntry entry = iterator.next();
+            boolean expired = now - entry.createdAt() >= ttlNanos;
+            if (!expired && entries.size() <= maxEntries) {
+                // The keys are in creation order, so none of the later ones has expired either
+                return;
+            }
+            if (entry.result().isDone()) {
+                iterator.remove();
+            }
+        }
+    }
+
+    // Rethrow the failure of the first request as it is when it is unchecked
+    private static RuntimeException unchecked(Throwable cause) {
+        if (cause instanceof RuntimeException runtimeException) {
+            return runtimeException;
+        }
+        if (cause instanceof Error error) {
+            throw error;
+        }
+        return new IllegalStateException(cause);
+    }
+
+    // Drop the key of a failed action, unless it expired and was taken by another request meanwhile
+    private void forget(String key, KeyEntry entry) {
+        synchronized (entries) {
+            entries.remove(key, entry);
+        }
+    }
+
+    private record KeyEntry(Object request, CompletableFuture<Object> result, long createdAt) {
+    }
+}
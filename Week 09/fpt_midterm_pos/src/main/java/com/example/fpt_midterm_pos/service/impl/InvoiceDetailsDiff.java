@@ -0,0 +1,134 @@
+package com.example.fpt_midterm_pos.service.impl;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.function.Function;
+
+import com.example.fpt_midterm_pos.data.model.Invoice;
+import com.example.fpt_midterm_pos.data.model.InvoiceDetail;
+import com.example.fpt_midterm_pos.data.model.InvoiceDetailKey;
+import com.example.fpt_midterm_pos.data.model.Product;
+import com.example.fpt_midterm_pos.dto.CachedProductDTO;
+
+// The changes an update makes to the details of an invoice, along with the stock each product gains or loses by them
+final class InvoiceDetailsDiff {
+
+    private final List<InvoiceDetail> details = new ArrayList<>();
+    private final List<InvoiceDetail> added = new ArrayList<>();
+    private final List<InvoiceDetail> changed = new ArrayList<>();
+    private final List<InvoiceDetail> removed = new ArrayList<>();
+    private final Map<UUID, Integer> stockToTake = new LinkedHashMap<>();
+    private final Map<UUID, Integer> stockToReturn = new LinkedHashMap<>();
+    private double totalAmount;
+
+    private InvoiceDetailsDiff() {
+    }
+
+    /**
+     * Compares the current details of the invoice with the requested quantities. The current details are indexed by product first, so every requested product is matched in constant time and both sides are walked only once.
+     * A requested product without a current detail gets a new detail, and a current detail whose product is no longer requested is removed. A current detail is only changed in place when its quantity, price or product name differs from what is requested, so an unchanged line is never written. The stock of every product moves by the difference between its requested and its current quantity.
+     *
+     * @param invoice The invoice being updated, with its current details.
+     * @param requestedQuantities The requested quantity of every product, each product appearing once.
+     * @param products The current name and price of every requested product.
+     * @param productReference Gives a reference to the product row of a new detail, without loading it.
+     * @param now The time the changed and new details are updated at.
+     * @return The computed diff, whose changed details have already been updated.
+     */
+    static InvoiceDetailsDiff compute(Invoice invoice, Map<UUID, Integer> requestedQuantities, Map<UUID, CachedProductDTO> products,
+            Function<UUID, Product> productReference, Date now) {
+        InvoiceDetailsDiff diff = new InvoiceDetailsDiff();
+        Map<UUID, InvoiceDetail> current = new HashMap<>();
+        if (invoice.getInvoiceDetails() != null) {
+            invoice.getInvoiceDetails().forEach(detail -> current.put(detail.getProduct().getId(), detail));
+        }
+
+        for (Map.Entry<UUID, Integer> requested : requestedQuantities.entrySet()) {
+            UUID productId = requested.getKey();
+            int quantity = requested.getValue();
+            CachedProductDTO product = products.get(productId);
+
+            InvoiceDetail detail = current.remove(productId);
+            int quantityDifference = quantity;
+            if (detail == null) {
+                detail = new InvoiceDetail();
+                detail.setId(new InvoiceDetailKey(invoice.getId(), productId));
+                detail.setInvoice(invoice);
+                detail.setProduct(productReference.apply(productId));
+                detail.setCreatedAt(now);
+                diff.added.add(detail);
+            } else if (isUnchanged(detail, quantity, product)) {
+                diff.details.add(detail);
+                diff.totalAmount += detail.getAmount();
+                continue;
+            } else {
+                quantityDifference -= detail.getQuantity();
+                diff.changed.add(detail);
+            }
+
+            detail.setProductName(product.getName());
+            detail.setQuantity(quantity);
+            detail.setPrice(product.getPrice());
+            detail.setAmount(product.getPrice() * quantity);
+            detail.setUpdatedAt(now);
+            diff.details.add(detail);
+            diff.totalAmount += detail.getAmount();
+
+            if (quantityDifference > 0) {
+                diff.stockToTake.put(productId, quantityDifference);
+            } else if (quantityDifference < 0) {
+                diff.stockToReturn.put(productId, -quantityDifference);
+            }
+        }
+
+        // Whatever was not requested again is dropped, returning its whole quantity
+        for (InvoiceDetail detail : current.values()) {
+            diff.removed.add(detail);
+            if (detail.getQuantity() > 0) {
+                diff.stockToReturn.put(detail.getProduct().getId(), detail.getQuantity());
+            }
+        }
+        return diff;
+    }
+
+    private static boolean isUnchanged(InvoiceDetail detail, int quantity, CachedProductDTO product) {
+        return detail.getQuantity() == quantity
+                && Objects.equals(detail.getPrice(), product.getPrice())
+                && Objects.equals(detail.getProductName(), product.getName());
+    }
+
+    // Every detail the invoice holds after the update, in the requested order
+    List<InvoiceDetail> getDetails() {
+        return details;
+    }
+
+    List<InvoiceDetail> getAdded() {
+        return added;
+    }
+
+    List<InvoiceDetail> getChanged() {
+        return changed;
+    }
+
+    List<InvoiceDetail> getRemoved() {
+        return removed;
+    }
+
+    Map<UUID, Integer> getStockToTake() {
+        return stockToTake;
+    }
+
+    Map<UUID, Integer> getStockToReturn() {
+        return stockToReturn;
+    }
+
+    double getTotalAmount() {
+        return totalAmount;
+    }
+}
@@ -1,20 +1,39 @@
 package com.example.fpt_midterm_pos.service.impl;
 
 import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
 import java.time.Duration;
 import java.time.Instant;
+import java.time.DayOfWeek;
 import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.time.temporal.TemporalAdjusters;
 import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collection;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.Optional;
+import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.function.UnaryOperator;
+import java.util.stream.Stream;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
 
 import com.example.fpt_midterm_pos.dto.*;
 import com.example.fpt_midterm_pos.utils.ExcelGenerator;
 import org.apache.poi.ss.usermodel.Workbook;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -24,7 +43,7 @@ import com.example.fpt_midterm_pos.data.model.Customer;
 import com.example.fpt_midterm_pos.data.model.Invoice;
 import com.example.fpt_midterm_pos.data.model.InvoiceDetail;
 import com.example.fpt_midterm_pos.data.model.InvoiceDetailKey;
-import com.example.fpt_midterm_pos.data.model.Product;
+import com.example.fpt_midterm_pos.data.model.RevenuePeriod;
 import com.example.fpt_midterm_pos.data.model.Status;
 import com.example.fpt_midterm_pos.data.repository.CustomerRepository;
 import com.example.fpt_midterm_pos.data.repository.InvoiceDetailRepository;
@@ -33,9 +52,14 @@ import com.example.fpt_midterm_pos.data.repository.ProductRepository;
 import com.example.fpt_midterm_pos.exception.BadRequestException;
 import com.example.fpt_midterm_pos.exception.ResourceNotFoundException;
 import com.example.fpt_midterm_pos.mapper.InvoiceMapper;
+import com.example.fpt_midterm_pos.service.ExportProgress;
 import com.example.fpt_midterm_pos.service.InvoiceService;
+import com.example.fpt_midterm_pos.service.ProductCacheService;
+import com.example.fpt_midterm_pos.service.RevenueService;
+import com.example.fpt_midterm_pos.service.StockService;
 import com.example.fpt_midterm_pos.utils.PDFGenerator;
 
+import jakarta.persistence.EntityManager;
 import jakarta.validation.Valid;
 
 import com.example.fpt_midterm_pos.utils.DateUtils;
@@ -50,6 +74,11 @@ public class InvoiceServiceImpl implements InvoiceService {
     private final InvoiceDetailRepository invoiceDetailRepository;
     private final InvoiceMapper invoiceMapper;
     private final PDFGenerator pdfGenerator;
+    private final StockService stockService;
+    private final ProductCacheService productCacheService;
+    private final RevenueService revenueService;
+    private final EntityManager entityManager;
+    private final int pdfBulkInFlight;
 
     @Autowired
     public InvoiceServiceImpl(
@@ -58,36 +87,98 @@ public class InvoiceServiceImpl implements InvoiceService {
         ProductRepository productRepository, 
         InvoiceDetailRepository invoiceDetailRepository,
         InvoiceMapper invoiceMapper,
-        PDFGenerator pdfGenerator) {
+        PDFGenerator pdfGenerator,
+        StockService stockService,
+        ProductCacheService productCacheService,
+        RevenueService revenueService,
+        EntityManager entityManager,
+        @Value("${pdf.bulk.in-flight:8}") int pdfBulkInFlight) {
         this.invoiceRepository = invoiceRepository;
         this.customerRepository = customerRepository;
         this.productRepository = productRepository;
         this.invoiceDetailRepository = invoiceDetailRepository;
         this.invoiceMapper = invoiceMapper;
         this.pdfGenerator = pdfGenerator;
+        this.stockService = stockService;
+        this.productCacheService = productCacheService;
+        this.revenueService = revenueService;
+        this.entityManager = entityManager;
+        this.pdfBulkInFlight = pdfBulkInFlight;
     }
 
-    private static final String INSUFFICIENT_PRODUCT_STOCK = "Insufficient product stock";
+    private static final String INVALID_CURSOR = "Invalid cursor";
+    private static final int CURSOR_LENGTH = 3 * Long.BYTES;
+    private static final int MAX_REVENUE_SERIES_BUCKETS = 3660;
 
     /**
      * Find invoices based on the provided criteria. It takes an {@link InvoiceSearchCriteriaDTO} object and a {@link Pageable} object as input parameters. The {@link InvoiceSearchCriteriaDTO} object contains various criteria such as customer name, customer ID, start date, end date, month, sort by date, and sort by amount. The {@link Pageable} object is used to specify the pagination details.
-     * The method retrieves the invoices data from the repository based on the provided filters and sorts the data using the defined sort rules. Finally, it maps the retrieved invoices to their corresponding DTOs using the {@link InvoiceMapper} and returns the mapped invoices as a paginated list.
+     * The method retrieves only the listed columns of the invoices and their customer from the repository based on the provided filters and sorts the data using the defined sort rules, then reads the details of the whole page with a single query, so a page costs the same few statements whatever its size, without loading any entity.
      *
      * @param criteria The {@link InvoiceSearchCriteriaDTO} object containing various criteria for filtering the invoices.
      * @param pageable The {@link Pageable} object containing the pagination details.
      * @return A paginated list of {@link InvoiceDTO} objects representing the invoices that match the provided criteria.
      */
     @Override
+    @Transactional(readOnly = true)
     public Page<InvoiceDTO> findByCriteria(InvoiceSearchCriteriaDTO criteria, Pageable pageable) {
-        // Get the invoices data from the repo
-        Page<Invoice> invoices = invoiceRepository.findByFilters(criteria, pageable);
-        return invoices.map(invoiceMapper::toInvoiceDTO);
+        // Get the invoices data from the repo, with the date filters turned into a range on the indexed date column
+        DateRange range = criteriaRange(criteria);
+        Integer month = monthOfAnyYear(criteria.getYear(), criteria.getMonth());
+        Page<InvoiceRowDTO> invoices = invoiceRepository.findByFilters(criteria, range.from(), range.to(), month, pageable);
+        Map<UUID, List<InvoiceDetailDTO>> details = findDetailsByInvoice(invoices.getContent());
+        return invoices.map(invoice -> toInvoiceDTO(invoice, details));
     }
 
     /**
-     * Creating a new invoice. It takes an {@link InvoiceSaveDTO} object as input, which contains the necessary details for creating a new invoice. The method first retrieves the customer associated with the provided customer ID from the customer repository. It then initializes a new invoice object with the retrieved customer and sets its initial amount to 0.00. The method then saves the newly created invoice to the database.
-     * Next, the method iterates through the list of invoice details provided in the {@link InvoiceSaveDTO} object. For each invoice detail, it checks whether the corresponding product exists in the product repository and whether its quantity is sufficient. If both conditions are met, it creates a new invoice detail object, associates it with the newly created invoice, and saves it to the database. The method also updates the product's quantity in the process.
-     * Finally, the method updates the total amount of the invoice based on the amounts of its associated invoice details and saves the updated invoice back to the database. The method then returns the newly created invoice as a DTO using the {@link InvoiceMapper} class.
+     * Find invoices based on the provided criteria with keyset pagination. Instead of skipping an offset, the query seeks straight past the (date, ID) of the last invoice of the previous slice, which is passed back as an opaque cursor, so every slice costs the same no matter how deep it is. No total count is computed.
+     * The invoices are ordered by date and then by ID, ascending unless the sort by date criterion is {@code desc}. Sorting by amount is not supported in this mode.
+     *
+     * @param criteria The {@link InvoiceSearchCriteriaDTO} object containing various criteria for filtering the invoices.
+     * @param cursor The cursor returned with the previous slice, or {@code null} or empty for the first slice.
+     * @param size The number of invoices per slice.
+     * @return A {@link CursorSliceDTO} of {@link InvoiceDTO} objects with the cursor of the next slice, if any.
+     * @throws BadRequestException If the cursor is invalid or sorting by amount is requested.
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public CursorSliceDTO<InvoiceDTO> findByCriteria(InvoiceSearchCriteriaDTO criteria, String cursor, int size) {
+        if (criteria.getSortByAmount() != null) {
+            throw new BadRequestException("Sorting by amount is not supported with cursor pagination");
+        }
+
+        Date cursorDate = null;
+        UUID cursorId = null;
+        if (cursor != null && !cursor.isEmpty()) {
+            ByteBuffer decoded = decodeCursor(cursor);
+            cursorDate = new Date(decoded.getLong());
+            cursorId = new UUID(decoded.getLong(), decoded.getLong());
+        }
+
+        // Read one invoice more than requested to know whether there is a next slice
+        Pageable pageable = PageRequest.of(0, size);
+        Pageable limit = PageRequest.of(0, size + 1);
+        DateRange range = criteriaRange(criteria);
+        Integer month = monthOfAnyYear(criteria.getYear(), criteria.getMonth());
+        List<InvoiceRowDTO> invoices = "desc".equals(criteria.getSortByDate())
+                ? invoiceRepository.findByFiltersBefore(criteria, range.from(), range.to(), month, cursorDate, cursorId, limit)
+                : invoiceRepository.findByFiltersAfter(criteria, range.from(), range.to(), month, cursorDate, cursorId, limit);
+
+        String nextCursor = null;
+        if (invoices.size() > size) {
+            invoices = invoices.subList(0, size);
+            InvoiceRowDTO last = invoices.get(size - 1);
+            nextCursor = encodeCursor(last.getDate(), last.getId());
+        }
+
+        Map<UUID, List<InvoiceDetailDTO>> details = findDetailsByInvoice(invoices);
+        List<InvoiceDTO> content = invoices.stream().map(invoice -> toInvoiceDTO(invoice, details)).toList();
+        return new CursorSliceDTO<>(content, pageable, nextCursor);
+    }
+
+    /**
+     * Creating a new invoice. It takes an {@link InvoiceSaveDTO} object as input, which contains the necessary details for creating a new invoice. The method first retrieves the customer associated with the provided customer ID from the customer repository. It then looks up every product referenced by the invoice lines through the {@link ProductCacheService}, which serves the name, price and status of active products from memory and loads the others with a single query, and validates the product status before anything is written.
+     * Next, the method initializes a new invoice object with the retrieved customer and builds one invoice detail per product. The invoice details are persisted together with the invoice as a JDBC batch, and the stock of every product is decreased atomically through the {@link StockService} instead of one save per line. The stock is never read from the cache, the decrement itself fails the checkout when the database holds too little of it.
+     * Finally, the method sets the total amount of the invoice based on the amounts of its invoice details, adds it to the revenue rollups through the {@link RevenueService} and returns the newly created invoice as a DTO using the {@link InvoiceMapper} class.
      * 
      * @param invoiceSaveDTO The {@link InvoiceSaveDTO} object containing the details for creating a new invoice.
      * @return The newly created invoice as a DTO.
@@ -100,90 +191,148 @@ public class InvoiceServiceImpl implements InvoiceService {
         Customer customer = customerRepository.findById(invoiceSaveDTO.getCustomerId())
             .orElseThrow(() -> new ResourceNotFoundException("Customer not found"));
 
-        // 2. Add new invoice
+        // 2. Look up and validate every requested product in one pass
+        Map<UUID, Integer> requestedQuantities = requestedQuantities(invoiceSaveDTO);
+        Map<UUID, CachedProductDTO> products = productCacheService.findAllById(requestedQuantities.keySet());
+        validateProducts(requestedQuantities.keySet(), products);
+
+        // 3. Add new invoice with its details
+        Invoice savedInvoice = addInvoice(customer, requestedQuantities, products, new Date());
+
+        // 4. Atomically decrease all product quantities, this fails the whole checkout if the stock ran out meanwhile
+        stockService.decrementStock(requestedQuantities);
+
+        // 5. Add the amount to the revenue rollups last, as concurrent checkouts of the same day queue on them until commit
+        revenueService.addRevenue(savedInvoice.getDate(), savedInvoice.getAmount());
+
+        return invoiceMapper.toInvoiceDTO(savedInvoice);
+    }
+
+    /**
+     * Creates several new invoices in a single transaction, as a batch of the group-commit checkout. The customers and the products of the whole batch are looked up at once, every invoice is validated and built the same way as by {@link #createInvoice(InvoiceSaveDTO)}, and the invoices and their details are inserted together as JDBC batches when the transaction flushes.
+     * The stock of every product is decreased once for the quantities of the whole batch, and the revenue rollups are updated once with its total, all the invoices being dated at the same instant. Since the batch shares a single transaction, any invalid invoice or insufficient stock fails all of them, and the caller is expected to create the invoices of a failed batch one by one.
+     *
+     * @param invoiceSaveDTOs The {@link InvoiceSaveDTO} objects containing the details of the new invoices.
+     * @return The newly created invoices as DTOs, in the order of the given invoices.
+     * @throws ResourceNotFoundException If any customer or product is not found.
+     * @throws IllegalArgumentException If any product is not active or has insufficient stock.
+     */
+    @Override
+    @Transactional
+    public List<InvoiceDTO> createInvoices(List<InvoiceSaveDTO> invoiceSaveDTOs) {
+        // Look up every customer and product of the batch at once
+        Map<UUID, Customer> customers = new HashMap<>();
+        customerRepository.findAllById(invoiceSaveDTOs.stream().map(InvoiceSaveDTO::getCustomerId).distinct().toList())
+                .forEach(customer -> customers.put(customer.getId(), customer));
+        List<Map<UUID, Integer>> requestedQuantities = invoiceSaveDTOs.stream().map(InvoiceServiceImpl::requestedQuantities).toList();
+        Map<UUID, Integer> totalQuantities = new LinkedHashMap<>();
+        requestedQuantities.forEach(quantities -> quantities.forEach((productId, quantity) -> totalQuantities.merge(productId, quantity, Integer::sum)));
+        Map<UUID, CachedProductDTO> products = productCacheService.findAllById(totalQuantities.keySet());
+
+        Date now = new Date();
+        List<Invoice> savedInvoices = new ArrayList<>(invoiceSaveDTOs.size());
+        double totalAmount = 0.00;
+        for (int i = 0; i < invoiceSaveDTOs.size(); i++) {
+            Customer customer = customers.get(invoiceSaveDTOs.get(i).getCustomerId());
+            if (customer == null) {
+                throw new ResourceNotFoundException("Customer not found");
+            }
+            validateProducts(requestedQuantities.get(i).keySet(), products);
+            Invoice savedInvoice = addInvoice(customer, requestedQuantities.get(i), products, now);
+            savedInvoices.add(savedInvoice);
+            totalAmount += savedInvoice.getAmount();
+        }
+
+        stockService.decrementStock(totalQuantities);
+        revenueService.addRevenue(now, totalAmount);
+
+        return savedInvoices.stream().map(invoiceMapper::toInvoiceDTO).toList();
+    }
+
+    // Lines for the same product are merged so each product is checked and decremented once
+    private static Map<UUID, Integer> requestedQuantities(InvoiceSaveDTO invoiceSaveDTO) {
+        Map<UUID, Integer> requestedQuantities = new LinkedHashMap<>();
+        for (InvoiceDetailSaveDTO detailDTO : invoiceSaveDTO.getInvoiceDetails()) {
+            requestedQuantities.merge(detailDTO.getProductId(), detailDTO.getQuantity(), Integer::sum);
+        }
+        return requestedQuantities;
+    }
+
+    private static void validateProducts(Collection<UUID> productIds, Map<UUID, CachedProductDTO> products) {
+        for (UUID productId : productIds) {
+            CachedProductDTO product = products.get(productId);
+            if (product == null) {
+                throw new ResourceNotFoundException("Product not found");
+            }
+
+            // Re-validate the product status, the stock is checked by the decrement
+            if (product.getStatus() != Status.ACTIVE) {
+                throw new IllegalArgumentException("Product is not active");
+            }
+        }
+    }
+
+    // Save a new invoice dated at the given instant, with one detail per product cascaded and batch inserted with it
+    private Invoice addInvoice(Customer customer, Map<UUID, Integer> requestedQuantities, Map<UUID, CachedProductDTO> products, Date now) {
         // Initialize a new invoice with initial value
         Invoice invoice = new Invoice();
         invoice.setCustomer(customer);
         invoice.setAmount(0.00);    // Set the initial amount to 0.00
-        invoice.setDate(new Date());
-        invoice.setCreatedAt(new Date());
-        invoice.setUpdatedAt(new Date());
-        // Save the invoice
+        invoice.setDate(now);
+        invoice.setCreatedAt(now);
+        invoice.setUpdatedAt(now);
+        // Save the invoice, the ID is assigned here while the insert itself is deferred until flush
         Invoice savedInvoice = invoiceRepository.save(invoice);
 
-        // 3. Add product to invoice
-        // This can be done through invoice details
         double totalAmount = 0.00;
-        List<InvoiceDetail> invoiceDetails = new ArrayList<>();
+        List<InvoiceDetail> invoiceDetails = new ArrayList<>(requestedQuantities.size());
 
-        for (InvoiceDetailSaveDTO detailDTO : invoiceSaveDTO.getInvoiceDetails()) {
-            // Check whether the product actually exists using the ID on the product repo
-            Product product = productRepository.findById(detailDTO.getProductId())
-                    .orElseThrow(() -> new ResourceNotFoundException("Product not found"));
-            
-            // Re-validate the product status
-            if (product.getStatus() != Status.ACTIVE) {
-                throw new IllegalArgumentException("Product is not active");
-            }
-            
-            // And request quantity
-            if (product.getQuantity() < detailDTO.getQuantity()) {
-                throw new IllegalArgumentException(INSUFFICIENT_PRODUCT_STOCK);
-            }
+        for (Map.Entry<UUID, Integer> requested : requestedQuantities.entrySet()) {
+            CachedProductDTO product = products.get(requested.getKey());
+            int quantity = requested.getValue();
 
-            // If valid, then create invoice detail
             // Start from the key
-            InvoiceDetailKey key = new InvoiceDetailKey(savedInvoice.getId(), detailDTO.getProductId());
-            
-            // Create invoice detail
+            InvoiceDetailKey key = new InvoiceDetailKey(savedInvoice.getId(), product.getId());
+
+            // Create invoice detail, only referencing the product row so it is not loaded again
             InvoiceDetail invoiceDetail = new InvoiceDetail();
             invoiceDetail.setId(key);
             invoiceDetail.setInvoice(savedInvoice);
-
-            // Since the repo only returning active product, it already validated
-            invoiceDetail.setProduct(product);
+            invoiceDetail.setProduct(productRepository.getReferenceById(product.getId()));
             invoiceDetail.setProductName(product.getName());
-            invoiceDetail.setQuantity(detailDTO.getQuantity());
+            invoiceDetail.setQuantity(quantity);
             invoiceDetail.setPrice(product.getPrice());
-            invoiceDetail.setAmount(product.getPrice() * detailDTO.getQuantity());  // Amount = price * quantity
+            invoiceDetail.setAmount(product.getPrice() * quantity);  // Amount = price * quantity
             invoiceDetail.setCreatedAt(savedInvoice.getCreatedAt());
             invoiceDetail.setUpdatedAt(savedInvoice.getUpdatedAt());
             invoiceDetails.add(invoiceDetail);
 
-            // Update product quantity
-            product.setQuantity(product.getQuantity() - detailDTO.getQuantity());
-            if (product.getQuantity() < 0) {
-                throw new IllegalArgumentException(INSUFFICIENT_PRODUCT_STOCK);
-            }
-            productRepository.save(product);
-
             totalAmount += invoiceDetail.getAmount();
         }
 
-        // Save all the invoice details
-        invoiceDetailRepository.saveAll(invoiceDetails);
-
-        // Update the invoice amount
+        // Update the invoice amount and set list of products for the invoice
         savedInvoice.setAmount(totalAmount);
-        // Set list of products for the invoice
         savedInvoice.setInvoiceDetails(invoiceDetails);
-
-        return invoiceMapper.toInvoiceDTO(invoiceRepository.save(savedInvoice));
+        return savedInvoice;
     }
 
     /**
-     * Updates an existing invoice with the provided invoice details. The method first checks if the invoice actually exists and if it is within the 10-minute editable window. It then updates the invoice details, ensuring that the product exists and is active, and that the quantity requested does not exceed the available stock. The method also updates the product quantity and saves the updated invoice details. Finally, it updates the invoice amount and returns the updated invoice as a DTO.
+     * Updates an existing invoice with the provided invoice details. The method first checks if the invoice actually exists, loading it with its customer and details in a single query, and if it is within the 10-minute editable window. It then ensures that every requested product exists and is active, with the products looked up through the {@link ProductCacheService}.
+     * The requested lines are compared with the current details through an {@link InvoiceDetailsDiff}, which matches them by product and finds the added, changed and removed details along with the net stock change of every product. Only those rows are written: the new details are inserted and the changed ones updated when the transaction flushes, the removed ones deleted, all as JDBC batches, while the unchanged details are left alone. The product quantities are adjusted atomically through the {@link StockService}, which fails the update when the quantity requested exceeds the available stock.
+     * Finally, it updates the invoice amount, moves the revenue from the old date and amount to the new ones in the revenue rollups, and returns the updated invoice as a DTO.
      *
      * @param id The unique identifier of the invoice to be updated.
      * @param invoiceSaveDTO The invoice details containing the details for updating the invoice.
      * @return The updated invoice as a DTO.
      * @throws BadRequestException If the invoice is not found or if it is not within the 10-minute editable window.
+     * @throws ResourceNotFoundException If any product is not found.
+     * @throws IllegalArgumentException If any product is not active or has insufficient stock.
      */
     @Override
     @Transactional
     public InvoiceDTO updateInvoice(UUID id, @Valid InvoiceSaveDTO invoiceSaveDTO) throws BadRequestException {
-        // Check if the invoice actually exists
-        Invoice existingInvoice = invoiceRepository.findById(id)
+        // Check if the invoice actually exists, loaded with its customer and details in one query
+        Invoice existingInvoice = invoiceRepository.findWithCustomerAndDetailsById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Invoice not found"));
 
         // Check if the invoice is within the 10-minute editable window
@@ -194,80 +343,44 @@ public class InvoiceServiceImpl implements InvoiceService {
             throw new BadRequestException("Invoice can only be edited within 10 minutes of its creation");
         }
 
-        // Update the invoice details
-        existingInvoice.setDate(new Date());
-        existingInvoice.setUpdatedAt(new Date());
+        // Look up and validate every requested product in one pass
+        Map<UUID, Integer> requestedQuantities = requestedQuantities(invoiceSaveDTO);
+        Map<UUID, CachedProductDTO> products = productCacheService.findAllById(requestedQuantities.keySet());
+        validateProducts(requestedQuantities.keySet(), products);
 
-        // Update invoice details
-        double totalAmount = 0.00;
-        List<InvoiceDetail> updatedInvoiceDetails = new ArrayList<>();
+        // Remember what the revenue rollups currently hold for this invoice
+        Date oldDate = existingInvoice.getDate();
+        double oldAmount = existingInvoice.getAmount();
+        Date updatedAt = new Date();
 
-        for (InvoiceDetailSaveDTO detailDTO : invoiceSaveDTO.getInvoiceDetails()) {
-            // Check if the product exists
-            Product product = productRepository.findById(detailDTO.getProductId())
-                    .orElseThrow(() -> new ResourceNotFoundException("Product not found"));
-            
-            // Validate the product status
-            if (product.getStatus() != Status.ACTIVE) {
-                throw new BadRequestException("Product is not active");
-            }
-
-            // Modify based on the existing invoice
-            Optional<InvoiceDetail> existingDetailOpt = existingInvoice.getInvoiceDetails().stream()
-                .filter(detail -> detail.getProduct().getId().equals(detailDTO.getProductId()))
-                .findFirst();
-
-            // Calculate the diifs
-            int quantityDifference = detailDTO.getQuantity();
-            if (existingDetailOpt.isPresent()) {
-                InvoiceDetail existingDetail = existingDetailOpt.get();
-                quantityDifference -= existingDetail.getQuantity();
-                updatedInvoiceDetails.remove(existingDetail);
-            }
-
-            // Validate
-            if (product.getQuantity() < quantityDifference) {
-                throw new IllegalArgumentException(INSUFFICIENT_PRODUCT_STOCK);
-            }
+        // Find what the update changes, the changed details are updated in place
+        InvoiceDetailsDiff diff = InvoiceDetailsDiff.compute(existingInvoice, requestedQuantities, products, productRepository::getReferenceById, updatedAt);
 
-            // Start from the key
-            InvoiceDetailKey key = new InvoiceDetailKey(existingInvoice.getId(), detailDTO.getProductId());
-            
-            // Managing the invoice detail
-            InvoiceDetail invoiceDetail = new InvoiceDetail();
-            invoiceDetail.setId(key);
-            invoiceDetail.setInvoice(existingInvoice);
-
-            invoiceDetail.setProduct(product);
-            invoiceDetail.setProductName(product.getName());
-            invoiceDetail.setQuantity(detailDTO.getQuantity());
-            invoiceDetail.setPrice(product.getPrice());
-            invoiceDetail.setAmount(product.getPrice() * detailDTO.getQuantity());
-            invoiceDetail.setCreatedAt(existingInvoice.getCreatedAt());
-            invoiceDetail.setUpdatedAt(new Date());
-            updatedInvoiceDetails.add(invoiceDetail);
-
-            // Update product quantity
-            product.setQuantity(product.getQuantity() - quantityDifference);
-            if (product.getQuantity() < 0) {
-                throw new IllegalArgumentException(INSUFFICIENT_PRODUCT_STOCK);
-            }
-            productRepository.save(product);
-
-            totalAmount += invoiceDetail.getAmount();
+        // Update product quantities atomically, this fails the whole update if the stock ran out
+        if (!diff.getStockToTake().isEmpty()) {
+            stockService.decrementStock(diff.getStockToTake());
+        }
+        if (!diff.getStockToReturn().isEmpty()) {
+            stockService.incrementStock(diff.getStockToReturn());
         }
 
-        invoiceDetailRepository.saveAll(updatedInvoiceDetails);
+        // The new details are cascaded from the invoice when it flushes
+        if (!diff.getRemoved().isEmpty()) {
+            invoiceDetailRepository.deleteAll(diff.getRemoved());
+        }
+        existingInvoice.setInvoiceDetails(diff.getDetails());
 
-        // Update the invoice amount
-        existingInvoice.setAmount(totalAmount);
-        existingInvoice.setInvoiceDetails(updatedInvoiceDetails);
+        // Update the invoice date and amount
+        existingInvoice.setDate(updatedAt);
+        existingInvoice.setUpdatedAt(updatedAt);
+        existingInvoice.setAmount(diff.getTotalAmount());
+        revenueService.moveRevenue(oldDate, oldAmount, existingInvoice.getDate(), diff.getTotalAmount());
 
-        return invoiceMapper.toInvoiceDTO(invoiceRepository.save(existingInvoice));
+        return invoiceMapper.toInvoiceDTO(existingInvoice);
     }
 
     /**
-     * Generates a PDF representation of the specified invoice.
+     * Generates a PDF representation of the specified invoice. The invoice is loaded with its customer and details in a single query, so rendering the template reads no lazy association.
      *
      * @param id The unique identifier of the invoice to be exported to PDF.
      * @return A byte array containing the PDF data of the specified invoice.
@@ -275,30 +388,232 @@ public class InvoiceServiceImpl implements InvoiceService {
      */
     @Override
     public byte[] exportInvoiceToPDF(UUID id) throws IOException {
-        // Check if the invoice actually exists
-        Invoice invoice = invoiceRepository.findById(id)
+        // Check if the invoice actually exists, loaded with everything its PDF shows
+        Invoice invoice = invoiceRepository.findWithCustomerAndDetailsById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Invoice not found"));
 
         return pdfGenerator.generateInvoicePDF(invoice);
     }
 
     /**
-     * Generates an Excel file containing the specified invoices based on the provided search criteria.
+     * Writes a PDF representation of the specified invoice to an output stream, as the producer of an export job. The job runs outside of any request, so the invoice, its customer and its details are read within a read-only transaction of its own.
+     *
+     * @param id The unique identifier of the invoice to be exported to PDF.
+     * @param outputStream The output stream the PDF is written to.
+     * @param progress The progress of the export job, which counts the single invoice.
+     * @throws IOException If an error occurs while generating or writing the PDF.
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public void exportInvoiceToPDF(UUID id, OutputStream outputStream, ExportProgress progress) throws IOException {
+        progress.start(1);
+        outputStream.write(exportInvoiceToPDF(id));
+        progress.advance();
+    }
+
+    /**
+     * Generates an Excel file containing the specified invoices based on the provided search criteria. The year and month are turned into a date range, so the invoices are looked up through the date index, or the customer and date index when a customer is given. Every invoice detail is read as one flat row with its invoice and customer already joined, so the export runs a single query.
      *
      * @param criteria The {@link InvoiceDetailsSearchCriteriaDTO} object containing various criteria for filtering the invoices.
      * @return A {@link Workbook} object containing the Excel file with the specified invoices.
+     * @throws BadRequestException If the month is not between 1 and 12.
      */
     @Override
+    @Transactional(readOnly = true)
     public Workbook exportInvoiceToExcelByFilter(InvoiceDetailsSearchCriteriaDTO criteria) {
+        try (Stream<InvoiceExcelRowDTO> rows = streamExcelRows(criteria)) {
+            return ExcelGenerator.generateInvoiceExcel(rows.toList());
+        }
+    }
+
+    /**
+     * Streams an Excel file containing the specified invoices based on the provided search criteria straight to an output stream. The flat invoice detail rows are read forward-only with a JDBC fetch size, without materializing any entity, and written through a streaming workbook, so the memory used stays the same however many invoices are exported.
+     * On MySQL the fetch size is only honoured when the connection URL enables {@code useCursorFetch=true}, otherwise the driver reads the whole result set first.
+     *
+     * @param criteria The {@link InvoiceDetailsSearchCriteriaDTO} object containing various criteria for filtering the invoices.
+     * @param outputStream The output stream the Excel file is written to.
+     * @throws IOException If an error occurs while writing the Excel file.
+     * @throws BadRequestException If the month is not between 1 and 12.
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public void exportInvoiceToExcelByFilter(InvoiceDetailsSearchCriteriaDTO criteria, OutputStream outputStream) throws IOException {
+        exportInvoiceToExcelByFilter(criteria, outputStream, ExportProgress.NONE);
+    }
+
+    /**
+     * Streams an Excel file containing the specified invoices based on the provided search criteria to an output stream, as the producer of an export job. The invoice details are counted first, and every row written advances the progress of the job.
+     *
+     * @param criteria The {@link InvoiceDetailsSearchCriteriaDTO} object containing various criteria for filtering the invoices.
+     * @param outputStream The output stream the Excel file is written to.
+     * @param progress The progress of the export job, which counts the invoice details.
+     * @throws IOException If an error occurs while writing the Excel file.
+     * @throws BadRequestException If the month is not between 1 and 12.
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public void exportInvoiceToExcelByFilter(InvoiceDetailsSearchCriteriaDTO criteria, OutputStream outputStream, ExportProgress progress) throws IOException {
+        // Without a job to report to, the rows are neither counted nor tracked
+        if (progress == ExportProgress.NONE) {
+            try (Stream<InvoiceExcelRowDTO> rows = streamExcelRows(criteria)) {
+                ExcelGenerator.writeInvoiceExcel(rows, outputStream);
+            }
+            return;
+        }
+
+        progress.start(countExcelRows(criteria));
+        try (Stream<InvoiceExcelRowDTO> rows = streamExcelRows(criteria)) {
+            ExcelGenerator.writeInvoiceExcel(rows.peek(row -> progress.advance()), outputStream);
+        }
+    }
+
+    /**
+     * Streams a ZIP archive containing the PDF of every invoice selected by the provided search criteria straight to an output stream.
+     *
+     * @param criteria The {@link InvoiceDetailsSearchCriteriaDTO} object containing various criteria for filtering the invoices.
+     * @param outputStream The output stream the ZIP archive is written to.
+     * @throws IOException If an error occurs while rendering the PDFs or writing the ZIP archive.
+     * @throws BadRequestException If the month is not between 1 and 12.
+     * @see #exportInvoicesToPDFByFilter(InvoiceDetailsSearchCriteriaDTO, OutputStream, ExportProgress)
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public void exportInvoicesToPDFByFilter(InvoiceDetailsSearchCriteriaDTO criteria, OutputStream outputStream) throws IOException {
+        exportInvoicesToPDFByFilter(criteria, outputStream, ExportProgress.NONE);
+    }
+
+    /**
+     * Streams a ZIP archive containing the PDF of every invoice selected by the provided search criteria to an output stream, as the producer of an export job when a progress is given.
+     * The invoices are loaded by chunks, with their customer and details already joined, and their PDFs are rendered in parallel on the render executor of the {@link PDFGenerator}. Each PDF is added to the archive as soon as it is rendered, so the entries follow the completion order. At most {@code pdf.bulk.in-flight} invoices are rendered at once and the loaded invoices are detached chunk by chunk, so the memory used stays the same however many invoices are exported.
+     * When concurrent exports fill the render queue, the export waits for room in it rather than being rejected, since the beginning of the archive may already have been sent to the client.
+     *
+     * @param criteria The {@link InvoiceDetailsSearchCriteriaDTO} object containing various criteria for filtering the invoices.
+     * @param outputStream The output stream the ZIP archive is written to.
+     * @param progress The progress of the export job, which counts the invoices.
+     * @throws IOException If an error occurs while rendering the PDFs or writing the ZIP archive.
+     * @throws BadRequestException If the month is not between 1 and 12.
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public void exportInvoicesToPDFByFilter(InvoiceDetailsSearchCriteriaDTO criteria, OutputStream outputStream, ExportProgress progress) throws IOException {
+        List<UUID> invoiceIds = findIdsForPDF(criteria);
+        progress.start(invoiceIds.size());
+
+        BlockingQueue<RenderedPDF> rendered = new LinkedBlockingQueue<>();
+        int inFlight = 0;
+        ZipOutputStream zipOutputStream = new ZipOutputStream(outputStream);
+        // The PDFs are already compressed
+        zipOutputStream.setLevel(Deflater.BEST_SPEED);
+
+        for (int from = 0; from < invoiceIds.size(); from += pdfBulkInFlight) {
+            List<UUID> chunk = invoiceIds.subList(from, Math.min(from + pdfBulkInFlight, invoiceIds.size()));
+            for (Invoice invoice : invoiceRepository.findAllForPDFByIdIn(chunk)) {
+                if (inFlight == pdfBulkInFlight) {
+                    writePDFEntry(zipOutputStream, takeRenderedPDF(rendered));
+                    progress.advance();
+                    inFlight--;
+                }
+                UUID invoiceId = invoice.getId();
+                queueInvoicePDF(invoice)
+                        .whenComplete((pdf, error) -> rendered.add(new RenderedPDF(invoiceId, pdf, error)));
+                inFlight++;
+            }
+            // The templates of the chunk are processed, so its invoices are no longer needed
+            entityManager.clear();
+        }
+
+        while (inFlight > 0) {
+            writePDFEntry(zipOutputStream, takeRenderedPDF(rendered));
+            progress.advance();
+            inFlight--;
+        }
+        zipOutputStream.finish();
+        zipOutputStream.flush();
+    }
+
+    // Read the details of every listed invoice with a single query, grouped by invoice
+    private Map<UUID, List<InvoiceDetailDTO>> findDetailsByInvoice(List<InvoiceRowDTO> invoices) {
+        if (invoices.isEmpty()) {
+            return Map.of();
+        }
+        List<UUID> invoiceIds = invoices.stream().map(InvoiceRowDTO::getId).toList();
+        Map<UUID, List<InvoiceDetailDTO>> details = new HashMap<>();
+        for (InvoiceDetailRowDTO row : invoiceDetailRepository.findRowsByInvoiceIdIn(invoiceIds)) {
+            details.computeIfAbsent(row.getInvoiceId(), invoiceId -> new ArrayList<>())
+                    .add(new InvoiceDetailDTO(row.getProductId(), row.getProductName(), row.getQuantity(), row.getPrice(), row.getAmount()));
+        }
+        return details;
+    }
+
+    // Assemble the DTO of a listed invoice from its row and the details read for its page
+    private static InvoiceDTO toInvoiceDTO(InvoiceRowDTO invoice, Map<UUID, List<InvoiceDetailDTO>> details) {
+        return new InvoiceDTO(invoice.getId(), invoice.getAmount(), invoice.getDate(),
+                new CustomerInvoiceDTO(invoice.getCustomerId(), invoice.getCustomerName()),
+                details.getOrDefault(invoice.getId(), List.of()));
+    }
+
+    // Find the IDs of the invoices selected by the criteria, through the customer and date index when a customer is given
+    private List<UUID> findIdsForPDF(InvoiceDetailsSearchCriteriaDTO criteria) {
+        UUID customerId = criteria.getCustomerId();
+        DateRange range = yearMonthRange(criteria.getYear(), criteria.getMonth());
+        Integer month = monthOfAnyYear(criteria.getYear(), criteria.getMonth());
+        return customerId != null
+                ? invoiceRepository.findIdsByCustomerForPDF(customerId, range.from(), range.to(), month)
+                : invoiceRepository.findIdsForPDF(range.from(), range.to(), month);
+    }
+
+    // Wait for room in the render queue of the PDF generator
+    private CompletableFuture<byte[]> queueInvoicePDF(Invoice invoice) throws IOException {
+        try {
+            return pdfGenerator.queueInvoicePDF(invoice);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("PDF rendering was interrupted", e);
+        }
+    }
+
+    // Wait for the next PDF to be rendered
+    private static RenderedPDF takeRenderedPDF(BlockingQueue<RenderedPDF> rendered) throws IOException {
+        try {
+            return rendered.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("PDF rendering was interrupted", e);
+        }
+    }
+
+    // Add a rendered PDF to the archive, named like the PDF of a single invoice export
+    private static void writePDFEntry(ZipOutputStream zipOutputStream, RenderedPDF rendered) throws IOException {
+        if (rendered.error() != null) {
+            throw new IOException("Failed to render the PDF of invoice " + rendered.invoiceId(), rendered.error());
+        }
+        zipOutputStream.putNextEntry(new ZipEntry("invoice_" + rendered.invoiceId() + ".pdf"));
+        zipOutputStream.write(rendered.pdf());
+        zipOutputStream.closeEntry();
+    }
+
+    // Count the flat Excel rows of the invoices selected by the criteria
+    private long countExcelRows(InvoiceDetailsSearchCriteriaDTO criteria) {
+        UUID customerId = criteria.getCustomerId();
+        DateRange range = yearMonthRange(criteria.getYear(), criteria.getMonth());
+        Integer month = monthOfAnyYear(criteria.getYear(), criteria.getMonth());
+        return customerId != null
+                ? invoiceRepository.countRowsByCustomerForExcel(customerId, range.from(), range.to(), month)
+                : invoiceRepository.countRowsForExcel(range.from(), range.to(), month);
+    }
+
+    // Stream the flat Excel rows of the invoices selected by the criteria, through the customer and date index when a customer is given
+    private Stream<InvoiceExcelRowDTO> streamExcelRows(InvoiceDetailsSearchCriteriaDTO criteria) {
         UUID customerId = criteria.getCustomerId();
-        Integer month = criteria.getMonth();
-        Integer year = criteria.getYear();
-        List<Invoice> invoices = invoiceRepository.findByFiltersForExcel(customerId, month, year);
-        return ExcelGenerator.generateInvoiceExcel(invoices);
+        DateRange range = yearMonthRange(criteria.getYear(), criteria.getMonth());
+        Integer month = monthOfAnyYear(criteria.getYear(), criteria.getMonth());
+        return customerId != null
+                ? invoiceRepository.streamRowsByCustomerForExcel(customerId, range.from(), range.to(), month)
+                : invoiceRepository.streamRowsForExcel(range.from(), range.to(), month);
     }
 
     /**
-     * Retrieves the total revenue for a given date, month, or year based on the provided revenueBy parameter.
+     * Retrieves the total revenue for a given date, month, or year based on the provided revenueBy parameter. The revenue is read from the rollup of the period, which is kept up to date by every invoice change, so the cost does not grow with the number of invoices.
      *
      * @param date The date for which the total revenue should be calculated.
      * @param revenueBy A string indicating whether the total revenue should be calculated for the year, month, or day.
@@ -308,7 +623,7 @@ public class InvoiceServiceImpl implements InvoiceService {
      */
     @Override
     public RevenueShowDTO getInvoicesRevenue(Date date, String revenueBy) {
-        Double revenueTotal;
+        double revenueTotal;
         LocalDate localDate = DateUtils.formatDateToLocalDate(date);
 
         int year = localDate.getYear();
@@ -319,16 +634,16 @@ public class InvoiceServiceImpl implements InvoiceService {
 
         switch (revenueBy.toLowerCase()) {
             case "year" -> {
-                revenueTotal = invoiceRepository.findTotalRevenueByYear(year);
+                revenueTotal = revenueService.findRevenue(RevenuePeriod.YEAR, localDate);
                 revenueShowDTO.setAmount(revenueTotal);
             }
             case "month" -> {
-                revenueTotal = invoiceRepository.findTotalRevenueByMonth(year, month);
+                revenueTotal = revenueService.findRevenue(RevenuePeriod.MONTH, localDate);
                 revenueShowDTO.setMonth(month);
                 revenueShowDTO.setAmount(revenueTotal);
             }
             case "day" -> {
-                revenueTotal = invoiceRepository.findTotalRevenueByDay(date);
+                revenueTotal = revenueService.findRevenue(RevenuePeriod.DAY, localDate);
                 revenueShowDTO.setMonth(month);
                 revenueShowDTO.setDay(day);
                 revenueShowDTO.setAmount(revenueTotal);
@@ -338,4 +653,151 @@ public class InvoiceServiceImpl implements InvoiceService {
 
         return revenueShowDTO;
     }
+
+    /**
+     * Retrieves the total revenue of every day, week, or month between two dates, so a chart can be drawn with one call. Day and week buckets are read from the daily rollups and month buckets from the monthly rollups, each with a single range query, and the buckets without invoices are filled with zero.
+     *
+     * @param start The date of the first bucket, which is aligned to the start of its day, week (Monday) or month.
+     * @param end The date of the last bucket, inclusive.
+     * @param granularity A string indicating whether the revenue should be bucketed by day, week, or month.
+     * @return The {@link RevenueBucketDTO} of every bucket from the start to the end, in ascending order.
+     * @throws IllegalArgumentException If the provided granularity parameter is invalid.
+     * @throws BadRequestException If the end is before the start or the range holds too many buckets.
+     */
+    @Override
+    public List<RevenueBucketDTO> getInvoicesRevenueSeries(Date start, Date end, String granularity) {
+        SeriesGranularity series = switch (granularity.toLowerCase()) {
+            case "day" -> new SeriesGranularity(RevenuePeriod.DAY, ChronoUnit.DAYS, day -> day);
+            case "week" -> new SeriesGranularity(RevenuePeriod.DAY, ChronoUnit.WEEKS,
+                    day -> day.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY)));
+            case "month" -> new SeriesGranularity(RevenuePeriod.MONTH, ChronoUnit.MONTHS, day -> day.withDayOfMonth(1));
+            default -> throw new IllegalArgumentException("Invalid granularity parameter");
+        };
+
+        LocalDate first = series.startOf().apply(DateUtils.formatDateToLocalDate(start));
+        LocalDate last = series.startOf().apply(DateUtils.formatDateToLocalDate(end));
+        if (last.isBefore(first)) {
+            throw new BadRequestException("The end date must not be before the start date");
+        }
+        if (series.unit().between(first, last) >= MAX_REVENUE_SERIES_BUCKETS) {
+            throw new BadRequestException("The revenue series is limited to " + MAX_REVENUE_SERIES_BUCKETS + " buckets");
+        }
+
+        // Zero-fill every bucket first, so the buckets without invoices are kept in order
+        Map<LocalDate, Double> buckets = new LinkedHashMap<>();
+        for (LocalDate bucket = first; !bucket.isAfter(last); bucket = bucket.plus(1, series.unit())) {
+            buckets.put(bucket, 0.0);
+        }
+
+        LocalDate to = last.plus(1, series.unit());
+        revenueService.findRevenues(series.source(), first, to)
+                .forEach((day, amount) -> buckets.merge(series.startOf().apply(day), amount, Double::sum));
+
+        List<RevenueBucketDTO> revenueSeries = new ArrayList<>(buckets.size());
+        buckets.forEach((bucket, amount) -> revenueSeries.add(new RevenueBucketDTO(bucket, amount)));
+        return revenueSeries;
+    }
+
+    /**
+     * Builds the half-open date range selected by a year and an optional month. A month without a year matches that month of every year, which is no single range, so the range then covers every invoice and the month is left to {@link #monthOfAnyYear(Integer, Integer)}.
+     *
+     * @param year The year to filter on, or {@code null}.
+     * @param month The month to filter on, or {@code null}.
+     * @return The date range to filter on.
+     * @throws BadRequestException If the month is not between 1 and 12.
+     */
+    private static DateRange yearMonthRange(Integer year, Integer month) {
+        if (month != null && (month < 1 || month > 12)) {
+            throw new BadRequestException("Invalid month");
+        }
+        if (year == null) {
+            return DateRange.ALL;
+        }
+
+        LocalDate start = LocalDate.of(year, month == null ? 1 : month, 1);
+        LocalDate end = month == null ? start.plusYears(1) : start.plusMonths(1);
+        return new DateRange(DateUtils.toDate(start), DateUtils.toDate(end));
+    }
+
+    /**
+     * Builds the half-open date range selected by the year, month, start date and end date of the invoice search criteria.
+     *
+     * @param criteria The {@link InvoiceSearchCriteriaDTO} object containing the date filters.
+     * @return The date range to filter on.
+     */
+    private static DateRange criteriaRange(InvoiceSearchCriteriaDTO criteria) {
+        DateRange range = yearMonthRange(criteria.getYear(), criteria.getMonth());
+        if (criteria.getStartDate() != null && criteria.getEndDate() != null) {
+            // The end date is inclusive, so the range stops right after it
+            range = range.intersect(criteria.getStartDate(), new Date(criteria.getEndDate().getTime() + 1));
+        }
+        return range;
+    }
+
+    // The month that still has to be matched on its own, as it only becomes part of the date range together with a year
+    private static Integer monthOfAnyYear(Integer year, Integer month) {
+        return year == null ? month : null;
+    }
+
+    /**
+     * A half-open date range [from, to), compared directly against the indexed invoice date.
+     */
+    private record DateRange(Date from, Date to) {
+
+        // Covers every invoice, while staying within the values a DATETIME column can hold
+        static final DateRange ALL = new DateRange(
+                DateUtils.toDate(LocalDate.of(1000, 1, 1)),
+                DateUtils.toDate(LocalDate.of(9999, 12, 31)));
+
+        // Narrow the range down to the part it shares with [otherFrom, otherTo)
+        DateRange intersect(Date otherFrom, Date otherTo) {
+            return new DateRange(from.after(otherFrom) ? from : otherFrom, to.before(otherTo) ? to : otherTo);
+        }
+    }
+
+    /**
+     * The outcome of rendering the PDF of an invoice, either its bytes or the error that failed it.
+     */
+    private record RenderedPDF(UUID invoiceId, byte[] pdf, Throwable error) {
+    }
+
+    /**
+     * How a revenue series is bucketed: the rollup period its buckets are summed from, the length of a bucket, and how a day is aligned to the start of its bucket.
+     */
+    private record SeriesGranularity(RevenuePeriod source, ChronoUnit unit, UnaryOperator<LocalDate> startOf) {
+    }
+
+    /**
+     * Encodes the (date, ID) position of an invoice into an opaque, URL-safe cursor.
+     *
+     * @param date The date of the invoice.
+     * @param id The unique identifier of the invoice.
+     * @return The cursor pointing right after the invoice.
+     */
+    private static String encodeCursor(Date date, UUID id) {
+        ByteBuffer buffer = ByteBuffer.allocate(CURSOR_LENGTH);
+        buffer.putLong(date.getTime());
+        buffer.putLong(id.getMostSignificantBits());
+        buffer.putLong(id.getLeastSignificantBits());
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(buffer.array());
+    }
+
+    /**
+     * Decodes a cursor created by {@link #encodeCursor(Date, UUID)}.
+     *
+     * @param cursor The cursor to be decoded.
+     * @return A buffer holding the date in epoch milliseconds followed by the two halves of the invoice ID.
+     * @throws BadRequestException If the cursor is malformed.
+     */
+    private static ByteBuffer decodeCursor(String cursor) {
+        try {
+            byte[] bytes = Base64.getUrlDecoder().decode(cursor);
+            if (bytes.length != CURSOR_LENGTH) {
+                throw new BadRequestException(INVALID_CURSOR);
+            }
+            return ByteBuffer.wrap(bytes);
+        } catch (IllegalArgumentException e) {
+            throw new BadRequestException(INVALID_CURSOR);
+        }
+    }
 }
\ No newline at end of file
@@ -0,0 +1,194 @@
+package com.example.fpt_midterm_pos.service.impl;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.example.fpt_midterm_pos.data.model.Product;
+import com.example.fpt_midterm_pos.data.model.Status;
+import com.example.fpt_midterm_pos.data.repository.ProductRepository;
+import com.example.fpt_midterm_pos.dto.CachedProductDTO;
+import com.example.fpt_midterm_pos.dto.ProductCacheStatsDTO;
+import com.example.fpt_midterm_pos.service.ProductCacheService;
+
+@Service
+public class ProductCacheServiceImpl implements ProductCacheService {
+
+    private final ProductRepository productRepository;
+    private final int maxEntries;
+    private final long ttlNanos;
+
+    // Guarded by itself, in access order so the least recently used product is evicted first
+    private final Map<UUID, CacheEntry> entries;
+    // Bumped by every invalidation, so a load that raced with one does not cache what it read
+    private long generation;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong expirations = new AtomicLong();
+
+    @Autowired
+    public ProductCacheServiceImpl(
+        ProductRepository productRepository,
+        @Value("${product.cache.max-entries:10000}") int maxEntries,
+        @Value("${product.cache.ttl:PT10M}") Duration ttl) {
+        this.productRepository = productRepository;
+        this.maxEntries = maxEntries;
+        this.ttlNanos = ttl.toNanos();
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<UUID, CacheEntry> eldest) {
+                if (size() > ProductCacheServiceImpl.this.maxEntries) {
+                    evictions.incrementAndGet();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Finds the name, price and status of the given products. Active products are served from memory while their entry is younger than the TTL, and all the others are loaded together with a single query, the active ones among them being cached for the next lookups. Once the cache holds its maximum number of products, the least recently used one is evicted.
+     * The stock is never cached, since it changes with every checkout and is verified by the database when it is decreased.
+     *
+     * @param productIds The unique identifiers of the products to be found.
+     * @return A map of the found products keyed by their ID. Missing products are simply absent from the map.
+     */
+    @Override
+    public Map<UUID, CachedProductDTO> findAllById(Collection<UUID> productIds) {
+        Map<UUID, CachedProductDTO> found = new HashMap<>();
+        List<UUID> missing = new ArrayList<>();
+        long loadedGeneration;
+
+        synchronized (entries) {
+            long now = System.nanoTime();
+            for (UUID productId : productIds) {
+                CacheEntry entry = entries.get(productId);
+                if (entry == null) {
+                    missing.add(productId);
+                } else if (now - entry.loadedAt() >= ttlNanos) {
+                    entries.remove(productId);
+                    expirations.incrementAndGet();
+                    missing.add(productId);
+                } else {
+                    found.put(productId, entry.product());
+                }
+            }
+            loadedGeneration = generation;
+        }
+        hits.addAndGet(found.size());
+        misses.addAndGet(missing.size());
+        if (missing.isEmpty()) {
+            return found;
+        }
+
+        List<CachedProductDTO> loaded = new ArrayList<>(missing.size());
+        for (Product product : productRepository.findAllById(missing)) {
+            CachedProductDTO cachedProduct = toCachedProduct(product);
+            found.put(product.getId(), cachedProduct);
+            loaded.add(cachedProduct);
+        }
+
+        synchronized (entries) {
+            if (generation == loadedGeneration) {
+                long now = System.nanoTime();
+                for (CachedProductDTO cachedProduct : loaded) {
+                    if (cachedProduct.getStatus() == Status.ACTIVE) {
+                        entries.put(cachedProduct.getId(), new CacheEntry(cachedProduct, now));
+                    }
+                }
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Replaces the cached copy of the product with its saved state once the current transaction commits, or right away outside of a transaction. A product that is no longer active is dropped from the cache instead.
+     *
+     * @param product The product that was saved.
+     */
+    @Override
+    public void refresh(Product product) {
+        CachedProductDTO cachedProduct = toCachedProduct(product);
+        afterCommit(() -> {
+            synchronized (entries) {
+                generation++;
+                if (cachedProduct.getStatus() == Status.ACTIVE) {
+                    entries.put(cachedProduct.getId(), new CacheEntry(cachedProduct, System.nanoTime()));
+                } else {
+                    entries.remove(cachedProduct.getId());
+                }
+            }
+        });
+    }
+
+    /**
+     * Drops the cached copies of the given products once the current transaction commits, or right away outside of a transaction, so their next lookup reads them from the database.
+     *
+     * @param productIds The unique identifiers of the products that were changed.
+     */
+    @Override
+    public void evict(Collection<UUID> productIds) {
+        if (productIds.isEmpty()) {
+            return;
+        }
+        List<UUID> evicted = List.copyOf(productIds);
+        afterCommit(() -> {
+            synchronized (entries) {
+                generation++;
+                evicted.forEach(entries::remove);
+            }
+        });
+    }
+
+    /**
+     * Reports the current size of the cache and the counts of hits, misses, evictions and expirations since startup.
+     *
+     * @return A {@link ProductCacheStatsDTO} with the cache metrics.
+     */
+    @Override
+    public ProductCacheStatsDTO getStats() {
+        int size;
+        synchronized (entries) {
+            size = entries.size();
+        }
+        long hitCount = hits.get();
+        long lookups = hitCount + misses.get();
+        double hitRate = lookups == 0 ? 0.0 : (double) hitCount / lookups;
+        return new ProductCacheStatsDTO(size, maxEntries, hitCount, misses.get(), evictions.get(), expirations.get(), hitRate);
+    }
+
+    private static CachedProductDTO toCachedProduct(Product product) {
+        return new CachedProductDTO(product.getId(), product.getName(), product.getPrice(), product.getStatus());
+    }
+
+    // Only apply a change to the cache once the transaction that made it has committed
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    private record CacheEntry(CachedProductDTO product, long loadedAt) {
+    }
+}
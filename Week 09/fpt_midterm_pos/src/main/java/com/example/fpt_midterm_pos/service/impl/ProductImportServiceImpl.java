@@ -0,0 +1,353 @@
+package com.example.fpt_midterm_pos.service.impl;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.multipart.MultipartFile;
+
+import com.example.fpt_midterm_pos.data.model.Product;
+import com.example.fpt_midterm_pos.data.model.ProductImportMode;
+import com.example.fpt_midterm_pos.data.model.Status;
+import com.example.fpt_midterm_pos.data.repository.ProductRepository;
+import com.example.fpt_midterm_pos.dto.ProductImportRowDTO;
+import com.example.fpt_midterm_pos.dto.ProductImportSummaryDTO;
+import com.example.fpt_midterm_pos.dto.ProductSaveDTO;
+import com.example.fpt_midterm_pos.exception.BadRequestException;
+import com.example.fpt_midterm_pos.service.ProductCacheService;
+import com.example.fpt_midterm_pos.service.ProductImportService;
+import com.example.fpt_midterm_pos.service.ProductNameIndexService;
+import com.example.fpt_midterm_pos.service.StockService;
+import com.example.fpt_midterm_pos.utils.FileUtils;
+import com.example.fpt_midterm_pos.utils.UUIDUtils;
+
+import jakarta.annotation.PreDestroy;
+import jakarta.validation.Validator;
+
+@Service
+public class ProductImportServiceImpl implements ProductImportService {
+
+    private static final Logger log = LoggerFactory.getLogger(ProductImportServiceImpl.class);
+
+    // Number of failed row numbers listed in the summary, the counts stay exact beyond it
+    private static final int MAX_FAILED_ROW_NUMBERS = 1000;
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    private final ProductRepository productRepository;
+    private final StockService stockService;
+    private final ProductCacheService productCacheService;
+    private final ProductNameIndexService productNameIndexService;
+    private final TransactionTemplate transactionTemplate;
+    private final Validator validator;
+    private final int chunkSize;
+    private final int batchSize;
+    private final ExecutorService writer;
+
+    @Autowired
+    public ProductImportServiceImpl(
+        ProductRepository productRepository,
+        StockService stockService,
+        ProductCacheService productCacheService,
+        ProductNameIndexService productNameIndexService,
+        PlatformTransactionManager transactionManager,
+        Validator validator,
+        @Value("${product.import.chunk-size:5000}") int chunkSize,
+        @Value("${product.import.batch-size:1000}") int batchSize,
+        @Value("${product.import.writer-threads:2}") int writerThreads) {
+        this.productRepository = productRepository;
+        this.stockService = stockService;
+        this.productCacheService = productCacheService;
+        this.productNameIndexService = productNameIndexService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.validator = validator;
+        this.chunkSize = chunkSize;
+        this.batchSize = batchSize;
+        this.writer = Executors.newFixedThreadPool(writerThreads, new CustomizableThreadFactory("product-import-"));
+    }
+
+    /**
+     * Imports the products of an Excel file chunk by chunk. The file is parsed row by row on the calling thread, and every full chunk is handed to the import writer, which validates its rows in parallel and inserts the valid ones with JDBC batches in a transaction of its own. The next chunk is parsed while the previous one is written, and at most one chunk is being written per import, so the memory used is bounded by two chunks whatever the size of the file.
+     * A row that cannot be read or fails validation is counted as failed without stopping the import, and so is every row of a chunk whose write fails. The chunks committed before an error stay imported.
+     * In the {@link ProductImportMode#UPSERT} mode, the existing products are indexed by their normalized name in a hash map loaded once before parsing, the oldest product winning when several share a name. A row matching a product only updates its price and quantity, in a batch of its own, when one of them differs, so a resent catalog costs no write for the rows that did not change. Rows matching no product are inserted and indexed, so a name repeated later in the file updates the same product. The quantity of a product whose stock is split across sub-counters, as found in a single query next to the catalog, is left alone, and once a chunk has committed its updated products are evicted from the product cache, while its inserted products and status changes reach the product name index.
+     *
+     * @param file The MultipartFile object containing the Excel file with product data.
+     * @param mode Whether every row is inserted, or rows update the product with the same name.
+     * @return A {@link ProductImportSummaryDTO} with the number of rows read, inserted, updated, unchanged and failed, and the row numbers of the failed rows.
+     * @throws BadRequestException If the file is not in the correct Excel format or an error occurs while reading it.
+     */
+    @Override
+    public ProductImportSummaryDTO importProducts(MultipartFile file, ProductImportMode mode) {
+        long startedAt = System.currentTimeMillis();
+        ImportRun run = mode == ProductImportMode.UPSERT
+                ? new ImportRun(loadCatalog(), stockService.findSplitProductIds())
+                : new ImportRun(null, Set.of());
+
+        try {
+            FileUtils.readProductsFromExcel(file, run::accept);
+            run.flush();
+        } catch (IOException e) {
+            throw new BadRequestException("Error reading Excel file: " + e.getMessage());
+        } catch (IllegalArgumentException e) {
+            throw new BadRequestException("Invalid file format. Only Excel files are accepted.");
+        } finally {
+            run.inFlight.join();
+        }
+
+        return run.tally.toSummary(System.currentTimeMillis() - startedAt);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        writer.shutdown();
+    }
+
+    // Validate the rows of the chunk in parallel, then insert the new products and update the changed ones in a single transaction
+    private void writeChunk(List<ProductImportRowDTO> chunk, ImportRun run) {
+        ImportTally tally = run.tally;
+        Date now = new Date();
+        List<ImportedRow> validated = chunk.parallelStream()
+                .map(row -> validate(row, now))
+                .toList();
+
+        List<Product> inserts = new ArrayList<>(validated.size());
+        List<Product> updates = new ArrayList<>();
+        // Products written by the chunk, keyed by normalized name, only published to the catalog once committed
+        Map<String, Product> written = new HashMap<>();
+        List<Integer> rowNumbers = new ArrayList<>(validated.size());
+        int updated = 0;
+        int unchanged = 0;
+        for (ImportedRow row : validated) {
+            Product product = row.product();
+            if (product == null) {
+                tally.failed(row.rowNumber());
+                continue;
+            }
+            if (run.catalog == null) {
+                inserts.add(product);
+                rowNumbers.add(row.rowNumber());
+                continue;
+            }
+
+            String name = normalizeName(product.getName());
+            Product current = written.get(name);
+            if (current == null) {
+                Product existing = run.catalog.get(name);
+                if (existing == null) {
+                    product.setId(UUIDUtils.timeOrdered());
+                    inserts.add(product);
+                    written.put(name, product);
+                    rowNumbers.add(row.rowNumber());
+                    continue;
+                }
+                if (isUnchanged(existing, product, run.splitProductIds)) {
+                    unchanged++;
+                    continue;
+                }
+                current = copyForUpdate(existing);
+                updates.add(current);
+                written.put(name, current);
+            } else if (isUnchanged(current, product, run.splitProductIds)) {
+                unchanged++;
+                continue;
+            }
+            applyChanges(current, product, now, run.splitProductIds);
+            rowNumbers.add(row.rowNumber());
+            updated++;
+        }
+
+        tally.unchanged(unchanged);
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                productRepository.batchInsert(inserts, batchSize);
+                productRepository.batchUpdatePriceAndQuantity(updates, batchSize);
+            });
+            tally.imported(inserts.size());
+            tally.updated(updated);
+            productCacheService.evict(updates.stream().map(Product::getId).toList());
+            productNameIndexService.index(inserts);
+            productNameIndexService.updateStatus(updates);
+            if (run.catalog != null) {
+                run.catalog.putAll(written);
+            }
+        } catch (DataAccessException e) {
+            log.warn("Product import chunk of rows {} to {} failed", rowNumbers.get(0), rowNumbers.get(rowNumbers.size() - 1), e);
+            rowNumbers.forEach(tally::failed);
+        }
+
+        log.info("Product import progress: {} rows read, {} inserted, {} updated, {} unchanged, {} failed", tally.totalRows.get(),
+                tally.importedRows.get(), tally.updatedRows.get(), tally.unchangedRows.get(), tally.failedRows.get());
+    }
+
+    // Index every existing product by its normalized name, keeping the oldest of the products sharing a name
+    private Map<String, Product> loadCatalog() {
+        Map<String, Product> catalog = new HashMap<>();
+        productRepository.forEachProduct(product -> {
+            String name = normalizeName(product.getName());
+            // Only the name key is needed, so the product does not hold on to a second copy of it
+            product.setName(null);
+            catalog.putIfAbsent(name, product);
+        });
+        return catalog;
+    }
+
+    // Names are matched regardless of case and of the whitespace around and between words
+    private static String normalizeName(String name) {
+        return WHITESPACE.matcher(name.trim()).replaceAll(" ").toLowerCase(Locale.ROOT);
+    }
+
+    // The quantity of a split product lives in its sub-counters, so only its price is compared
+    private static boolean isUnchanged(Product current, Product imported, Set<UUID> splitProductIds) {
+        return current.getPrice().equals(imported.getPrice())
+                && (current.getQuantity().equals(imported.getQuantity()) || splitProductIds.contains(current.getId()));
+    }
+
+    private static void applyChanges(Product current, Product imported, Date now, Set<UUID> splitProductIds) {
+        current.setPrice(imported.getPrice());
+        if (!splitProductIds.contains(current.getId())) {
+            current.setQuantity(imported.getQuantity());
+            current.setStatus(imported.getStatus());
+        }
+        current.setUpdatedAt(now);
+    }
+
+    private static Product copyForUpdate(Product existing) {
+        Product product = new Product();
+        product.setId(existing.getId());
+        product.setPrice(existing.getPrice());
+        product.setQuantity(existing.getQuantity());
+        product.setStatus(existing.getStatus());
+        return product;
+    }
+
+    // Turn the row into a new product when it passes the same constraints as a single product creation
+    private ImportedRow validate(ProductImportRowDTO row, Date now) {
+        ProductSaveDTO productSaveDTO = row.getProduct();
+        if (!validator.validate(productSaveDTO).isEmpty()) {
+            return new ImportedRow(row.getRowNumber(), null);
+        }
+
+        Product product = new Product();
+        product.setName(productSaveDTO.getName());
+        product.setPrice(productSaveDTO.getPrice());
+        product.setQuantity(productSaveDTO.getQuantity());
+        product.setStatus(productSaveDTO.getQuantity() == 0 ? Status.DEACTIVE : Status.ACTIVE);
+        product.setCreatedAt(now);
+        product.setUpdatedAt(now);
+        return new ImportedRow(row.getRowNumber(), product);
+    }
+
+    private record ImportedRow(int rowNumber, Product product) {
+    }
+
+    /**
+     * Collects the parsed rows of one import into chunks and hands every full chunk to the writer.
+     */
+    private final class ImportRun {
+
+        private final ImportTally tally = new ImportTally();
+        // The existing products keyed by normalized name in the upsert mode, only used by the writer one chunk at a time
+        private final Map<String, Product> catalog;
+        // The products whose stock was split when the import started, so the rows never query the sub-counters one by one
+        private final Set<UUID> splitProductIds;
+        private List<ProductImportRowDTO> chunk = new ArrayList<>(chunkSize);
+        private CompletableFuture<Void> inFlight = CompletableFuture.completedFuture(null);
+
+        ImportRun(Map<String, Product> catalog, Set<UUID> splitProductIds) {
+            this.catalog = catalog;
+            this.splitProductIds = splitProductIds;
+        }
+
+        void accept(ProductImportRowDTO row) {
+            tally.read();
+            if (row.getError() != null) {
+                tally.failed(row.getRowNumber());
+                return;
+            }
+            chunk.add(row);
+            if (chunk.size() >= chunkSize) {
+                flush();
+            }
+        }
+
+        // Wait for the chunk in flight before handing over the next one, so a single import never has more than one chunk queued
+        void flush() {
+            inFlight.join();
+            if (chunk.isEmpty()) {
+                return;
+            }
+            List<ProductImportRowDTO> rows = chunk;
+            chunk = new ArrayList<>(chunkSize);
+            inFlight = CompletableFuture.runAsync(() -> writeChunk(rows, this), writer);
+        }
+    }
+
+    /**
+     * Counts the rows of one import, updated by both the parsing thread and the writer.
+     */
+    private static final class ImportTally {
+
+        private final AtomicLong totalRows = new AtomicLong();
+        private final AtomicLong importedRows = new AtomicLong();
+        private final AtomicLong updatedRows = new AtomicLong();
+        private final AtomicLong unchangedRows = new AtomicLong();
+        private final AtomicLong failedRows = new AtomicLong();
+        private final TreeSet<Integer> failedRowNumbers = new TreeSet<>();
+
+        void read() {
+            totalRows.incrementAndGet();
+        }
+
+        void imported(int count) {
+            importedRows.addAndGet(count);
+        }
+
+        void updated(int count) {
+            updatedRows.addAndGet(count);
+        }
+
+        void unchanged(int count) {
+            unchangedRows.addAndGet(count);
+        }
+
+        void failed(int rowNumber) {
+            failedRows.incrementAndGet();
+            synchronized (failedRowNumbers) {
+                failedRowNumbers.add(rowNumber);
+                // Rows fail out of order across threads, so keep the lowest row numbers rather than the first reported
+                if (failedRowNumbers.size() > MAX_FAILED_ROW_NUMBERS) {
+                    failedRowNumbers.pollLast();
+                }
+            }
+        }
+
+        ProductImportSummaryDTO toSummary(long durationMillis) {
+            List<Integer> rowNumbers;
+            synchronized (failedRowNumbers) {
+                rowNumbers = new ArrayList<>(failedRowNumbers);
+            }
+            return new ProductImportSummaryDTO(totalRows.get(), importedRows.get(), updatedRows.get(), unchangedRows.get(),
+                    failedRows.get(), rowNumbers, durationMillis);
+        }
+    }
+}
@@ -0,0 +1,304 @@
+package com.example.fpt_midterm_pos.service.impl;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.example.fpt_midterm_pos.data.model.Product;
+import com.example.fpt_midterm_pos.data.model.Status;
+import com.example.fpt_midterm_pos.data.repository.ProductRepository;
+import com.example.fpt_midterm_pos.dto.ProductSuggestionDTO;
+import com.example.fpt_midterm_pos.service.ProductNameIndexService;
+
+@Service
+public class ProductNameIndexServiceImpl implements ProductNameIndexService {
+
+    private static final Logger log = LoggerFactory.getLogger(ProductNameIndexServiceImpl.class);
+
+    private static final int GRAM_LENGTH = 3;
+    private static final Pattern WORD_START = Pattern.compile("(?<=\\s)\\S");
+
+    private final ProductRepository productRepository;
+    private final int maxCandidates;
+
+    // Guarded by the lock, searches share it while builds and changes take it exclusively
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<UUID, IndexedName> names = new HashMap<>();
+    private final Map<String, Set<UUID>> postings = new HashMap<>();
+    // Every lowercased name from each of its word starts on, sorted so a prefix is a contiguous range
+    private final NavigableMap<String, Set<UUID>> wordStarts = new TreeMap<>();
+    private boolean built;
+
+    @Autowired
+    public ProductNameIndexServiceImpl(
+        ProductRepository productRepository,
+        @Value("${product.search.max-candidates:1000}") int maxCandidates) {
+        this.productRepository = productRepository;
+        this.maxCandidates = maxCandidates;
+    }
+
+    /**
+     * Finds the IDs of the active products whose name contains the given text, regardless of case. Every name is indexed by the trigrams it contains, so the candidates are the intersection of the product sets of the trigrams of the text, walked from the rarest trigram and confirmed against the indexed names. A text shorter than a trigram is matched against every indexed name in memory instead.
+     * The index is built from the database by the first search, then kept up to date by the product changes as they commit.
+     *
+     * @param name The text to be found in the product names.
+     * @return The IDs of the matching active products, empty when none matches, or nothing when the text is blank or more products than the configured maximum match, in which case the caller should search the database.
+     */
+    @Override
+    public Optional<Set<UUID>> findActiveIdsByName(String name) {
+        if (name == null || name.isBlank()) {
+            return Optional.empty();
+        }
+        ensureBuilt();
+
+        String text = name.toLowerCase(Locale.ROOT);
+        lock.readLock().lock();
+        try {
+            Set<UUID> found = new HashSet<>();
+            for (UUID productId : candidates(text)) {
+                IndexedName indexed = names.get(productId);
+                if (indexed.active() && indexed.name().contains(text)) {
+                    found.add(productId);
+                    if (found.size() > maxCandidates) {
+                        return Optional.empty();
+                    }
+                }
+            }
+            return Optional.of(found);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Suggests the active products having a word of their name start with the given prefix, regardless of case. Every name is also kept in a sorted map from each of its word starts on, so the matches are the range of keys beginning with the prefix, read in order from the matching word on until enough products are found, without looking at any other name.
+     *
+     * @param prefix The text typed so far.
+     * @param limit The maximum number of products to be suggested.
+     * @return The IDs and names of the suggested products, empty when the prefix is blank or nothing matches.
+     */
+    @Override
+    public List<ProductSuggestionDTO> suggest(String prefix, int limit) {
+        if (prefix == null || prefix.isBlank()) {
+            return List.of();
+        }
+        ensureBuilt();
+
+        String start = prefix.strip().toLowerCase(Locale.ROOT);
+        lock.readLock().lock();
+        try {
+            Set<UUID> found = new LinkedHashSet<>();
+            for (Set<UUID> productIds : wordStarts.subMap(start, true, start + Character.MAX_VALUE, false).values()) {
+                for (UUID productId : productIds) {
+                    if (names.get(productId).active()) {
+                        found.add(productId);
+                    }
+                    if (found.size() == limit) {
+                        return toSuggestions(found);
+                    }
+                }
+            }
+            return toSuggestions(found);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Adds the given products to the index or replaces their name and status, once the current transaction commits or right away outside of a transaction.
+     *
+     * @param products The products that were created or updated.
+     */
+    @Override
+    public void index(Collection<Product> products) {
+        if (products.isEmpty()) {
+            return;
+        }
+        List<IndexedProduct> changes = products.stream()
+                .map(product -> new IndexedProduct(product.getId(), product.getName(), product.getStatus()))
+                .toList();
+        afterCommit(() -> apply(changes, true));
+    }
+
+    /**
+     * Replaces the status of the given products in the index, keeping the name they are indexed with, once the current transaction commits or right away outside of a transaction. This suits the writes that never read or change the name, such as the import updates.
+     *
+     * @param products The products whose status may have changed.
+     */
+    @Override
+    public void updateStatus(Collection<Product> products) {
+        if (products.isEmpty()) {
+            return;
+        }
+        List<IndexedProduct> changes = products.stream()
+                .map(product -> new IndexedProduct(product.getId(), null, product.getStatus()))
+                .toList();
+        afterCommit(() -> apply(changes, false));
+    }
+
+    private List<ProductSuggestionDTO> toSuggestions(Set<UUID> productIds) {
+        return productIds.stream()
+                .map(productId -> new ProductSuggestionDTO(productId, names.get(productId).displayName()))
+                .toList();
+    }
+
+    // The IDs of the products holding every trigram of the text, or of every product for a text shorter than a trigram
+    private Collection<UUID> candidates(String text) {
+        if (text.length() < GRAM_LENGTH) {
+            return names.keySet();
+        }
+        List<Set<UUID>> sets = new ArrayList<>();
+        for (String gram : grams(text)) {
+            Set<UUID> posting = postings.get(gram);
+            if (posting == null) {
+                return Set.of();
+            }
+            sets.add(posting);
+        }
+        sets.sort(Comparator.comparingInt(Set::size));
+
+        List<UUID> candidates = new ArrayList<>();
+        Set<UUID> rarest = sets.get(0);
+        List<Set<UUID>> others = sets.subList(1, sets.size());
+        for (UUID productId : rarest) {
+            if (others.stream().allMatch(posting -> posting.contains(productId))) {
+                candidates.add(productId);
+            }
+        }
+        return candidates;
+    }
+
+    // Load every product name once, changes committed meanwhile wait for the lock and are applied on top
+    private void ensureBuilt() {
+        lock.readLock().lock();
+        try {
+            if (built) {
+                return;
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        lock.writeLock().lock();
+        try {
+            if (built) {
+                return;
+            }
+            long startedAt = System.currentTimeMillis();
+            productRepository.forEachProduct(product -> put(product.getId(), product.getName(), product.getStatus() == Status.ACTIVE));
+            built = true;
+            log.info("Product name index built with {} products and {} trigrams in {} ms", names.size(), postings.size(),
+                    System.currentTimeMillis() - startedAt);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void apply(List<IndexedProduct> changes, boolean withName) {
+        lock.writeLock().lock();
+        try {
+            // Before the first search the index is empty, the build will read these changes from the database
+            if (!built) {
+                return;
+            }
+            for (IndexedProduct change : changes) {
+                boolean active = change.status() == Status.ACTIVE;
+                if (withName) {
+                    put(change.id(), change.name(), active);
+                } else {
+                    names.computeIfPresent(change.id(), (productId, indexed) -> new IndexedName(indexed.name(), indexed.displayName(), active));
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void put(UUID productId, String displayName, boolean active) {
+        String name = displayName.toLowerCase(Locale.ROOT);
+        IndexedName previous = names.put(productId, new IndexedName(name, displayName, active));
+        if (previous != null && previous.name().equals(name)) {
+            return;
+        }
+        if (previous != null) {
+            for (String gram : grams(previous.name())) {
+                remove(postings, gram, productId);
+            }
+            for (String wordStart : wordStarts(previous.name())) {
+                remove(wordStarts, wordStart, productId);
+            }
+        }
+        for (String gram : grams(name)) {
+            postings.computeIfAbsent(gram, key -> new HashSet<>()).add(productId);
+        }
+        for (String wordStart : wordStarts(name)) {
+            wordStarts.computeIfAbsent(wordStart, key -> new HashSet<>()).add(productId);
+        }
+    }
+
+    private static void remove(Map<String, Set<UUID>> index, String key, UUID productId) {
+        Set<UUID> productIds = index.get(key);
+        productIds.remove(productId);
+        if (productIds.isEmpty()) {
+            index.remove(key);
+        }
+    }
+
+    private static Set<String> grams(String text) {
+        Set<String> grams = new HashSet<>();
+        for (int i = 0; i + GRAM_LENGTH <= text.length(); i++) {
+            grams.add(text.substring(i, i + GRAM_LENGTH));
+        }
+        return grams;
+    }
+
+    private static List<String> wordStarts(String name) {
+        List<String> wordStarts = new ArrayList<>();
+        String trimmed = name.strip();
+        wordStarts.add(trimmed);
+        WORD_START.matcher(trimmed).results().forEach(word -> wordStarts.add(trimmed.substring(word.start())));
+        return wordStarts;
+    }
+
+    // Only apply a change to the index once the transaction that made it has committed
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    private record IndexedName(String name, String displayName, boolean active) {
+    }
+
+    private record IndexedProduct(UUID id, String name, Status status) {
+    }
+}
@@ -1,8 +1,9 @@
 package com.example.fpt_midterm_pos.service.impl;
 
-import java.io.IOException;
 import java.util.Date;
 import java.util.List;
+import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
 
 import org.springframework.beans.factory.annotation.Autowired;
@@ -11,8 +12,8 @@ import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.validation.annotation.Validated;
-import org.springframework.web.multipart.MultipartFile;
 
 import com.example.fpt_midterm_pos.data.model.Product;
 import com.example.fpt_midterm_pos.data.model.Status;
@@ -21,12 +22,15 @@ import com.example.fpt_midterm_pos.dto.ProductDTO;
 import com.example.fpt_midterm_pos.dto.ProductSaveDTO;
 import com.example.fpt_midterm_pos.dto.ProductSearchCriteriaDTO;
 import com.example.fpt_midterm_pos.dto.ProductShowDTO;
+import com.example.fpt_midterm_pos.dto.ProductSuggestionDTO;
 import com.example.fpt_midterm_pos.exception.BadRequestException;
 import com.example.fpt_midterm_pos.exception.DuplicateStatusException;
 import com.example.fpt_midterm_pos.exception.ResourceNotFoundException;
 import com.example.fpt_midterm_pos.mapper.ProductMapper;
+import com.example.fpt_midterm_pos.service.ProductCacheService;
+import com.example.fpt_midterm_pos.service.ProductNameIndexService;
 import com.example.fpt_midterm_pos.service.ProductService;
-import com.example.fpt_midterm_pos.utils.FileUtils;
+import com.example.fpt_midterm_pos.service.StockService;
 
 import jakarta.validation.Valid;
 
@@ -34,23 +38,32 @@ import jakarta.validation.Valid;
 @Validated
 public class ProductServiceImpl implements ProductService {
 
+    private static final int MAX_SUGGESTIONS = 50;
+
     private final ProductRepository productRepository;
     private final ProductMapper productMapper;
+    private final ProductCacheService productCacheService;
+    private final ProductNameIndexService productNameIndexService;
+    private final StockService stockService;
 
     @Autowired
-    public ProductServiceImpl(ProductMapper productMapper, ProductRepository productRepository) {
+    public ProductServiceImpl(ProductMapper productMapper, ProductRepository productRepository, ProductCacheService productCacheService, ProductNameIndexService productNameIndexService, StockService stockService) {
         this.productMapper = productMapper;
         this.productRepository = productRepository;
+        this.productCacheService = productCacheService;
+        this.productNameIndexService = productNameIndexService;
+        this.stockService = stockService;
     }
 
     /**
-     * Finds products based on the given criteria and sorts them according to the provided sort rules.
+     * Finds products based on the given criteria and sorts them according to the provided sort rules. A product name is first resolved to the IDs of the matching products through the {@link ProductNameIndexService}, so the database only applies the price range, sort and page to them instead of scanning every name with a leading wildcard. Only the columns shown in the list are selected, straight into the DTOs, without loading the product entities.
      *
      * @param criteria The search criteria containing the product name, minimum and maximum price, and sorting options.
      * @param pageable The pagination information, including the page number and size.
      * @return A page of {@link ProductShowDTO} objects representing the products that match the criteria and are sorted according to the provided rules.
      */
     @Override
+    @Transactional(readOnly = true)
     public Page<ProductShowDTO> findByCriteria(ProductSearchCriteriaDTO criteria, Pageable pageable) {
         // Listing all the criteria
         String productName = criteria.getName();
@@ -85,9 +98,30 @@ public class ProductServiceImpl implements ProductService {
         // Set the pageable
         Pageable sortedPageable = PageRequest.of(pageable.getPageNumber(), pageable.getPageSize(), sort);
 
-        // Get the product data from the repo
-        Page<Product> products = productRepository.findByFilters(Status.ACTIVE, productName, minPrice, maxPrice, sortedPageable);
-        return products.map(productMapper::toShowDTO);
+        // Get the product data from the repo, narrowed down by the name index when it can
+        Optional<Set<UUID>> productIds = productNameIndexService.findActiveIdsByName(productName);
+        if (productIds.isPresent() && productIds.get().isEmpty()) {
+            return Page.empty(sortedPageable);
+        }
+        return productIds.isPresent()
+                ? productRepository.findByIdsAndFilters(productIds.get(), Status.ACTIVE, minPrice, maxPrice, sortedPageable)
+                : productRepository.findByFilters(Status.ACTIVE, productName, minPrice, maxPrice, sortedPageable);
+    }
+
+    /**
+     * Suggests the active products whose name has a word starting with the given prefix, for the cashier to pick from while typing. The suggestions are served from the in-memory {@link ProductNameIndexService} without querying the database.
+     *
+     * @param prefix The text typed so far.
+     * @param limit The maximum number of products to be suggested, up to 50.
+     * @return A list of {@link ProductSuggestionDTO} objects with the ID and name of the suggested products.
+     * @throws BadRequestException If the limit is not between 1 and 50.
+     */
+    @Override
+    public List<ProductSuggestionDTO> suggestProducts(String prefix, int limit) {
+        if (limit < 1 || limit > MAX_SUGGESTIONS) {
+            throw new BadRequestException("Limit must be between 1 and " + MAX_SUGGESTIONS);
+        }
+        return productNameIndexService.suggest(prefix, limit);
     }
 
     /**
@@ -104,11 +138,13 @@ public class ProductServiceImpl implements ProductService {
         product.setCreatedAt(new Date());
         product.setUpdatedAt(new Date());
         Product savedProduct = productRepository.save(product);
+        productCacheService.refresh(savedProduct);
+        productNameIndexService.index(List.of(savedProduct));
         return productMapper.toProductDTO(savedProduct);
     }
 
     /**
-     * Updates an existing product in the database with the provided details.
+     * Updates an existing product in the database with the provided details. The product row is locked and the new quantity is written through the {@link StockService}, so the stock of a split product is spread over its sub-counters instead of being added to its row, and a concurrent split or merge cannot interleave with the update.
      *
      * @param id The unique identifier of the product to be updated.
      * @param productSaveDTO The data transfer object containing the details of the updated product.
@@ -116,15 +152,18 @@ public class ProductServiceImpl implements ProductService {
      * @throws ResourceNotFoundException If the product with the given ID is not found in the database.
      */
     @Override
+    @Transactional
     public ProductDTO updateProduct(UUID id, @Valid ProductSaveDTO productSaveDTO) {
-        Product product = productRepository.findById(id).orElseThrow(() -> new ResourceNotFoundException("Product not found"));
+        Product product = productRepository.findByIdForUpdate(id).orElseThrow(() -> new ResourceNotFoundException("Product not found"));
 
         product.setName(productSaveDTO.getName());
         product.setPrice(productSaveDTO.getPrice());
-        product.setQuantity(productSaveDTO.getQuantity());
+        stockService.replaceStock(product, productSaveDTO.getQuantity());
         product.setUpdatedAt(new Date());
         Product updateProduct = productRepository.save(product);
-        return productMapper.toProductDTO(updateProduct);
+        productCacheService.refresh(updateProduct);
+        productNameIndexService.index(List.of(updateProduct));
+        return toProductDTO(updateProduct);
     }
 
     /**
@@ -150,37 +189,15 @@ public class ProductServiceImpl implements ProductService {
         }
         prodCheck.setUpdatedAt(new Date());
         Product updatedProduct = productRepository.save(prodCheck);
-        return productMapper.toProductDTO(updatedProduct);
+        productCacheService.refresh(updatedProduct);
+        productNameIndexService.index(List.of(updatedProduct));
+        return toProductDTO(updatedProduct);
     }
 
-    /**
-     * Saves a list of products from a Excel file to the database.
-     *
-     * @param file The MultipartFile object containing the Excel file with product data.
-     * @return A list of {@link ProductDTO} objects representing the saved products with their IDs and other relevant details.
-     * @throws IllegalArgumentException If the provided file is not in the correct Excel format.
-     * @throws BadRequestException If an error occurs while reading the Excel file.
-     */
-    @Override
-    public List<ProductDTO> saveProductsFromExcel(MultipartFile file) {
-        try {
-            List<ProductSaveDTO> productSaveDTOs = FileUtils.readProductsFromExcel(file);
-            List<Product> products = productMapper.toProductList(productSaveDTOs);
-    
-            for (Product product : products) {
-                if (product.getQuantity() == 0) {
-                    product.setStatus(Status.DEACTIVE);
-                } else {
-                    product.setStatus(Status.ACTIVE);
-                }
-            }
-    
-            List<Product> savedProducts = productRepository.saveAll(products);
-            return productMapper.toProductDTOList(savedProducts);
-        } catch (IOException e) {
-            throw new BadRequestException("Error reading Excel file: " + e.getMessage());
-        } catch (IllegalArgumentException e) {
-            throw new BadRequestException("Invalid file format. Only Excel files are accepted.");
-        }
-    }    
+    // The quantity shown is the total stock, which for a split product lives in its sub-counters
+    private ProductDTO toProductDTO(Product product) {
+        ProductDTO productDTO = productMapper.toProductDTO(product);
+        productDTO.setQuantity(stockService.getTotalStock(product));
+        return productDTO;
+    }
 }
@@ -0,0 +1,126 @@
+package com.example.fpt_midterm_pos.service.impl;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.example.fpt_midterm_pos.data.model.RevenuePeriod;
+import com.example.fpt_midterm_pos.data.model.RevenueRollup;
+import com.example.fpt_midterm_pos.data.model.RevenueRollupKey;
+import com.example.fpt_midterm_pos.data.repository.InvoiceRepository;
+import com.example.fpt_midterm_pos.data.repository.RevenueRollupRepository;
+import com.example.fpt_midterm_pos.service.RevenueService;
+import com.example.fpt_midterm_pos.utils.DateUtils;
+
+@Service
+public class RevenueServiceImpl implements RevenueService {
+
+    private final RevenueRollupRepository revenueRollupRepository;
+    private final InvoiceRepository invoiceRepository;
+
+    @Autowired
+    public RevenueServiceImpl(RevenueRollupRepository revenueRollupRepository, InvoiceRepository invoiceRepository) {
+        this.revenueRollupRepository = revenueRollupRepository;
+        this.invoiceRepository = invoiceRepository;
+    }
+
+    /**
+     * Adds the amount of an invoice to the daily, monthly and yearly rollups of its date. The rollups are updated as a delta in the database, inside the transaction that saves the invoice, so they always match the committed invoices.
+     *
+     * @param date The date of the invoice.
+     * @param amount The amount of the invoice.
+     */
+    @Override
+    @Transactional
+    public void addRevenue(Date date, double amount) {
+        Map<RevenueRollupKey, Double> amounts = new LinkedHashMap<>();
+        collectAmounts(amounts, date, amount);
+        amounts.values().removeIf(delta -> delta == 0);
+        revenueRollupRepository.addAmounts(amounts);
+    }
+
+    /**
+     * Moves the amount of an updated invoice in the rollups, by subtracting its old amount from the rollups of its old date and adding its new amount to the rollups of its new date. When both dates fall in the same period, only the difference is written to that period.
+     *
+     * @param oldDate The date of the invoice before the update.
+     * @param oldAmount The amount of the invoice before the update.
+     * @param newDate The date of the invoice after the update.
+     * @param newAmount The amount of the invoice after the update.
+     */
+    @Override
+    @Transactional
+    public void moveRevenue(Date oldDate, double oldAmount, Date newDate, double newAmount) {
+        Map<RevenueRollupKey, Double> amounts = new LinkedHashMap<>();
+        collectAmounts(amounts, oldDate, -oldAmount);
+        collectAmounts(amounts, newDate, newAmount);
+        amounts.values().removeIf(delta -> delta == 0);
+        revenueRollupRepository.addAmounts(amounts);
+    }
+
+    /**
+     * Retrieves the revenue of a day, month or year with a single primary key lookup on its rollup, however many invoices it holds.
+     *
+     * @param period The type of period.
+     * @param date Any day within the period.
+     * @return The revenue of the period, or 0 if it has no invoices.
+     */
+    @Override
+    public double findRevenue(RevenuePeriod period, LocalDate date) {
+        return revenueRollupRepository.findById(new RevenueRollupKey(period, period.startOf(date)))
+                .map(RevenueRollup::getAmount)
+                .orElse(0.0);
+    }
+
+    /**
+     * Retrieves the revenue of every day, month or year starting within a range with a single range scan over the rollups, however many invoices they hold.
+     *
+     * @param period The type of period.
+     * @param from The first day of the range, inclusive.
+     * @param to The day after the range, exclusive.
+     * @return The revenue of each period by its first day, in ascending order, without the periods that have no invoices.
+     */
+    @Override
+    public Map<LocalDate, Double> findRevenues(RevenuePeriod period, LocalDate from, LocalDate to) {
+        Map<LocalDate, Double> revenues = new LinkedHashMap<>();
+        for (RevenueRollup rollup : revenueRollupRepository.findByPeriodBetween(period, from, to)) {
+            revenues.put(rollup.getId().getPeriodStart(), rollup.getAmount());
+        }
+        return revenues;
+    }
+
+    /**
+     * Rebuilds every revenue rollup from the invoices, to backfill the rollups of invoices created before they existed or to repair them. The invoices are summed per date by one grouped query streamed forward-only, each date is added to its rollups exactly like a new invoice is, and all rollups are replaced in one transaction.
+     * The day of each date is taken in the time zone of the application rather than of the database session, so the rebuilt rollups match the ones kept up to date by {@link #addRevenue(Date, double)} however the two zones differ.
+     * Invoices saved while the rebuild runs may be missed, so it should run while the store is quiet.
+     */
+    @Override
+    @Transactional
+    public void rebuildRevenue() {
+        Map<RevenueRollupKey, Double> amounts = new LinkedHashMap<>();
+        try (Stream<Object[]> rows = invoiceRepository.streamTotalRevenueByDate()) {
+            rows.forEach(row -> collectAmounts(amounts, (Date) row[0], ((Number) row[1]).doubleValue()));
+        }
+
+        List<RevenueRollup> rollups = new ArrayList<>(amounts.size());
+        amounts.forEach((key, amount) -> rollups.add(new RevenueRollup(key, amount)));
+
+        revenueRollupRepository.deleteAllInBatch();
+        revenueRollupRepository.saveAll(rollups);
+    }
+
+    // Add the amount to the daily, monthly and yearly rollup keys of the given date
+    private static void collectAmounts(Map<RevenueRollupKey, Double> amounts, Date date, double amount) {
+        LocalDate day = DateUtils.formatDateToLocalDate(date);
+        for (RevenuePeriod period : RevenuePeriod.values()) {
+            amounts.merge(new RevenueRollupKey(period, period.startOf(day)), amount, Double::sum);
+        }
+    }
+}
@@ -0,0 +1,268 @@
+package com.example.fpt_midterm_pos.service.impl;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.example.fpt_midterm_pos.data.model.Product;
+import com.example.fpt_midterm_pos.data.model.ProductStockShard;
+import com.example.fpt_midterm_pos.data.model.ProductStockShardKey;
+import com.example.fpt_midterm_pos.data.repository.ProductRepository;
+import com.example.fpt_midterm_pos.data.repository.ProductStockShardRepository;
+import com.example.fpt_midterm_pos.dto.ProductDTO;
+import com.example.fpt_midterm_pos.exception.BadRequestException;
+import com.example.fpt_midterm_pos.exception.ResourceNotFoundException;
+import com.example.fpt_midterm_pos.mapper.ProductMapper;
+import com.example.fpt_midterm_pos.service.StockService;
+
+@Service
+public class StockServiceImpl implements StockService {
+
+    private final ProductRepository productRepository;
+    private final ProductStockShardRepository productStockShardRepository;
+    private final ProductMapper productMapper;
+
+    @Autowired
+    public StockServiceImpl(
+        ProductRepository productRepository,
+        ProductStockShardRepository productStockShardRepository,
+        ProductMapper productMapper) {
+        this.productRepository = productRepository;
+        this.productStockShardRepository = productStockShardRepository;
+        this.productMapper = productMapper;
+    }
+
+    private static final String INSUFFICIENT_PRODUCT_STOCK = "Insufficient product stock";
+    private static final String PRODUCT_NOT_FOUND = "Product not found";
+
+    /**
+     * Atomically decreases the stock of the given products. Products with a single stock row are decreased together with one batched conditional update, so the stock check and the write happen in the database and concurrent checkouts can neither oversell nor lose updates. Products whose stock is split are decreased on one of their sub-counters, so concurrent checkouts of the same hot product do not queue on a single row.
+     * Which products are split is read from the sub-counter table on every call, so a split or merge made by another instance is seen right away. A product split after that read leaves no stock on its row, so its conditional update fails and it is checked again under lock before being reported as insufficient.
+     * When any of the products has insufficient stock an exception is thrown, which rolls back every decrement made by the surrounding transaction.
+     *
+     * @param quantities The quantity to subtract, keyed by product ID.
+     * @throws IllegalArgumentException If any of the products has insufficient stock.
+     */
+    @Override
+    @Transactional
+    public void decrementStock(Map<UUID, Integer> quantities) {
+        Map<UUID, Integer> splitProducts = countShards(quantities.keySet());
+        Map<UUID, Integer> singleRowQuantities = new LinkedHashMap<>();
+
+        for (Map.Entry<UUID, Integer> entry : quantities.entrySet()) {
+            Integer shards = splitProducts.get(entry.getKey());
+            if (shards == null) {
+                singleRowQuantities.put(entry.getKey(), entry.getValue());
+            } else {
+                decrementSplitStock(entry.getKey(), entry.getValue(), shards);
+            }
+        }
+
+        Set<UUID> insufficient = productRepository.batchDecrementQuantity(singleRowQuantities);
+        for (UUID productId : insufficient) {
+            // The locking read sees a split committed since the sub-counters were counted
+            List<ProductStockShard> stockShards = productStockShardRepository.findAllForUpdate(productId);
+            if (stockShards.isEmpty()) {
+                throw new IllegalArgumentException(INSUFFICIENT_PRODUCT_STOCK);
+            }
+            decrementSplitStock(productId, quantities.get(productId), stockShards.size());
+        }
+    }
+
+    /**
+     * Returns stock to the given products. Split products get the stock back on one of their sub-counters.
+     *
+     * @param quantities The quantity to add, keyed by product ID.
+     */
+    @Override
+    @Transactional
+    public void incrementStock(Map<UUID, Integer> quantities) {
+        Map<UUID, Integer> splitProducts = countShards(quantities.keySet());
+        Map<UUID, Integer> singleRowQuantities = new LinkedHashMap<>();
+
+        for (Map.Entry<UUID, Integer> entry : quantities.entrySet()) {
+            Integer shards = splitProducts.get(entry.getKey());
+            if (shards == null) {
+                singleRowQuantities.put(entry.getKey(), entry.getValue());
+            } else {
+                int shardNo = ThreadLocalRandom.current().nextInt(shards);
+                productStockShardRepository.incrementQuantity(entry.getKey(), shardNo, entry.getValue());
+            }
+        }
+
+        productRepository.batchIncrementQuantity(singleRowQuantities);
+    }
+
+    /**
+     * Splits the stock of a hot product across the given number of sub-counters. The current quantity is spread evenly over the sub-counters and the product row itself is left with no stock, so subsequent checkouts only touch the sub-counters.
+     *
+     * @param productId The unique identifier of the product to be split.
+     * @param shards The number of sub-counters, at least 2.
+     * @return A {@link ProductDTO} representing the product, with its quantity being the total stock over all sub-counters.
+     * @throws BadRequestException If the number of sub-counters is invalid or the product stock is already split.
+     * @throws ResourceNotFoundException If the product with the given ID is not found.
+     */
+    @Override
+    @Transactional
+    public ProductDTO splitStock(UUID productId, int shards) {
+        if (shards < 2) {
+            throw new BadRequestException("Stock must be split across at least 2 sub-counters");
+        }
+
+        Product product = productRepository.findByIdForUpdate(productId)
+                .orElseThrow(() -> new ResourceNotFoundException(PRODUCT_NOT_FOUND));
+        if (!productStockShardRepository.findAllForUpdate(productId).isEmpty()) {
+            throw new BadRequestException("Product stock is already split");
+        }
+
+        int total = product.getQuantity();
+        List<ProductStockShard> stockShards = new ArrayList<>(shards);
+        for (int shardNo = 0; shardNo < shards; shardNo++) {
+            stockShards.add(new ProductStockShard(new ProductStockShardKey(productId, shardNo), 0));
+        }
+        spreadStock(stockShards, total);
+        productStockShardRepository.saveAll(stockShards);
+
+        product.setQuantity(0);
+        product.setUpdatedAt(new Date());
+        productRepository.save(product);
+
+        ProductDTO productDTO = productMapper.toProductDTO(product);
+        productDTO.setQuantity(total);
+        return productDTO;
+    }
+
+    /**
+     * Folds the sub-counters of a split product back into its stock and removes them.
+     *
+     * @param productId The unique identifier of the product to be merged.
+     * @return A {@link ProductDTO} representing the product with its merged stock.
+     * @throws BadRequestException If the product stock is not split.
+     * @throws ResourceNotFoundException If the product with the given ID is not found.
+     */
+    @Override
+    @Transactional
+    public ProductDTO mergeStock(UUID productId) {
+        Product product = productRepository.findByIdForUpdate(productId)
+                .orElseThrow(() -> new ResourceNotFoundException(PRODUCT_NOT_FOUND));
+        List<ProductStockShard> stockShards = productStockShardRepository.findAllForUpdate(productId);
+        if (stockShards.isEmpty()) {
+            throw new BadRequestException("Product stock is not split");
+        }
+
+        int total = stockShards.stream().mapToInt(ProductStockShard::getQuantity).sum();
+        productStockShardRepository.deleteAll(stockShards);
+
+        product.setQuantity(product.getQuantity() + total);
+        product.setUpdatedAt(new Date());
+        Product mergedProduct = productRepository.save(product);
+
+        return productMapper.toProductDTO(mergedProduct);
+    }
+
+    /**
+     * Checks whether the stock of the product is currently split across sub-counters. A split product keeps no stock on its own row.
+     *
+     * @param productId The unique identifier of the product.
+     * @return {@code true} if the product stock is split, {@code false} otherwise.
+     */
+    @Override
+    public boolean isSplit(UUID productId) {
+        return productStockShardRepository.existsByIdProductId(productId);
+    }
+
+    /**
+     * Finds every product whose stock is currently split across sub-counters, in a single query, for the callers checking many products at once.
+     *
+     * @return The set of the IDs of the split products, empty when no stock is split.
+     */
+    @Override
+    public Set<UUID> findSplitProductIds() {
+        return productStockShardRepository.findSplitProductIds();
+    }
+
+    /**
+     * Replaces the stock of the given product with a new quantity. A product with a single stock row gets the quantity on its row, while a split product has it spread evenly over its sub-counters under lock and keeps no stock on its own row, so the stock is never counted on both. The product itself is not saved, that is left to the caller.
+     *
+     * @param product The product whose stock is replaced, locked by the caller.
+     * @param quantity The new total stock of the product.
+     */
+    @Override
+    @Transactional
+    public void replaceStock(Product product, int quantity) {
+        List<ProductStockShard> stockShards = productStockShardRepository.findAllForUpdate(product.getId());
+        if (stockShards.isEmpty()) {
+            product.setQuantity(quantity);
+            return;
+        }
+
+        spreadStock(stockShards, quantity);
+        productStockShardRepository.saveAll(stockShards);
+        product.setQuantity(0);
+    }
+
+    /**
+     * Returns the total stock of the given product, which is its own row plus every one of its sub-counters.
+     *
+     * @param product The product whose stock is summed.
+     * @return The total stock of the product.
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public int getTotalStock(Product product) {
+        return product.getQuantity() + productStockShardRepository.sumQuantityByProductId(product.getId());
+    }
+
+    // Take the quantity from a random sub-counter, probing the others when it runs dry
+    private void decrementSplitStock(UUID productId, int quantity, int shards) {
+        int start = ThreadLocalRandom.current().nextInt(shards);
+        for (int i = 0; i < shards; i++) {
+            if (productStockShardRepository.decrementQuantity(productId, (start + i) % shards, quantity) == 1) {
+                return;
+            }
+        }
+
+        // No single sub-counter can cover the request, so serve it from several of them under lock
+        List<ProductStockShard> stockShards = productStockShardRepository.findAllForUpdate(productId);
+        int available = stockShards.stream().mapToInt(ProductStockShard::getQuantity).sum();
+        if (available < quantity) {
+            throw new IllegalArgumentException(INSUFFICIENT_PRODUCT_STOCK);
+        }
+
+        int remaining = quantity;
+        for (ProductStockShard stockShard : stockShards) {
+            int taken = Math.min(stockShard.getQuantity(), remaining);
+            stockShard.setQuantity(stockShard.getQuantity() - taken);
+            remaining -= taken;
+        }
+        productStockShardRepository.saveAll(stockShards);
+    }
+
+    // Spread the stock evenly over the sub-counters, the first ones take the remainder
+    private static void spreadStock(List<ProductStockShard> stockShards, int total) {
+        int shards = stockShards.size();
+        for (int shardNo = 0; shardNo < shards; shardNo++) {
+            stockShards.get(shardNo).setQuantity(total / shards + (shardNo < total % shards ? 1 : 0));
+        }
+    }
+
+    // Find the number of sub-counters of those of the given products whose stock is split
+    private Map<UUID, Integer> countShards(Collection<UUID> productIds) {
+        Map<UUID, Integer> splitProducts = new HashMap<>();
+        for (Object[] row : productStockShardRepository.countShardsByProductIdIn(productIds)) {
+            splitProducts.put((UUID) row[0], ((Number) row[1]).intValue());
+        }
+        return splitProducts;
+    }
+}
@@ -45,4 +45,14 @@ public class DateUtils {
     public static LocalDate formatDateToLocalDate(Date date) {
         return date.toInstant().atZone(ZoneId.systemDefault()).toLocalDate();
     }
+
+    /**
+     * Converts the given LocalDate object to a Date object at the start of that day using the system default time zone.
+     *
+     * @param date the LocalDate object to be converted
+     * @return the Date object corresponding to midnight at the start of the given day
+     */
+    public static Date toDate(LocalDate date) {
+        return Date.from(date.atStartOfDay(ZoneId.systemDefault()).toInstant());
+    }
 }
\ No newline at end of file
@@ -0,0 +1,96 @@
+package com.example.fpt_midterm_pos.utils;
+
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+import org.springframework.http.HttpStatus;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+public class DownloadUtils {
+
+    // Request attributes through which Tomcat hands a file to its connector, which writes it straight from the page cache to the socket
+    private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    private DownloadUtils() {
+        throw new IllegalStateException("Utility class");
+    }
+
+    /**
+     * Sends a file as a download, or a single byte range of it when the request has a Range header so an interrupted download can be resumed.
+     * A satisfiable single range is answered with 206 (Partial Content), an invalid or unsatisfiable one with 416 (Range Not Satisfiable), and a request for several ranges with the whole file.
+     * The bytes are never copied through the heap: the servlet container sends the file itself when it supports sendfile, otherwise {@link FileChannel#transferTo} moves them to the response.
+     *
+     * @param file The file to be sent.
+     * @param contentType The content type of the file.
+     * @param fileName The file name the file is downloaded as.
+     * @param request The request, whose Range header selects the bytes to send.
+     * @param response The response the file is written to.
+     * @throws IOException If an error occurs while reading the file or writing the response.
+     */
+    public static void send(Path file, String contentType, String fileName, HttpServletRequest request, HttpServletResponse response) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long length = channel.size();
+            long start = 0;
+            long end = length;
+
+            response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+            response.setHeader(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment().filename(fileName).build().toString());
+
+            String rangeHeader = request.getHeader(HttpHeaders.RANGE);
+            if (rangeHeader != null) {
+                List<HttpRange> ranges;
+                boolean satisfiable = true;
+                try {
+                    ranges = HttpRange.parseRanges(rangeHeader);
+                    if (ranges.size() == 1) {
+                        start = ranges.get(0).getRangeStart(length);
+                        end = ranges.get(0).getRangeEnd(length) + 1;
+                        // A range starting past the end of the file is clamped by Spring, but cannot be satisfied
+                        satisfiable = start < length;
+                    }
+                } catch (IllegalArgumentException e) {
+                    ranges = List.of();
+                    satisfiable = false;
+                }
+                if (!satisfiable) {
+                    response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + length);
+                    response.setStatus(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE.value());
+                    return;
+                }
+                if (ranges.size() == 1) {
+                    response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + (end - 1) + "/" + length);
+                    response.setStatus(HttpStatus.PARTIAL_CONTENT.value());
+                }
+            }
+
+            response.setContentType(contentType);
+            response.setContentLengthLong(end - start);
+
+            if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+                request.setAttribute(SENDFILE_FILENAME, file.toAbsolutePath().toString());
+                request.setAttribute(SENDFILE_START, start);
+                request.setAttribute(SENDFILE_END, end);
+                return;
+            }
+
+            WritableByteChannel target = Channels.newChannel(response.getOutputStream());
+            while (start < end) {
+                start += channel.transferTo(start, end - start, target);
+            }
+            response.flushBuffer();
+        }
+    }
+}
@@ -1,16 +1,25 @@
 package com.example.fpt_midterm_pos.utils;
 
-import com.example.fpt_midterm_pos.data.model.Invoice;
-import com.example.fpt_midterm_pos.data.model.InvoiceDetail;
+import com.example.fpt_midterm_pos.dto.InvoiceExcelRowDTO;
 import org.apache.poi.ss.usermodel.Row;
 import org.apache.poi.ss.usermodel.Sheet;
 import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
 import org.apache.poi.xssf.usermodel.XSSFWorkbook;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Iterator;
 import java.util.List;
+import java.util.stream.Stream;
 
 public class ExcelGenerator {
 
+    // Number of rows the streaming workbook keeps in memory, older rows are flushed to a temporary file
+    private static final int STREAMING_ROW_WINDOW = 100;
+
+    private static final String[] HEADERS = { "Invoice ID", "Customer ID", "Customer Name", "Amount", "Product ID", "Product Name", "Price", "Quantity", "Product Amount" };
+
     private ExcelGenerator() {
         throw new IllegalStateException("Utility class");
     }
@@ -18,7 +27,7 @@ public class ExcelGenerator {
     /**
      * Generates an Excel workbook containing invoice data.
      *
-     * @param invoices A list of Invoice objects containing invoice details.
+     * @param rows A list of InvoiceExcelRowDTO objects, one per invoice detail.
      * @return A workbook containing the invoice data in an Excel sheet.
      *
      * This method generates an Excel workbook with a sheet named "Invoices". The workbook contains a header row with column names and subsequent rows containing the invoice details. The columns in the Excel sheet are:
@@ -32,33 +41,68 @@ public class ExcelGenerator {
      * - Quantity
      * - Product Amount
      */
-    public static Workbook generateInvoiceExcel(List<Invoice> invoices) {
+    public static Workbook generateInvoiceExcel(List<InvoiceExcelRowDTO> rows) {
         Workbook workbook = new XSSFWorkbook();
-        Sheet sheet = workbook.createSheet("Invoices");
+        Sheet sheet = createInvoiceSheet(workbook);
 
-        // Create header row
-        Row headerRow = sheet.createRow(0);
-        String[] headers = { "Invoice ID", "Customer ID", "Customer Name", "Amount", "Product ID", "Product Name", "Price", "Quantity", "Product Amount" };
-        for (int i = 0; i < headers.length; i++) {
-            headerRow.createCell(i).setCellValue(headers[i]);
+        int rowNum = 1;
+        for (InvoiceExcelRowDTO row : rows) {
+            writeInvoiceRow(sheet, rowNum++, row);
         }
 
-        int rowNum = 1;
-        for (Invoice invoice : invoices) {
-            for (InvoiceDetail detail : invoice.getInvoiceDetails()) {
-                Row row = sheet.createRow(rowNum++);
-                row.createCell(0).setCellValue(invoice.getId().toString());
-                row.createCell(1).setCellValue(invoice.getCustomer().getId().toString());
-                row.createCell(2).setCellValue(invoice.getCustomer().getName());
-                row.createCell(3).setCellValue(invoice.getAmount());
-                row.createCell(4).setCellValue(detail.getProduct().getId().toString());
-                row.createCell(5).setCellValue(detail.getProductName());
-                row.createCell(6).setCellValue(detail.getPrice());
-                row.createCell(7).setCellValue(detail.getQuantity());
-                row.createCell(8).setCellValue(detail.getAmount());
+        return workbook;
+    }
+
+    /**
+     * Writes the same Excel workbook as {@link #generateInvoiceExcel(List)} straight to an output stream, while the rows are still being read. Only a small window of rows is kept in memory and the older rows are flushed to a temporary file, so the memory used does not grow with the number of invoices.
+     *
+     * @param rows A stream of InvoiceExcelRowDTO objects, one per invoice detail, which is consumed once.
+     * @param outputStream The output stream the workbook is written to. It is not closed.
+     * @throws IOException If an error occurs while writing the workbook.
+     */
+    public static void writeInvoiceExcel(Stream<InvoiceExcelRowDTO> rows, OutputStream outputStream) throws IOException {
+        SXSSFWorkbook workbook = new SXSSFWorkbook(STREAMING_ROW_WINDOW);
+        try {
+            Sheet sheet = createInvoiceSheet(workbook);
+
+            int rowNum = 1;
+            Iterator<InvoiceExcelRowDTO> iterator = rows.iterator();
+            while (iterator.hasNext()) {
+                writeInvoiceRow(sheet, rowNum++, iterator.next());
             }
+
+            workbook.write(outputStream);
+            outputStream.flush();
+        } finally {
+            // Delete the temporary file that backs the flushed rows
+            workbook.dispose();
+            workbook.close();
         }
+    }
 
-        return workbook;
+    // Create the invoice sheet along with its header row
+    private static Sheet createInvoiceSheet(Workbook workbook) {
+        Sheet sheet = workbook.createSheet("Invoices");
+
+        Row headerRow = sheet.createRow(0);
+        for (int i = 0; i < HEADERS.length; i++) {
+            headerRow.createCell(i).setCellValue(HEADERS[i]);
+        }
+
+        return sheet;
+    }
+
+    // Write the invoice detail into the given row of the sheet
+    private static void writeInvoiceRow(Sheet sheet, int rowNum, InvoiceExcelRowDTO detail) {
+        Row row = sheet.createRow(rowNum);
+        row.createCell(0).setCellValue(detail.getInvoiceId().toString());
+        row.createCell(1).setCellValue(detail.getCustomerId().toString());
+        row.createCell(2).setCellValue(detail.getCustomerName());
+        row.createCell(3).setCellValue(detail.getAmount());
+        row.createCell(4).setCellValue(detail.getProductId().toString());
+        row.createCell(5).setCellValue(detail.getProductName());
+        row.createCell(6).setCellValue(detail.getPrice());
+        row.createCell(7).setCellValue(detail.getQuantity());
+        row.createCell(8).setCellValue(detail.getProductAmount());
     }
-}
\ No newline at end of file
+}
@@ -1,54 +1,122 @@
 package com.example.fpt_midterm_pos.utils;
 
+import java.io.BufferedInputStream;
 import java.io.BufferedReader;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
 import java.util.List;
+import java.util.function.Consumer;
 
+import javax.xml.parsers.ParserConfigurationException;
+
+import org.apache.poi.UnsupportedFileFormatException;
+import org.apache.poi.openxml4j.exceptions.OpenXML4JException;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
+import org.apache.poi.ss.usermodel.DataFormatter;
+import org.apache.poi.ss.util.CellReference;
+import org.apache.poi.ss.util.NumberToTextConverter;
+import org.apache.poi.util.XMLHelper;
+import org.apache.poi.xssf.eventusermodel.ReadOnlySharedStringsTable;
+import org.apache.poi.xssf.eventusermodel.XSSFReader;
+import org.apache.poi.xssf.eventusermodel.XSSFSheetXMLHandler;
+import org.apache.poi.xssf.eventusermodel.XSSFSheetXMLHandler.SheetContentsHandler;
+import org.apache.poi.xssf.usermodel.XSSFComment;
 import org.springframework.web.multipart.MultipartFile;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
 
+import com.example.fpt_midterm_pos.dto.ProductImportRowDTO;
 import com.example.fpt_midterm_pos.dto.ProductSaveDTO;
 
 public class FileUtils {
-    
+
     public static final String TYPE = "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet";
     private static final String[] HEADERS = { "name", "price", "quantity" };
 
+    // Every workbook is a ZIP archive, which starts with this signature
+    private static final byte[] ZIP_SIGNATURE = { 'P', 'K', 3, 4 };
+
+    // Hands numeric cells over as their plain value, whatever their display format, so they parse back exactly
+    private static final DataFormatter RAW_NUMBER_FORMATTER = new DataFormatter() {
+        @Override
+        public String formatRawCellContents(double value, int formatIndex, String formatString, boolean use1904Windowing) {
+            return NumberToTextConverter.toText(value);
+        }
+    };
+
     private FileUtils() {
         throw new IllegalStateException("Utility class");
     }
 
     public static boolean hasExcelFormat(MultipartFile file) {
         return TYPE.equals(file.getContentType());
-    }            
+    }
 
     public static List<ProductSaveDTO> readProductsFromExcel(MultipartFile file) throws IOException {
-        if (!hasExcelFormat(file)) {
-            throw new IllegalArgumentException("Invalid file format. Only Excel files are accepted.");
-        }
-    
         List<ProductSaveDTO> productSaveDTOs = new ArrayList<>();
-        try (BufferedReader br = new BufferedReader(new InputStreamReader(file.getInputStream()))) {
-            String header = br.readLine(); // Skip header
-            if (header == null) {
-                throw new IOException("File is empty or has an invalid format");
-            }
-    
-            String line;
-            while ((line = br.readLine()) != null) {
-                String[] attributes = line.split(",");
-                if (attributes.length < HEADERS.length) {
-                    throw new IOException("Invalid row format");
-                }
-                ProductSaveDTO productSaveDTO = fromExcel(attributes);
-                productSaveDTOs.add(productSaveDTO);
+        List<String> errors = new ArrayList<>();
+        readProductsFromExcel(file, row -> {
+            if (row.getError() != null) {
+                errors.add("Row " + row.getRowNumber() + ": " + row.getError());
+            } else {
+                productSaveDTOs.add(row.getProduct());
             }
-        } catch (IOException e) {
-            throw new IOException("Error reading Excel file: " + e.getMessage(), e);
+        });
+        if (!errors.isEmpty()) {
+            throw new IOException(errors.get(0));
         }
         return productSaveDTOs;
-    }    
+    }
+
+    /**
+     * Reads the products of an uploaded Excel file one row at a time.
+     *
+     * @param file The uploaded Excel file, with a header row followed by one product per row in the name, price, and quantity columns.
+     * @param rowHandler The handler every product row is passed to, in the order of the sheet.
+     * @throws IOException If the file cannot be read.
+     * @throws IllegalArgumentException If the file is not an Excel file.
+     * @see #readProductsFromExcel(InputStream, Consumer)
+     */
+    public static void readProductsFromExcel(MultipartFile file, Consumer<ProductImportRowDTO> rowHandler) throws IOException {
+        if (!hasExcelFormat(file)) {
+            throw new IllegalArgumentException("Invalid file format. Only Excel files are accepted.");
+        }
+        try (InputStream inputStream = file.getInputStream()) {
+            readProductsFromExcel(inputStream, rowHandler);
+        }
+    }
+
+    /**
+     * Reads the products of an Excel file one row at a time, so the memory used is proportional to a single row rather than to the file.
+     * A workbook is spooled to a temporary file, so its parts are read lazily, and the first sheet is parsed with the SAX event model of {@link XSSFReader} instead of being loaded as a whole. Only the shared strings table of the workbook is held in memory.
+     * A plain comma-separated file, as the former upload format, is read line by line.
+     *
+     * @param inputStream The content of the Excel file, with a header row followed by one product per row in the name, price, and quantity columns.
+     * @param rowHandler The handler every product row is passed to, in the order of the sheet. A row that cannot be read is passed with the error instead of a product, and the following rows are still read.
+     * @throws IOException If the file cannot be read.
+     */
+    public static void readProductsFromExcel(InputStream inputStream, Consumer<ProductImportRowDTO> rowHandler) throws IOException {
+        BufferedInputStream bufferedInputStream = new BufferedInputStream(inputStream);
+        bufferedInputStream.mark(ZIP_SIGNATURE.length);
+        byte[] signature = bufferedInputStream.readNBytes(ZIP_SIGNATURE.length);
+        bufferedInputStream.reset();
+
+        if (Arrays.equals(signature, ZIP_SIGNATURE)) {
+            readProductsFromWorkbook(bufferedInputStream, rowHandler);
+        } else {
+            readProductsFromText(bufferedInputStream, rowHandler);
+        }
+    }
 
     public static ProductSaveDTO fromExcel(String[] attributes) {
         if (attributes.length < HEADERS.length) {
@@ -60,4 +128,117 @@ public class FileUtils {
         productSaveDTO.setQuantity(Integer.valueOf(attributes[2]));
         return productSaveDTO;
     }
-}
\ No newline at end of file
+
+    // Parse the first sheet of the workbook row by row
+    private static void readProductsFromWorkbook(InputStream inputStream, Consumer<ProductImportRowDTO> rowHandler) throws IOException {
+        Path workbookFile = Files.createTempFile("product-import-", ".xlsx");
+        try {
+            Files.copy(inputStream, workbookFile, StandardCopyOption.REPLACE_EXISTING);
+            try (OPCPackage workbook = OPCPackage.open(workbookFile.toFile(), PackageAccess.READ)) {
+                XSSFReader reader = new XSSFReader(workbook);
+                ReadOnlySharedStringsTable sharedStrings = new ReadOnlySharedStringsTable(workbook, false);
+                Iterator<InputStream> sheets = reader.getSheetsData();
+                if (!sheets.hasNext()) {
+                    throw new IOException("File is empty or has an invalid format");
+                }
+
+                XMLReader parser = XMLHelper.newXMLReader();
+                parser.setContentHandler(new XSSFSheetXMLHandler(reader.getStylesTable(), sharedStrings,
+                        new ProductSheetHandler(rowHandler), RAW_NUMBER_FORMATTER, false));
+                try (InputStream sheet = sheets.next()) {
+                    parser.parse(new InputSource(sheet));
+                }
+            } catch (OpenXML4JException | UnsupportedFileFormatException | SAXException | ParserConfigurationException e) {
+                throw new IOException("File is empty or has an invalid format", e);
+            }
+        } finally {
+            Files.deleteIfExists(workbookFile);
+        }
+    }
+
+    // Read the former comma-separated upload format line by line
+    private static void readProductsFromText(InputStream inputStream, Consumer<ProductImportRowDTO> rowHandler) throws IOException {
+        BufferedReader br = new BufferedReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8));
+        String header = br.readLine(); // Skip header
+        if (header == null) {
+            throw new IOException("File is empty or has an invalid format");
+        }
+
+        String line;
+        int rowNumber = 1;
+        while ((line = br.readLine()) != null) {
+            rowNumber++;
+            if (line.isBlank()) {
+                continue;
+            }
+            String[] attributes = line.split(",", -1);
+            if (attributes.length < HEADERS.length) {
+                rowHandler.accept(new ProductImportRowDTO(rowNumber, null, "Invalid row format"));
+                continue;
+            }
+            rowHandler.accept(toProductRow(rowNumber, attributes[0], attributes[1], attributes[2]));
+        }
+    }
+
+    // Turn the cell values of a row into a product, or into the error of the first value that cannot be read
+    private static ProductImportRowDTO toProductRow(int rowNumber, String name, String price, String quantity) {
+        if (name == null || name.isBlank()) {
+            return new ProductImportRowDTO(rowNumber, null, "Name is missing");
+        }
+        if (price == null || price.isBlank()) {
+            return new ProductImportRowDTO(rowNumber, null, "Price is missing");
+        }
+        if (quantity == null || quantity.isBlank()) {
+            return new ProductImportRowDTO(rowNumber, null, "Quantity is missing");
+        }
+
+        ProductSaveDTO productSaveDTO = new ProductSaveDTO();
+        productSaveDTO.setName(name.trim());
+        try {
+            productSaveDTO.setPrice(Double.valueOf(price.trim()));
+        } catch (NumberFormatException e) {
+            return new ProductImportRowDTO(rowNumber, null, "Price is not a number: " + price.trim());
+        }
+        try {
+            productSaveDTO.setQuantity(Integer.valueOf(quantity.trim()));
+        } catch (NumberFormatException e) {
+            return new ProductImportRowDTO(rowNumber, null, "Quantity is not a whole number: " + quantity.trim());
+        }
+        return new ProductImportRowDTO(rowNumber, productSaveDTO, null);
+    }
+
+    /**
+     * Collects the cells of one sheet row at a time and passes each product row on once it ends.
+     */
+    private static final class ProductSheetHandler implements SheetContentsHandler {
+
+        private final Consumer<ProductImportRowDTO> rowHandler;
+        private final String[] values = new String[HEADERS.length];
+
+        ProductSheetHandler(Consumer<ProductImportRowDTO> rowHandler) {
+            this.rowHandler = rowHandler;
+        }
+
+        @Override
+        public void startRow(int rowNum) {
+            Arrays.fill(values, null);
+        }
+
+        @Override
+        public void cell(String cellReference, String formattedValue, XSSFComment comment) {
+            int column = new CellReference(cellReference).getCol();
+            if (column < values.length) {
+                values[column] = formattedValue;
+            }
+        }
+
+        @Override
+        public void endRow(int rowNum) {
+            // The first row is the header, and blank rows are only formatting
+            if (rowNum == 0 || Arrays.stream(values).allMatch(value -> value == null || value.isBlank())) {
+                return;
+            }
+            rowHandler.accept(toProductRow(rowNum + 1, values[0], values[1], values[2]));
+        }
+    }
+}
@@ -2,23 +2,61 @@ package com.example.fpt_midterm_pos.utils;
 
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
 import org.springframework.stereotype.Component;
 import org.thymeleaf.context.Context;
 import org.thymeleaf.spring6.SpringTemplateEngine;
 
+import com.example.fpt_midterm_pos.data.model.Customer;
 import com.example.fpt_midterm_pos.data.model.Invoice;
+import com.itextpdf.html2pdf.ConverterProperties;
 import com.itextpdf.html2pdf.HtmlConverter;
+import com.itextpdf.html2pdf.resolver.font.DefaultFontProvider;
+
+import jakarta.annotation.PreDestroy;
 
 @Component
 public class PDFGenerator {
 
     private final SpringTemplateEngine templateEngine;
+    private final ThreadPoolExecutor renderExecutor;
+    // One permit per running or queued render, so the executor itself never has to reject one
+    private final Semaphore renderPermits;
+    private final Map<RenderKey, byte[]> renderedPDFs;
+
+    // A font provider caches the fonts of the document being converted, so each render thread keeps its own converter properties
+    private final ThreadLocal<ConverterProperties> converterProperties = ThreadLocal.withInitial(PDFGenerator::createConverterProperties);
 
     @Autowired
-    public PDFGenerator(SpringTemplateEngine templateEngine) {
+    public PDFGenerator(SpringTemplateEngine templateEngine,
+                        @Value("${pdf.render.threads:#{T(java.lang.Runtime).getRuntime().availableProcessors()}}") int renderThreads,
+                        @Value("${pdf.render.queue-capacity:64}") int renderQueueCapacity,
+                        @Value("${pdf.cache.max-entries:256}") int cacheMaxEntries) {
         this.templateEngine = templateEngine;
+        this.renderExecutor = new ThreadPoolExecutor(renderThreads, renderThreads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(renderQueueCapacity), new CustomizableThreadFactory("pdf-render-"),
+                new ThreadPoolExecutor.AbortPolicy());
+        this.renderPermits = new Semaphore(renderThreads + renderQueueCapacity);
+        this.renderedPDFs = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<RenderKey, byte[]> eldest) {
+                return size() > cacheMaxEntries;
+            }
+        });
     }
 
     /**
@@ -27,8 +65,96 @@ public class PDFGenerator {
      * @param invoice The invoice object containing all the necessary data to generate the PDF.
      * @return A byte array containing the PDF data.
      * @throws IOException If an error occurs while processing the HTML to PDF.
+     * @throws RejectedExecutionException If the queue of the render executor is full.
+     * @see #generateInvoicePDFAsync(Invoice)
      */
     public byte[] generateInvoicePDF(Invoice invoice) throws IOException {
+        try {
+            return generateInvoicePDFAsync(invoice).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("PDF rendering was interrupted", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IOException(e.getCause());
+        }
+    }
+
+    /**
+     * Starts generating a PDF invoice for the given invoice object, so several invoices can be rendered at once.
+     * A PDF already rendered for the same version of the invoice and its customer is returned from the cache, since every change to them updates their {@code updatedAt}. The least recently used PDFs are evicted once the cache is full.
+     * Otherwise the template is processed on the calling thread, which may still lazily load the invoice, and the HTML is converted on the render executor. The executor has a fixed number of threads, so concurrent exports cannot take more CPU than it has, and each of its threads reuses the same converter properties and font provider instead of loading the fonts again for every PDF.
+     *
+     * @param invoice The invoice object containing all the necessary data to generate the PDF.
+     * @return A {@link CompletableFuture} completed with a byte array containing the PDF data.
+     * @throws RejectedExecutionException If the queue of the render executor is full.
+     * @see #queueInvoicePDF(Invoice)
+     */
+    public CompletableFuture<byte[]> generateInvoicePDFAsync(Invoice invoice) {
+        RenderKey key = RenderKey.of(invoice);
+        byte[] cached = findCached(key);
+        if (cached != null) {
+            return CompletableFuture.completedFuture(cached);
+        }
+
+        if (!renderPermits.tryAcquire()) {
+            throw new RejectedExecutionException("The PDF render queue is full");
+        }
+        return render(invoice, key);
+    }
+
+    /**
+     * Starts generating a PDF invoice for the given invoice object like {@link #generateInvoicePDFAsync(Invoice)}, except that the calling thread waits for room in the render queue when it is full instead of being rejected. Used by bulk exports, which have already started writing their response and would otherwise fail halfway through it when other exports fill the queue.
+     *
+     * @param invoice The invoice object containing all the necessary data to generate the PDF.
+     * @return A {@link CompletableFuture} completed with a byte array containing the PDF data.
+     * @throws InterruptedException If the calling thread is interrupted while waiting for room in the render queue.
+     */
+    public CompletableFuture<byte[]> queueInvoicePDF(Invoice invoice) throws InterruptedException {
+        RenderKey key = RenderKey.of(invoice);
+        byte[] cached = findCached(key);
+        if (cached != null) {
+            return CompletableFuture.completedFuture(cached);
+        }
+
+        renderPermits.acquire();
+        return render(invoice, key);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        renderExecutor.shutdownNow();
+    }
+
+    private byte[] findCached(RenderKey key) {
+        return key == null ? null : renderedPDFs.get(key);
+    }
+
+    // Render with a permit already taken, which is given back once the PDF is converted
+    private CompletableFuture<byte[]> render(Invoice invoice, RenderKey key) {
+        CompletableFuture<byte[]> pdf;
+        try {
+            String html = processTemplate(invoice);
+            pdf = CompletableFuture.supplyAsync(() -> convertToPDF(html), renderExecutor);
+        } catch (RuntimeException e) {
+            renderPermits.release();
+            throw e;
+        }
+        pdf.whenComplete((bytes, error) -> renderPermits.release());
+
+        if (key == null) {
+            return pdf;
+        }
+        return pdf.thenApply(bytes -> {
+            renderedPDFs.put(key, bytes);
+            return bytes;
+        });
+    }
+
+    // Bind the invoice to the template and gather the HTML
+    private String processTemplate(Invoice invoice) {
         // Create a context
         Context context = new Context();
 
@@ -40,12 +166,33 @@ public class PDFGenerator {
                 .mapToDouble(detail -> detail.getQuantity() * detail.getPrice()).sum());
 
         // Gather the template
-        String processedHtml = templateEngine.process("invoice-template", context);
+        return templateEngine.process("invoice-template", context);
+    }
 
+    // Convert the HTML with the converter properties of the render thread
+    private byte[] convertToPDF(String html) {
         // Processing all the bytearrays and ready to send
         ByteArrayOutputStream stream = new ByteArrayOutputStream();
-        HtmlConverter.convertToPdf(processedHtml, stream);
-        stream.flush();
+        HtmlConverter.convertToPdf(html, stream, converterProperties.get());
         return stream.toByteArray();
     }
-}
\ No newline at end of file
+
+    private static ConverterProperties createConverterProperties() {
+        return new ConverterProperties().setFontProvider(new DefaultFontProvider());
+    }
+
+    /**
+     * The version of an invoice a PDF was rendered for. The customer is part of it, because its name is printed on the invoice.
+     */
+    private record RenderKey(UUID invoiceId, long invoiceUpdatedAt, long customerUpdatedAt) {
+
+        // Invoices that were never saved have no version to cache by
+        static RenderKey of(Invoice invoice) {
+            Customer customer = invoice.getCustomer();
+            if (invoice.getId() == null || invoice.getUpdatedAt() == null || customer == null || customer.getUpdatedAt() == null) {
+                return null;
+            }
+            return new RenderKey(invoice.getId(), invoice.getUpdatedAt().getTime(), customer.getUpdatedAt().getTime());
+        }
+    }
+}
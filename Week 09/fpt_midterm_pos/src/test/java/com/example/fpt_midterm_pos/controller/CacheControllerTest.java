@@ -0,0 +1,46 @@
+package com.example.fpt_midterm_pos.controller;
+
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import com.example.fpt_midterm_pos.dto.EntityCacheStatsDTO;
+import com.example.fpt_midterm_pos.service.EntityCacheService;
+
+class CacheControllerTest {
+
+    @InjectMocks
+    private CacheController cacheController;
+
+    @Mock
+    private EntityCacheService entityCacheService;
+
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    public void setUp() {
+        MockitoAnnotations.openMocks(this);
+        mockMvc = MockMvcBuilders.standaloneSetup(cacheController).build();
+    }
+
+    @Test
+    void testGetEntityCacheStats() throws Exception {
+        String region = "com.example.fpt_midterm_pos.data.model.Product";
+        when(entityCacheService.getStats()).thenReturn(List.of(new EntityCacheStatsDTO(region, 2, 9, 1, 3, 0.9)));
+
+        mockMvc.perform(get("/api/v1/cache/entities/stats"))
+                .andExpect(status().isOk())
+                .andExpect(content().json("[{\"region\":\"" + region + "\",\"size\":2,\"hits\":9,\"misses\":1,\"puts\":3,\"hitRate\":0.9}]"));
+    }
+}
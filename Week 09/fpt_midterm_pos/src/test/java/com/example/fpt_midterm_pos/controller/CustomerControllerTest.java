@@ -6,6 +6,7 @@ import java.util.UUID;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.isNull;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import static org.mockito.Mockito.when;
@@ -29,6 +30,7 @@ import com.example.fpt_midterm_pos.data.model.Status;
 import com.example.fpt_midterm_pos.dto.CustomerDTO;
 import com.example.fpt_midterm_pos.dto.CustomerSaveDTO;
 import com.example.fpt_midterm_pos.dto.CustomerShowDTO;
+import com.example.fpt_midterm_pos.exception.BadRequestException;
 import com.example.fpt_midterm_pos.exception.GlobalExceptionHandler;
 import com.example.fpt_midterm_pos.exception.ResourceNotFoundException;
 import com.example.fpt_midterm_pos.service.CustomerService;
@@ -95,6 +97,38 @@ class CustomerControllerTest {
                 .andExpect(status().isNoContent());
     }
 
+    @Test
+    void testSearchCustomer_byPhoneNumber() throws Exception {
+        CustomerShowDTO customerShowDTO = new CustomerShowDTO(UUID.randomUUID(), "Customer", "+628123456789");
+        Page<CustomerShowDTO> customerPage = new PageImpl<>(List.of(customerShowDTO), PageRequest.of(0, 20), 1);
+
+        when(customerService.searchActiveCustomer(any(String.class), isNull(), any(Pageable.class))).thenReturn(customerPage);
+
+        mockMvc.perform(get("/api/v1/customers/search")
+                .param("phoneNumber", "08123456789"))
+                .andExpect(status().isOk())
+                .andExpect(content().json(new ObjectMapper().writeValueAsString(customerPage)));
+    }
+
+    @Test
+    void testSearchCustomer_noCustomers() throws Exception {
+        when(customerService.searchActiveCustomer(isNull(), any(String.class), any(Pageable.class)))
+            .thenReturn(new PageImpl<>(List.of(), PageRequest.of(0, 20), 0));
+
+        mockMvc.perform(get("/api/v1/customers/search")
+                .param("name", "Cust"))
+                .andExpect(status().isNoContent());
+    }
+
+    @Test
+    void testSearchCustomer_withoutCriteria() throws Exception {
+        when(customerService.searchActiveCustomer(isNull(), isNull(), any(Pageable.class)))
+            .thenThrow(new BadRequestException("Search by either phone number or name"));
+
+        mockMvc.perform(get("/api/v1/customers/search"))
+                .andExpect(status().isBadRequest());
+    }
+
     @Test
     void testCreateCustomer_withValidFormat() throws Exception {
         CustomerDTO customerDTO = new CustomerDTO(UUID.randomUUID(), "Customer", "+62123456789", Status.ACTIVE);
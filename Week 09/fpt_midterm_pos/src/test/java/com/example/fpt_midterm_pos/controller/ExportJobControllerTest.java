@@ -0,0 +1,132 @@
+package com.example.fpt_midterm_pos.controller;
+
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Date;
+import java.util.UUID;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import com.example.fpt_midterm_pos.data.model.ExportJobStatus;
+import com.example.fpt_midterm_pos.dto.ExportJobDTO;
+import com.example.fpt_midterm_pos.exception.BadRequestException;
+import com.example.fpt_midterm_pos.exception.GlobalExceptionHandler;
+import com.example.fpt_midterm_pos.exception.ResourceNotFoundException;
+import com.example.fpt_midterm_pos.service.ExportJobService;
+
+class ExportJobControllerTest {
+
+    private static final String CONTENT = "0123456789";
+
+    @InjectMocks
+    private ExportJobController exportJobController;
+
+    @Mock
+    private ExportJobService exportJobService;
+
+    @TempDir
+    private Path tempDir;
+
+    private MockMvc mockMvc;
+
+    private UUID jobId;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        MockitoAnnotations.openMocks(this);
+        mockMvc = MockMvcBuilders.standaloneSetup(exportJobController)
+            .setControllerAdvice(new GlobalExceptionHandler())
+            .build();
+
+        jobId = UUID.randomUUID();
+        Path resultFile = Files.writeString(tempDir.resolve(jobId.toString()), CONTENT, StandardCharsets.US_ASCII);
+        ExportJobDTO exportJobDTO = new ExportJobDTO(jobId, "report.txt", "text/plain", ExportJobStatus.COMPLETED, 100, null, new Date(), new Date());
+
+        when(exportJobService.findById(jobId)).thenReturn(exportJobDTO);
+        when(exportJobService.acquireResultFile(jobId)).thenReturn(resultFile);
+    }
+
+    @Test
+    void testGetExportJob() throws Exception {
+        mockMvc.perform(get("/api/v1/exports/{id}", jobId))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.status").value("COMPLETED"))
+                .andExpect(jsonPath("$.progress").value(100));
+    }
+
+    @Test
+    void testGetExportJob_NotFound() throws Exception {
+        UUID unknownId = UUID.randomUUID();
+        when(exportJobService.findById(unknownId)).thenThrow(new ResourceNotFoundException("Export job not found"));
+
+        mockMvc.perform(get("/api/v1/exports/{id}", unknownId))
+                .andExpect(status().isNotFound())
+                .andExpect(jsonPath("$.error").value("Export job not found"));
+    }
+
+    @Test
+    void testDownloadExportJob() throws Exception {
+        mockMvc.perform(get("/api/v1/exports/{id}/download", jobId))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ACCEPT_RANGES, "bytes"))
+                .andExpect(header().string(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"report.txt\""))
+                .andExpect(header().longValue(HttpHeaders.CONTENT_LENGTH, CONTENT.length()))
+                .andExpect(content().string(CONTENT));
+
+        verify(exportJobService).releaseResultFile(jobId);
+    }
+
+    @Test
+    void testDownloadExportJob_Range() throws Exception {
+        mockMvc.perform(get("/api/v1/exports/{id}/download", jobId)
+                .header(HttpHeaders.RANGE, "bytes=4-"))
+                .andExpect(status().isPartialContent())
+                .andExpect(header().string(HttpHeaders.CONTENT_RANGE, "bytes 4-9/10"))
+                .andExpect(header().longValue(HttpHeaders.CONTENT_LENGTH, 6))
+                .andExpect(content().string("456789"));
+    }
+
+    @Test
+    void testDownloadExportJob_SuffixRange() throws Exception {
+        mockMvc.perform(get("/api/v1/exports/{id}/download", jobId)
+                .header(HttpHeaders.RANGE, "bytes=-3"))
+                .andExpect(status().isPartialContent())
+                .andExpect(header().string(HttpHeaders.CONTENT_RANGE, "bytes 7-9/10"))
+                .andExpect(content().string("789"));
+    }
+
+    @Test
+    void testDownloadExportJob_RangeNotSatisfiable() throws Exception {
+        mockMvc.perform(get("/api/v1/exports/{id}/download", jobId)
+                .header(HttpHeaders.RANGE, "bytes=20-30"))
+                .andExpect(status().isRequestedRangeNotSatisfiable())
+                .andExpect(header().string(HttpHeaders.CONTENT_RANGE, "bytes */10"));
+    }
+
+    @Test
+    void testDownloadExportJob_NotCompleted() throws Exception {
+        when(exportJobService.acquireResultFile(jobId)).thenThrow(new BadRequestException("Export job is not completed"));
+
+        mockMvc.perform(get("/api/v1/exports/{id}/download", jobId))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error").value("Export job is not completed"));
+    }
+}
@@ -1,20 +1,25 @@
 package com.example.fpt_midterm_pos.controller;
 
+import java.io.OutputStream;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Supplier;
 
 import org.apache.poi.ss.usermodel.Workbook;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -31,21 +36,32 @@ import static org.springframework.test.web.servlet.request.MockMvcRequestBuilder
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 import org.springframework.web.servlet.config.annotation.EnableWebMvc;
 
 import com.example.fpt_midterm_pos.data.model.Customer;
+import com.example.fpt_midterm_pos.data.model.ExportJobStatus;
+import com.example.fpt_midterm_pos.dto.CursorSliceDTO;
 import com.example.fpt_midterm_pos.dto.CustomerInvoiceDTO;
+import com.example.fpt_midterm_pos.dto.ExportJobDTO;
 import com.example.fpt_midterm_pos.dto.InvoiceDTO;
 import com.example.fpt_midterm_pos.dto.InvoiceDetailDTO;
 import com.example.fpt_midterm_pos.dto.InvoiceDetailsSearchCriteriaDTO;
 import com.example.fpt_midterm_pos.dto.InvoiceSaveDTO;
 import com.example.fpt_midterm_pos.dto.InvoiceSearchCriteriaDTO;
+import com.example.fpt_midterm_pos.dto.RevenueBucketDTO;
 import com.example.fpt_midterm_pos.dto.RevenueShowDTO;
 import com.example.fpt_midterm_pos.exception.GlobalExceptionHandler;
+import com.example.fpt_midterm_pos.service.CheckoutBatchService;
 import com.example.fpt_midterm_pos.service.CustomerService;
+import com.example.fpt_midterm_pos.service.ExportJobService;
+import com.example.fpt_midterm_pos.service.ExportProducer;
+import com.example.fpt_midterm_pos.service.ExportProgress;
+import com.example.fpt_midterm_pos.service.IdempotencyService;
 import com.example.fpt_midterm_pos.service.InvoiceService;
+import com.example.fpt_midterm_pos.service.RevenueService;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
 @EnableWebMvc
@@ -60,6 +76,18 @@ class InvoiceControllerTest {
     @Mock
     private CustomerService customerService;
 
+    @Mock
+    private RevenueService revenueService;
+
+    @Mock
+    private ExportJobService exportJobService;
+
+    @Mock
+    private IdempotencyService idempotencyService;
+
+    @Mock
+    private CheckoutBatchService checkoutBatchService;
+
     private final DateTimeFormatter dateFormatter = DateTimeFormatter.ofPattern("yyyy/MM/dd");
 
     private MockMvc mockMvc;
@@ -67,6 +95,7 @@ class InvoiceControllerTest {
     @BeforeEach
     public void setUp() {
         MockitoAnnotations.openMocks(this);
+        when(idempotencyService.execute(any(), any(), any())).thenAnswer(invocation -> invocation.<Supplier<?>>getArgument(2).get());
         mockMvc = MockMvcBuilders.standaloneSetup(invoiceController)
             .setControllerAdvice(new GlobalExceptionHandler())
             .build();
@@ -118,6 +147,28 @@ class InvoiceControllerTest {
                 .andExpect(content().json(expectedJson));
     }
 
+    @Test
+    void testGetInvoices_withCursor() throws Exception {
+        // Prepare test data
+        InvoiceDTO invoiceDTO = new InvoiceDTO(UUID.randomUUID(), 200.0, new Date(), new CustomerInvoiceDTO(), new ArrayList<>());
+        CursorSliceDTO<InvoiceDTO> invoiceSlice = new CursorSliceDTO<>(List.of(invoiceDTO), PageRequest.of(0, 20), "next-cursor");
+
+        // Mock the service call
+        when(invoiceService.findByCriteria(any(InvoiceSearchCriteriaDTO.class), eq("cursor"), eq(20)))
+            .thenReturn(invoiceSlice);
+
+        // Perform the request and verify the response
+        mockMvc.perform(get("/api/v1/invoices")
+                .param("cursor", "cursor")
+                .param("size", "20"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content.length()").value(1))
+                .andExpect(jsonPath("$.nextCursor").value("next-cursor"))
+                .andExpect(jsonPath("$.totalElements").doesNotExist());
+
+        verify(invoiceService, never()).findByCriteria(any(InvoiceSearchCriteriaDTO.class), any(Pageable.class));
+    }
+
     @Test
     void testGetRevenue() throws Exception {
         RevenueShowDTO revenueShowDTO = new RevenueShowDTO();
@@ -137,6 +188,34 @@ class InvoiceControllerTest {
         verify(invoiceService, times(1)).getInvoicesRevenue(any(Date.class), anyString());
     }
 
+    @Test
+    void testGetRevenueSeries() throws Exception {
+        List<RevenueBucketDTO> revenueSeries = List.of(
+                new RevenueBucketDTO(LocalDate.of(2024, 8, 1), 100.0),
+                new RevenueBucketDTO(LocalDate.of(2024, 9, 1), 0.0));
+
+        when(invoiceService.getInvoicesRevenueSeries(any(Date.class), any(Date.class), anyString()))
+            .thenReturn(revenueSeries);
+
+        mockMvc.perform(get("/api/v1/invoices/revenue/series")
+                .param("start", "2024/08/01")
+                .param("end", "2024/09/30")
+                .param("granularity", "month"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(jsonPath("$[1].amount").value(0.0));
+
+        verify(invoiceService, times(1)).getInvoicesRevenueSeries(any(Date.class), any(Date.class), eq("month"));
+    }
+
+    @Test
+    void testRebuildRevenue() throws Exception {
+        mockMvc.perform(post("/api/v1/invoices/revenue/rebuild"))
+                .andExpect(status().isOk());
+
+        verify(revenueService, times(1)).rebuildRevenue();
+    }
+
     @Test
     void testCreateInvoice() throws Exception {
         InvoiceDTO invoiceDTO = new InvoiceDTO();
@@ -152,6 +231,42 @@ class InvoiceControllerTest {
         verify(invoiceService, times(1)).createInvoice(any(InvoiceSaveDTO.class));
     }
 
+    @Test
+    void testCreateInvoice_withIdempotencyKey() throws Exception {
+        InvoiceDTO invoiceDTO = new InvoiceDTO();
+        invoiceDTO.setId(UUID.randomUUID());
+        InvoiceSaveDTO invoiceSaveDTO = new InvoiceSaveDTO(UUID.fromString("123e4567-e89b-12d3-a456-426614174000"), null);
+
+        // A retry is answered from the key store without creating the invoice again
+        when(idempotencyService.execute(eq("checkout-1"), eq(invoiceSaveDTO), any())).thenReturn(invoiceDTO);
+
+        mockMvc.perform(post("/api/v1/invoices")
+                .header("Idempotency-Key", "checkout-1")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{ \"customerId\": \"123e4567-e89b-12d3-a456-426614174000\" }"))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.id").value(invoiceDTO.getId().toString()));
+
+        verify(invoiceService, never()).createInvoice(any(InvoiceSaveDTO.class));
+    }
+
+    @Test
+    void testCreateInvoice_withGroupCommit() throws Exception {
+        InvoiceDTO invoiceDTO = new InvoiceDTO();
+        invoiceDTO.setId(UUID.randomUUID());
+
+        when(checkoutBatchService.isEnabled()).thenReturn(true);
+        when(checkoutBatchService.createInvoice(any(InvoiceSaveDTO.class))).thenReturn(invoiceDTO);
+
+        mockMvc.perform(post("/api/v1/invoices")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{ \"customerId\": \"123e4567-e89b-12d3-a456-426614174000\" }"))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.id").value(invoiceDTO.getId().toString()));
+
+        verify(invoiceService, never()).createInvoice(any(InvoiceSaveDTO.class));
+    }
+
     @Test
     void testUpdateInvoice() throws Exception {
         UUID id = UUID.randomUUID();
@@ -209,7 +324,8 @@ class InvoiceControllerTest {
         mockMvc.perform(get("/api/v1/invoices/excel")
                 .param("customerId", customerId.toString())
                 .param("month", "8")
-                .param("year", "2024"))
+                .param("year", "2024")
+                .param("streaming", "false"))
                 .andExpect(status().isOk())
                 .andExpect(header().string(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=invoice_report_John_Doe_8_2024.xlsx"));
 
@@ -217,6 +333,17 @@ class InvoiceControllerTest {
         verify(customerService, times(1)).findById(any(UUID.class));
     }
 
+    @Test
+    void testExportInvoiceToExcel_Streaming() throws Exception {
+        mockMvc.perform(get("/api/v1/invoices/excel")
+                .param("year", "2024"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=invoice_report_2024.xlsx"));
+
+        verify(invoiceService, times(1)).exportInvoiceToExcelByFilter(any(InvoiceDetailsSearchCriteriaDTO.class), any(OutputStream.class));
+        verify(invoiceService, never()).exportInvoiceToExcelByFilter(any(InvoiceDetailsSearchCriteriaDTO.class));
+    }
+
     @Test
     void testExportInvoiceToExcel_IOError() throws Exception {
         InvoiceDetailsSearchCriteriaDTO criteria = new InvoiceDetailsSearchCriteriaDTO();
@@ -236,4 +363,85 @@ class InvoiceControllerTest {
 
         verify(invoiceService, times(0)).exportInvoiceToExcelByFilter(any(InvoiceDetailsSearchCriteriaDTO.class));
     }
+
+    @Test
+    void testSubmitInvoicePDFExport() throws Exception {
+        UUID invoiceId = UUID.randomUUID();
+        ExportJobDTO exportJobDTO = new ExportJobDTO(UUID.randomUUID(), "invoice_" + invoiceId + ".pdf", MediaType.APPLICATION_PDF_VALUE, ExportJobStatus.QUEUED, 0, null, new Date(), null);
+
+        when(exportJobService.submit(eq("invoice_" + invoiceId + ".pdf"), eq(MediaType.APPLICATION_PDF_VALUE), any(ExportProducer.class))).thenReturn(exportJobDTO);
+
+        mockMvc.perform(post("/api/v1/invoices/{id}/export/jobs", invoiceId))
+                .andExpect(status().isAccepted())
+                .andExpect(jsonPath("$.id").value(exportJobDTO.getId().toString()))
+                .andExpect(jsonPath("$.status").value("QUEUED"));
+
+        // The producer only runs the export once the job is executed
+        verify(invoiceService, never()).exportInvoiceToPDF(any(UUID.class), any(OutputStream.class), any(ExportProgress.class));
+    }
+
+    @Test
+    void testSubmitInvoiceExcelExport() throws Exception {
+        ExportJobDTO exportJobDTO = new ExportJobDTO(UUID.randomUUID(), "invoice_report_8_2024.xlsx", "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet", ExportJobStatus.QUEUED, 0, null, new Date(), null);
+
+        when(exportJobService.submit(eq("invoice_report_8_2024.xlsx"), anyString(), any(ExportProducer.class))).thenReturn(exportJobDTO);
+
+        mockMvc.perform(post("/api/v1/invoices/excel/jobs")
+                .param("month", "8")
+                .param("year", "2024"))
+                .andExpect(status().isAccepted())
+                .andExpect(jsonPath("$.fileName").value("invoice_report_8_2024.xlsx"));
+    }
+
+    @Test
+    void testSubmitInvoiceExcelExport_NoCriteria() throws Exception {
+        mockMvc.perform(post("/api/v1/invoices/excel/jobs"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error").value("Please select at least one criterion: Customer ID, Month, or Year."));
+
+        verify(exportJobService, never()).submit(anyString(), anyString(), any(ExportProducer.class));
+    }
+
+    @Test
+    void testSubmitInvoiceExcelExport_QueueFull() throws Exception {
+        when(exportJobService.submit(anyString(), anyString(), any(ExportProducer.class))).thenThrow(new RejectedExecutionException());
+
+        mockMvc.perform(post("/api/v1/invoices/excel/jobs")
+                .param("year", "2024"))
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(jsonPath("$.error").value("The server is busy, please retry later"));
+    }
+
+    @Test
+    void testExportInvoicesToPDF() throws Exception {
+        mockMvc.perform(get("/api/v1/invoices/pdf")
+                .param("month", "8")
+                .param("year", "2024"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CONTENT_TYPE, "application/zip"))
+                .andExpect(header().string(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=invoice_report_8_2024.zip"));
+
+        verify(invoiceService, times(1)).exportInvoicesToPDFByFilter(any(InvoiceDetailsSearchCriteriaDTO.class), any(OutputStream.class));
+    }
+
+    @Test
+    void testExportInvoicesToPDF_NoCriteria() throws Exception {
+        mockMvc.perform(get("/api/v1/invoices/pdf"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error").value("Please select at least one criterion: Customer ID, Month, or Year."));
+
+        verify(invoiceService, never()).exportInvoicesToPDFByFilter(any(InvoiceDetailsSearchCriteriaDTO.class), any(OutputStream.class));
+    }
+
+    @Test
+    void testSubmitInvoicesPDFExport() throws Exception {
+        ExportJobDTO exportJobDTO = new ExportJobDTO(UUID.randomUUID(), "invoice_report_2024.zip", "application/zip", ExportJobStatus.QUEUED, 0, null, new Date(), null);
+
+        when(exportJobService.submit(eq("invoice_report_2024.zip"), eq("application/zip"), any(ExportProducer.class))).thenReturn(exportJobDTO);
+
+        mockMvc.perform(post("/api/v1/invoices/pdf/jobs")
+                .param("year", "2024"))
+                .andExpect(status().isAccepted())
+                .andExpect(jsonPath("$.fileName").value("invoice_report_2024.zip"));
+    }
 }
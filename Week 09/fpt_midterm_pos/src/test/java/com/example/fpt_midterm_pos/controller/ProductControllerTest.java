@@ -6,6 +6,7 @@ import java.util.UUID;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import static org.mockito.Mockito.when;
@@ -28,14 +29,21 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 import org.springframework.web.servlet.config.annotation.EnableWebMvc;
 
+import com.example.fpt_midterm_pos.data.model.ProductImportMode;
 import com.example.fpt_midterm_pos.data.model.Status;
+import com.example.fpt_midterm_pos.dto.ProductCacheStatsDTO;
 import com.example.fpt_midterm_pos.dto.ProductDTO;
+import com.example.fpt_midterm_pos.dto.ProductImportSummaryDTO;
 import com.example.fpt_midterm_pos.dto.ProductSaveDTO;
 import com.example.fpt_midterm_pos.dto.ProductSearchCriteriaDTO;
 import com.example.fpt_midterm_pos.dto.ProductShowDTO;
+import com.example.fpt_midterm_pos.dto.ProductSuggestionDTO;
 import com.example.fpt_midterm_pos.exception.GlobalExceptionHandler;
 import com.example.fpt_midterm_pos.exception.ResourceNotFoundException;
+import com.example.fpt_midterm_pos.service.ProductCacheService;
+import com.example.fpt_midterm_pos.service.ProductImportService;
 import com.example.fpt_midterm_pos.service.ProductService;
+import com.example.fpt_midterm_pos.service.StockService;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
 @EnableWebMvc
@@ -47,6 +55,15 @@ class ProductControllerTest {
     @Mock
     private ProductService productService;
 
+    @Mock
+    private StockService stockService;
+
+    @Mock
+    private ProductImportService productImportService;
+
+    @Mock
+    private ProductCacheService productCacheService;
+
     private MockMvc mockMvc;
 
     @BeforeEach
@@ -211,7 +228,7 @@ class ProductControllerTest {
     void testUploadExcel_withInvalidFormat() throws Exception {
         MockMultipartFile fileText = new MockMultipartFile("file", "file.txt", "text/plain", "Invalid content".getBytes());
 
-        when(productService.saveProductsFromExcel(fileText))
+        when(productImportService.importProducts(fileText, ProductImportMode.INSERT))
             .thenThrow(new IllegalArgumentException("Invalid file format. Only Excel files are accepted."));
         
         mockMvc.perform(multipart("/api/v1/products/upload")
@@ -222,14 +239,70 @@ class ProductControllerTest {
 
     @Test
     void testUploadExcel_withValidFormat() throws Exception {
-        List<ProductDTO> productDTOs = List.of(new ProductDTO(UUID.randomUUID(), "Product", 100.0, Status.ACTIVE, 10));
+        ProductImportSummaryDTO summary = new ProductImportSummaryDTO(3, 2, 0, 0, 1, List.of(3), 15);
         MockMultipartFile fileExcel = new MockMultipartFile("file", "products.xlsx", "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet", "name,price,quantity\nProduct,100.0,10".getBytes());
 
-        when(productService.saveProductsFromExcel(fileExcel)).thenReturn(productDTOs);
+        when(productImportService.importProducts(fileExcel, ProductImportMode.INSERT)).thenReturn(summary);
 
         mockMvc.perform(multipart("/api/v1/products/upload")
                 .file(fileExcel))
                 .andExpect(status().isOk())
-                .andExpect(content().json("[{\"id\":\"" + productDTOs.get(0).getId() + "\",\"name\":\"Product\",\"price\":100.0,\"status\":\"ACTIVE\",\"quantity\":10}]"));
+                .andExpect(content().json("{\"totalRows\":3,\"importedRows\":2,\"updatedRows\":0,\"unchangedRows\":0,\"failedRows\":1,\"failedRowNumbers\":[3],\"durationMillis\":15}"));
+    }
+
+    @Test
+    void testUploadExcel_withUpsertMode() throws Exception {
+        ProductImportSummaryDTO summary = new ProductImportSummaryDTO(3, 1, 1, 1, 0, List.of(), 15);
+        MockMultipartFile fileExcel = new MockMultipartFile("file", "products.xlsx", "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet", "name,price,quantity\nProduct,100.0,10".getBytes());
+
+        when(productImportService.importProducts(fileExcel, ProductImportMode.UPSERT)).thenReturn(summary);
+
+        mockMvc.perform(multipart("/api/v1/products/upload")
+                .file(fileExcel)
+                .param("mode", "UPSERT"))
+                .andExpect(status().isOk())
+                .andExpect(content().json("{\"importedRows\":1,\"updatedRows\":1,\"unchangedRows\":1,\"failedRows\":0}"));
+    }
+
+    @Test
+    void testSplitProductStock() throws Exception {
+        UUID productId = UUID.randomUUID();
+        ProductDTO productDTO = new ProductDTO(productId, "Product", 100.0, Status.ACTIVE, 10);
+
+        when(stockService.splitStock(productId, 8)).thenReturn(productDTO);
+
+        mockMvc.perform(put("/api/v1/products/" + productId + "/stock/split").param("shards", "8"))
+                .andExpect(status().isOk())
+                .andExpect(content().json("{\"id\":\"" + productId + "\",\"quantity\":10}"));
+    }
+
+    @Test
+    void testMergeProductStock_withProductNotExist() throws Exception {
+        UUID productId = UUID.randomUUID();
+
+        when(stockService.mergeStock(eq(productId))).thenThrow(new ResourceNotFoundException("Product not found"));
+
+        mockMvc.perform(put("/api/v1/products/" + productId + "/stock/merge"))
+                .andExpect(status().isNotFound())
+                .andExpect(content().json("{\"error\": \"Product not found\"}"));
+    }
+
+    @Test
+    void testSuggestProducts() throws Exception {
+        UUID productId = UUID.randomUUID();
+        when(productService.suggestProducts("wi", 10)).thenReturn(List.of(new ProductSuggestionDTO(productId, "Blue Widget")));
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/v1/products/suggest").param("prefix", "wi"))
+                .andExpect(status().isOk())
+                .andExpect(content().json("[{\"id\":\"" + productId + "\",\"name\":\"Blue Widget\"}]"));
+    }
+
+    @Test
+    void testGetProductCacheStats() throws Exception {
+        when(productCacheService.getStats()).thenReturn(new ProductCacheStatsDTO(2, 100, 3, 1, 0, 0, 0.75));
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/v1/products/cache/stats"))
+                .andExpect(status().isOk())
+                .andExpect(content().json("{\"size\":2,\"maxEntries\":100,\"hits\":3,\"misses\":1,\"hitRate\":0.75}"));
     }
 }
\ No newline at end of file
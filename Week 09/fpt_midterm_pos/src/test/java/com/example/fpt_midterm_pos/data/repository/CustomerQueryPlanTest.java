@@ -0,0 +1,80 @@
+package com.example.fpt_midterm_pos.data.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.List;
+
+import org.hibernate.Session;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.PageRequest;
+
+import com.example.fpt_midterm_pos.data.model.Status;
+
+import jakarta.persistence.EntityManager;
+
+/**
+ * Runs EXPLAIN on the SQL of the customer lookups and fails when one of them no longer reads the customers through an index.
+ * Like {@link InvoiceQueryPlanTest}, it is only run on demand with {@code mvn test -Dtest=CustomerQueryPlanTest -Dexplain=true}.
+ */
+@EnabledIfSystemProperty(named = "explain", matches = "true")
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.session_factory.statement_inspector="
+        + "com.example.fpt_midterm_pos.data.repository.InvoiceQueryPlanTest$CapturingStatementInspector")
+class CustomerQueryPlanTest {
+
+    @Autowired
+    private CustomerRepository customerRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @BeforeEach
+    public void setUp() {
+        InvoiceQueryPlanTest.CapturingStatementInspector.clear();
+    }
+
+    @Test
+    void findByPhoneNumberAndStatusUsesPhoneNumberIndex() {
+        customerRepository.findByPhoneNumberAndStatus("+628123456789", Status.ACTIVE, PageRequest.of(0, 20));
+
+        assertThat(explainLast()).contains("IDX_CUSTOMER_PHONE_NUMBER").doesNotContain("CUSTOMER.tableScan");
+    }
+
+    @Test
+    void findByStatusAndNameStartingWithUsesStatusNameIndex() {
+        customerRepository.findByStatusAndNameStartingWithOrderByNameAsc(Status.ACTIVE, "Cust", PageRequest.of(0, 20));
+
+        assertThat(explainLast()).contains("IDX_CUSTOMER_STATUS_NAME").doesNotContain("CUSTOMER.tableScan");
+    }
+
+    // Explain the last statement Hibernate sent to the database
+    private String explainLast() {
+        List<String> statements = InvoiceQueryPlanTest.CapturingStatementInspector.statements();
+        assertThat(statements).isNotEmpty();
+        return explain(statements.get(statements.size() - 1));
+    }
+
+    // EXPLAIN only plans the statement, so every parameter can be left null
+    private String explain(String sql) {
+        return entityManager.unwrap(Session.class).doReturningWork(connection -> {
+            try (PreparedStatement statement = connection.prepareStatement("EXPLAIN " + sql)) {
+                int parameterCount = statement.getParameterMetaData().getParameterCount();
+                for (int i = 1; i <= parameterCount; i++) {
+                    statement.setObject(i, null);
+                }
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    StringBuilder plan = new StringBuilder();
+                    while (resultSet.next()) {
+                        plan.append(resultSet.getString(1)).append('\n');
+                    }
+                    return plan.toString();
+                }
+            }
+        });
+    }
+}
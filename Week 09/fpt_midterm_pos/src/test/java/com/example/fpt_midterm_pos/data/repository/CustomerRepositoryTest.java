@@ -13,6 +13,7 @@ import org.springframework.data.domain.PageRequest;
 
 import com.example.fpt_midterm_pos.data.model.Customer;
 import com.example.fpt_midterm_pos.data.model.Status;
+import com.example.fpt_midterm_pos.dto.CustomerShowDTO;
 
 @DataJpaTest
 class CustomerRepositoryTest {
@@ -36,13 +37,41 @@ class CustomerRepositoryTest {
 
     @Test
     void findByStatus() {
-        Page<Customer> customers = customerRepository.findByStatus(Status.ACTIVE, PageRequest.of(0, 10));
+        Page<CustomerShowDTO> customers = customerRepository.findByStatus(Status.ACTIVE, PageRequest.of(0, 10));
         assertThat(customers.getTotalElements()).isPositive();
+        assertThat(customers.getContent()).extracting(CustomerShowDTO::getPhoneNumber).contains("+62123456789");
+    }
+
+    @Test
+    void findByPhoneNumberAndStatus() {
+        Page<CustomerShowDTO> customers = customerRepository.findByPhoneNumberAndStatus("+62123456789", Status.ACTIVE, PageRequest.of(0, 10));
+        assertThat(customers.getContent()).extracting(CustomerShowDTO::getName).containsExactly("Test Customer");
+
+        assertThat(customerRepository.findByPhoneNumberAndStatus("+62123456780", Status.ACTIVE, PageRequest.of(0, 10))).isEmpty();
+        assertThat(customerRepository.findByPhoneNumberAndStatus("+62123456789", Status.DEACTIVE, PageRequest.of(0, 10))).isEmpty();
+    }
+
+    @Test
+    void findByStatusAndNameStartingWith() {
+        Customer other = new Customer();
+        other.setName("Tessa Customer");
+        other.setStatus(Status.ACTIVE);
+        other.setPhoneNumber("+62123456780");
+        other.setCreatedAt(new java.util.Date());
+        other.setUpdatedAt(new java.util.Date());
+        customerRepository.save(other);
+
+        Page<CustomerShowDTO> customers = customerRepository.findByStatusAndNameStartingWithOrderByNameAsc(Status.ACTIVE, "Tes", PageRequest.of(0, 10));
+        assertThat(customers.getContent()).extracting(CustomerShowDTO::getName).containsExactly("Tessa Customer", "Test Customer");
+
+        // The prefix is matched from the start of the name only, with its wildcards taken literally
+        assertThat(customerRepository.findByStatusAndNameStartingWithOrderByNameAsc(Status.ACTIVE, "Customer", PageRequest.of(0, 10))).isEmpty();
+        assertThat(customerRepository.findByStatusAndNameStartingWithOrderByNameAsc(Status.ACTIVE, "%", PageRequest.of(0, 10))).isEmpty();
     }
 
     @Test
     void findByStatusEmptyResult() {
-        Page<Customer> customers = customerRepository.findByStatus(Status.DEACTIVE, PageRequest.of(0, 10));
+        Page<CustomerShowDTO> customers = customerRepository.findByStatus(Status.DEACTIVE, PageRequest.of(0, 10));
         assertThat(customers.getTotalElements()).isZero();
     }
 }
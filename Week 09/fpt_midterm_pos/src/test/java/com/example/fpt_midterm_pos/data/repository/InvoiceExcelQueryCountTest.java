@@ -0,0 +1,139 @@
+package com.example.fpt_midterm_pos.data.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+
+import com.example.fpt_midterm_pos.data.model.Customer;
+import com.example.fpt_midterm_pos.data.model.Invoice;
+import com.example.fpt_midterm_pos.data.model.InvoiceDetail;
+import com.example.fpt_midterm_pos.data.model.InvoiceDetailKey;
+import com.example.fpt_midterm_pos.data.model.Product;
+import com.example.fpt_midterm_pos.data.model.Status;
+import com.example.fpt_midterm_pos.dto.InvoiceExcelRowDTO;
+
+/**
+ * Counts the statements the Excel export sends to the database: the former entity query, which loads every customer
+ * lazily while the rows are written, against the flat projection that joins everything up front.
+ */
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+class InvoiceExcelQueryCountTest {
+
+    private static final int CUSTOMERS = 10;
+    private static final int INVOICES_PER_CUSTOMER = 5;
+    private static final String[] PRODUCTS = { "Apple", "Banana", "Cherry" };
+    private static final Date FROM = new Date(0);
+    private static final Date TO = new Date(10_000_000L);
+
+    // The former Excel export query, which fetched the details but neither the customer nor the product
+    private static final String ENTITY_QUERY = "SELECT i FROM Invoice i JOIN FETCH i.invoiceDetails d "
+            + "WHERE i.date >= :from AND i.date < :to";
+
+    @Autowired
+    private InvoiceRepository invoiceRepository;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    public void setUp() {
+        List<Product> products = new ArrayList<>();
+        for (String name : PRODUCTS) {
+            Product product = new Product();
+            product.setName(name);
+            product.setPrice(10.0);
+            product.setQuantity(100);
+            product.setCreatedAt(new Date());
+            product.setUpdatedAt(new Date());
+            products.add(entityManager.persist(product));
+        }
+
+        for (int c = 0; c < CUSTOMERS; c++) {
+            Customer customer = new Customer();
+            customer.setName("Customer " + (char) ('A' + c));
+            customer.setStatus(Status.ACTIVE);
+            customer.setPhoneNumber("+6212345678" + c);
+            customer.setCreatedAt(new Date());
+            customer.setUpdatedAt(new Date());
+            entityManager.persist(customer);
+
+            for (int i = 0; i < INVOICES_PER_CUSTOMER; i++) {
+                Invoice invoice = new Invoice();
+                invoice.setAmount(10.0 * PRODUCTS.length);
+                invoice.setDate(new Date(1_000_000L + c * 1_000L + i));
+                invoice.setCreatedAt(new Date());
+                invoice.setUpdatedAt(new Date());
+                invoice.setCustomer(customer);
+                entityManager.persist(invoice);
+
+                for (Product product : products) {
+                    InvoiceDetail detail = new InvoiceDetail();
+                    detail.setId(new InvoiceDetailKey(invoice.getId(), product.getId()));
+                    detail.setInvoice(invoice);
+                    detail.setProduct(product);
+                    detail.setProductName(product.getName());
+                    detail.setQuantity(1);
+                    detail.setPrice(product.getPrice());
+                    detail.setAmount(product.getPrice());
+                    detail.setCreatedAt(new Date());
+                    detail.setUpdatedAt(new Date());
+                    entityManager.persist(detail);
+                }
+            }
+        }
+        entityManager.flush();
+        entityManager.clear();
+
+        statistics = entityManager.getEntityManager().getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @Test
+    void entityQueryLoadsEveryCustomerLazily() {
+        List<Invoice> invoices = entityManager.getEntityManager().createQuery(ENTITY_QUERY, Invoice.class)
+                .setParameter("from", FROM)
+                .setParameter("to", TO)
+                .getResultList();
+        int rows = 0;
+        for (Invoice invoice : invoices) {
+            for (InvoiceDetail detail : invoice.getInvoiceDetails()) {
+                // Read every column the Excel export writes
+                assertThat(invoice.getCustomer().getName()).isNotNull();
+                assertThat(detail.getProduct().getId()).isNotNull();
+                rows++;
+            }
+        }
+
+        assertThat(rows).isEqualTo(CUSTOMERS * INVOICES_PER_CUSTOMER * PRODUCTS.length);
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1 + CUSTOMERS);
+    }
+
+    @Test
+    void flatProjectionRunsSingleQuery() {
+        int rows = 0;
+        try (Stream<InvoiceExcelRowDTO> stream = invoiceRepository.streamRowsForExcel(FROM, TO, null)) {
+            for (InvoiceExcelRowDTO row : stream.toList()) {
+                assertThat(row.getCustomerName()).isNotNull();
+                assertThat(row.getProductId()).isNotNull();
+                rows++;
+            }
+        }
+
+        assertThat(rows).isEqualTo(CUSTOMERS * INVOICES_PER_CUSTOMER * PRODUCTS.length);
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+        assertThat(statistics.getEntityLoadCount()).isZero();
+    }
+}
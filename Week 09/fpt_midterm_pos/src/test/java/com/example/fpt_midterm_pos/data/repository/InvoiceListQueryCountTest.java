@@ -0,0 +1,144 @@
+package com.example.fpt_midterm_pos.data.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+
+import com.example.fpt_midterm_pos.data.model.Customer;
+import com.example.fpt_midterm_pos.data.model.Invoice;
+import com.example.fpt_midterm_pos.data.model.InvoiceDetail;
+import com.example.fpt_midterm_pos.data.model.InvoiceDetailKey;
+import com.example.fpt_midterm_pos.data.model.Product;
+import com.example.fpt_midterm_pos.data.model.Status;
+import com.example.fpt_midterm_pos.dto.InvoiceDetailRowDTO;
+import com.example.fpt_midterm_pos.dto.InvoiceRowDTO;
+import com.example.fpt_midterm_pos.dto.InvoiceSearchCriteriaDTO;
+
+/**
+ * Counts the statements a page of the invoice list sends to the database: the former entity page, which loads the customer
+ * and the details of every invoice lazily while they are mapped, against the projections that read the page and its details up front.
+ */
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+class InvoiceListQueryCountTest {
+
+    private static final int CUSTOMERS = 10;
+    private static final int INVOICES_PER_CUSTOMER = 5;
+    private static final int PAGE_SIZE = 20;
+    private static final String[] PRODUCTS = { "Apple", "Banana", "Cherry" };
+    private static final Date FROM = new Date(0);
+    private static final Date TO = new Date(10_000_000L);
+
+    // The former invoice list query, which selected the entities only
+    private static final String ENTITY_QUERY = "SELECT i FROM Invoice i WHERE i.date >= :from AND i.date < :to ORDER BY i.date";
+
+    @Autowired
+    private InvoiceRepository invoiceRepository;
+
+    @Autowired
+    private InvoiceDetailRepository invoiceDetailRepository;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    public void setUp() {
+        List<Product> products = new ArrayList<>();
+        for (String name : PRODUCTS) {
+            Product product = new Product();
+            product.setName(name);
+            product.setPrice(10.0);
+            product.setQuantity(100);
+            product.setCreatedAt(new Date());
+            product.setUpdatedAt(new Date());
+            products.add(entityManager.persist(product));
+        }
+
+        for (int c = 0; c < CUSTOMERS; c++) {
+            Customer customer = new Customer();
+            customer.setName("Customer " + (char) ('A' + c));
+            customer.setStatus(Status.ACTIVE);
+            customer.setPhoneNumber("+6212345678" + c);
+            customer.setCreatedAt(new Date());
+            customer.setUpdatedAt(new Date());
+            entityManager.persist(customer);
+
+            for (int i = 0; i < INVOICES_PER_CUSTOMER; i++) {
+                Invoice invoice = new Invoice();
+                invoice.setAmount(10.0 * PRODUCTS.length);
+                invoice.setDate(new Date(1_000_000L + c * 1_000L + i));
+                invoice.setCreatedAt(new Date());
+                invoice.setUpdatedAt(new Date());
+                invoice.setCustomer(customer);
+                entityManager.persist(invoice);
+
+                for (Product product : products) {
+                    InvoiceDetail detail = new InvoiceDetail();
+                    detail.setId(new InvoiceDetailKey(invoice.getId(), product.getId()));
+                    detail.setInvoice(invoice);
+                    detail.setProduct(product);
+                    detail.setProductName(product.getName());
+                    detail.setQuantity(1);
+                    detail.setPrice(product.getPrice());
+                    detail.setAmount(product.getPrice());
+                    detail.setCreatedAt(new Date());
+                    detail.setUpdatedAt(new Date());
+                    entityManager.persist(detail);
+                }
+            }
+        }
+        entityManager.flush();
+        entityManager.clear();
+
+        statistics = entityManager.getEntityManager().getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @Test
+    void entityPageLoadsCustomersAndDetailsLazily() {
+        List<Invoice> invoices = entityManager.getEntityManager().createQuery(ENTITY_QUERY, Invoice.class)
+                .setParameter("from", FROM)
+                .setParameter("to", TO)
+                .setMaxResults(PAGE_SIZE)
+                .getResultList();
+        for (Invoice invoice : invoices) {
+            // Read every field the invoice list shows
+            assertThat(invoice.getCustomer().getName()).isNotNull();
+            assertThat(invoice.getInvoiceDetails()).hasSize(PRODUCTS.length);
+        }
+
+        // The page spans the invoices of four customers, each one loaded once, and every invoice loads its details
+        assertThat(invoices).hasSize(PAGE_SIZE);
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1 + PAGE_SIZE / INVOICES_PER_CUSTOMER + PAGE_SIZE);
+    }
+
+    @Test
+    void projectionsRunThreeQueriesPerPage() {
+        for (int page = 0; page < 2; page++) {
+            statistics.clear();
+
+            Page<InvoiceRowDTO> invoices = invoiceRepository.findByFilters(new InvoiceSearchCriteriaDTO(), FROM, TO, null, PageRequest.of(page, PAGE_SIZE));
+            List<InvoiceDetailRowDTO> details = invoiceDetailRepository.findRowsByInvoiceIdIn(
+                    invoices.getContent().stream().map(InvoiceRowDTO::getId).toList());
+
+            assertThat(invoices.getContent()).hasSize(PAGE_SIZE).allSatisfy(invoice -> assertThat(invoice.getCustomerName()).isNotNull());
+            assertThat(details).hasSize(PAGE_SIZE * PRODUCTS.length);
+            // The page, its total count and the details of the whole page, whatever the page size
+            assertThat(statistics.getPrepareStatementCount()).isEqualTo(3);
+            assertThat(statistics.getEntityLoadCount()).isZero();
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package com.example.fpt_midterm_pos.data.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+import org.hibernate.Session;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.PageRequest;
+
+import com.example.fpt_midterm_pos.dto.InvoiceExcelRowDTO;
+import com.example.fpt_midterm_pos.dto.InvoiceSearchCriteriaDTO;
+
+import jakarta.persistence.EntityManager;
+
+/**
+ * Runs EXPLAIN on the SQL of the hot invoice queries and fails when one of them no longer reads the invoices through an index.
+ * The plans are read from the in-memory test database, so the test is only run on demand with {@code mvn test -Dtest=InvoiceQueryPlanTest -Dexplain=true}.
+ */
+@EnabledIfSystemProperty(named = "explain", matches = "true")
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.session_factory.statement_inspector="
+        + "com.example.fpt_midterm_pos.data.repository.InvoiceQueryPlanTest$CapturingStatementInspector")
+class InvoiceQueryPlanTest {
+
+    private static final Date FROM = new Date(0);
+    private static final Date TO = new Date(86_400_000L);
+
+    @Autowired
+    private InvoiceRepository invoiceRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @BeforeEach
+    public void setUp() {
+        CapturingStatementInspector.clear();
+    }
+
+    @Test
+    void findByFiltersUsesDateIndex() {
+        invoiceRepository.findByFilters(new InvoiceSearchCriteriaDTO(), FROM, TO, null, PageRequest.of(0, 20));
+
+        assertThat(explainLast()).contains("IDX_INVOICE_DATE_ID").doesNotContain("INVOICE.tableScan");
+    }
+
+    @Test
+    void findByFiltersAfterUsesDateIndex() {
+        invoiceRepository.findByFiltersAfter(new InvoiceSearchCriteriaDTO(), FROM, TO, null, null, null, PageRequest.of(0, 20));
+
+        assertThat(explainLast()).contains("IDX_INVOICE_DATE_ID").doesNotContain("INVOICE.tableScan");
+    }
+
+    @Test
+    void streamRowsForExcelUsesDateIndex() {
+        try (Stream<InvoiceExcelRowDTO> rows = invoiceRepository.streamRowsForExcel(FROM, TO, null)) {
+            rows.findFirst();
+        }
+
+        assertThat(explainLast()).contains("IDX_INVOICE_DATE_ID").doesNotContain("INVOICE.tableScan");
+    }
+
+    @Test
+    void streamRowsByCustomerForExcelUsesCustomerDateIndex() {
+        try (Stream<InvoiceExcelRowDTO> rows = invoiceRepository.streamRowsByCustomerForExcel(UUID.randomUUID(), FROM, TO, null)) {
+            rows.findFirst();
+        }
+
+        assertThat(explainLast()).contains("IDX_INVOICE_CUSTOMER_DATE").doesNotContain("INVOICE.tableScan");
+    }
+
+    @Test
+    void invoiceDetailsByProductUsesProductIndex() {
+        String plan = explain("SELECT * FROM invoice_details WHERE product_id = ?");
+
+        assertThat(plan).contains("IDX_INVOICE_DETAILS_PRODUCT").doesNotContain("tableScan");
+    }
+
+    // Explain the last statement Hibernate sent to the database
+    private String explainLast() {
+        List<String> statements = CapturingStatementInspector.statements();
+        assertThat(statements).isNotEmpty();
+        return explain(statements.get(statements.size() - 1));
+    }
+
+    // EXPLAIN only plans the statement, so every parameter can be left null
+    private String explain(String sql) {
+        return entityManager.unwrap(Session.class).doReturningWork(connection -> {
+            try (PreparedStatement statement = connection.prepareStatement("EXPLAIN " + sql)) {
+                int parameterCount = statement.getParameterMetaData().getParameterCount();
+                for (int i = 1; i <= parameterCount; i++) {
+                    statement.setObject(i, null);
+                }
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    StringBuilder plan = new StringBuilder();
+                    while (resultSet.next()) {
+                        plan.append(resultSet.getString(1)).append('\n');
+                    }
+                    return plan.toString();
+                }
+            }
+        });
+    }
+
+    /**
+     * Records the SQL of every statement Hibernate prepares.
+     */
+    public static class CapturingStatementInspector implements StatementInspector {
+
+        private static final List<String> STATEMENTS = Collections.synchronizedList(new ArrayList<>());
+
+        static void clear() {
+            STATEMENTS.clear();
+        }
+
+        static List<String> statements() {
+            return new ArrayList<>(STATEMENTS);
+        }
+
+        @Override
+        public String inspect(String sql) {
+            STATEMENTS.add(sql);
+            return sql;
+        }
+    }
+}
@@ -0,0 +1,242 @@
+package com.example.fpt_midterm_pos.data.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+import org.hibernate.Hibernate;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.PageRequest;
+
+import com.example.fpt_midterm_pos.data.model.Customer;
+import com.example.fpt_midterm_pos.data.model.Invoice;
+import com.example.fpt_midterm_pos.data.model.InvoiceDetail;
+import com.example.fpt_midterm_pos.data.model.InvoiceDetailKey;
+import com.example.fpt_midterm_pos.data.model.Product;
+import com.example.fpt_midterm_pos.data.model.Status;
+import com.example.fpt_midterm_pos.dto.InvoiceExcelRowDTO;
+import com.example.fpt_midterm_pos.dto.InvoiceRowDTO;
+import com.example.fpt_midterm_pos.dto.InvoiceSearchCriteriaDTO;
+
+@DataJpaTest
+class InvoiceRepositoryTest {
+
+    private static final Date FROM = new Date(0);
+    private static final Date TO = new Date(10_000_000L);
+
+    @Autowired
+    private InvoiceRepository invoiceRepository;
+
+    @Autowired
+    private CustomerRepository customerRepository;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    private final List<Invoice> invoices = new ArrayList<>();
+
+    @BeforeEach
+    public void setUp() {
+        Customer customer = new Customer();
+        customer.setName("Test Customer");
+        customer.setStatus(Status.ACTIVE);
+        customer.setPhoneNumber("+62123456789");
+        customer.setCreatedAt(new Date());
+        customer.setUpdatedAt(new Date());
+        customer = customerRepository.save(customer);
+
+        // Several invoices share the same date, so the ID has to break the tie
+        long[] dates = {1_000_000L, 2_000_000L, 2_000_000L, 2_000_000L, 3_000_000L};
+        for (long date : dates) {
+            Invoice invoice = new Invoice();
+            invoice.setAmount(100.0);
+            invoice.setDate(new Date(date));
+            invoice.setCreatedAt(new Date());
+            invoice.setUpdatedAt(new Date());
+            invoice.setCustomer(customer);
+            invoices.add(invoiceRepository.save(invoice));
+        }
+    }
+
+    @Test
+    void findByFiltersAfterWalksEveryInvoiceOnce() {
+        InvoiceSearchCriteriaDTO criteria = new InvoiceSearchCriteriaDTO();
+        List<InvoiceRowDTO> visited = new ArrayList<>();
+
+        List<InvoiceRowDTO> slice = invoiceRepository.findByFiltersAfter(criteria, FROM, TO, null, null, null, PageRequest.of(0, 2));
+        while (!slice.isEmpty()) {
+            visited.addAll(slice);
+            InvoiceRowDTO last = slice.get(slice.size() - 1);
+            slice = invoiceRepository.findByFiltersAfter(criteria, FROM, TO, null, last.getDate(), last.getId(), PageRequest.of(0, 2));
+        }
+
+        assertThat(visited).extracting(InvoiceRowDTO::getId)
+                .containsExactlyInAnyOrderElementsOf(invoices.stream().map(Invoice::getId).toList());
+        assertThat(visited).extracting(InvoiceRowDTO::getDate).isSortedAccordingTo(Comparator.naturalOrder());
+        assertThat(visited).extracting(InvoiceRowDTO::getCustomerName).containsOnly("Test Customer");
+    }
+
+    @Test
+    void findByFiltersBeforeWalksEveryInvoiceOnce() {
+        InvoiceSearchCriteriaDTO criteria = new InvoiceSearchCriteriaDTO();
+        List<InvoiceRowDTO> visited = new ArrayList<>();
+
+        List<InvoiceRowDTO> slice = invoiceRepository.findByFiltersBefore(criteria, FROM, TO, null, null, null, PageRequest.of(0, 2));
+        while (!slice.isEmpty()) {
+            visited.addAll(slice);
+            InvoiceRowDTO last = slice.get(slice.size() - 1);
+            slice = invoiceRepository.findByFiltersBefore(criteria, FROM, TO, null, last.getDate(), last.getId(), PageRequest.of(0, 2));
+        }
+
+        assertThat(visited).extracting(InvoiceRowDTO::getId)
+                .containsExactlyInAnyOrderElementsOf(invoices.stream().map(Invoice::getId).toList());
+        assertThat(visited).extracting(InvoiceRowDTO::getDate).isSortedAccordingTo(Comparator.reverseOrder());
+    }
+
+    @Test
+    void findByFiltersAfterAppliesDateRange() {
+        InvoiceSearchCriteriaDTO criteria = new InvoiceSearchCriteriaDTO();
+
+        List<InvoiceRowDTO> slice = invoiceRepository.findByFiltersAfter(criteria, new Date(2_000_000L), new Date(3_000_000L), null, null, null, PageRequest.of(0, 10));
+
+        assertThat(slice).hasSize(3).allMatch(invoice -> invoice.getDate().getTime() == 2_000_000L);
+    }
+
+    @Test
+    void streamTotalRevenueByDate() {
+        List<Object[]> rows;
+        try (Stream<Object[]> stream = invoiceRepository.streamTotalRevenueByDate()) {
+            rows = stream.toList();
+        }
+
+        // The invoices sharing a date add up on one row
+        assertThat(rows).hasSize(3);
+        assertThat(rows).filteredOn(row -> ((Date) row[0]).getTime() == 2_000_000L)
+                .singleElement()
+                .satisfies(row -> assertThat(((Number) row[1]).doubleValue()).isEqualTo(300.0));
+        assertThat(rows.stream().mapToDouble(row -> ((Number) row[1]).doubleValue()).sum()).isEqualTo(500.0);
+    }
+
+    @Test
+    void streamRowsForExcelReturnsOneRowPerDetail() {
+        List<Product> products = persistProducts();
+        for (Invoice invoice : invoices) {
+            persistDetails(invoice, products);
+        }
+        entityManager.flush();
+        entityManager.clear();
+
+        List<InvoiceExcelRowDTO> rows;
+        try (Stream<InvoiceExcelRowDTO> stream = invoiceRepository.streamRowsForExcel(FROM, TO, null)) {
+            rows = stream.toList();
+        }
+
+        assertThat(rows).hasSize(invoices.size() * products.size());
+        assertThat(rows).extracting(InvoiceExcelRowDTO::getInvoiceId).containsAll(invoices.stream().map(Invoice::getId).toList());
+        assertThat(rows).extracting(InvoiceExcelRowDTO::getProductId).containsAll(products.stream().map(Product::getId).toList());
+        assertThat(rows).allSatisfy(row -> {
+            assertThat(row.getCustomerName()).isEqualTo("Test Customer");
+            assertThat(row.getAmount()).isEqualTo(100.0);
+            assertThat(row.getProductAmount()).isEqualTo(10.0);
+        });
+    }
+
+    @Test
+    void findByFiltersAfterAppliesCriteria() {
+        InvoiceSearchCriteriaDTO criteria = new InvoiceSearchCriteriaDTO();
+        criteria.setCustomerId(UUID.randomUUID());
+
+        List<InvoiceRowDTO> slice = invoiceRepository.findByFiltersAfter(criteria, FROM, TO, null, null, null, PageRequest.of(0, 10));
+
+        assertThat(slice).isEmpty();
+    }
+
+    @Test
+    void findIdsForPDFInExportOrder() {
+        List<UUID> ids = invoiceRepository.findIdsForPDF(FROM, TO, null);
+
+        assertThat(ids).containsExactlyInAnyOrderElementsOf(invoices.stream().map(Invoice::getId).toList());
+        assertThat(ids.get(0)).isEqualTo(invoices.get(0).getId());
+        assertThat(ids.get(ids.size() - 1)).isEqualTo(invoices.get(invoices.size() - 1).getId());
+        assertThat(invoiceRepository.findIdsByCustomerForPDF(UUID.randomUUID(), FROM, TO, null)).isEmpty();
+    }
+
+    @Test
+    void findWithCustomerAndDetailsByIdFetchesCustomerAndDetails() {
+        List<Product> products = persistProducts();
+        persistDetails(invoices.get(0), products);
+        entityManager.flush();
+        entityManager.clear();
+
+        Invoice found = invoiceRepository.findWithCustomerAndDetailsById(invoices.get(0).getId()).orElseThrow();
+        entityManager.clear();
+
+        // Still readable once detached, so nothing was left to a lazy load
+        assertThat(Hibernate.isInitialized(found.getCustomer())).isTrue();
+        assertThat(Hibernate.isInitialized(found.getInvoiceDetails())).isTrue();
+        assertThat(found.getCustomer().getName()).isEqualTo("Test Customer");
+        assertThat(found.getInvoiceDetails()).hasSize(products.size());
+        assertThat(invoiceRepository.findWithCustomerAndDetailsById(UUID.randomUUID())).isEmpty();
+    }
+
+    @Test
+    void findAllForPDFByIdInFetchesCustomerAndDetails() {
+        List<Product> products = persistProducts();
+        persistDetails(invoices.get(0), products);
+        persistDetails(invoices.get(1), products);
+        entityManager.flush();
+        entityManager.clear();
+
+        List<Invoice> found = invoiceRepository.findAllForPDFByIdIn(List.of(invoices.get(0).getId(), invoices.get(1).getId(), invoices.get(2).getId()));
+        entityManager.clear();
+
+        // One invoice per ID despite the joined details, with everything its PDF shows already loaded
+        assertThat(found).hasSize(3);
+        assertThat(found).allSatisfy(invoice -> {
+            assertThat(Hibernate.isInitialized(invoice.getCustomer())).isTrue();
+            assertThat(Hibernate.isInitialized(invoice.getInvoiceDetails())).isTrue();
+            assertThat(invoice.getCustomer().getName()).isEqualTo("Test Customer");
+        });
+        assertThat(found).filteredOn(invoice -> invoice.getId().equals(invoices.get(0).getId()))
+                .singleElement().satisfies(invoice -> assertThat(invoice.getInvoiceDetails()).hasSize(products.size()));
+    }
+
+    private List<Product> persistProducts() {
+        List<Product> products = new ArrayList<>();
+        for (String name : new String[] { "Apple", "Banana", "Cherry" }) {
+            Product product = new Product();
+            product.setName(name);
+            product.setPrice(10.0);
+            product.setQuantity(100);
+            product.setCreatedAt(new Date());
+            product.setUpdatedAt(new Date());
+            products.add(entityManager.persist(product));
+        }
+        return products;
+    }
+
+    private void persistDetails(Invoice invoice, List<Product> products) {
+        for (Product product : products) {
+            InvoiceDetail detail = new InvoiceDetail();
+            detail.setId(new InvoiceDetailKey(invoice.getId(), product.getId()));
+            detail.setInvoice(invoice);
+            detail.setProduct(product);
+            detail.setProductName(product.getName());
+            detail.setQuantity(1);
+            detail.setPrice(product.getPrice());
+            detail.setAmount(product.getPrice());
+            detail.setCreatedAt(new Date());
+            detail.setUpdatedAt(new Date());
+            entityManager.persist(detail);
+        }
+    }
+}
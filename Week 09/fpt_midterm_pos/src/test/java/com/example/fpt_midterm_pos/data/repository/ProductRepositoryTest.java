@@ -4,12 +4,14 @@ import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
@@ -17,6 +19,9 @@ import org.springframework.data.domain.Sort;
 
 import com.example.fpt_midterm_pos.data.model.Product;
 import com.example.fpt_midterm_pos.data.model.Status;
+import com.example.fpt_midterm_pos.dto.ProductShowDTO;
+
+import jakarta.persistence.Cache;
 
 import javax.validation.ConstraintViolationException;
 
@@ -26,6 +31,9 @@ class ProductRepositoryTest {
     @Autowired
     private ProductRepository productRepository;
 
+    @Autowired
+    private TestEntityManager entityManager;
+
     private Product product;
 
     @BeforeEach
@@ -55,8 +63,9 @@ class ProductRepositoryTest {
 
     @Test
     void findProductByFilters() {
-        Page<Product> products = productRepository.findByFilters(Status.ACTIVE, "Test", 50.0, 150.0, PageRequest.of(0, 10));
+        Page<ProductShowDTO> products = productRepository.findByFilters(Status.ACTIVE, "Test", 50.0, 150.0, PageRequest.of(0, 10));
         assertThat(products.getTotalElements()).isPositive();
+        assertThat(products.getContent()).allSatisfy(product -> assertThat(product.getName()).contains("Test"));
     }
 
     @Test
@@ -90,12 +99,109 @@ class ProductRepositoryTest {
 
         // Test with pagination
         Pageable pageable = PageRequest.of(0, 1, Sort.by("name"));
-        Page<Product> result = productRepository.findByFilters(Status.ACTIVE, "Test", null, null, pageable);
+        Page<ProductShowDTO> result = productRepository.findByFilters(Status.ACTIVE, "Test", null, null, pageable);
 
         assertThat(result.getTotalElements()).isEqualTo(3);
         assertThat(result.getNumberOfElements()).isEqualTo(1);
     }
 
+    @Test
+    void findByIdsAndFiltersOnlyReadsGivenProducts() {
+        Product cheap = saveProduct("Cheap Product", 5);
+        Product other = saveProduct("Other Product", 5);
+        other.setPrice(500.0);
+        productRepository.save(other);
+        entityManager.flush();
+
+        Page<ProductShowDTO> result = productRepository.findByIdsAndFilters(List.of(cheap.getId(), other.getId()), Status.ACTIVE, null, 100.0,
+                PageRequest.of(0, 10, Sort.by("name")));
+
+        assertThat(result.getContent()).extracting(ProductShowDTO::getId).containsExactly(cheap.getId());
+    }
+
+    @Test
+    void batchDecrementQuantity() {
+        Product first = saveProduct("First Product", 10);
+        Product second = saveProduct("Second Product", 7);
+        entityManager.flush();
+
+        productRepository.batchDecrementQuantity(Map.of(first.getId(), 4, second.getId(), 7));
+        entityManager.clear();
+
+        assertThat(productRepository.findById(first.getId())).get().extracting(Product::getQuantity).isEqualTo(6);
+        assertThat(productRepository.findById(second.getId())).get().extracting(Product::getQuantity).isEqualTo(0);
+    }
+
+    @Test
+    void batchDecrementQuantityEvictsSecondLevelCache() {
+        Product product = saveProduct("First Product", 10);
+        entityManager.flush();
+        entityManager.clear();
+        Cache cache = entityManager.getEntityManager().getEntityManagerFactory().getCache();
+        productRepository.findById(product.getId());
+        assertThat(cache.contains(Product.class, product.getId())).isTrue();
+
+        productRepository.batchDecrementQuantity(Map.of(product.getId(), 4));
+        entityManager.clear();
+
+        // The JDBC update bypassed Hibernate, so the cached row must not be served anymore
+        assertThat(cache.contains(Product.class, product.getId())).isFalse();
+        assertThat(productRepository.findById(product.getId())).get().extracting(Product::getQuantity).isEqualTo(6);
+    }
+
+    @Test
+    void batchInsert() {
+        Product first = newProduct("First Product", 10);
+        Product second = newProduct("Second Product", 0);
+        second.setStatus(Status.DEACTIVE);
+
+        productRepository.batchInsert(List.of(first, second), 1);
+        entityManager.clear();
+
+        assertThat(first.getId()).isNotNull();
+        assertThat(productRepository.findById(first.getId())).get().extracting(Product::getName).isEqualTo("First Product");
+        assertThat(productRepository.findById(second.getId())).get().extracting(Product::getStatus).isEqualTo(Status.DEACTIVE);
+    }
+
+    @Test
+    void batchUpdatePriceAndQuantity() {
+        Product product = saveProduct("First Product", 10);
+        entityManager.flush();
+
+        Product changed = new Product();
+        changed.setId(product.getId());
+        changed.setPrice(35.0);
+        changed.setQuantity(0);
+        changed.setStatus(Status.DEACTIVE);
+        changed.setUpdatedAt(new java.util.Date());
+        productRepository.batchUpdatePriceAndQuantity(List.of(changed), 50);
+        entityManager.clear();
+
+        Product updated = productRepository.findById(product.getId()).orElseThrow();
+        assertThat(updated.getName()).isEqualTo("First Product");
+        assertThat(updated.getPrice()).isEqualTo(35.0);
+        assertThat(updated.getQuantity()).isZero();
+        assertThat(updated.getStatus()).isEqualTo(Status.DEACTIVE);
+    }
+
+    @Test
+    void forEachProduct() {
+        Product second = saveProduct("Second Product", 7);
+        entityManager.flush();
+
+        List<Product> products = new java.util.ArrayList<>();
+        productRepository.forEachProduct(products::add);
+
+        assertThat(products).extracting(Product::getId).contains(product.getId(), second.getId());
+        assertThat(products).filteredOn(p -> p.getId().equals(second.getId()))
+                .singleElement()
+                .satisfies(p -> {
+                    assertThat(p.getName()).isEqualTo("Second Product");
+                    assertThat(p.getQuantity()).isEqualTo(7);
+                    assertThat(p.getStatus()).isEqualTo(Status.ACTIVE);
+                });
+    }
+
     @Test
     void invalidProductSave() {
         try {
@@ -108,5 +214,19 @@ class ProductRepositoryTest {
             assertTrue(e.getCause() instanceof ConstraintViolationException);
         }
     }
-}
 
+    private Product saveProduct(String name, int quantity) {
+        return productRepository.save(newProduct(name, quantity));
+    }
+
+    private Product newProduct(String name, int quantity) {
+        Product newProduct = new Product();
+        newProduct.setName(name);
+        newProduct.setPrice(20.0);
+        newProduct.setStatus(Status.ACTIVE);
+        newProduct.setQuantity(quantity);
+        newProduct.setCreatedAt(new java.util.Date());
+        newProduct.setUpdatedAt(new java.util.Date());
+        return newProduct;
+    }
+}
\ No newline at end of file
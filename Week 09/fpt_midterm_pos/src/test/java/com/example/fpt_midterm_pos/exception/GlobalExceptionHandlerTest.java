@@ -7,8 +7,10 @@ import static org.mockito.Mockito.when;
 import java.io.IOException;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
 
 import org.junit.jupiter.api.Test;
+import org.springframework.dao.CannotAcquireLockException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.BindingResult;
@@ -52,6 +54,32 @@ class GlobalExceptionHandlerTest {
         assertEquals("Invalid argument", response.getBody().get("error"));
     }
 
+    @Test
+    void testHandlePessimisticLockingFailureException() {
+        // Arrange
+        CannotAcquireLockException ex = new CannotAcquireLockException("Deadlock detected");
+
+        // Act
+        ResponseEntity<Map<String, String>> response = exceptionHandler.handlePessimisticLockingFailureException(ex);
+
+        // Assert
+        assertEquals(HttpStatus.CONFLICT, response.getStatusCode());
+        assertEquals("The request conflicted with a concurrent update, please retry", response.getBody().get("error"));
+    }
+
+    @Test
+    void testHandleRejectedExecutionException() {
+        // Arrange
+        RejectedExecutionException ex = new RejectedExecutionException("Task rejected");
+
+        // Act
+        ResponseEntity<Map<String, String>> response = exceptionHandler.handleRejectedExecutionException(ex);
+
+        // Assert
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, response.getStatusCode());
+        assertEquals("The server is busy, please retry later", response.getBody().get("error"));
+    }
+
     @Test
     void testHandleException() {
         // Arrange
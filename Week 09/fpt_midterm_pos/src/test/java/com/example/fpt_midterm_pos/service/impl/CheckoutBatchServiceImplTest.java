@@ -0,0 +1,165 @@
+package com.example.fpt_midterm_pos.service.impl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.example.fpt_midterm_pos.dto.InvoiceDTO;
+import com.example.fpt_midterm_pos.dto.InvoiceSaveDTO;
+import com.example.fpt_midterm_pos.service.InvoiceService;
+
+class CheckoutBatchServiceImplTest {
+
+    private InvoiceService invoiceService;
+    private CheckoutBatchServiceImpl checkoutBatchService;
+
+    private final InvoiceSaveDTO first = new InvoiceSaveDTO(UUID.randomUUID(), List.of());
+    private final InvoiceSaveDTO second = new InvoiceSaveDTO(UUID.randomUUID(), List.of());
+    private final InvoiceSaveDTO third = new InvoiceSaveDTO(UUID.randomUUID(), List.of());
+
+    @BeforeEach
+    public void setUp() {
+        invoiceService = mock(InvoiceService.class);
+        // A batch is only written once it holds three invoices, well before the delay runs out
+        checkoutBatchService = new CheckoutBatchServiceImpl(invoiceService, true, 10, 3, Duration.ofSeconds(10));
+    }
+
+    @AfterEach
+    public void tearDown() throws InterruptedException {
+        checkoutBatchService.shutdown();
+    }
+
+    @Test
+    void testSubmit_createsQueuedInvoicesInOneBatch() throws Exception {
+        List<InvoiceDTO> created = List.of(invoice(), invoice(), invoice());
+        when(invoiceService.createInvoices(List.of(first, second, third))).thenReturn(created);
+
+        CompletableFuture<InvoiceDTO> firstResult = checkoutBatchService.submit(first);
+        CompletableFuture<InvoiceDTO> secondResult = checkoutBatchService.submit(second);
+        CompletableFuture<InvoiceDTO> thirdResult = checkoutBatchService.submit(third);
+
+        assertThat(firstResult.get(5, TimeUnit.SECONDS)).isSameAs(created.get(0));
+        assertThat(secondResult.get(5, TimeUnit.SECONDS)).isSameAs(created.get(1));
+        assertThat(thirdResult.get(5, TimeUnit.SECONDS)).isSameAs(created.get(2));
+        verify(invoiceService, times(1)).createInvoices(anyList());
+        verify(invoiceService, never()).createInvoice(first);
+    }
+
+    @Test
+    void testSubmit_failedInvoiceDoesNotFailItsBatch() throws Exception {
+        InvoiceDTO firstCreated = invoice();
+        InvoiceDTO thirdCreated = invoice();
+        when(invoiceService.createInvoices(anyList())).thenThrow(new IllegalArgumentException("Insufficient product stock"));
+        when(invoiceService.createInvoice(first)).thenReturn(firstCreated);
+        when(invoiceService.createInvoice(second)).thenThrow(new IllegalArgumentException("Insufficient product stock"));
+        when(invoiceService.createInvoice(third)).thenReturn(thirdCreated);
+
+        CompletableFuture<InvoiceDTO> firstResult = checkoutBatchService.submit(first);
+        CompletableFuture<InvoiceDTO> secondResult = checkoutBatchService.submit(second);
+        CompletableFuture<InvoiceDTO> thirdResult = checkoutBatchService.submit(third);
+
+        assertThat(firstResult.get(5, TimeUnit.SECONDS)).isSameAs(firstCreated);
+        assertThat(thirdResult.get(5, TimeUnit.SECONDS)).isSameAs(thirdCreated);
+        ExecutionException exception = assertThrows(ExecutionException.class, () -> secondResult.get(5, TimeUnit.SECONDS));
+        assertThat(exception.getCause()).isInstanceOf(IllegalArgumentException.class).hasMessage("Insufficient product stock");
+    }
+
+    @Test
+    void testSubmit_writesPartialBatchAfterDelay() throws InterruptedException {
+        restart(true, 10, Duration.ofMillis(5));
+        InvoiceDTO created = invoice();
+        when(invoiceService.createInvoice(first)).thenReturn(created);
+
+        // A single invoice is created on its own, without a batch transaction
+        assertThat(checkoutBatchService.createInvoice(first)).isSameAs(created);
+        verify(invoiceService, never()).createInvoices(anyList());
+    }
+
+    @Test
+    void testSubmit_fullQueueCreatesOnCallingThread() throws Exception {
+        restart(true, 1, Duration.ofMillis(5));
+        CountDownLatch writing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(invoiceService.createInvoice(first)).thenAnswer(invocation -> {
+            writing.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return invoice();
+        });
+        InvoiceDTO created = invoice();
+        when(invoiceService.createInvoice(third)).thenReturn(created);
+
+        // The writer is busy with the first invoice, so the queue of one invoice is full after the second
+        checkoutBatchService.submit(first);
+        assertThat(writing.await(5, TimeUnit.SECONDS)).isTrue();
+        CompletableFuture<InvoiceDTO> queued = checkoutBatchService.submit(second);
+        CompletableFuture<InvoiceDTO> direct = checkoutBatchService.submit(third);
+
+        assertThat(direct).isCompletedWithValue(created);
+        assertThat(queued).isNotDone();
+        release.countDown();
+    }
+
+    @Test
+    void testSubmit_disabledCreatesOnCallingThread() throws Exception {
+        restart(false, 10, Duration.ofMillis(5));
+        InvoiceDTO created = invoice();
+        when(invoiceService.createInvoice(first)).thenReturn(created);
+
+        CompletableFuture<InvoiceDTO> direct = checkoutBatchService.submit(first);
+
+        assertThat(direct).isCompletedWithValue(created);
+        assertThat(checkoutBatchService.isEnabled()).isFalse();
+    }
+
+    @Test
+    void testCreateInvoice_rethrowsFailure() throws InterruptedException {
+        restart(true, 10, Duration.ofMillis(5));
+        when(invoiceService.createInvoice(first)).thenThrow(new IllegalArgumentException("Product is not active"));
+
+        IllegalArgumentException exception = assertThrows(IllegalArgumentException.class, () -> checkoutBatchService.createInvoice(first));
+
+        assertThat(exception.getMessage()).isEqualTo("Product is not active");
+    }
+
+    @Test
+    void testCreateInvoice_errorDoesNotStopWriter() throws InterruptedException {
+        restart(true, 10, Duration.ofMillis(5));
+        InvoiceDTO created = invoice();
+        when(invoiceService.createInvoice(first)).thenThrow(new StackOverflowError());
+        when(invoiceService.createInvoice(second)).thenReturn(created);
+
+        assertThrows(StackOverflowError.class, () -> checkoutBatchService.createInvoice(first));
+
+        // The writer thread survived the error and still creates the next invoice
+        assertThat(checkoutBatchService.createInvoice(second)).isSameAs(created);
+    }
+
+    // Replace the service of the test with one configured differently
+    private void restart(boolean enabled, int queueCapacity, Duration maxDelay) throws InterruptedException {
+        checkoutBatchService.shutdown();
+        checkoutBatchService = new CheckoutBatchServiceImpl(invoiceService, enabled, queueCapacity, 3, maxDelay);
+    }
+
+    private InvoiceDTO invoice() {
+        InvoiceDTO invoiceDTO = new InvoiceDTO();
+        invoiceDTO.setId(UUID.randomUUID());
+        return invoiceDTO;
+    }
+}
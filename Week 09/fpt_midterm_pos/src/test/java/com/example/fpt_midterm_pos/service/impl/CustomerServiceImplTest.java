@@ -29,6 +29,7 @@ import com.example.fpt_midterm_pos.data.repository.CustomerRepository;
 import com.example.fpt_midterm_pos.dto.CustomerDTO;
 import com.example.fpt_midterm_pos.dto.CustomerSaveDTO;
 import com.example.fpt_midterm_pos.dto.CustomerShowDTO;
+import com.example.fpt_midterm_pos.exception.BadRequestException;
 import com.example.fpt_midterm_pos.exception.DuplicateStatusException;
 import com.example.fpt_midterm_pos.exception.ResourceNotFoundException;
 import com.example.fpt_midterm_pos.mapper.CustomerMapper;
@@ -45,7 +46,7 @@ class CustomerServiceImplTest {
     private CustomerMapper customerMapper;
 
     private Pageable pageable;
-    private Page<Customer> customerPage;
+    private Page<CustomerShowDTO> customerPage;
 
     private static final String CUSTOMER_NOT_FOUND = "Customer not found";
 
@@ -68,10 +69,9 @@ class CustomerServiceImplTest {
         CustomerShowDTO customerShowDTO = new CustomerShowDTO(customer.getId(), customer.getName(), customer.getPhoneNumber());
 
         pageable = PageRequest.of(0, 10);
-        customerPage = new PageImpl<>(Collections.singletonList(customer));
+        customerPage = new PageImpl<>(Collections.singletonList(customerShowDTO));
 
         when(customerRepository.findByStatus(Status.ACTIVE, pageable)).thenReturn(customerPage);
-        when(customerMapper.toCustomerShowDTO(customer)).thenReturn(customerShowDTO);
 
         Page<CustomerShowDTO> result = customerService.findAllActiveCustomer(pageable);
 
@@ -80,6 +80,46 @@ class CustomerServiceImplTest {
         assertEquals(customerShowDTO, result.getContent().get(0));
     }
 
+    @Test
+    void testSearchActiveCustomer_byNormalizedPhoneNumber() {
+        CustomerShowDTO customerShowDTO = new CustomerShowDTO(UUID.randomUUID(), "Test Customer", "+628123456789");
+        pageable = PageRequest.of(0, 10);
+
+        when(customerRepository.findByPhoneNumberAndStatus("+628123456789", Status.ACTIVE, pageable))
+                .thenReturn(new PageImpl<>(Collections.singletonList(customerShowDTO)));
+
+        // Every way of typing the number is looked up with the stored format
+        assertEquals(customerShowDTO, customerService.searchActiveCustomer("0812-3456-789", null, pageable).getContent().get(0));
+        assertEquals(customerShowDTO, customerService.searchActiveCustomer(" 62 812 3456 789", null, pageable).getContent().get(0));
+        assertEquals(customerShowDTO, customerService.searchActiveCustomer("+628123456789", "", pageable).getContent().get(0));
+        verify(customerRepository, times(3)).findByPhoneNumberAndStatus("+628123456789", Status.ACTIVE, pageable);
+    }
+
+    @Test
+    void testSearchActiveCustomer_byNamePrefix() {
+        pageable = PageRequest.of(0, 10);
+
+        when(customerRepository.findByStatusAndNameStartingWithOrderByNameAsc(Status.ACTIVE, "Test", pageable)).thenReturn(Page.empty());
+
+        Page<CustomerShowDTO> result = customerService.searchActiveCustomer(null, " Test ", pageable);
+
+        assertThat(result).isEmpty();
+        verify(customerRepository, times(1)).findByStatusAndNameStartingWithOrderByNameAsc(Status.ACTIVE, "Test", pageable);
+    }
+
+    @Test
+    void testSearchActiveCustomer_withInvalidCriteria() {
+        Pageable firstPage = PageRequest.of(0, 10);
+
+        BadRequestException neither = assertThrows(BadRequestException.class, () -> customerService.searchActiveCustomer(null, " ", firstPage));
+        BadRequestException both = assertThrows(BadRequestException.class, () -> customerService.searchActiveCustomer("+628123456789", "Test", firstPage));
+        BadRequestException invalidPhone = assertThrows(BadRequestException.class, () -> customerService.searchActiveCustomer("812345", null, firstPage));
+
+        assertEquals("Search by either phone number or name", neither.getMessage());
+        assertEquals("Search by either phone number or name", both.getMessage());
+        assertThat(invalidPhone.getMessage()).contains("Phone number must start with +62, 62 or 0");
+    }
+
     @Test
     void testFindById_withCustomerExist() {
         UUID customerId = UUID.randomUUID();
@@ -0,0 +1,214 @@
+package com.example.fpt_midterm_pos.service.impl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.example.fpt_midterm_pos.data.model.ExportJobStatus;
+import com.example.fpt_midterm_pos.dto.ExportJobDTO;
+import com.example.fpt_midterm_pos.exception.BadRequestException;
+import com.example.fpt_midterm_pos.exception.ResourceNotFoundException;
+
+class ExportJobServiceImplTest {
+
+    @TempDir
+    private Path spoolDir;
+
+    private ExportJobServiceImpl exportJobService;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        exportJobService = new ExportJobServiceImpl(spoolDir.toString(), 1, 1, Duration.ofHours(1));
+    }
+
+    @AfterEach
+    public void tearDown() {
+        exportJobService.shutdown();
+    }
+
+    @Test
+    void testSubmitCompletesJob() throws Exception {
+        ExportJobDTO submitted = exportJobService.submit("report.txt", "text/plain", (outputStream, progress) -> {
+            progress.start(2);
+            outputStream.write("first,".getBytes(StandardCharsets.UTF_8));
+            progress.advance();
+            outputStream.write("second".getBytes(StandardCharsets.UTF_8));
+            progress.advance();
+        });
+
+        ExportJobDTO finished = awaitFinished(submitted.getId());
+
+        assertThat(finished.getStatus()).isEqualTo(ExportJobStatus.COMPLETED);
+        assertThat(finished.getProgress()).isEqualTo(100);
+        assertThat(finished.getFileName()).isEqualTo("report.txt");
+        assertThat(finished.getCompletedAt()).isNotNull();
+        Path resultFile = exportJobService.acquireResultFile(submitted.getId());
+        assertThat(Files.readString(resultFile)).isEqualTo("first,second");
+        // Only the completed file is left in the spool, never its partial file
+        assertThat(Files.list(spoolDir)).containsExactly(resultFile);
+        exportJobService.releaseResultFile(submitted.getId());
+    }
+
+    @Test
+    void testSubmitReportsProgress() throws Exception {
+        CountDownLatch halfway = new CountDownLatch(1);
+        CountDownLatch resume = new CountDownLatch(1);
+        ExportJobDTO submitted = exportJobService.submit("report.txt", "text/plain", (outputStream, progress) -> {
+            progress.start(4);
+            progress.advance();
+            progress.advance();
+            halfway.countDown();
+            awaitLatch(resume);
+            progress.advance();
+            progress.advance();
+        });
+
+        assertThat(halfway.await(5, TimeUnit.SECONDS)).isTrue();
+        ExportJobDTO running = exportJobService.findById(submitted.getId());
+        assertThat(running.getStatus()).isEqualTo(ExportJobStatus.RUNNING);
+        assertThat(running.getProgress()).isEqualTo(50);
+        assertThatThrownBy(() -> exportJobService.acquireResultFile(submitted.getId()))
+                .isInstanceOf(BadRequestException.class)
+                .hasMessage("Export job is not completed");
+
+        resume.countDown();
+        assertThat(awaitFinished(submitted.getId()).getStatus()).isEqualTo(ExportJobStatus.COMPLETED);
+    }
+
+    @Test
+    void testSubmitFailedJob() throws Exception {
+        ExportJobDTO submitted = exportJobService.submit("report.txt", "text/plain", (outputStream, progress) -> {
+            outputStream.write(1);
+            throw new IOException("Disk full");
+        });
+
+        ExportJobDTO finished = awaitFinished(submitted.getId());
+
+        assertThat(finished.getStatus()).isEqualTo(ExportJobStatus.FAILED);
+        assertThat(finished.getError()).isEqualTo("Disk full");
+        assertThat(Files.list(spoolDir)).isEmpty();
+        assertThatThrownBy(() -> exportJobService.acquireResultFile(submitted.getId()))
+                .isInstanceOf(BadRequestException.class);
+    }
+
+    @Test
+    void testSubmitRejectedWhenQueueIsFull() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch resume = new CountDownLatch(1);
+        // One job runs and one waits in the queue, which leaves no room for a third
+        exportJobService.submit("running.txt", "text/plain", (outputStream, progress) -> {
+            started.countDown();
+            awaitLatch(resume);
+        });
+        assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+        ExportJobDTO queued = exportJobService.submit("queued.txt", "text/plain", (outputStream, progress) -> { });
+
+        assertThatThrownBy(() -> exportJobService.submit("rejected.txt", "text/plain", (outputStream, progress) -> { }))
+                .isInstanceOf(RejectedExecutionException.class);
+        assertThat(exportJobService.findById(queued.getId()).getStatus()).isEqualTo(ExportJobStatus.QUEUED);
+
+        resume.countDown();
+        assertThat(awaitFinished(queued.getId()).getStatus()).isEqualTo(ExportJobStatus.COMPLETED);
+    }
+
+    @Test
+    void testFindByIdNotFound() {
+        UUID id = UUID.randomUUID();
+
+        assertThatThrownBy(() -> exportJobService.findById(id))
+                .isInstanceOf(ResourceNotFoundException.class)
+                .hasMessage("Export job not found");
+        assertThatThrownBy(() -> exportJobService.acquireResultFile(id))
+                .isInstanceOf(ResourceNotFoundException.class);
+    }
+
+    @Test
+    void testLeftoverSpoolFilesAreDeleted() throws IOException {
+        Path leftover = Files.createFile(spoolDir.resolve(UUID.randomUUID().toString()));
+        Path leftoverPart = Files.createFile(spoolDir.resolve(UUID.randomUUID() + ".part"));
+        Path unrelated = Files.createFile(spoolDir.resolve("notes.txt"));
+
+        new ExportJobServiceImpl(spoolDir.toString(), 1, 1, Duration.ofHours(1)).shutdown();
+
+        assertThat(leftover).doesNotExist();
+        assertThat(leftoverPart).doesNotExist();
+        assertThat(unrelated).exists();
+    }
+
+    @Test
+    void testExpiredJobsArePurged() throws Exception {
+        ExportJobServiceImpl shortLived = new ExportJobServiceImpl(spoolDir.toString(), 1, 1, Duration.ZERO);
+        try {
+            ExportJobDTO expired = shortLived.submit("expired.txt", "text/plain", (outputStream, progress) -> outputStream.write(1));
+            awaitFinished(shortLived, expired.getId());
+            Thread.sleep(5);
+
+            shortLived.submit("next.txt", "text/plain", (outputStream, progress) -> { });
+
+            assertThatThrownBy(() -> shortLived.findById(expired.getId()))
+                    .isInstanceOf(ResourceNotFoundException.class);
+            assertThat(spoolDir.resolve(expired.getId().toString())).doesNotExist();
+        } finally {
+            shortLived.shutdown();
+        }
+    }
+
+    @Test
+    void testJobBeingDownloadedIsNotPurged() throws Exception {
+        ExportJobServiceImpl shortLived = new ExportJobServiceImpl(spoolDir.toString(), 1, 1, Duration.ZERO);
+        try {
+            ExportJobDTO expired = shortLived.submit("expired.txt", "text/plain", (outputStream, progress) -> outputStream.write(1));
+            awaitFinished(shortLived, expired.getId());
+            Path resultFile = shortLived.acquireResultFile(expired.getId());
+            Thread.sleep(5);
+
+            shortLived.submit("next.txt", "text/plain", (outputStream, progress) -> { });
+            assertThat(resultFile).exists();
+
+            shortLived.releaseResultFile(expired.getId());
+            shortLived.submit("last.txt", "text/plain", (outputStream, progress) -> { });
+            assertThat(resultFile).doesNotExist();
+        } finally {
+            shortLived.shutdown();
+        }
+    }
+
+    private ExportJobDTO awaitFinished(UUID id) throws InterruptedException {
+        return awaitFinished(exportJobService, id);
+    }
+
+    private static ExportJobDTO awaitFinished(ExportJobServiceImpl service, UUID id) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        ExportJobDTO job = service.findById(id);
+        while (job.getStatus() != ExportJobStatus.COMPLETED && job.getStatus() != ExportJobStatus.FAILED && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+            job = service.findById(id);
+        }
+        return job;
+    }
+
+    private static void awaitLatch(CountDownLatch latch) throws IOException {
+        try {
+            if (!latch.await(5, TimeUnit.SECONDS)) {
+                throw new IOException("Timed out");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException(e);
+        }
+    }
+}
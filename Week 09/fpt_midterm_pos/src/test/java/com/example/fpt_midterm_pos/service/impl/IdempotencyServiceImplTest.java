@@ -0,0 +1,166 @@
+package com.example.fpt_midterm_pos.service.impl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.example.fpt_midterm_pos.dto.InvoiceDTO;
+import com.example.fpt_midterm_pos.dto.InvoiceSaveDTO;
+import com.example.fpt_midterm_pos.exception.BadRequestException;
+
+class IdempotencyServiceImplTest {
+
+    private IdempotencyServiceImpl idempotencyService;
+
+    private final InvoiceSaveDTO request = new InvoiceSaveDTO(UUID.randomUUID(), List.of());
+    private final AtomicInteger runs = new AtomicInteger();
+
+    @BeforeEach
+    public void setUp() {
+        idempotencyService = new IdempotencyServiceImpl(2, Duration.ofMinutes(10));
+    }
+
+    @Test
+    void testExecute_replaysResultOfSameKey() {
+        InvoiceDTO first = idempotencyService.execute("key-1", request, this::createInvoice);
+        InvoiceDTO retry = idempotencyService.execute("key-1", new InvoiceSaveDTO(request.getCustomerId(), List.of()), this::createInvoice);
+        InvoiceDTO other = idempotencyService.execute("key-2", request, this::createInvoice);
+
+        assertThat(retry).isSameAs(first);
+        assertThat(other).isNotSameAs(first);
+        assertThat(runs.get()).isEqualTo(2);
+    }
+
+    @Test
+    void testExecute_withoutKeyAlwaysRuns() {
+        idempotencyService.execute(null, request, this::createInvoice);
+        idempotencyService.execute(null, request, this::createInvoice);
+
+        assertThat(runs.get()).isEqualTo(2);
+    }
+
+    @Test
+    void testExecute_coalescesConcurrentDuplicates() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<InvoiceDTO>> futures = executor.invokeAll(List.of(
+                    () -> idempotencyService.execute("key-1", request, () -> awaitAndCreate(release)),
+                    () -> idempotencyService.execute("key-1", request, () -> awaitAndCreate(release)),
+                    () -> idempotencyService.execute("key-1", request, () -> awaitAndCreate(release)),
+                    () -> {
+                        // Let the duplicates reach the key before the first request finishes
+                        Thread.sleep(200);
+                        release.countDown();
+                        return idempotencyService.execute("key-1", request, this::createInvoice);
+                    }), 10, TimeUnit.SECONDS);
+
+            InvoiceDTO created = futures.get(0).get();
+            for (Future<InvoiceDTO> future : futures) {
+                assertThat(future.get()).isSameAs(created);
+            }
+            assertThat(runs.get()).isEqualTo(1);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void testExecute_forgetsFailedRequest() {
+        IllegalArgumentException exception = assertThrows(IllegalArgumentException.class,
+                () -> idempotencyService.execute("key-1", request, () -> {
+                    throw new IllegalArgumentException("Insufficient product stock");
+                }));
+        assertThat(exception.getMessage()).isEqualTo("Insufficient product stock");
+
+        idempotencyService.execute("key-1", request, this::createInvoice);
+
+        assertThat(runs.get()).isEqualTo(1);
+    }
+
+    @Test
+    void testExecute_rejectsKeyReusedForDifferentRequest() {
+        idempotencyService.execute("key-1", request, this::createInvoice);
+
+        BadRequestException exception = assertThrows(BadRequestException.class,
+                () -> idempotencyService.execute("key-1", new InvoiceSaveDTO(UUID.randomUUID(), List.of()), this::createInvoice));
+
+        assertThat(exception.getMessage()).isEqualTo("Idempotency key was already used for a different request");
+        assertThrows(BadRequestException.class, () -> idempotencyService.execute(" ", request, this::createInvoice));
+    }
+
+    @Test
+    void testExecute_runsAgainOnceKeyExpiredOrEvicted() {
+        idempotencyService.execute("key-1", request, this::createInvoice);
+        idempotencyService.execute("key-2", request, this::createInvoice);
+        idempotencyService.execute("key-3", request, this::createInvoice);
+        // Only the two most recent keys are kept
+        idempotencyService.execute("key-1", request, this::createInvoice);
+        assertThat(runs.get()).isEqualTo(4);
+
+        idempotencyService = new IdempotencyServiceImpl(2, Duration.ZERO);
+        idempotencyService.execute("key-1", request, this::createInvoice);
+        idempotencyService.execute("key-1", request, this::createInvoice);
+        assertThat(runs.get()).isEqualTo(6);
+    }
+
+    @Test
+    void testExecute_neverEvictsRunningKey() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<InvoiceDTO> first = executor.submit(() -> idempotencyService.execute("key-1", request, () -> awaitAndCreate(release)));
+            Thread.sleep(200);
+            // More finished keys than are kept are added while the first request is still running
+            idempotencyService.execute("key-2", request, this::createInvoice);
+            idempotencyService.execute("key-3", request, this::createInvoice);
+            Future<InvoiceDTO> duplicate = executor.submit(() -> idempotencyService.execute("key-1", request, this::createInvoice));
+
+            release.countDown();
+
+            assertThat(duplicate.get(10, TimeUnit.SECONDS)).isSameAs(first.get(10, TimeUnit.SECONDS));
+            assertThat(runs.get()).isEqualTo(3);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void testExecute_forgetsRequestFailedWithError() {
+        assertThrows(AssertionError.class, () -> idempotencyService.execute("key-1", request, () -> {
+            throw new AssertionError("Unexpected");
+        }));
+
+        idempotencyService.execute("key-1", request, this::createInvoice);
+
+        assertThat(runs.get()).isEqualTo(1);
+    }
+
+    private InvoiceDTO awaitAndCreate(CountDownLatch release) {
+        try {
+            release.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return createInvoice();
+    }
+
+    private InvoiceDTO createInvoice() {
+        runs.incrementAndGet();
+        InvoiceDTO invoiceDTO = new InvoiceDTO();
+        invoiceDTO.setId(UUID.randomUUID());
+        return invoiceDTO;
+    }
+}
@@ -1,6 +1,7 @@
 package com.example.fpt_midterm_pos.service.impl;
 
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
 import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.Mockito.*;
 import static org.assertj.core.api.Assertions.*;
@@ -9,6 +10,7 @@ import org.apache.poi.ss.usermodel.Workbook;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.ArgumentCaptor;
+import org.mockito.MockedStatic;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
@@ -22,34 +24,55 @@ import com.example.fpt_midterm_pos.data.model.Customer;
 import com.example.fpt_midterm_pos.data.model.Invoice;
 import com.example.fpt_midterm_pos.data.model.InvoiceDetail;
 import com.example.fpt_midterm_pos.data.model.Product;
+import com.example.fpt_midterm_pos.data.model.RevenuePeriod;
+import com.example.fpt_midterm_pos.dto.CursorSliceDTO;
 import com.example.fpt_midterm_pos.dto.InvoiceDTO;
+import com.example.fpt_midterm_pos.dto.InvoiceDetailRowDTO;
 import com.example.fpt_midterm_pos.dto.InvoiceDetailSaveDTO;
 import com.example.fpt_midterm_pos.dto.InvoiceDetailsSearchCriteriaDTO;
+import com.example.fpt_midterm_pos.dto.InvoiceExcelRowDTO;
+import com.example.fpt_midterm_pos.dto.InvoiceRowDTO;
 import com.example.fpt_midterm_pos.dto.InvoiceSaveDTO;
 import com.example.fpt_midterm_pos.dto.InvoiceSearchCriteriaDTO;
+import com.example.fpt_midterm_pos.dto.RevenueBucketDTO;
 import com.example.fpt_midterm_pos.dto.RevenueShowDTO;
 import com.example.fpt_midterm_pos.exception.BadRequestException;
 import com.example.fpt_midterm_pos.exception.ResourceNotFoundException;
 import com.example.fpt_midterm_pos.mapper.InvoiceMapper;
 import com.example.fpt_midterm_pos.data.repository.CustomerRepository;
+import com.example.fpt_midterm_pos.data.repository.InvoiceDetailRepository;
 import com.example.fpt_midterm_pos.data.repository.InvoiceRepository;
 import com.example.fpt_midterm_pos.data.repository.ProductRepository;
+import com.example.fpt_midterm_pos.service.ExportProgress;
 import com.example.fpt_midterm_pos.service.InvoiceService;
+import com.example.fpt_midterm_pos.service.RevenueService;
+import com.example.fpt_midterm_pos.service.StockService;
+import com.example.fpt_midterm_pos.utils.DateUtils;
 import com.example.fpt_midterm_pos.utils.ExcelGenerator;
 import com.example.fpt_midterm_pos.utils.PDFGenerator;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.time.Duration;
 import java.time.Instant;
+import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Calendar;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Date;
 import java.util.GregorianCalendar;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
 
 import com.example.fpt_midterm_pos.data.model.Status;
 
@@ -68,12 +91,21 @@ class InvoiceServiceImplTest {
     @MockBean
     private ProductRepository productRepository;
 
+    @MockBean
+    private InvoiceDetailRepository invoiceDetailRepository;
+
     @MockBean
     private InvoiceMapper invoiceMapper;
 
     @MockBean
     private PDFGenerator pdfGenerator;
 
+    @MockBean
+    private StockService stockService;
+
+    @MockBean
+    private RevenueService revenueService;
+
     private static final String INSUFFICIENT_PRODUCT_STOCK = "Insufficient product stock";
 
     @BeforeEach
@@ -86,20 +118,149 @@ class InvoiceServiceImplTest {
         // Arrange
         InvoiceSearchCriteriaDTO criteria = new InvoiceSearchCriteriaDTO();
         Pageable pageable = PageRequest.of(0, 10);
-        Invoice invoice = new Invoice();
-        InvoiceDTO invoiceDTO = new InvoiceDTO();
-        Page<Invoice> invoicesPage = new PageImpl<>(Collections.singletonList(invoice));
-        
-        when(invoiceRepository.findByFilters(any(InvoiceSearchCriteriaDTO.class), any(Pageable.class)))
+        InvoiceRowDTO invoice = new InvoiceRowDTO(UUID.randomUUID(), 30.0, new Date(), UUID.randomUUID(), "Test Customer");
+        InvoiceRowDTO empty = new InvoiceRowDTO(UUID.randomUUID(), 0.0, new Date(), invoice.getCustomerId(), "Test Customer");
+        Page<InvoiceRowDTO> invoicesPage = new PageImpl<>(List.of(invoice, empty));
+        UUID productId = UUID.randomUUID();
+
+        when(invoiceRepository.findByFilters(any(InvoiceSearchCriteriaDTO.class), any(Date.class), any(Date.class), any(), any(Pageable.class)))
                 .thenReturn(invoicesPage);
-        when(invoiceMapper.toInvoiceDTO(any(Invoice.class))).thenReturn(invoiceDTO);
+        when(invoiceDetailRepository.findRowsByInvoiceIdIn(anyCollection()))
+                .thenReturn(List.of(new InvoiceDetailRowDTO(invoice.getId(), productId, "Apple", 3, 10.0, 30.0)));
 
         // Act
         Page<InvoiceDTO> result = invoiceService.findByCriteria(criteria, pageable);
 
         // Assert
         assertThat(result).isNotNull();
+        assertThat(result.getContent()).hasSize(2);
+        InvoiceDTO first = result.getContent().get(0);
+        assertThat(first.getCustomer().getName()).isEqualTo("Test Customer");
+        assertThat(first.getInvoiceDetails()).singleElement().satisfies(detail -> {
+            assertThat(detail.getProductId()).isEqualTo(productId);
+            assertThat(detail.getAmount()).isEqualTo(30.0);
+        });
+        assertThat(result.getContent().get(1).getInvoiceDetails()).isEmpty();
+        // The details of the whole page are read with one query, and no entity is mapped
+        verify(invoiceDetailRepository).findRowsByInvoiceIdIn(List.of(invoice.getId(), empty.getId()));
+        verify(invoiceMapper, never()).toInvoiceDTO(any(Invoice.class));
+    }
+
+    @Test
+    void testFindByCriteria_monthOfYearAsDateRange() {
+        // Arrange
+        InvoiceSearchCriteriaDTO criteria = new InvoiceSearchCriteriaDTO();
+        criteria.setMonth(8);
+        criteria.setYear(2024);
+        Pageable pageable = PageRequest.of(0, 10);
+
+        when(invoiceRepository.findByFilters(any(InvoiceSearchCriteriaDTO.class), any(Date.class), any(Date.class), any(), any(Pageable.class)))
+                .thenReturn(Page.empty());
+
+        // Act
+        invoiceService.findByCriteria(criteria, pageable);
+
+        // Assert
+        verify(invoiceRepository).findByFilters(criteria,
+                DateUtils.toDate(LocalDate.of(2024, 8, 1)), DateUtils.toDate(LocalDate.of(2024, 9, 1)), null, pageable);
+    }
+
+    @Test
+    void testFindByCriteria_monthOfAnyYearWithinDates() {
+        // Arrange
+        InvoiceSearchCriteriaDTO criteria = new InvoiceSearchCriteriaDTO();
+        Date startDate = DateUtils.toDate(LocalDate.of(2024, 1, 1));
+        Date endDate = DateUtils.toDate(LocalDate.of(2024, 12, 31));
+        criteria.setMonth(8);
+        criteria.setStartDate(startDate);
+        criteria.setEndDate(endDate);
+        Pageable pageable = PageRequest.of(0, 10);
+
+        when(invoiceRepository.findByFilters(any(InvoiceSearchCriteriaDTO.class), any(Date.class), any(Date.class), any(), any(Pageable.class)))
+                .thenReturn(Page.empty());
+
+        // Act
+        invoiceService.findByCriteria(criteria, pageable);
+
+        // Assert
+        verify(invoiceRepository).findByFilters(criteria, startDate, new Date(endDate.getTime() + 1), 8, pageable);
+    }
+
+    @Test
+    void testFindByCriteria_invalidMonth() {
+        InvoiceSearchCriteriaDTO criteria = new InvoiceSearchCriteriaDTO();
+        criteria.setMonth(13);
+        criteria.setYear(2024);
+        Pageable pageable = PageRequest.of(0, 10);
+
+        assertThatThrownBy(() -> invoiceService.findByCriteria(criteria, pageable))
+                .isInstanceOf(BadRequestException.class)
+                .hasMessage("Invalid month");
+    }
+
+    @Test
+    void testFindByCriteriaWithCursor() {
+        // Arrange
+        InvoiceSearchCriteriaDTO criteria = new InvoiceSearchCriteriaDTO();
+        List<InvoiceRowDTO> invoices = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            invoices.add(new InvoiceRowDTO(UUID.randomUUID(), 10.0, new Date(1_000_000L * i), UUID.randomUUID(), "Customer"));
+        }
+
+        when(invoiceRepository.findByFiltersAfter(any(InvoiceSearchCriteriaDTO.class), any(Date.class), any(Date.class), any(), any(), any(), any(Pageable.class)))
+                .thenReturn(invoices);
+
+        // Act
+        CursorSliceDTO<InvoiceDTO> first = invoiceService.findByCriteria(criteria, "", 2);
+        invoiceService.findByCriteria(criteria, first.getNextCursor(), 2);
+
+        // Assert
+        assertThat(first.getContent()).hasSize(2);
+        assertThat(first.hasNext()).isTrue();
+        assertThat(first.getNextCursor()).isNotBlank();
+        verify(invoiceRepository).findByFiltersAfter(eq(criteria), any(Date.class), any(Date.class), isNull(), isNull(), isNull(), eq(PageRequest.of(0, 3)));
+        verify(invoiceRepository).findByFiltersAfter(eq(criteria), any(Date.class), any(Date.class), isNull(), eq(invoices.get(1).getDate()), eq(invoices.get(1).getId()), eq(PageRequest.of(0, 3)));
+    }
+
+    @Test
+    void testFindByCriteriaWithCursor_lastSliceDescending() {
+        // Arrange
+        InvoiceSearchCriteriaDTO criteria = new InvoiceSearchCriteriaDTO();
+        criteria.setSortByDate("desc");
+
+        when(invoiceRepository.findByFiltersBefore(any(InvoiceSearchCriteriaDTO.class), any(Date.class), any(Date.class), any(), any(), any(), any(Pageable.class)))
+                .thenReturn(Collections.singletonList(new InvoiceRowDTO()));
+
+        // Act
+        CursorSliceDTO<InvoiceDTO> result = invoiceService.findByCriteria(criteria, null, 2);
+
+        // Assert
         assertThat(result.getContent()).hasSize(1);
+        assertThat(result.hasNext()).isFalse();
+        assertThat(result.getNextCursor()).isNull();
+        verify(invoiceRepository, never()).findByFiltersAfter(any(), any(), any(), any(), any(), any(), any());
+    }
+
+    @Test
+    void testFindByCriteriaWithCursor_invalidCursor() {
+        InvoiceSearchCriteriaDTO criteria = new InvoiceSearchCriteriaDTO();
+
+        assertThatThrownBy(() -> invoiceService.findByCriteria(criteria, "not a cursor", 20))
+                .isInstanceOf(BadRequestException.class)
+                .hasMessage("Invalid cursor");
+        assertThatThrownBy(() -> invoiceService.findByCriteria(criteria, "AAAA", 20))
+                .isInstanceOf(BadRequestException.class)
+                .hasMessage("Invalid cursor");
+    }
+
+    @Test
+    void testFindByCriteriaWithCursor_sortByAmount() {
+        InvoiceSearchCriteriaDTO criteria = new InvoiceSearchCriteriaDTO();
+        criteria.setSortByAmount("asc");
+
+        assertThatThrownBy(() -> invoiceService.findByCriteria(criteria, "", 20))
+                .isInstanceOf(BadRequestException.class)
+                .hasMessage("Sorting by amount is not supported with cursor pagination");
     }
 
     @Test
@@ -119,7 +280,7 @@ class InvoiceServiceImplTest {
 
         when(customerRepository.findById(customerId)).thenReturn(Optional.of(customer));
         when(invoiceRepository.save(any(Invoice.class))).thenReturn(invoice);
-        when(productRepository.findById(any(UUID.class))).thenReturn(Optional.of(product));
+        when(productRepository.findAllById(anyCollection())).thenReturn(Collections.singletonList(product));
         when(invoiceMapper.toInvoiceDTO(any(Invoice.class))).thenReturn(invoiceDTO);
 
         // Act
@@ -127,7 +288,8 @@ class InvoiceServiceImplTest {
 
         // Assert
         assertThat(result).isNotNull();
-        verify(invoiceRepository, times(2)).save(any(Invoice.class));
+        verify(invoiceRepository, times(1)).save(any(Invoice.class));
+        verify(revenueService, times(1)).addRevenue(any(), eq(0.0));
     }
 
     @Test
@@ -146,13 +308,14 @@ class InvoiceServiceImplTest {
         Customer customer = new Customer();
         Invoice savedInvoice = new Invoice();
         Product product = new Product();
+        product.setId(detailDTO.getProductId());
         product.setStatus(Status.ACTIVE);
         product.setQuantity(10);
         product.setPrice(100.0);
         InvoiceDTO invoiceDTO = new InvoiceDTO();
 
         when(customerRepository.findById(customerId)).thenReturn(Optional.of(customer)); // Mock customer repository
-        when(productRepository.findById(any(UUID.class))).thenReturn(Optional.of(product));
+        when(productRepository.findAllById(anyCollection())).thenReturn(Collections.singletonList(product));
         when(invoiceRepository.save(any(Invoice.class))).thenReturn(savedInvoice);
         when(invoiceMapper.toInvoiceDTO(any(Invoice.class))).thenReturn(invoiceDTO);
 
@@ -161,8 +324,10 @@ class InvoiceServiceImplTest {
 
         // Assert
         assertThat(result).isNotNull();
-        verify(invoiceRepository, times(2)).save(any(Invoice.class));
-        verify(productRepository, times(1)).save(any(Product.class));
+        verify(invoiceRepository, times(1)).save(any(Invoice.class));
+        verify(productRepository, times(1)).findAllById(anyCollection());
+        verify(stockService, times(1)).decrementStock(Map.of(detailDTO.getProductId(), 5));
+        verify(productRepository, never()).save(any(Product.class));
     }
 
     @Test
@@ -179,7 +344,7 @@ class InvoiceServiceImplTest {
 
         Customer customer = new Customer();
         when(customerRepository.findById(customerId)).thenReturn(Optional.of(customer)); // Mock customer repository
-        when(productRepository.findById(any(UUID.class))).thenReturn(Optional.empty());
+        when(productRepository.findAllById(anyCollection())).thenReturn(Collections.emptyList());
 
         // Act & Assert
         assertThatThrownBy(() -> invoiceService.createInvoice(invoiceSaveDTO))
@@ -201,10 +366,11 @@ class InvoiceServiceImplTest {
 
         Customer customer = new Customer();
         Product product = new Product();
+        product.setId(detailDTO.getProductId());
         product.setStatus(Status.DEACTIVE);
 
         when(customerRepository.findById(customerId)).thenReturn(Optional.of(customer)); // Mock customer repository
-        when(productRepository.findById(any(UUID.class))).thenReturn(Optional.of(product));
+        when(productRepository.findAllById(anyCollection())).thenReturn(Collections.singletonList(product));
 
         // Act & Assert
         assertThatThrownBy(() -> invoiceService.createInvoice(invoiceSaveDTO))
@@ -226,11 +392,16 @@ class InvoiceServiceImplTest {
 
         Customer customer = new Customer();
         Product product = new Product();
+        product.setId(detailDTO.getProductId());
         product.setStatus(Status.ACTIVE);
         product.setQuantity(10);
+        product.setPrice(100.0);
 
         when(customerRepository.findById(customerId)).thenReturn(Optional.of(customer)); // Mock customer repository
-        when(productRepository.findById(any(UUID.class))).thenReturn(Optional.of(product));
+        when(productRepository.findAllById(anyCollection())).thenReturn(Collections.singletonList(product));
+        when(invoiceRepository.save(any(Invoice.class))).thenReturn(new Invoice());
+        // The stock is only verified by the database when it is decreased
+        doThrow(new IllegalArgumentException(INSUFFICIENT_PRODUCT_STOCK)).when(stockService).decrementStock(Map.of(detailDTO.getProductId(), 15));
 
         // Act & Assert
         assertThatThrownBy(() -> invoiceService.createInvoice(invoiceSaveDTO))
@@ -238,6 +409,51 @@ class InvoiceServiceImplTest {
                 .hasMessageContaining(INSUFFICIENT_PRODUCT_STOCK);
     }
 
+    @Test
+    void testCreateInvoices() {
+        // Arrange
+        Customer customer = new Customer();
+        customer.setId(UUID.randomUUID());
+        Product product = new Product();
+        product.setId(UUID.randomUUID());
+        product.setName("Apple");
+        product.setStatus(Status.ACTIVE);
+        product.setPrice(10.0);
+        InvoiceSaveDTO first = new InvoiceSaveDTO(customer.getId(), List.of(new InvoiceDetailSaveDTO(product.getId(), 2)));
+        InvoiceSaveDTO second = new InvoiceSaveDTO(customer.getId(), List.of(new InvoiceDetailSaveDTO(product.getId(), 3)));
+        ArgumentCaptor<Invoice> invoiceCaptor = ArgumentCaptor.forClass(Invoice.class);
+
+        when(customerRepository.findAllById(anyCollection())).thenReturn(List.of(customer));
+        when(productRepository.findAllById(anyCollection())).thenReturn(List.of(product));
+        when(invoiceRepository.save(any(Invoice.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        when(invoiceMapper.toInvoiceDTO(any(Invoice.class))).thenAnswer(invocation -> new InvoiceDTO());
+
+        // Act
+        List<InvoiceDTO> result = invoiceService.createInvoices(List.of(first, second));
+
+        // Assert
+        assertThat(result).hasSize(2);
+        verify(invoiceRepository, times(2)).save(invoiceCaptor.capture());
+        assertThat(invoiceCaptor.getAllValues()).extracting(Invoice::getAmount).containsExactly(20.0, 30.0);
+        // The whole batch decreases the stock and adds to the revenue rollups once
+        verify(stockService, times(1)).decrementStock(Map.of(product.getId(), 5));
+        verify(revenueService, times(1)).addRevenue(invoiceCaptor.getValue().getDate(), 50.0);
+        verify(customerRepository, never()).findById(any());
+    }
+
+    @Test
+    void testCreateInvoicesCustomerNotFound() {
+        // Arrange
+        InvoiceSaveDTO invoiceSaveDTO = new InvoiceSaveDTO(UUID.randomUUID(), List.of());
+        when(customerRepository.findAllById(anyCollection())).thenReturn(List.of());
+
+        // Act & Assert
+        assertThatThrownBy(() -> invoiceService.createInvoices(List.of(invoiceSaveDTO)))
+                .isInstanceOf(ResourceNotFoundException.class)
+                .hasMessageContaining("Customer not found");
+        verify(stockService, never()).decrementStock(any());
+    }
+
     @Test
     void testCreateInvoiceNegativeStock() {
         // Arrange
@@ -252,11 +468,15 @@ class InvoiceServiceImplTest {
 
         Customer customer = new Customer();
         Product product = new Product();
+        product.setId(detailDTO.getProductId());
         product.setStatus(Status.ACTIVE);
         product.setQuantity(-8); // Negative stock to trigger the exception
+        product.setPrice(100.0);
 
         when(customerRepository.findById(customerId)).thenReturn(Optional.of(customer)); // Mock customer repository
-        when(productRepository.findById(any(UUID.class))).thenReturn(Optional.of(product));
+        when(productRepository.findAllById(anyCollection())).thenReturn(Collections.singletonList(product));
+        when(invoiceRepository.save(any(Invoice.class))).thenReturn(new Invoice());
+        doThrow(new IllegalArgumentException(INSUFFICIENT_PRODUCT_STOCK)).when(stockService).decrementStock(Map.of(detailDTO.getProductId(), 5));
 
         // Act & Assert
         assertThatThrownBy(() -> invoiceService.createInvoice(invoiceSaveDTO))
@@ -298,6 +518,8 @@ class InvoiceServiceImplTest {
         Invoice existingInvoice = new Invoice();
         existingInvoice.setId(invoiceId);
         existingInvoice.setCreatedAt(Date.from(Instant.now().minus(Duration.ofMinutes(5)))); // Ensure this is initialized
+        existingInvoice.setDate(existingInvoice.getCreatedAt());
+        existingInvoice.setAmount(200.0);
         existingInvoice.setInvoiceDetails(new ArrayList<>()); // Initialize to avoid null pointer
 
         Invoice updatedInvoice = new Invoice();
@@ -305,14 +527,15 @@ class InvoiceServiceImplTest {
         invoiceDTO.setId(invoiceDTOId);
 
         Product availableProduct = new Product();
+        availableProduct.setId(productId);
         availableProduct.setQuantity(10);
         availableProduct.setStatus(Status.ACTIVE);
         availableProduct.setPrice(100.0); // Ensure price is initialized
 
         // Mock repository responses
-        when(invoiceRepository.findById(invoiceId)).thenReturn(Optional.of(existingInvoice));
+        when(invoiceRepository.findWithCustomerAndDetailsById(invoiceId)).thenReturn(Optional.of(existingInvoice));
         when(invoiceRepository.save(any(Invoice.class))).thenReturn(updatedInvoice);
-        when(productRepository.findById(productId)).thenReturn(Optional.of(availableProduct));
+        when(productRepository.findAllById(anyCollection())).thenReturn(Collections.singletonList(availableProduct));
         when(customerRepository.findById(customerId)).thenReturn(Optional.of(customer));
         when(invoiceMapper.toInvoiceDTO(any(Invoice.class))).thenReturn(invoiceDTO);
 
@@ -322,7 +545,12 @@ class InvoiceServiceImplTest {
         // Assert
         assertThat(result).isNotNull(); // Ensure result is not null
         assertThat(result.getId()).isEqualTo(invoiceDTOId); // Check specific fields as needed
-        verify(invoiceRepository, times(1)).save(any(Invoice.class)); // Verify save call
+        // The new detail is cascaded from the loaded invoice when it flushes, nothing is saved explicitly
+        verify(invoiceRepository, never()).save(any(Invoice.class));
+        assertThat(existingInvoice.getInvoiceDetails()).extracting(InvoiceDetail::getQuantity).containsExactly(5);
+        verify(stockService, times(1)).decrementStock(Map.of(productId, 5));
+        verify(stockService, never()).incrementStock(any());
+        verify(revenueService, times(1)).moveRevenue(eq(existingInvoice.getCreatedAt()), eq(200.0), any(Date.class), eq(500.0));
     }
 
     @Test
@@ -352,6 +580,8 @@ class InvoiceServiceImplTest {
         Invoice existingInvoice = new Invoice();
         existingInvoice.setId(invoiceId);
         existingInvoice.setCreatedAt(Date.from(Instant.now().minus(Duration.ofMinutes(5))));
+        existingInvoice.setDate(existingInvoice.getCreatedAt());
+        existingInvoice.setAmount(200.0);
         InvoiceDetail existingDetail = new InvoiceDetail();
         existingDetail.setProduct(availableProduct);
         existingDetail.setQuantity(3);
@@ -362,9 +592,10 @@ class InvoiceServiceImplTest {
         invoiceDTO.setId(invoiceDTOId);
 
         // Mock repository responses
-        when(invoiceRepository.findById(invoiceId)).thenReturn(Optional.of(existingInvoice));
+        when(invoiceRepository.findWithCustomerAndDetailsById(invoiceId)).thenReturn(Optional.of(existingInvoice));
         when(invoiceRepository.save(any(Invoice.class))).thenReturn(updatedInvoice);
-        when(productRepository.findById(productId)).thenReturn(Optional.of(availableProduct));
+        when(productRepository.findAllById(anyCollection())).thenReturn(Collections.singletonList(availableProduct));
+        when(productRepository.getReferenceById(productId)).thenReturn(availableProduct);
         when(customerRepository.findById(customerId)).thenReturn(Optional.of(customer));
         when(invoiceMapper.toInvoiceDTO(any(Invoice.class))).thenReturn(invoiceDTO);
 
@@ -375,17 +606,62 @@ class InvoiceServiceImplTest {
         assertThat(result).isNotNull();
         assertThat(result.getId()).isEqualTo(invoiceDTOId);
 
-        // Verify that the existing detail was removed and the updated one was added
-        ArgumentCaptor<Invoice> invoiceCaptor = ArgumentCaptor.forClass(Invoice.class);
-        verify(invoiceRepository, times(1)).save(invoiceCaptor.capture());
-        Invoice savedInvoice = invoiceCaptor.getValue();
-        assertThat(savedInvoice.getInvoiceDetails()).hasSize(1);
-        InvoiceDetail savedDetail = savedInvoice.getInvoiceDetails().get(0);
+        // Verify that the existing detail was changed in place rather than replaced
+        assertThat(existingInvoice.getInvoiceDetails()).hasSize(1);
+        InvoiceDetail savedDetail = existingInvoice.getInvoiceDetails().get(0);
+        assertThat(savedDetail).isSameAs(existingDetail);
         assertThat(savedDetail.getProduct()).isEqualTo(availableProduct);
         assertThat(savedDetail.getQuantity()).isEqualTo(5); // Updated quantity
+        assertThat(existingInvoice.getAmount()).isEqualTo(500.0);
 
-        // Verify save call
-        verify(invoiceRepository, times(1)).save(any(Invoice.class));
+        // Only the difference to the former quantity is taken from the stock
+        verify(stockService, times(1)).decrementStock(Map.of(productId, 2));
+        verify(invoiceRepository, never()).save(any(Invoice.class));
+        verify(invoiceDetailRepository, never()).deleteAll(anyList());
+    }
+
+    @Test
+    @Transactional
+    void testUpdateInvoiceDiffsDetails() {
+        // Arrange
+        Product kept = activeProduct("Apple", 10.0);
+        Product changed = activeProduct("Banana", 20.0);
+        Product dropped = activeProduct("Cherry", 30.0);
+        Product added = activeProduct("Durian", 40.0);
+
+        Invoice existingInvoice = new Invoice();
+        existingInvoice.setId(UUID.randomUUID());
+        existingInvoice.setCreatedAt(Date.from(Instant.now().minus(Duration.ofMinutes(5))));
+        existingInvoice.setDate(existingInvoice.getCreatedAt());
+        existingInvoice.setAmount(190.0);
+        InvoiceDetail keptDetail = detail(existingInvoice, kept, 1);
+        InvoiceDetail changedDetail = detail(existingInvoice, changed, 3);
+        InvoiceDetail droppedDetail = detail(existingInvoice, dropped, 4);
+        existingInvoice.setInvoiceDetails(new ArrayList<>(List.of(keptDetail, changedDetail, droppedDetail)));
+        Date keptUpdatedAt = keptDetail.getUpdatedAt();
+
+        InvoiceSaveDTO invoiceSaveDTO = new InvoiceSaveDTO(UUID.randomUUID(), List.of(
+                new InvoiceDetailSaveDTO(kept.getId(), 1),
+                new InvoiceDetailSaveDTO(changed.getId(), 1),
+                new InvoiceDetailSaveDTO(added.getId(), 2)));
+
+        when(invoiceRepository.findWithCustomerAndDetailsById(existingInvoice.getId())).thenReturn(Optional.of(existingInvoice));
+        when(productRepository.findAllById(anyCollection())).thenReturn(List.of(kept, changed, added));
+        when(productRepository.getReferenceById(added.getId())).thenReturn(added);
+        when(invoiceMapper.toInvoiceDTO(any(Invoice.class))).thenReturn(new InvoiceDTO());
+
+        // Act
+        invoiceService.updateInvoice(existingInvoice.getId(), invoiceSaveDTO);
+
+        // Assert
+        assertThat(existingInvoice.getInvoiceDetails()).extracting(InvoiceDetail::getProductName).containsExactly("Apple", "Banana", "Durian");
+        assertThat(existingInvoice.getAmount()).isEqualTo(10.0 + 20.0 + 80.0);
+        // The unchanged detail is not touched, the dropped one is deleted and returns its stock
+        assertThat(keptDetail.getUpdatedAt()).isEqualTo(keptUpdatedAt);
+        assertThat(changedDetail.getQuantity()).isEqualTo(1);
+        verify(invoiceDetailRepository, times(1)).deleteAll(List.of(droppedDetail));
+        verify(stockService, times(1)).decrementStock(Map.of(added.getId(), 2));
+        verify(stockService, times(1)).incrementStock(Map.of(changed.getId(), 2, dropped.getId(), 4));
     }
 
     @Test
@@ -394,7 +670,7 @@ class InvoiceServiceImplTest {
         UUID invoiceId = UUID.randomUUID();
         InvoiceSaveDTO invoiceSaveDTO = new InvoiceSaveDTO();
 
-        when(invoiceRepository.findById(invoiceId)).thenReturn(Optional.empty());
+        when(invoiceRepository.findWithCustomerAndDetailsById(invoiceId)).thenReturn(Optional.empty());
 
         // Act & Assert
         assertThatThrownBy(() -> invoiceService.updateInvoice(invoiceId, invoiceSaveDTO))
@@ -410,7 +686,7 @@ class InvoiceServiceImplTest {
         Invoice existingInvoice = new Invoice();
         existingInvoice.setCreatedAt(Date.from(Instant.now().minus(Duration.ofMinutes(11))));
 
-        when(invoiceRepository.findById(invoiceId)).thenReturn(Optional.of(existingInvoice));
+        when(invoiceRepository.findWithCustomerAndDetailsById(invoiceId)).thenReturn(Optional.of(existingInvoice));
 
         // Act & Assert
         assertThatThrownBy(() -> invoiceService.updateInvoice(invoiceId, invoiceSaveDTO))
@@ -433,8 +709,10 @@ class InvoiceServiceImplTest {
 
         Invoice existingInvoice = new Invoice();
         existingInvoice.setCreatedAt(new Date()); // Ensure this is initialized
-        when(invoiceRepository.findById(invoiceId)).thenReturn(Optional.of(existingInvoice));
-        when(productRepository.findById(productId)).thenReturn(Optional.empty()); // Mock product not found
+        existingInvoice.setDate(existingInvoice.getCreatedAt());
+        existingInvoice.setAmount(0.0);
+        when(invoiceRepository.findWithCustomerAndDetailsById(invoiceId)).thenReturn(Optional.of(existingInvoice));
+        when(productRepository.findAllById(anyCollection())).thenReturn(Collections.emptyList()); // Mock product not found
 
         // Act & Assert
         assertThatThrownBy(() -> invoiceService.updateInvoice(invoiceId, invoiceSaveDTO))
@@ -457,15 +735,18 @@ class InvoiceServiceImplTest {
 
         Invoice existingInvoice = new Invoice();
         existingInvoice.setCreatedAt(new Date()); // Ensure this is initialized
+        existingInvoice.setDate(existingInvoice.getCreatedAt());
+        existingInvoice.setAmount(0.0);
         Product inactiveProduct = new Product();
+        inactiveProduct.setId(productId);
         inactiveProduct.setStatus(Status.DEACTIVE);
 
-        when(invoiceRepository.findById(invoiceId)).thenReturn(Optional.of(existingInvoice));
-        when(productRepository.findById(productId)).thenReturn(Optional.of(inactiveProduct)); // Mock inactive product
+        when(invoiceRepository.findWithCustomerAndDetailsById(invoiceId)).thenReturn(Optional.of(existingInvoice));
+        when(productRepository.findAllById(anyCollection())).thenReturn(Collections.singletonList(inactiveProduct)); // Mock inactive product
 
         // Act & Assert
         assertThatThrownBy(() -> invoiceService.updateInvoice(invoiceId, invoiceSaveDTO))
-                .isInstanceOf(BadRequestException.class)
+                .isInstanceOf(IllegalArgumentException.class)
                 .hasMessageContaining("Product is not active");
     }
 
@@ -484,13 +765,18 @@ class InvoiceServiceImplTest {
 
         Invoice existingInvoice = new Invoice();
         existingInvoice.setCreatedAt(new Date()); // Ensure this is initialized
+        existingInvoice.setDate(existingInvoice.getCreatedAt());
+        existingInvoice.setAmount(0.0);
         existingInvoice.setInvoiceDetails(new ArrayList<>()); // Initialize to avoid null pointer
         Product productWithInsufficientStock = new Product();
+        productWithInsufficientStock.setId(productId);
         productWithInsufficientStock.setQuantity(10);
         productWithInsufficientStock.setStatus(Status.ACTIVE);
+        productWithInsufficientStock.setPrice(100.0);
 
-        when(invoiceRepository.findById(invoiceId)).thenReturn(Optional.of(existingInvoice));
-        when(productRepository.findById(productId)).thenReturn(Optional.of(productWithInsufficientStock));
+        when(invoiceRepository.findWithCustomerAndDetailsById(invoiceId)).thenReturn(Optional.of(existingInvoice));
+        when(productRepository.findAllById(anyCollection())).thenReturn(Collections.singletonList(productWithInsufficientStock));
+        doThrow(new IllegalArgumentException(INSUFFICIENT_PRODUCT_STOCK)).when(stockService).decrementStock(Map.of(productId, 15));
 
         // Act & Assert
         assertThatThrownBy(() -> invoiceService.updateInvoice(invoiceId, invoiceSaveDTO))
@@ -505,7 +791,7 @@ class InvoiceServiceImplTest {
         Invoice invoice = new Invoice();
         byte[] pdfBytes = new byte[0];
 
-        when(invoiceRepository.findById(invoiceId)).thenReturn(Optional.of(invoice));
+        when(invoiceRepository.findWithCustomerAndDetailsById(invoiceId)).thenReturn(Optional.of(invoice));
         when(pdfGenerator.generateInvoicePDF(invoice)).thenReturn(pdfBytes);
 
         // Act
@@ -522,7 +808,7 @@ class InvoiceServiceImplTest {
         // Arrange
         UUID invoiceId = UUID.randomUUID();
 
-        when(invoiceRepository.findById(invoiceId)).thenReturn(Optional.empty());
+        when(invoiceRepository.findWithCustomerAndDetailsById(invoiceId)).thenReturn(Optional.empty());
 
         // Act & Assert
         assertThatThrownBy(() -> invoiceService.exportInvoiceToPDF(invoiceId))
@@ -538,25 +824,167 @@ class InvoiceServiceImplTest {
         criteria.setMonth(8);
         criteria.setYear(2024);
 
-        Invoice invoice1 = new Invoice();
-        invoice1.setInvoiceDetails(new ArrayList<>()); // Initialize to avoid null pointer
-        Invoice invoice2 = new Invoice();
-        invoice2.setInvoiceDetails(new ArrayList<>()); // Initialize to avoid null pointer
+        InvoiceExcelRowDTO row1 = new InvoiceExcelRowDTO();
+        InvoiceExcelRowDTO row2 = new InvoiceExcelRowDTO();
 
-        List<Invoice> mockInvoices = Arrays.asList(invoice1, invoice2);
+        List<InvoiceExcelRowDTO> mockRows = Arrays.asList(row1, row2);
         Workbook mockWorkbook = mock(Workbook.class);
 
-        when(invoiceRepository.findByFiltersForExcel(any(UUID.class), anyInt(), anyInt())).thenReturn(mockInvoices);
-        // Mock the ExcelGenerator.generateInvoiceExcel call appropriately
-        mockStatic(ExcelGenerator.class);
-        when(ExcelGenerator.generateInvoiceExcel(mockInvoices)).thenReturn(mockWorkbook);
+        when(invoiceRepository.streamRowsByCustomerForExcel(any(UUID.class), any(Date.class), any(Date.class), any())).thenReturn(mockRows.stream());
+        // Mock the ExcelGenerator.generateInvoiceExcel call appropriately, only within this test
+        try (MockedStatic<ExcelGenerator> excelGenerator = mockStatic(ExcelGenerator.class)) {
+            excelGenerator.when(() -> ExcelGenerator.generateInvoiceExcel(mockRows)).thenReturn(mockWorkbook);
+
+            // Act
+            Workbook result = invoiceService.exportInvoiceToExcelByFilter(criteria);
+
+            // Assert
+            assertThat(result).isEqualTo(mockWorkbook);
+        }
+        verify(invoiceRepository, times(1)).streamRowsByCustomerForExcel(criteria.getCustomerId(),
+                DateUtils.toDate(LocalDate.of(2024, 8, 1)), DateUtils.toDate(LocalDate.of(2024, 9, 1)), null);
+    }
+
+    @Test
+    void testExportInvoiceToExcelByFilterStreaming() throws IOException {
+        // Arrange
+        InvoiceDetailsSearchCriteriaDTO criteria = new InvoiceDetailsSearchCriteriaDTO();
+        criteria.setYear(2024);
+
+        Stream<InvoiceExcelRowDTO> mockRows = Stream.of(new InvoiceExcelRowDTO());
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+
+        when(invoiceRepository.streamRowsForExcel(any(Date.class), any(Date.class), any())).thenReturn(mockRows);
+        try (MockedStatic<ExcelGenerator> excelGenerator = mockStatic(ExcelGenerator.class)) {
+            // Act
+            invoiceService.exportInvoiceToExcelByFilter(criteria, outputStream);
+
+            // Assert
+            excelGenerator.verify(() -> ExcelGenerator.writeInvoiceExcel(mockRows, outputStream));
+        }
+        verify(invoiceRepository, times(1)).streamRowsForExcel(
+                DateUtils.toDate(LocalDate.of(2024, 1, 1)), DateUtils.toDate(LocalDate.of(2025, 1, 1)), null);
+        verify(invoiceRepository, never()).streamRowsByCustomerForExcel(any(), any(), any(), any());
+    }
+
+    @Test
+    void testExportInvoiceToExcelByFilterReportsProgress() throws IOException {
+        // Arrange
+        InvoiceDetailsSearchCriteriaDTO criteria = new InvoiceDetailsSearchCriteriaDTO();
+        criteria.setCustomerId(UUID.randomUUID());
+        criteria.setYear(2024);
+
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        ExportProgress progress = mock(ExportProgress.class);
+
+        when(invoiceRepository.countRowsByCustomerForExcel(any(UUID.class), any(Date.class), any(Date.class), any())).thenReturn(2L);
+        when(invoiceRepository.streamRowsByCustomerForExcel(any(UUID.class), any(Date.class), any(Date.class), any()))
+                .thenReturn(Stream.of(new InvoiceExcelRowDTO(), new InvoiceExcelRowDTO()));
+        try (MockedStatic<ExcelGenerator> excelGenerator = mockStatic(ExcelGenerator.class)) {
+            // Consume the rows the way the generator writes them
+            excelGenerator.when(() -> ExcelGenerator.writeInvoiceExcel(any(), eq(outputStream)))
+                    .thenAnswer(invocation -> {
+                        Stream<InvoiceExcelRowDTO> rows = invocation.getArgument(0);
+                        rows.forEach(row -> { });
+                        return null;
+                    });
+
+            // Act
+            invoiceService.exportInvoiceToExcelByFilter(criteria, outputStream, progress);
+        }
+
+        // Assert
+        verify(progress, times(1)).start(2L);
+        verify(progress, times(2)).advance();
+    }
+
+    @Test
+    void testExportInvoicesToPDFByFilter() throws Exception {
+        // Arrange, more invoices than are rendered at once
+        InvoiceDetailsSearchCriteriaDTO criteria = new InvoiceDetailsSearchCriteriaDTO();
+        criteria.setCustomerId(UUID.randomUUID());
+        criteria.setMonth(8);
+        criteria.setYear(2024);
+
+        List<UUID> invoiceIds = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            invoiceIds.add(UUID.randomUUID());
+        }
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        ExportProgress progress = mock(ExportProgress.class);
+
+        when(invoiceRepository.findIdsByCustomerForPDF(any(UUID.class), any(Date.class), any(Date.class), any())).thenReturn(invoiceIds);
+        when(invoiceRepository.findAllForPDFByIdIn(anyCollection())).thenAnswer(invocation -> {
+            Collection<UUID> ids = invocation.getArgument(0);
+            return ids.stream().map(id -> {
+                Invoice invoice = new Invoice();
+                invoice.setId(id);
+                return invoice;
+            }).toList();
+        });
+        when(pdfGenerator.queueInvoicePDF(any(Invoice.class)))
+                .thenAnswer(invocation -> CompletableFuture.supplyAsync(() -> invocation.<Invoice>getArgument(0).getId().toString().getBytes()));
 
         // Act
-        Workbook result = invoiceService.exportInvoiceToExcelByFilter(criteria);
+        invoiceService.exportInvoicesToPDFByFilter(criteria, outputStream, progress);
 
         // Assert
-        assertThat(result).isEqualTo(mockWorkbook);
-        verify(invoiceRepository, times(1)).findByFiltersForExcel(any(UUID.class), anyInt(), anyInt());
+        Map<String, String> entries = new LinkedHashMap<>();
+        try (ZipInputStream zipInputStream = new ZipInputStream(new ByteArrayInputStream(outputStream.toByteArray()))) {
+            for (ZipEntry entry = zipInputStream.getNextEntry(); entry != null; entry = zipInputStream.getNextEntry()) {
+                entries.put(entry.getName(), new String(zipInputStream.readAllBytes()));
+            }
+        }
+        assertThat(entries).hasSize(invoiceIds.size());
+        for (UUID invoiceId : invoiceIds) {
+            assertThat(entries).containsEntry("invoice_" + invoiceId + ".pdf", invoiceId.toString());
+        }
+        verify(invoiceRepository, times(1)).findIdsByCustomerForPDF(criteria.getCustomerId(),
+                DateUtils.toDate(LocalDate.of(2024, 8, 1)), DateUtils.toDate(LocalDate.of(2024, 9, 1)), null);
+        verify(invoiceRepository, times(3)).findAllForPDFByIdIn(anyCollection());
+        verify(progress, times(1)).start(20L);
+        verify(progress, times(20)).advance();
+    }
+
+    @Test
+    void testExportInvoicesToPDFByFilterRenderFailed() throws InterruptedException {
+        // Arrange
+        InvoiceDetailsSearchCriteriaDTO criteria = new InvoiceDetailsSearchCriteriaDTO();
+        criteria.setYear(2024);
+
+        Invoice invoice = new Invoice();
+        invoice.setId(UUID.randomUUID());
+
+        when(invoiceRepository.findIdsForPDF(any(Date.class), any(Date.class), any())).thenReturn(List.of(invoice.getId()));
+        when(invoiceRepository.findAllForPDFByIdIn(anyCollection())).thenReturn(List.of(invoice));
+        when(pdfGenerator.queueInvoicePDF(invoice)).thenReturn(CompletableFuture.failedFuture(new IllegalStateException("Broken template")));
+
+        // Act & Assert
+        assertThatThrownBy(() -> invoiceService.exportInvoicesToPDFByFilter(criteria, new ByteArrayOutputStream()))
+                .isInstanceOf(IOException.class)
+                .hasMessageContaining(invoice.getId().toString())
+                .hasRootCauseMessage("Broken template");
+    }
+
+    @Test
+    void testExportInvoiceToPDFReportsProgress() throws IOException {
+        // Arrange
+        UUID invoiceId = UUID.randomUUID();
+        Invoice invoice = new Invoice();
+        byte[] pdfBytes = { 1, 2, 3 };
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        ExportProgress progress = mock(ExportProgress.class);
+
+        when(invoiceRepository.findWithCustomerAndDetailsById(invoiceId)).thenReturn(Optional.of(invoice));
+        when(pdfGenerator.generateInvoicePDF(invoice)).thenReturn(pdfBytes);
+
+        // Act
+        invoiceService.exportInvoiceToPDF(invoiceId, outputStream, progress);
+
+        // Assert
+        assertThat(outputStream.toByteArray()).isEqualTo(pdfBytes);
+        verify(progress, times(1)).start(1L);
+        verify(progress, times(1)).advance();
     }
 
     @Test
@@ -564,9 +992,9 @@ class InvoiceServiceImplTest {
         // Arrange
         Date date = new GregorianCalendar(2024, Calendar.AUGUST, 7).getTime();
         String revenueBy = "year";
-        Double mockRevenue = 1000.0;
+        double mockRevenue = 1000.0;
 
-        when(invoiceRepository.findTotalRevenueByYear(anyInt())).thenReturn(mockRevenue);
+        when(revenueService.findRevenue(RevenuePeriod.YEAR, LocalDate.of(2024, 8, 7))).thenReturn(mockRevenue);
 
         // Act
         RevenueShowDTO result = invoiceService.getInvoicesRevenue(date, revenueBy);
@@ -574,7 +1002,7 @@ class InvoiceServiceImplTest {
         // Assert
         assertThat(result.getYear()).isEqualTo(2024);
         assertThat(result.getAmount()).isEqualTo(mockRevenue);
-        verify(invoiceRepository, times(1)).findTotalRevenueByYear(2024);
+        verify(revenueService, times(1)).findRevenue(RevenuePeriod.YEAR, LocalDate.of(2024, 8, 7));
     }
 
     @Test
@@ -582,9 +1010,9 @@ class InvoiceServiceImplTest {
         // Arrange
         Date date = new GregorianCalendar(2024, Calendar.AUGUST, 7).getTime();
         String revenueBy = "month";
-        Double mockRevenue = 500.0;
+        double mockRevenue = 500.0;
 
-        when(invoiceRepository.findTotalRevenueByMonth(anyInt(), anyInt())).thenReturn(mockRevenue);
+        when(revenueService.findRevenue(RevenuePeriod.MONTH, LocalDate.of(2024, 8, 7))).thenReturn(mockRevenue);
 
         // Act
         RevenueShowDTO result = invoiceService.getInvoicesRevenue(date, revenueBy);
@@ -593,7 +1021,7 @@ class InvoiceServiceImplTest {
         assertThat(result.getYear()).isEqualTo(2024);
         assertThat(result.getMonth()).isEqualTo(8);
         assertThat(result.getAmount()).isEqualTo(mockRevenue);
-        verify(invoiceRepository, times(1)).findTotalRevenueByMonth(2024, 8);
+        verify(revenueService, times(1)).findRevenue(RevenuePeriod.MONTH, LocalDate.of(2024, 8, 7));
     }
 
     @Test
@@ -601,9 +1029,9 @@ class InvoiceServiceImplTest {
         // Arrange
         Date date = new GregorianCalendar(2024, Calendar.AUGUST, 7).getTime();
         String revenueBy = "day";
-        Double mockRevenue = 200.0;
+        double mockRevenue = 200.0;
 
-        when(invoiceRepository.findTotalRevenueByDay(any(Date.class))).thenReturn(mockRevenue);
+        when(revenueService.findRevenue(RevenuePeriod.DAY, LocalDate.of(2024, 8, 7))).thenReturn(mockRevenue);
 
         // Act
         RevenueShowDTO result = invoiceService.getInvoicesRevenue(date, revenueBy);
@@ -613,7 +1041,7 @@ class InvoiceServiceImplTest {
         assertThat(result.getMonth()).isEqualTo(8);
         assertThat(result.getDay()).isEqualTo(7);
         assertThat(result.getAmount()).isEqualTo(mockRevenue);
-        verify(invoiceRepository, times(1)).findTotalRevenueByDay(date);
+        verify(revenueService, times(1)).findRevenue(RevenuePeriod.DAY, LocalDate.of(2024, 8, 7));
     }
 
     @Test
@@ -627,4 +1055,105 @@ class InvoiceServiceImplTest {
             .isInstanceOf(IllegalArgumentException.class)
             .hasMessageContaining("Invalid revenueBy parameter");
     }
+
+    @Test
+    void testGetInvoicesRevenueSeriesByWeekZeroFillsEmptyWeeks() {
+        // Arrange, from Wednesday 2024-08-07 to Tuesday 2024-08-27, which spans four weeks starting on Monday
+        Date start = new GregorianCalendar(2024, Calendar.AUGUST, 7).getTime();
+        Date end = new GregorianCalendar(2024, Calendar.AUGUST, 27).getTime();
+        Map<LocalDate, Double> dailyRevenues = new LinkedHashMap<>();
+        dailyRevenues.put(LocalDate.of(2024, 8, 6), 100.0);
+        dailyRevenues.put(LocalDate.of(2024, 8, 9), 50.0);
+        dailyRevenues.put(LocalDate.of(2024, 8, 27), 25.0);
+
+        when(revenueService.findRevenues(RevenuePeriod.DAY, LocalDate.of(2024, 8, 5), LocalDate.of(2024, 9, 2))).thenReturn(dailyRevenues);
+
+        // Act
+        List<RevenueBucketDTO> result = invoiceService.getInvoicesRevenueSeries(start, end, "week");
+
+        // Assert
+        assertThat(result).containsExactly(
+                new RevenueBucketDTO(LocalDate.of(2024, 8, 5), 150.0),
+                new RevenueBucketDTO(LocalDate.of(2024, 8, 12), 0.0),
+                new RevenueBucketDTO(LocalDate.of(2024, 8, 19), 0.0),
+                new RevenueBucketDTO(LocalDate.of(2024, 8, 26), 25.0));
+        verify(revenueService, times(1)).findRevenues(any(), any(), any());
+    }
+
+    @Test
+    void testGetInvoicesRevenueSeriesByMonth() {
+        // Arrange
+        Date start = new GregorianCalendar(2024, Calendar.JANUARY, 15).getTime();
+        Date end = new GregorianCalendar(2024, Calendar.MARCH, 1).getTime();
+
+        when(revenueService.findRevenues(RevenuePeriod.MONTH, LocalDate.of(2024, 1, 1), LocalDate.of(2024, 4, 1)))
+            .thenReturn(Map.of(LocalDate.of(2024, 2, 1), 300.0));
+
+        // Act
+        List<RevenueBucketDTO> result = invoiceService.getInvoicesRevenueSeries(start, end, "month");
+
+        // Assert
+        assertThat(result).containsExactly(
+                new RevenueBucketDTO(LocalDate.of(2024, 1, 1), 0.0),
+                new RevenueBucketDTO(LocalDate.of(2024, 2, 1), 300.0),
+                new RevenueBucketDTO(LocalDate.of(2024, 3, 1), 0.0));
+    }
+
+    @Test
+    void testGetInvoicesRevenueSeriesEndBeforeStart() {
+        // Arrange
+        Date start = new GregorianCalendar(2024, Calendar.AUGUST, 7).getTime();
+        Date end = new GregorianCalendar(2024, Calendar.AUGUST, 6).getTime();
+
+        // Act & Assert
+        assertThatThrownBy(() -> invoiceService.getInvoicesRevenueSeries(start, end, "day"))
+            .isInstanceOf(BadRequestException.class)
+            .hasMessageContaining("The end date must not be before the start date");
+        verify(revenueService, never()).findRevenues(any(), any(), any());
+    }
+
+    @Test
+    void testGetInvoicesRevenueSeriesTooManyBuckets() {
+        // Arrange
+        Date start = new GregorianCalendar(2000, Calendar.JANUARY, 1).getTime();
+        Date end = new GregorianCalendar(2024, Calendar.JANUARY, 1).getTime();
+
+        // Act & Assert
+        assertThatThrownBy(() -> invoiceService.getInvoicesRevenueSeries(start, end, "day"))
+            .isInstanceOf(BadRequestException.class)
+            .hasMessageContaining("The revenue series is limited to");
+    }
+
+    @Test
+    void testGetInvoicesRevenueSeriesInvalidGranularity() {
+        // Arrange
+        Date date = new GregorianCalendar(2024, Calendar.AUGUST, 7).getTime();
+
+        // Act & Assert
+        assertThatThrownBy(() -> invoiceService.getInvoicesRevenueSeries(date, date, "hour"))
+            .isInstanceOf(IllegalArgumentException.class)
+            .hasMessageContaining("Invalid granularity parameter");
+    }
+
+    private Product activeProduct(String name, double price) {
+        Product product = new Product();
+        product.setId(UUID.randomUUID());
+        product.setName(name);
+        product.setStatus(Status.ACTIVE);
+        product.setPrice(price);
+        return product;
+    }
+
+    private InvoiceDetail detail(Invoice invoice, Product product, int quantity) {
+        InvoiceDetail detail = new InvoiceDetail();
+        detail.setInvoice(invoice);
+        detail.setProduct(product);
+        detail.setProductName(product.getName());
+        detail.setQuantity(quantity);
+        detail.setPrice(product.getPrice());
+        detail.setAmount(product.getPrice() * quantity);
+        detail.setCreatedAt(invoice.getCreatedAt());
+        detail.setUpdatedAt(invoice.getCreatedAt());
+        return detail;
+    }
 }
@@ -0,0 +1,140 @@
+package com.example.fpt_midterm_pos.service.impl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.example.fpt_midterm_pos.data.model.Product;
+import com.example.fpt_midterm_pos.data.model.Status;
+import com.example.fpt_midterm_pos.data.repository.ProductRepository;
+import com.example.fpt_midterm_pos.dto.CachedProductDTO;
+import com.example.fpt_midterm_pos.dto.ProductCacheStatsDTO;
+
+class ProductCacheServiceImplTest {
+
+    private ProductRepository productRepository;
+    private ProductCacheServiceImpl productCacheService;
+
+    @BeforeEach
+    public void setUp() {
+        productRepository = mock(ProductRepository.class);
+        productCacheService = new ProductCacheServiceImpl(productRepository, 2, Duration.ofMinutes(10));
+    }
+
+    @Test
+    void testFindAllById_servesActiveProductsFromMemory() {
+        Product widget = product("Widget", 10.0, Status.ACTIVE);
+        Product gadget = product("Gadget", 20.0, Status.DEACTIVE);
+        when(productRepository.findAllById(anyCollection())).thenReturn(List.of(widget, gadget));
+
+        Map<UUID, CachedProductDTO> first = productCacheService.findAllById(List.of(widget.getId(), gadget.getId()));
+        when(productRepository.findAllById(anyCollection())).thenReturn(List.of(gadget));
+        Map<UUID, CachedProductDTO> second = productCacheService.findAllById(List.of(widget.getId(), gadget.getId()));
+
+        assertThat(first.get(widget.getId()).getPrice()).isEqualTo(10.0);
+        assertThat(first.get(gadget.getId()).getStatus()).isEqualTo(Status.DEACTIVE);
+        // The inactive gadget is not cached, so only it is loaded again
+        assertThat(second).containsOnlyKeys(widget.getId(), gadget.getId());
+        verify(productRepository).findAllById(List.of(gadget.getId()));
+        ProductCacheStatsDTO stats = productCacheService.getStats();
+        assertThat(stats.getSize()).isEqualTo(1);
+        assertThat(stats.getHits()).isEqualTo(1);
+        assertThat(stats.getMisses()).isEqualTo(3);
+        assertThat(stats.getHitRate()).isEqualTo(0.25);
+    }
+
+    @Test
+    void testFindAllById_evictsLeastRecentlyUsed() {
+        Product widget = product("Widget", 10.0, Status.ACTIVE);
+        Product gadget = product("Gadget", 20.0, Status.ACTIVE);
+        Product gizmo = product("Gizmo", 30.0, Status.ACTIVE);
+        when(productRepository.findAllById(anyCollection())).thenReturn(List.of(widget, gadget));
+        productCacheService.findAllById(List.of(widget.getId(), gadget.getId()));
+        // Reading the widget again makes the gadget the least recently used product
+        productCacheService.findAllById(List.of(widget.getId()));
+
+        when(productRepository.findAllById(anyCollection())).thenReturn(List.of(gizmo));
+        productCacheService.findAllById(List.of(gizmo.getId()));
+        when(productRepository.findAllById(anyCollection())).thenReturn(List.of());
+        productCacheService.findAllById(List.of(widget.getId(), gizmo.getId()));
+
+        ProductCacheStatsDTO stats = productCacheService.getStats();
+        assertThat(stats.getSize()).isEqualTo(2);
+        assertThat(stats.getEvictions()).isEqualTo(1);
+        assertThat(stats.getHits()).isEqualTo(3);
+    }
+
+    @Test
+    void testFindAllById_reloadsExpiredProducts() {
+        productCacheService = new ProductCacheServiceImpl(productRepository, 2, Duration.ZERO);
+        Product widget = product("Widget", 10.0, Status.ACTIVE);
+        when(productRepository.findAllById(anyCollection())).thenReturn(List.of(widget));
+
+        productCacheService.findAllById(List.of(widget.getId()));
+        productCacheService.findAllById(List.of(widget.getId()));
+
+        verify(productRepository, times(2)).findAllById(anyCollection());
+        assertThat(productCacheService.getStats().getExpirations()).isEqualTo(1);
+    }
+
+    @Test
+    void testRefresh_replacesOrDropsCachedProduct() {
+        Product widget = product("Widget", 10.0, Status.ACTIVE);
+        when(productRepository.findAllById(anyCollection())).thenReturn(List.of(widget));
+        productCacheService.findAllById(List.of(widget.getId()));
+
+        widget.setPrice(12.5);
+        productCacheService.refresh(widget);
+        Map<UUID, CachedProductDTO> refreshed = productCacheService.findAllById(List.of(widget.getId()));
+
+        assertThat(refreshed.get(widget.getId()).getPrice()).isEqualTo(12.5);
+        verify(productRepository, times(1)).findAllById(anyCollection());
+
+        widget.setStatus(Status.DEACTIVE);
+        productCacheService.refresh(widget);
+
+        assertThat(productCacheService.getStats().getSize()).isZero();
+    }
+
+    @Test
+    void testEvict_waitsForCommit() {
+        Product widget = product("Widget", 10.0, Status.ACTIVE);
+        when(productRepository.findAllById(anyCollection())).thenReturn(List.of(widget));
+        productCacheService.findAllById(List.of(widget.getId()));
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            productCacheService.evict(List.of(widget.getId()));
+            // Still cached until the transaction that changed the product commits
+            assertThat(productCacheService.getStats().getSize()).isEqualTo(1);
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        assertThat(productCacheService.getStats().getSize()).isZero();
+    }
+
+    private Product product(String name, double price, Status status) {
+        Product product = new Product();
+        product.setId(UUID.randomUUID());
+        product.setName(name);
+        product.setPrice(price);
+        product.setQuantity(5);
+        product.setStatus(status);
+        return product;
+    }
+}
@@ -0,0 +1,206 @@
+package com.example.fpt_midterm_pos.service.impl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import com.example.fpt_midterm_pos.data.model.Product;
+import com.example.fpt_midterm_pos.data.model.ProductImportMode;
+import com.example.fpt_midterm_pos.data.model.Status;
+import com.example.fpt_midterm_pos.data.repository.ProductRepository;
+import com.example.fpt_midterm_pos.dto.ProductImportSummaryDTO;
+import com.example.fpt_midterm_pos.exception.BadRequestException;
+import com.example.fpt_midterm_pos.service.ProductCacheService;
+import com.example.fpt_midterm_pos.service.ProductNameIndexService;
+import com.example.fpt_midterm_pos.service.StockService;
+import com.example.fpt_midterm_pos.utils.FileUtils;
+
+import jakarta.validation.Validation;
+import jakarta.validation.ValidatorFactory;
+
+class ProductImportServiceImplTest {
+
+    private ProductRepository productRepository;
+    private StockService stockService;
+    private ProductCacheService productCacheService;
+    private ProductNameIndexService productNameIndexService;
+    private PlatformTransactionManager transactionManager;
+    private ValidatorFactory validatorFactory;
+    private ProductImportServiceImpl productImportService;
+
+    @BeforeEach
+    public void setUp() {
+        productRepository = mock(ProductRepository.class);
+        stockService = mock(StockService.class);
+        productCacheService = mock(ProductCacheService.class);
+        productNameIndexService = mock(ProductNameIndexService.class);
+        transactionManager = mock(PlatformTransactionManager.class);
+        validatorFactory = Validation.buildDefaultValidatorFactory();
+        productImportService = new ProductImportServiceImpl(productRepository, stockService, productCacheService, productNameIndexService, transactionManager, validatorFactory.getValidator(), 2, 100, 1);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        productImportService.shutdown();
+        validatorFactory.close();
+    }
+
+    @Test
+    void testImportProducts_insertsByChunks() {
+        List<List<Product>> inserted = captureInserts();
+
+        ProductImportSummaryDTO summary = productImportService.importProducts(file(
+                "name,price,quantity\nWidget,10,1\nGadget,20,0\nGizmo,30,3\nDoohickey,40,4\nThingamajig,50,5\n"), ProductImportMode.INSERT);
+
+        assertThat(summary.getTotalRows()).isEqualTo(5);
+        assertThat(summary.getImportedRows()).isEqualTo(5);
+        assertThat(summary.getFailedRows()).isZero();
+        assertThat(summary.getFailedRowNumbers()).isEmpty();
+        // Every chunk of two rows is inserted and committed on its own
+        assertThat(inserted).extracting(List::size).containsExactly(2, 2, 1);
+        verify(transactionManager, times(3)).commit(eq(null));
+        Product gadget = inserted.get(0).get(1);
+        assertThat(gadget.getName()).isEqualTo("Gadget");
+        assertThat(gadget.getStatus()).isEqualTo(Status.DEACTIVE);
+        assertThat(gadget.getCreatedAt()).isNotNull();
+        assertThat(inserted.get(1).get(0).getStatus()).isEqualTo(Status.ACTIVE);
+        verify(productRepository, never()).forEachProduct(any());
+    }
+
+    @Test
+    void testImportProducts_countsInvalidRows() {
+        List<List<Product>> inserted = captureInserts();
+
+        ProductImportSummaryDTO summary = productImportService.importProducts(file(
+                "name,price,quantity\nWidget,10,1\nWidget 2,20,2\nGadget,abc,3\nGizmo,-5,4\nBroken\nDoohickey,60,6\n"), ProductImportMode.INSERT);
+
+        assertThat(summary.getTotalRows()).isEqualTo(6);
+        assertThat(summary.getImportedRows()).isEqualTo(2);
+        assertThat(summary.getFailedRows()).isEqualTo(4);
+        assertThat(summary.getFailedRowNumbers()).containsExactly(3, 4, 5, 6);
+        assertThat(inserted.stream().flatMap(List::stream).map(Product::getName)).containsExactly("Widget", "Doohickey");
+    }
+
+    @Test
+    void testImportProducts_failedChunkDoesNotStopImport() {
+        doThrow(new DataIntegrityViolationException("Duplicate entry"))
+                .doAnswer(invocation -> null)
+                .when(productRepository).batchInsert(anyList(), eq(100));
+
+        ProductImportSummaryDTO summary = productImportService.importProducts(file(
+                "name,price,quantity\nWidget,10,1\nGadget,20,2\nGizmo,30,3\n"), ProductImportMode.INSERT);
+
+        assertThat(summary.getImportedRows()).isEqualTo(1);
+        assertThat(summary.getFailedRows()).isEqualTo(2);
+        assertThat(summary.getFailedRowNumbers()).containsExactly(2, 3);
+        verify(transactionManager).rollback(eq(null));
+    }
+
+    @Test
+    void testImportProducts_upsertUpdatesOnlyChangedProducts() {
+        Product widget = existingProduct("Widget", 10.0, 1);
+        Product gadget = existingProduct("Gadget", 20.0, 2);
+        Product gizmo = existingProduct("Gizmo", 30.0, 0);
+        doAnswer(invocation -> {
+            Consumer<Product> action = invocation.getArgument(0);
+            List.of(widget, gadget, gizmo).forEach(action);
+            return null;
+        }).when(productRepository).forEachProduct(any());
+        when(stockService.findSplitProductIds()).thenReturn(Set.of(gizmo.getId()));
+        List<List<Product>> inserted = captureInserts();
+        List<List<Product>> updated = captureUpdates();
+
+        ProductImportSummaryDTO summary = productImportService.importProducts(file(
+                "name,price,quantity\n  widget ,10,1\nGADGET,25,2\nGizmo,35,50\nNew Thing,5,5\nnew  thing,6,5\n"), ProductImportMode.UPSERT);
+
+        assertThat(summary.getTotalRows()).isEqualTo(5);
+        assertThat(summary.getImportedRows()).isEqualTo(1);
+        assertThat(summary.getUpdatedRows()).isEqualTo(3);
+        assertThat(summary.getUnchangedRows()).isEqualTo(1);
+        assertThat(summary.getFailedRows()).isZero();
+        Product newThing = inserted.stream().flatMap(List::stream).findFirst().orElseThrow();
+        assertThat(newThing.getName()).isEqualTo("New Thing");
+        List<Product> updates = updated.stream().flatMap(List::stream).toList();
+        // The unchanged widget is never written, the split gizmo keeps its quantity in the sub-counters
+        assertThat(updates).extracting(Product::getId).containsExactly(gadget.getId(), gizmo.getId(), newThing.getId());
+        assertThat(updates).extracting(Product::getPrice).containsExactly(25.0, 35.0, 6.0);
+        assertThat(updates.get(1).getQuantity()).isZero();
+        // The cached copies of the updated products are dropped chunk by chunk
+        verify(productCacheService).evict(List.of(gadget.getId()));
+        verify(productCacheService).evict(List.of(gizmo.getId()));
+        verify(productCacheService).evict(List.of(newThing.getId()));
+        verify(productNameIndexService).index(List.of(newThing));
+        verify(productRepository, times(1)).forEachProduct(any());
+        verify(stockService, times(1)).findSplitProductIds();
+        verify(stockService, never()).isSplit(any());
+    }
+
+    @Test
+    void testImportProducts_withInvalidFormat() {
+        MockMultipartFile fileText = new MockMultipartFile("file", "products.txt", "text/plain", "Invalid content".getBytes());
+
+        BadRequestException exception = assertThrows(BadRequestException.class, () -> productImportService.importProducts(fileText, ProductImportMode.INSERT));
+
+        assertThat(exception.getMessage()).isEqualTo("Invalid file format. Only Excel files are accepted.");
+    }
+
+    @Test
+    void testImportProducts_withEmptyFile() {
+        BadRequestException exception = assertThrows(BadRequestException.class, () -> productImportService.importProducts(file(""), ProductImportMode.INSERT));
+
+        assertThat(exception.getMessage()).isEqualTo("Error reading Excel file: File is empty or has an invalid format");
+    }
+
+    // Record a copy of every chunk handed to the repository
+    private List<List<Product>> captureInserts() {
+        List<List<Product>> inserted = new ArrayList<>();
+        doAnswer(invocation -> inserted.add(new ArrayList<>(invocation.<List<Product>>getArgument(0))))
+                .when(productRepository).batchInsert(anyList(), eq(100));
+        return inserted;
+    }
+
+    // Record a copy of every chunk of updates handed to the repository
+    private List<List<Product>> captureUpdates() {
+        List<List<Product>> updated = new ArrayList<>();
+        doAnswer(invocation -> updated.add(new ArrayList<>(invocation.<List<Product>>getArgument(0))))
+                .when(productRepository).batchUpdatePriceAndQuantity(anyList(), eq(100));
+        return updated;
+    }
+
+    private Product existingProduct(String name, double price, int quantity) {
+        Product product = new Product();
+        product.setId(UUID.randomUUID());
+        product.setName(name);
+        product.setPrice(price);
+        product.setQuantity(quantity);
+        product.setStatus(Status.ACTIVE);
+        return product;
+    }
+
+    private MockMultipartFile file(String content) {
+        return new MockMultipartFile("file", "products.xlsx", FileUtils.TYPE, content.getBytes(StandardCharsets.UTF_8));
+    }
+}
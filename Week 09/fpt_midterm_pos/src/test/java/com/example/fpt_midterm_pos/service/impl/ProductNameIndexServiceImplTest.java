@@ -0,0 +1,133 @@
+package com.example.fpt_midterm_pos.service.impl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.example.fpt_midterm_pos.data.model.Product;
+import com.example.fpt_midterm_pos.data.model.Status;
+import com.example.fpt_midterm_pos.data.repository.ProductRepository;
+import com.example.fpt_midterm_pos.dto.ProductSuggestionDTO;
+
+class ProductNameIndexServiceImplTest {
+
+    private ProductRepository productRepository;
+    private ProductNameIndexServiceImpl productNameIndexService;
+
+    private Product widget;
+    private Product gadget;
+    private Product retired;
+
+    @BeforeEach
+    public void setUp() {
+        widget = product("Blue Widget", Status.ACTIVE);
+        gadget = product("Red Gadget", Status.ACTIVE);
+        retired = product("Blue Gadget", Status.DEACTIVE);
+        productRepository = mock(ProductRepository.class);
+        doAnswer(invocation -> {
+            Consumer<Product> action = invocation.getArgument(0);
+            List.of(widget, gadget, retired).forEach(action);
+            return null;
+        }).when(productRepository).forEachProduct(any());
+        productNameIndexService = new ProductNameIndexServiceImpl(productRepository, 2);
+    }
+
+    @Test
+    void testFindActiveIdsByName_matchesAnyCaseAndSkipsInactive() {
+        assertThat(productNameIndexService.findActiveIdsByName("GADGET")).contains(Set.of(gadget.getId()));
+        assertThat(productNameIndexService.findActiveIdsByName("e wid")).contains(Set.of(widget.getId()));
+        assertThat(productNameIndexService.findActiveIdsByName("green")).contains(Set.of());
+        // The index is only built once from the database
+        verify(productRepository, times(1)).forEachProduct(any());
+    }
+
+    @Test
+    void testFindActiveIdsByName_confirmsTrigramCandidates() {
+        // Changes only reach an index that has been built by a first search
+        productNameIndexService.findActiveIdsByName("init");
+        Product split = product("ABC-BCD", Status.ACTIVE);
+        Product whole = product("ABCD", Status.ACTIVE);
+        productNameIndexService.index(List.of(split, whole));
+
+        // Both names hold the trigrams of the text, only one contains the text itself
+        assertThat(productNameIndexService.findActiveIdsByName("abcd")).contains(Set.of(whole.getId()));
+    }
+
+    @Test
+    void testFindActiveIdsByName_shortTextScansNames() {
+        assertThat(productNameIndexService.findActiveIdsByName("ue")).contains(Set.of(widget.getId()));
+    }
+
+    @Test
+    void testFindActiveIdsByName_tooManyMatches() {
+        productNameIndexService.findActiveIdsByName("init");
+        productNameIndexService.index(List.of(product("Red Widget", Status.ACTIVE)));
+
+        // Three active names contain "e", more than the two candidates the index hands out
+        assertThat(productNameIndexService.findActiveIdsByName("e")).isEmpty();
+        assertThat(productNameIndexService.findActiveIdsByName(" ")).isEmpty();
+    }
+
+    @Test
+    void testIndex_followsRenamesAndStatusChanges() {
+        productNameIndexService.findActiveIdsByName("init");
+
+        widget.setName("Green Sprocket");
+        productNameIndexService.index(List.of(widget));
+        Product statusOnly = new Product();
+        statusOnly.setId(retired.getId());
+        statusOnly.setStatus(Status.ACTIVE);
+        productNameIndexService.updateStatus(List.of(statusOnly));
+
+        assertThat(productNameIndexService.findActiveIdsByName("widget")).contains(Set.of());
+        assertThat(productNameIndexService.findActiveIdsByName("sprocket")).contains(Set.of(widget.getId()));
+        assertThat(productNameIndexService.findActiveIdsByName("blue gadget")).contains(Set.of(retired.getId()));
+    }
+
+    @Test
+    void testSuggest_matchesWordStarts() {
+        Product redWidget = product("Red Widget", Status.ACTIVE);
+        productNameIndexService.findActiveIdsByName("init");
+        productNameIndexService.index(List.of(redWidget));
+
+        // Both widgets match by their second word, the inactive blue gadget is skipped
+        assertThat(productNameIndexService.suggest("wi", 10)).extracting(ProductSuggestionDTO::getName)
+                .containsExactlyInAnyOrder("Blue Widget", "Red Widget");
+        assertThat(productNameIndexService.suggest("BL", 10)).extracting(ProductSuggestionDTO::getId).containsExactly(widget.getId());
+        assertThat(productNameIndexService.suggest("re", 1)).hasSize(1);
+        assertThat(productNameIndexService.suggest("idg", 10)).isEmpty();
+        assertThat(productNameIndexService.suggest(" ", 10)).isEmpty();
+    }
+
+    @Test
+    void testSuggest_followsRenames() {
+        productNameIndexService.findActiveIdsByName("init");
+
+        widget.setName("Green Sprocket");
+        productNameIndexService.index(List.of(widget));
+
+        assertThat(productNameIndexService.suggest("widget", 10)).isEmpty();
+        assertThat(productNameIndexService.suggest("spr", 10)).extracting(ProductSuggestionDTO::getName).containsExactly("Green Sprocket");
+    }
+
+    private Product product(String name, Status status) {
+        Product product = new Product();
+        product.setId(UUID.randomUUID());
+        product.setName(name);
+        product.setPrice(10.0);
+        product.setQuantity(1);
+        product.setStatus(status);
+        return product;
+    }
+}
@@ -3,6 +3,7 @@ package com.example.fpt_midterm_pos.service.impl;
 import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -12,22 +13,19 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
-import org.mockito.MockedStatic;
 
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
-import static org.mockito.Mockito.mock;
-import static org.mockito.Mockito.mockStatic;
+import static org.mockito.ArgumentMatchers.isNull;
 
 import org.mockito.MockitoAnnotations;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
-import org.springframework.mock.web.MockMultipartFile;
 
 import com.example.fpt_midterm_pos.data.model.Product;
 import com.example.fpt_midterm_pos.data.model.Status;
@@ -36,11 +34,14 @@ import com.example.fpt_midterm_pos.dto.ProductDTO;
 import com.example.fpt_midterm_pos.dto.ProductSaveDTO;
 import com.example.fpt_midterm_pos.dto.ProductSearchCriteriaDTO;
 import com.example.fpt_midterm_pos.dto.ProductShowDTO;
+import com.example.fpt_midterm_pos.dto.ProductSuggestionDTO;
 import com.example.fpt_midterm_pos.exception.BadRequestException;
 import com.example.fpt_midterm_pos.exception.DuplicateStatusException;
 import com.example.fpt_midterm_pos.exception.ResourceNotFoundException;
 import com.example.fpt_midterm_pos.mapper.ProductMapper;
-import com.example.fpt_midterm_pos.utils.FileUtils;
+import com.example.fpt_midterm_pos.service.ProductCacheService;
+import com.example.fpt_midterm_pos.service.ProductNameIndexService;
+import com.example.fpt_midterm_pos.service.StockService;
 
 class ProductServiceImplTest {
 
@@ -53,9 +54,18 @@ class ProductServiceImplTest {
     @Mock
     private ProductMapper productMapper;
 
+    @Mock
+    private ProductCacheService productCacheService;
+
+    @Mock
+    private ProductNameIndexService productNameIndexService;
+
+    @Mock
+    private StockService stockService;
+
     private ProductSearchCriteriaDTO criteria;
     private Pageable pageable;
-    private Page<Product> productPage;
+    private Page<ProductShowDTO> productPage;
 
     @BeforeEach
     public void setUp() {
@@ -80,10 +90,9 @@ class ProductServiceImplTest {
         criteria.setSortByPrice("desc");
 
         pageable = PageRequest.of(0, 10);
-        productPage = new PageImpl<>(Collections.singletonList(product));
+        productPage = new PageImpl<>(Collections.singletonList(new ProductShowDTO(productId, product.getName(), product.getPrice(), product.getQuantity())));
 
         when(productRepository.findByFilters(any(), any(), any(), any(), any())).thenReturn(productPage);
-        when(productMapper.toShowDTO(any())).thenReturn(new ProductShowDTO());
 
         Page<ProductShowDTO> result = productService.findByCriteria(criteria, pageable);
 
@@ -109,10 +118,9 @@ class ProductServiceImplTest {
         criteria.setSortByPrice("asc");
 
         pageable = PageRequest.of(0, 10);
-        productPage = new PageImpl<>(Collections.singletonList(product));
+        productPage = new PageImpl<>(Collections.singletonList(new ProductShowDTO(productId, product.getName(), product.getPrice(), product.getQuantity())));
 
         when(productRepository.findByFilters(any(), any(), any(), any(), any())).thenReturn(productPage);
-        when(productMapper.toShowDTO(any())).thenReturn(new ProductShowDTO());
 
         Page<ProductShowDTO> result = productService.findByCriteria(criteria, pageable);
 
@@ -120,6 +128,55 @@ class ProductServiceImplTest {
         verify(productRepository).findByFilters(any(), eq("Test"), eq(50.0), eq(150.0), any(Pageable.class));
     }
 
+    @Test
+    void testFindByCriteria_usesNameIndex() {
+        UUID productId = UUID.randomUUID();
+        ProductShowDTO product = new ProductShowDTO(productId, "Test Product", 100.0, 10);
+
+        criteria = new ProductSearchCriteriaDTO();
+        criteria.setName("Test");
+        criteria.setMaxPrice(150.0);
+
+        when(productNameIndexService.findActiveIdsByName("Test")).thenReturn(Optional.of(Set.of(productId)));
+        when(productRepository.findByIdsAndFilters(any(), any(), any(), any(), any())).thenReturn(new PageImpl<>(List.of(product)));
+
+        Page<ProductShowDTO> result = productService.findByCriteria(criteria, PageRequest.of(0, 10));
+
+        assertThat(result.getContent()).containsExactly(product);
+        verify(productRepository).findByIdsAndFilters(eq(Set.of(productId)), eq(Status.ACTIVE), isNull(), eq(150.0), any(Pageable.class));
+        verify(productRepository, times(0)).findByFilters(any(), any(), any(), any(), any());
+    }
+
+    @Test
+    void testFindByCriteria_noNameMatch() {
+        criteria = new ProductSearchCriteriaDTO();
+        criteria.setName("Nothing");
+
+        when(productNameIndexService.findActiveIdsByName("Nothing")).thenReturn(Optional.of(Set.of()));
+
+        Page<ProductShowDTO> result = productService.findByCriteria(criteria, PageRequest.of(0, 10));
+
+        assertThat(result.getContent()).isEmpty();
+        verify(productRepository, times(0)).findByIdsAndFilters(any(), any(), any(), any(), any());
+        verify(productRepository, times(0)).findByFilters(any(), any(), any(), any(), any());
+    }
+
+    @Test
+    void testSuggestProducts() {
+        List<ProductSuggestionDTO> suggestions = List.of(new ProductSuggestionDTO(UUID.randomUUID(), "Blue Widget"));
+        when(productNameIndexService.suggest("wi", 5)).thenReturn(suggestions);
+
+        assertThat(productService.suggestProducts("wi", 5)).isEqualTo(suggestions);
+    }
+
+    @Test
+    void testSuggestProducts_withInvalidLimit() {
+        BadRequestException exception = assertThrows(BadRequestException.class, () -> productService.suggestProducts("wi", 51));
+
+        assertThat(exception.getMessage()).isEqualTo("Limit must be between 1 and 50");
+        verify(productNameIndexService, times(0)).suggest(any(), eq(51));
+    }
+
     @Test
     void testCreateProduct() {
         ProductSaveDTO dto = new ProductSaveDTO("Product", 100.0, 10);
@@ -134,6 +191,8 @@ class ProductServiceImplTest {
         ProductDTO result = productService.createProduct(dto);
 
         verify(productRepository, times(1)).save(product);
+        verify(productCacheService).refresh(product);
+        verify(productNameIndexService).index(List.of(product));
         assertThat(result).isEqualTo(productDTO);
     }
 
@@ -146,14 +205,18 @@ class ProductServiceImplTest {
         product.setName("Old Product");
         ProductDTO updatedProductDTO = new ProductDTO(id, "Updated Product", 150.0, Status.ACTIVE, 20);
 
-        when(productRepository.findById(id)).thenReturn(Optional.of(product));
+        when(productRepository.findByIdForUpdate(id)).thenReturn(Optional.of(product));
         when(productMapper.toProduct(dto)).thenReturn(product);
         when(productRepository.save(product)).thenReturn(product);
         when(productMapper.toProductDTO(product)).thenReturn(updatedProductDTO);
+        when(stockService.getTotalStock(product)).thenReturn(20);
 
         ProductDTO result = productService.updateProduct(id, dto);
 
+        verify(stockService).replaceStock(product, 20);
         verify(productRepository, times(1)).save(product);
+        verify(productCacheService).refresh(product);
+        verify(productNameIndexService).index(List.of(product));
         assertThat(result).isEqualTo(updatedProductDTO);
     }
 
@@ -162,7 +225,7 @@ class ProductServiceImplTest {
         UUID id = UUID.randomUUID();
         ProductSaveDTO dto = new ProductSaveDTO("Updated Product", 150.0, 20);
 
-        when(productRepository.findById(id)).thenReturn(Optional.empty());
+        when(productRepository.findByIdForUpdate(id)).thenReturn(Optional.empty());
 
         ResourceNotFoundException exception = assertThrows(ResourceNotFoundException.class, () -> {
             productService.updateProduct(id, dto);
@@ -182,10 +245,13 @@ class ProductServiceImplTest {
         when(productRepository.findById(id)).thenReturn(Optional.of(product));
         when(productRepository.save(product)).thenReturn(product);
         when(productMapper.toProductDTO(product)).thenReturn(updatedProductDTO);
+        when(stockService.getTotalStock(product)).thenReturn(10);
 
         ProductDTO result = productService.updateProductStatus(id, Status.DEACTIVE);
 
         verify(productRepository, times(1)).save(product);
+        verify(productCacheService).refresh(product);
+        verify(productNameIndexService).index(List.of(product));
         assertThat(result).isEqualTo(updatedProductDTO);
     }
 
@@ -200,10 +266,13 @@ class ProductServiceImplTest {
         when(productRepository.findById(id)).thenReturn(Optional.of(product));
         when(productRepository.save(product)).thenReturn(product);
         when(productMapper.toProductDTO(product)).thenReturn(updatedProductDTO);
+        when(stockService.getTotalStock(product)).thenReturn(10);
 
         ProductDTO result = productService.updateProductStatus(id, Status.ACTIVE);
 
         verify(productRepository, times(1)).save(product);
+        verify(productCacheService).refresh(product);
+        verify(productNameIndexService).index(List.of(product));
         assertThat(result).isEqualTo(updatedProductDTO);
     }
 
@@ -260,83 +329,4 @@ class ProductServiceImplTest {
     
         assertThat(exception.getMessage()).contains("Product status is already ACTIVE");
     }
-
-    @Test
-    void testSaveProductsFromExcel() throws Exception {
-        List<ProductSaveDTO> productSaveDTOs = List.of(new ProductSaveDTO("Product", 100.0, 10));
-        List<Product> products = List.of(mock(Product.class));
-        List<ProductDTO> productDTOs = List.of(new ProductDTO());
-
-        // Mock the Product object
-        Product product = products.get(0);
-        when(product.getQuantity()).thenReturn(10); // Ensure quantity is not null
-        when(product.getStatus()).thenReturn(Status.ACTIVE);
-        // Mock the InputStream with Excel file content
-        MockMultipartFile fileExcel = new MockMultipartFile("file", "products.xlsx", "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet", "name,price,quantity\nProduct,100.0,10".getBytes());
-
-        // Mock FileUtils.readProductsFromExcel method
-        mockStatic(FileUtils.class);
-        when(FileUtils.readProductsFromExcel(fileExcel)).thenReturn(productSaveDTOs);
-
-        // Mock the productMapper and productRepository methods
-        when(productMapper.toProductList(productSaveDTOs)).thenReturn(products);
-        when(productRepository.saveAll(products)).thenReturn(products);
-        when(productMapper.toProductDTOList(products)).thenReturn(productDTOs);
-
-        // Call the method under test
-        List<ProductDTO> result = productService.saveProductsFromExcel(fileExcel);
-
-        // Verify the interactions and assert the results
-        verify(productRepository, times(1)).saveAll(products);
-        assertThat(result).isEqualTo(productDTOs);
-    }
-
-    @Test
-    void testSaveProductsFromExcel_withQuantity0() {
-        List<ProductSaveDTO> productSaveDTOs = List.of(new ProductSaveDTO("Product", 100.0, 0));
-        List<Product> products = List.of(mock(Product.class));
-        List<ProductDTO> productDTOs = List.of(new ProductDTO());
-
-        // Mock the Product object
-        Product product = products.get(0);
-        when(product.getQuantity()).thenReturn(0);
-        when(product.getStatus()).thenReturn(Status.DEACTIVE);
-
-        // Mock the InputStream with Excel file content
-        MockMultipartFile fileExcel = new MockMultipartFile("file", "products.xlsx", "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet", "name,price,quantity\nProduct,100.0,10".getBytes());
-
-        try (MockedStatic<FileUtils> mockedStatic = mockStatic(FileUtils.class)) {
-            // Mock FileUtils.readProductsFromExcel method
-            mockedStatic.when(() -> FileUtils.readProductsFromExcel(fileExcel)).thenReturn(productSaveDTOs);
-
-            // Mock the productMapper and productRepository methods
-            when(productMapper.toProductList(productSaveDTOs)).thenReturn(products);
-            when(productRepository.saveAll(products)).thenReturn(products);
-            when(productMapper.toProductDTOList(products)).thenReturn(productDTOs);
-
-            // Call the method under test
-            List<ProductDTO> result = productService.saveProductsFromExcel(fileExcel);
-
-            // Verify the interactions and assert the results
-            verify(productRepository, times(1)).saveAll(products);
-            assertThat(result).isEqualTo(productDTOs);
-        }
-    }
-
-    @Test
-    void testSaveProductsFromExcel_withIllegalArgumentException() {
-        MockMultipartFile fileExcel = new MockMultipartFile("file", "products.xlsx", "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet", "name,price,quantity\nProduct,100.0,10".getBytes());
-
-        try (MockedStatic<FileUtils> mockedStatic = mockStatic(FileUtils.class)) {
-            // Mock FileUtils.readProductsFromExcel method to throw IllegalArgumentException
-            mockedStatic.when(() -> FileUtils.readProductsFromExcel(fileExcel)).thenThrow(new IllegalArgumentException("Mocked Illegal Argument Exception"));
-
-            // Call the method under test and assert the exception
-            BadRequestException exception = assertThrows(BadRequestException.class, () -> {
-                productService.saveProductsFromExcel(fileExcel);
-            });
-
-            assertThat(exception.getMessage()).contains("Invalid file format. Only Excel files are accepted.");
-        }
-    }
 }
\ No newline at end of file
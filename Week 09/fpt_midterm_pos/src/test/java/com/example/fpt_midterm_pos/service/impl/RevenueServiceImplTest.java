@@ -0,0 +1,138 @@
+package com.example.fpt_midterm_pos.service.impl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import com.example.fpt_midterm_pos.data.model.Customer;
+import com.example.fpt_midterm_pos.data.model.Invoice;
+import com.example.fpt_midterm_pos.data.model.RevenuePeriod;
+import com.example.fpt_midterm_pos.data.model.Status;
+import com.example.fpt_midterm_pos.data.repository.CustomerRepository;
+import com.example.fpt_midterm_pos.data.repository.InvoiceRepository;
+import com.example.fpt_midterm_pos.data.repository.RevenueRollupRepository;
+import com.example.fpt_midterm_pos.service.RevenueService;
+import com.example.fpt_midterm_pos.utils.DateUtils;
+
+@SpringBootTest
+class RevenueServiceImplTest {
+
+    private static final LocalDate AUGUST_7 = LocalDate.of(2031, 8, 7);
+    private static final LocalDate AUGUST_8 = LocalDate.of(2031, 8, 8);
+    private static final LocalDate SEPTEMBER_1 = LocalDate.of(2031, 9, 1);
+
+    @Autowired
+    private RevenueService revenueService;
+
+    @Autowired
+    private RevenueRollupRepository revenueRollupRepository;
+
+    @Autowired
+    private InvoiceRepository invoiceRepository;
+
+    @Autowired
+    private CustomerRepository customerRepository;
+
+    private final List<Invoice> createdInvoices = new ArrayList<>();
+    private final List<Customer> createdCustomers = new ArrayList<>();
+
+    @AfterEach
+    public void tearDown() {
+        invoiceRepository.deleteAll(createdInvoices);
+        customerRepository.deleteAll(createdCustomers);
+        revenueRollupRepository.deleteAll();
+        createdInvoices.clear();
+        createdCustomers.clear();
+    }
+
+    @Test
+    void testAddRevenueUpdatesEveryPeriod() {
+        revenueService.addRevenue(at(AUGUST_7), 100.0);
+        revenueService.addRevenue(at(AUGUST_7), 50.0);
+        revenueService.addRevenue(at(AUGUST_8), 25.0);
+
+        assertThat(revenueService.findRevenue(RevenuePeriod.DAY, AUGUST_7)).isEqualTo(150.0);
+        assertThat(revenueService.findRevenue(RevenuePeriod.DAY, AUGUST_8)).isEqualTo(25.0);
+        assertThat(revenueService.findRevenue(RevenuePeriod.MONTH, AUGUST_8)).isEqualTo(175.0);
+        assertThat(revenueService.findRevenue(RevenuePeriod.YEAR, SEPTEMBER_1)).isEqualTo(175.0);
+    }
+
+    @Test
+    void testMoveRevenueAcrossPeriods() {
+        revenueService.addRevenue(at(AUGUST_7), 100.0);
+
+        revenueService.moveRevenue(at(AUGUST_7), 100.0, at(SEPTEMBER_1), 80.0);
+
+        assertThat(revenueService.findRevenue(RevenuePeriod.DAY, AUGUST_7)).isZero();
+        assertThat(revenueService.findRevenue(RevenuePeriod.MONTH, AUGUST_7)).isZero();
+        assertThat(revenueService.findRevenue(RevenuePeriod.MONTH, SEPTEMBER_1)).isEqualTo(80.0);
+        assertThat(revenueService.findRevenue(RevenuePeriod.YEAR, AUGUST_7)).isEqualTo(80.0);
+    }
+
+    @Test
+    void testFindRevenuesWithinRange() {
+        revenueService.addRevenue(at(AUGUST_7), 100.0);
+        revenueService.addRevenue(at(AUGUST_8), 25.0);
+        revenueService.addRevenue(at(SEPTEMBER_1), 60.0);
+
+        assertThat(revenueService.findRevenues(RevenuePeriod.DAY, AUGUST_8, SEPTEMBER_1))
+                .containsExactly(Map.entry(AUGUST_8, 25.0));
+        assertThat(revenueService.findRevenues(RevenuePeriod.MONTH, AUGUST_7.withDayOfMonth(1), SEPTEMBER_1.plusMonths(1)))
+                .containsExactly(Map.entry(AUGUST_7.withDayOfMonth(1), 125.0), Map.entry(SEPTEMBER_1, 60.0));
+    }
+
+    @Test
+    void testFindRevenueWithoutInvoices() {
+        assertThat(revenueService.findRevenue(RevenuePeriod.DAY, AUGUST_7)).isZero();
+    }
+
+    @Test
+    void testRebuildRevenueMatchesInvoices() {
+        Customer customer = new Customer();
+        customer.setName("Test Customer");
+        customer.setStatus(Status.ACTIVE);
+        customer.setPhoneNumber("+62123456789");
+        customer.setCreatedAt(new Date());
+        customer.setUpdatedAt(new Date());
+        customer = customerRepository.save(customer);
+        createdCustomers.add(customer);
+
+        saveInvoice(customer, AUGUST_7, 100.0);
+        saveInvoice(customer, AUGUST_7, 40.0);
+        saveInvoice(customer, SEPTEMBER_1, 60.0);
+        // A stale rollup that does not match any invoice
+        revenueService.addRevenue(at(AUGUST_8), 999.0);
+
+        revenueService.rebuildRevenue();
+
+        assertThat(revenueService.findRevenue(RevenuePeriod.DAY, AUGUST_7)).isEqualTo(140.0);
+        assertThat(revenueService.findRevenue(RevenuePeriod.DAY, AUGUST_8)).isZero();
+        assertThat(revenueService.findRevenue(RevenuePeriod.MONTH, AUGUST_7)).isEqualTo(140.0);
+        assertThat(revenueService.findRevenue(RevenuePeriod.MONTH, SEPTEMBER_1)).isEqualTo(60.0);
+        assertThat(revenueService.findRevenue(RevenuePeriod.YEAR, AUGUST_7)).isEqualTo(200.0);
+    }
+
+    private void saveInvoice(Customer customer, LocalDate day, double amount) {
+        Invoice invoice = new Invoice();
+        invoice.setAmount(amount);
+        // Noon keeps the invoice on the same day whatever the time zone of the database
+        invoice.setDate(new Date(at(day).getTime() + 12 * 60 * 60 * 1000L));
+        invoice.setCreatedAt(new Date());
+        invoice.setUpdatedAt(new Date());
+        invoice.setCustomer(customer);
+        createdInvoices.add(invoiceRepository.save(invoice));
+    }
+
+    private static Date at(LocalDate day) {
+        return DateUtils.toDate(day);
+    }
+}
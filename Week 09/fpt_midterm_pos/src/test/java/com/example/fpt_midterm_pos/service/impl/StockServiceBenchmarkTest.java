@@ -0,0 +1,130 @@
+package com.example.fpt_midterm_pos.service.impl;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.PessimisticLockingFailureException;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.fpt_midterm_pos.data.model.Product;
+import com.example.fpt_midterm_pos.data.model.Status;
+import com.example.fpt_midterm_pos.data.repository.ProductRepository;
+import com.example.fpt_midterm_pos.service.StockService;
+
+/**
+ * Compares the throughput of concurrent checkouts of one hot product: the former read-check-write stock update,
+ * the conditional decrement and the conditional decrement on split stock.
+ * Run with {@code mvn test -Dtest=StockServiceBenchmarkTest -Dbenchmark=true}.
+ */
+@SpringBootTest
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class StockServiceBenchmarkTest {
+
+    private static final int THREADS = 16;
+    private static final int STOCK = 5000;
+
+    @Autowired
+    private StockService stockService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private final List<UUID> createdProducts = new ArrayList<>();
+
+    @AfterEach
+    public void tearDown() {
+        for (UUID productId : createdProducts) {
+            if (stockService.isSplit(productId)) {
+                stockService.mergeStock(productId);
+            }
+            productRepository.deleteById(productId);
+        }
+        createdProducts.clear();
+    }
+
+    @Test
+    void benchmarkStockDecrement() throws Exception {
+        UUID readCheckWrite = saveProduct().getId();
+        report("read-check-write", readCheckWrite, () -> transactionTemplate.executeWithoutResult(status -> {
+            Product product = productRepository.findById(readCheckWrite).orElseThrow();
+            if (product.getQuantity() < 1) {
+                throw new IllegalArgumentException("Insufficient product stock");
+            }
+            product.setQuantity(product.getQuantity() - 1);
+            productRepository.save(product);
+        }));
+
+        UUID conditional = saveProduct().getId();
+        report("conditional decrement", conditional, () -> stockService.decrementStock(Map.of(conditional, 1)));
+
+        UUID split = saveProduct().getId();
+        stockService.splitStock(split, THREADS);
+        report("split stock (" + THREADS + " sub-counters)", split, () -> stockService.decrementStock(Map.of(split, 1)));
+    }
+
+    private void report(String name, UUID productId, Runnable sale) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger sold = new AtomicInteger();
+        AtomicInteger conflicts = new AtomicInteger();
+        List<Future<?>> futures = new ArrayList<>();
+
+        for (int i = 0; i < THREADS; i++) {
+            futures.add(executor.submit(() -> {
+                start.await();
+                while (true) {
+                    try {
+                        sale.run();
+                        sold.incrementAndGet();
+                    } catch (IllegalArgumentException e) {
+                        return null;
+                    } catch (PessimisticLockingFailureException e) {
+                        conflicts.incrementAndGet();
+                    }
+                }
+            }));
+        }
+
+        long startedAt = System.nanoTime();
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(5, TimeUnit.MINUTES);
+        }
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt);
+        executor.shutdown();
+
+        System.out.printf("%-32s %6d sales in %6d ms (%8.1f sales/s), %4d conflicts, %5d oversold%n",
+                name, sold.get(), elapsedMillis, sold.get() * 1000.0 / Math.max(elapsedMillis, 1),
+                conflicts.get(), sold.get() - STOCK);
+    }
+
+    private Product saveProduct() {
+        Product product = new Product();
+        product.setName("Benchmark Product");
+        product.setPrice(10.0);
+        product.setStatus(Status.ACTIVE);
+        product.setQuantity(STOCK);
+        product.setCreatedAt(new Date());
+        product.setUpdatedAt(new Date());
+        Product savedProduct = productRepository.save(product);
+        createdProducts.add(savedProduct.getId());
+        return savedProduct;
+    }
+}
@@ -0,0 +1,217 @@
+package com.example.fpt_midterm_pos.service.impl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.PessimisticLockingFailureException;
+
+import com.example.fpt_midterm_pos.data.model.Product;
+import com.example.fpt_midterm_pos.data.model.ProductStockShard;
+import com.example.fpt_midterm_pos.data.model.ProductStockShardKey;
+import com.example.fpt_midterm_pos.data.model.Status;
+import com.example.fpt_midterm_pos.data.repository.ProductRepository;
+import com.example.fpt_midterm_pos.data.repository.ProductStockShardRepository;
+import com.example.fpt_midterm_pos.dto.ProductDTO;
+import com.example.fpt_midterm_pos.exception.BadRequestException;
+import com.example.fpt_midterm_pos.service.StockService;
+
+@SpringBootTest
+class StockServiceImplTest {
+
+    private static final int THREADS = 16;
+
+    @Autowired
+    private StockService stockService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private ProductStockShardRepository productStockShardRepository;
+
+    private final List<UUID> createdProducts = new ArrayList<>();
+
+    @AfterEach
+    public void tearDown() {
+        for (UUID productId : createdProducts) {
+            if (stockService.isSplit(productId)) {
+                stockService.mergeStock(productId);
+            }
+            productRepository.deleteById(productId);
+        }
+        createdProducts.clear();
+    }
+
+    @Test
+    void testConcurrentDecrementNeverOversells() throws Exception {
+        Product product = saveProduct(100);
+
+        int sold = sellConcurrently(product.getId());
+
+        assertThat(sold).isEqualTo(100);
+        assertThat(productRepository.findById(product.getId())).get().extracting(Product::getQuantity).isEqualTo(0);
+    }
+
+    @Test
+    void testConcurrentDecrementOnSplitStockNeverOversells() throws Exception {
+        Product product = saveProduct(100);
+        stockService.splitStock(product.getId(), 4);
+
+        int sold = sellConcurrently(product.getId());
+
+        assertThat(sold).isEqualTo(100);
+        assertThat(totalShardQuantity(product.getId())).isZero();
+    }
+
+    @Test
+    void testDecrementSplitStockAcrossSeveralSubCounters() {
+        Product product = saveProduct(10);
+        stockService.splitStock(product.getId(), 4);   // 3, 3, 2, 2
+        Map<UUID, Integer> nineUnits = Map.of(product.getId(), 9);
+        Map<UUID, Integer> twoUnits = Map.of(product.getId(), 2);
+
+        stockService.decrementStock(nineUnits);
+
+        assertThat(totalShardQuantity(product.getId())).isEqualTo(1);
+        assertThatThrownBy(() -> stockService.decrementStock(twoUnits))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("Insufficient product stock");
+    }
+
+    @Test
+    void testIncrementStock() {
+        Product product = saveProduct(5);
+
+        stockService.incrementStock(Map.of(product.getId(), 3));
+
+        assertThat(productRepository.findById(product.getId())).get().extracting(Product::getQuantity).isEqualTo(8);
+    }
+
+    @Test
+    void testSplitAndMergeStock() {
+        Product product = saveProduct(11);
+
+        ProductDTO split = stockService.splitStock(product.getId(), 3);
+        assertThat(split.getQuantity()).isEqualTo(11);
+        assertThat(stockService.isSplit(product.getId())).isTrue();
+        assertThat(stockService.findSplitProductIds()).contains(product.getId());
+        assertThat(productRepository.findById(product.getId())).get().extracting(Product::getQuantity).isEqualTo(0);
+        assertThat(totalShardQuantity(product.getId())).isEqualTo(11);
+
+        ProductDTO merged = stockService.mergeStock(product.getId());
+        assertThat(merged.getQuantity()).isEqualTo(11);
+        assertThat(stockService.isSplit(product.getId())).isFalse();
+        assertThat(stockService.findSplitProductIds()).doesNotContain(product.getId());
+        assertThat(totalShardQuantity(product.getId())).isZero();
+    }
+
+    @Test
+    void testReplaceSplitStockSpreadsOverSubCounters() {
+        Product product = saveProduct(10);
+        stockService.splitStock(product.getId(), 4);
+        Product splitProduct = productRepository.findById(product.getId()).orElseThrow();
+
+        stockService.replaceStock(splitProduct, 7);
+        productRepository.save(splitProduct);
+
+        assertThat(splitProduct.getQuantity()).isZero();
+        assertThat(totalShardQuantity(product.getId())).isEqualTo(7);
+        assertThat(stockService.getTotalStock(splitProduct)).isEqualTo(7);
+
+        ProductDTO merged = stockService.mergeStock(product.getId());
+        assertThat(merged.getQuantity()).isEqualTo(7);
+    }
+
+    @Test
+    void testDecrementStockSeesSplitByAnotherInstance() {
+        Product product = saveProduct(0);
+        productStockShardRepository.saveAll(List.of(
+                new ProductStockShard(new ProductStockShardKey(product.getId(), 0), 3),
+                new ProductStockShard(new ProductStockShardKey(product.getId(), 1), 3)));
+
+        stockService.decrementStock(Map.of(product.getId(), 5));
+
+        assertThat(stockService.isSplit(product.getId())).isTrue();
+        assertThat(totalShardQuantity(product.getId())).isEqualTo(1);
+    }
+
+    @Test
+    void testSplitStockInvalidShards() {
+        Product product = saveProduct(10);
+        UUID productId = product.getId();
+
+        assertThatThrownBy(() -> stockService.splitStock(productId, 1))
+                .isInstanceOf(BadRequestException.class);
+        assertThatThrownBy(() -> stockService.mergeStock(productId))
+                .isInstanceOf(BadRequestException.class)
+                .hasMessageContaining("Product stock is not split");
+    }
+
+    // Sell one unit at a time from many threads at once until the stock runs out and return how many sales succeeded.
+    // A sale rolled back by a lock conflict is not counted, the thread simply retries it like a client would.
+    private int sellConcurrently(UUID productId) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger sold = new AtomicInteger();
+        List<Future<?>> futures = new ArrayList<>();
+
+        for (int i = 0; i < THREADS; i++) {
+            futures.add(executor.submit(() -> {
+                start.await();
+                while (true) {
+                    try {
+                        stockService.decrementStock(Map.of(productId, 1));
+                        sold.incrementAndGet();
+                    } catch (IllegalArgumentException e) {
+                        return null;
+                    } catch (PessimisticLockingFailureException e) {
+                        // Rolled back, nothing was taken
+                    }
+                }
+            }));
+        }
+
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+        return sold.get();
+    }
+
+    private int totalShardQuantity(UUID productId) {
+        return productStockShardRepository.findAll().stream()
+                .filter(shard -> shard.getId().getProductId().equals(productId))
+                .mapToInt(ProductStockShard::getQuantity)
+                .sum();
+    }
+
+    private Product saveProduct(int quantity) {
+        Product product = new Product();
+        product.setName("Stock Product");
+        product.setPrice(10.0);
+        product.setStatus(Status.ACTIVE);
+        product.setQuantity(quantity);
+        product.setCreatedAt(new Date());
+        product.setUpdatedAt(new Date());
+        Product savedProduct = productRepository.save(product);
+        createdProducts.add(savedProduct.getId());
+        return savedProduct;
+    }
+}
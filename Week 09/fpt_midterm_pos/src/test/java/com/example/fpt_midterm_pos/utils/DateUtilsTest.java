@@ -75,4 +75,12 @@ class DateUtilsTest {
         LocalDate localDate = DateUtils.formatDateToLocalDate(date);
         assertEquals(expectedDate, localDate);
     }
+
+    @Test
+    void testToDate_withValidDate() {
+        LocalDate date = LocalDate.of(2024, 8, 15);
+        Date expectedDate = Date.from(date.atStartOfDay(ZoneId.systemDefault()).toInstant());
+        assertEquals(expectedDate, DateUtils.toDate(date));
+        assertEquals(date, DateUtils.formatDateToLocalDate(DateUtils.toDate(date)));
+    }
 }
@@ -1,9 +1,21 @@
 package com.example.fpt_midterm_pos.utils;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationTargetException;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.IntStream;
+
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
 import org.junit.jupiter.api.Test;
 
+import com.example.fpt_midterm_pos.dto.InvoiceExcelRowDTO;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 class ExcelGeneratorTest {
@@ -15,6 +27,40 @@ class ExcelGeneratorTest {
         assertEquals("Utility class", thrownException.getMessage());
     }
 
+    @Test
+    void testWriteInvoiceExcelStreamsEveryRow() throws IOException {
+        // More rows than the streaming workbook keeps in memory
+        List<InvoiceExcelRowDTO> rows = IntStream.range(0, 300).mapToObj(this::createRow).toList();
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+
+        ExcelGenerator.writeInvoiceExcel(rows.stream(), outputStream);
+
+        try (Workbook workbook = new XSSFWorkbook(new ByteArrayInputStream(outputStream.toByteArray()))) {
+            Sheet sheet = workbook.getSheet("Invoices");
+            assertEquals("Invoice ID", sheet.getRow(0).getCell(0).getStringCellValue());
+            assertEquals(300, sheet.getLastRowNum());
+            assertEquals(rows.get(299).getInvoiceId().toString(), sheet.getRow(300).getCell(0).getStringCellValue());
+            assertEquals("Product 299", sheet.getRow(300).getCell(5).getStringCellValue());
+        }
+    }
+
+    @Test
+    void testGenerateInvoiceExcel() throws IOException {
+        List<InvoiceExcelRowDTO> rows = IntStream.range(0, 2).mapToObj(this::createRow).toList();
+
+        try (Workbook workbook = ExcelGenerator.generateInvoiceExcel(rows)) {
+            Sheet sheet = workbook.getSheet("Invoices");
+            assertEquals(2, sheet.getLastRowNum());
+            assertEquals("Test Customer", sheet.getRow(1).getCell(2).getStringCellValue());
+            assertEquals(rows.get(1).getProductId().toString(), sheet.getRow(2).getCell(4).getStringCellValue());
+        }
+    }
+
+    private InvoiceExcelRowDTO createRow(int i) {
+        return new InvoiceExcelRowDTO(UUID.randomUUID(), UUID.randomUUID(), "Test Customer", 20.0,
+                UUID.randomUUID(), "Product " + i, 10.0, 2, 20.0);
+    }
+
     private Constructor<ExcelGenerator> getPrivateConstructor() {
         try {
             Constructor<ExcelGenerator> constructor = ExcelGenerator.class.getDeclaredConstructor();
@@ -0,0 +1,173 @@
+package com.example.fpt_midterm_pos.utils;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockMultipartFile;
+
+import com.example.fpt_midterm_pos.dto.ProductImportRowDTO;
+import com.example.fpt_midterm_pos.dto.ProductSaveDTO;
+
+class FileUtilsTest {
+
+    @Test
+    void testPrivateConstructor() throws NoSuchMethodException {
+        Constructor<FileUtils> constructor = FileUtils.class.getDeclaredConstructor();
+        constructor.setAccessible(true);
+
+        InvocationTargetException thrownException = assertThrows(InvocationTargetException.class, constructor::newInstance);
+
+        assertInstanceOf(IllegalStateException.class, thrownException.getCause());
+        assertEquals("Utility class", thrownException.getCause().getMessage());
+    }
+
+    @Test
+    void testReadProductsFromExcel_Workbook() throws IOException {
+        byte[] workbook = createWorkbook(new Object[][] {
+                { "name", "price", "quantity" },
+                { "Widget", 150.5, 10 },
+                { "Gadget", 250, 0 }
+        });
+
+        List<ProductImportRowDTO> rows = read(workbook);
+
+        assertEquals(2, rows.size());
+        assertEquals(2, rows.get(0).getRowNumber());
+        assertNull(rows.get(0).getError());
+        assertEquals("Widget", rows.get(0).getProduct().getName());
+        assertEquals(150.5, rows.get(0).getProduct().getPrice());
+        assertEquals(10, rows.get(0).getProduct().getQuantity());
+        assertEquals(3, rows.get(1).getRowNumber());
+        assertEquals("Gadget", rows.get(1).getProduct().getName());
+        assertEquals(250.0, rows.get(1).getProduct().getPrice());
+        assertEquals(0, rows.get(1).getProduct().getQuantity());
+    }
+
+    @Test
+    void testReadProductsFromExcel_WorkbookRowErrors() throws IOException {
+        byte[] workbook = createWorkbook(new Object[][] {
+                { "name", "price", "quantity" },
+                { "Widget", "cheap", 10 },
+                { null, 100, 1 },
+                { "Gadget", 100, 1.5 },
+                { null, null, null },
+                { "Thingamajig", 100, 20 }
+        });
+
+        List<ProductImportRowDTO> rows = read(workbook);
+
+        assertEquals(4, rows.size());
+        assertEquals("Price is not a number: cheap", rows.get(0).getError());
+        assertNull(rows.get(0).getProduct());
+        assertEquals(3, rows.get(1).getRowNumber());
+        assertEquals("Name is missing", rows.get(1).getError());
+        assertEquals("Quantity is not a whole number: 1.5", rows.get(2).getError());
+        // The blank row is skipped, but the rows after it keep their spreadsheet numbers
+        assertEquals(6, rows.get(3).getRowNumber());
+        assertEquals("Thingamajig", rows.get(3).getProduct().getName());
+    }
+
+    @Test
+    void testReadProductsFromExcel_CommaSeparated() throws IOException {
+        byte[] content = "name,price,quantity\r\nWidget,150,10\r\n\r\nGadget,abc,5\r\nBroken\r\n".getBytes(StandardCharsets.UTF_8);
+
+        List<ProductImportRowDTO> rows = read(content);
+
+        assertEquals(3, rows.size());
+        assertEquals("Widget", rows.get(0).getProduct().getName());
+        assertEquals(4, rows.get(1).getRowNumber());
+        assertEquals("Price is not a number: abc", rows.get(1).getError());
+        assertEquals(5, rows.get(2).getRowNumber());
+        assertEquals("Invalid row format", rows.get(2).getError());
+    }
+
+    @Test
+    void testReadProductsFromExcel_EmptyFile() {
+        ByteArrayInputStream inputStream = new ByteArrayInputStream(new byte[0]);
+
+        IOException thrownException = assertThrows(IOException.class, () -> FileUtils.readProductsFromExcel(inputStream, row -> { }));
+
+        assertEquals("File is empty or has an invalid format", thrownException.getMessage());
+    }
+
+    @Test
+    void testReadProductsFromExcel_CorruptWorkbook() {
+        ByteArrayInputStream inputStream = new ByteArrayInputStream(new byte[] { 'P', 'K', 3, 4, 0, 0, 0 });
+
+        IOException thrownException = assertThrows(IOException.class, () -> FileUtils.readProductsFromExcel(inputStream, row -> { }));
+
+        assertEquals("File is empty or has an invalid format", thrownException.getMessage());
+    }
+
+    @Test
+    void testReadProductsFromExcel_List() throws IOException {
+        MockMultipartFile file = new MockMultipartFile("file", "products.xlsx", FileUtils.TYPE, createWorkbook(new Object[][] {
+                { "name", "price", "quantity" },
+                { "Widget", 150, 10 }
+        }));
+
+        List<ProductSaveDTO> products = FileUtils.readProductsFromExcel(file);
+
+        assertEquals(1, products.size());
+        assertEquals("Widget", products.get(0).getName());
+    }
+
+    @Test
+    void testReadProductsFromExcel_ListWithRowError() throws IOException {
+        MockMultipartFile file = new MockMultipartFile("file", "products.xlsx", FileUtils.TYPE, createWorkbook(new Object[][] {
+                { "name", "price", "quantity" },
+                { "Widget", 150, 10 },
+                { "Gadget", 250, "many" }
+        }));
+
+        IOException thrownException = assertThrows(IOException.class, () -> FileUtils.readProductsFromExcel(file));
+
+        assertEquals("Row 3: Quantity is not a whole number: many", thrownException.getMessage());
+    }
+
+    @Test
+    void testReadProductsFromExcel_InvalidType() {
+        MockMultipartFile file = new MockMultipartFile("file", "products.txt", "text/plain", new byte[0]);
+
+        IllegalArgumentException thrownException = assertThrows(IllegalArgumentException.class, () -> FileUtils.readProductsFromExcel(file));
+
+        assertEquals("Invalid file format. Only Excel files are accepted.", thrownException.getMessage());
+    }
+
+    private List<ProductImportRowDTO> read(byte[] content) throws IOException {
+        List<ProductImportRowDTO> rows = new ArrayList<>();
+        FileUtils.readProductsFromExcel(new ByteArrayInputStream(content), rows::add);
+        return rows;
+    }
+
+    private byte[] createWorkbook(Object[][] values) throws IOException {
+        try (XSSFWorkbook workbook = new XSSFWorkbook(); ByteArrayOutputStream outputStream = new ByteArrayOutputStream()) {
+            Sheet sheet = workbook.createSheet("Products");
+            for (int i = 0; i < values.length; i++) {
+                Row row = sheet.createRow(i);
+                for (int j = 0; j < values[i].length; j++) {
+                    Object value = values[i][j];
+                    if (value instanceof Number number) {
+                        row.createCell(j).setCellValue(number.doubleValue());
+                    } else if (value != null) {
+                        row.createCell(j).setCellValue(value.toString());
+                    }
+                }
+            }
+            workbook.write(outputStream);
+            return outputStream.toByteArray();
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package com.example.fpt_midterm_pos.utils;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.thymeleaf.context.Context;
+import org.thymeleaf.spring6.SpringTemplateEngine;
+import org.thymeleaf.templateresolver.ClassLoaderTemplateResolver;
+
+import com.example.fpt_midterm_pos.data.model.Customer;
+import com.example.fpt_midterm_pos.data.model.Invoice;
+import com.example.fpt_midterm_pos.data.model.InvoiceDetail;
+import com.example.fpt_midterm_pos.data.model.InvoiceDetailKey;
+import com.itextpdf.html2pdf.HtmlConverter;
+
+/**
+ * Compares the throughput of invoice PDF rendering from concurrent requests: the former conversion, which loads the fonts again
+ * for every PDF on the request thread, the pooled conversion that reuses the converter properties, and the cached PDFs.
+ * Run with {@code mvn test -Dtest=PDFGeneratorBenchmarkTest -Dbenchmark=true}.
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class PDFGeneratorBenchmarkTest {
+
+    private static final int THREADS = 16;
+    private static final int INVOICES = 400;
+    private static final int WARMUP_INVOICES = 50;
+
+    private SpringTemplateEngine templateEngine;
+    private PDFGenerator pdfGenerator;
+
+    @BeforeEach
+    public void setUp() {
+        ClassLoaderTemplateResolver templateResolver = new ClassLoaderTemplateResolver();
+        templateResolver.setPrefix("templates/");
+        templateResolver.setSuffix(".html");
+        templateEngine = new SpringTemplateEngine();
+        templateEngine.setTemplateResolver(templateResolver);
+        pdfGenerator = new PDFGenerator(templateEngine, Runtime.getRuntime().availableProcessors(), INVOICES, INVOICES);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        pdfGenerator.shutdown();
+    }
+
+    @Test
+    void benchmarkInvoicePDFRendering() throws Exception {
+        List<Invoice> invoices = IntStream.range(0, INVOICES).mapToObj(i -> createInvoice()).toList();
+        List<Invoice> warmup = IntStream.range(0, WARMUP_INVOICES).mapToObj(i -> createInvoice()).toList();
+
+        report("warmup", warmup, this::convertPerCall);
+        report("warmup", warmup, pdfGenerator::generateInvoicePDF);
+
+        report("convert per call", invoices, this::convertPerCall);
+        report("pooled converter", invoices, pdfGenerator::generateInvoicePDF);
+        report("cached", invoices, pdfGenerator::generateInvoicePDF);
+    }
+
+    // The former rendering, which creates new converter properties and fonts for every PDF
+    private byte[] convertPerCall(Invoice invoice) {
+        Context context = new Context();
+        context.setVariable("invoice", invoice);
+        context.setVariable("customer", invoice.getCustomer());
+        context.setVariable("invoiceDetails", invoice.getInvoiceDetails());
+        context.setVariable("totalAmount", invoice.getInvoiceDetails().stream()
+                .mapToDouble(detail -> detail.getQuantity() * detail.getPrice()).sum());
+        String processedHtml = templateEngine.process("invoice-template", context);
+
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        HtmlConverter.convertToPdf(processedHtml, stream);
+        return stream.toByteArray();
+    }
+
+    private void report(String name, List<Invoice> invoices, Renderer renderer) throws Exception {
+        ExecutorService requests = Executors.newFixedThreadPool(THREADS);
+        List<Future<byte[]>> futures = new ArrayList<>();
+
+        long startedAt = System.nanoTime();
+        for (Invoice invoice : invoices) {
+            futures.add(requests.submit(() -> renderer.render(invoice)));
+        }
+        long bytes = 0;
+        for (Future<byte[]> future : futures) {
+            bytes += future.get(5, TimeUnit.MINUTES).length;
+        }
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt);
+        requests.shutdown();
+
+        System.out.printf("%-20s %5d PDFs in %6d ms (%8.1f PDFs/s), %8d KB%n",
+                name, invoices.size(), elapsedMillis, invoices.size() * 1000.0 / Math.max(elapsedMillis, 1), bytes / 1024);
+    }
+
+    private Invoice createInvoice() {
+        Customer customer = new Customer();
+        customer.setId(UUID.randomUUID());
+        customer.setName("Benchmark Customer");
+        customer.setUpdatedAt(new Date());
+
+        Invoice invoice = new Invoice();
+        invoice.setId(UUID.randomUUID());
+        invoice.setDate(new Date());
+        invoice.setUpdatedAt(new Date());
+        invoice.setCustomer(customer);
+
+        List<InvoiceDetail> details = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            InvoiceDetail detail = new InvoiceDetail();
+            detail.setId(new InvoiceDetailKey(invoice.getId(), UUID.randomUUID()));
+            detail.setProductName("Product " + i);
+            detail.setQuantity(i + 1);
+            detail.setPrice(1000.0 * (i + 1));
+            detail.setAmount(detail.getQuantity() * detail.getPrice());
+            details.add(detail);
+        }
+        invoice.setInvoiceDetails(details);
+        return invoice;
+    }
+
+    @FunctionalInterface
+    private interface Renderer {
+        byte[] render(Invoice invoice) throws Exception;
+    }
+}
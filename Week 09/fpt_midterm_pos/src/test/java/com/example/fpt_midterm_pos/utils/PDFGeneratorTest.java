@@ -7,10 +7,12 @@ import static org.mockito.Mockito.*;
 
 import java.io.IOException;
 import java.util.Collections;
+import java.util.Date;
+import java.util.UUID;
 
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 import org.thymeleaf.context.Context;
@@ -25,12 +27,17 @@ class PDFGeneratorTest {
     @Mock
     private SpringTemplateEngine templateEngine;
 
-    @InjectMocks
     private PDFGenerator pdfGenerator;
 
     @BeforeEach
     public void setUp() {
         MockitoAnnotations.openMocks(this);
+        pdfGenerator = new PDFGenerator(templateEngine, 2, 8, 2);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        pdfGenerator.shutdown();
     }
 
     @Test
@@ -82,5 +89,76 @@ class PDFGeneratorTest {
 
         verify(templateEngine, times(1)).process(eq("invoice-template"), any(Context.class));
     }
+
+    @Test
+    void testGenerateInvoicePDF_cachedPerInvoiceVersion() throws IOException {
+        // Setup
+        Invoice invoice = createSavedInvoice();
+
+        String htmlContent = "<html><body><p>Invoice Content</p></body></html>";
+        when(templateEngine.process(eq("invoice-template"), any(Context.class))).thenReturn(htmlContent);
+
+        // Execute
+        byte[] first = pdfGenerator.generateInvoicePDF(invoice);
+        byte[] second = pdfGenerator.generateInvoicePDF(invoice);
+
+        // Verify
+        assertSame(first, second);
+        verify(templateEngine, times(1)).process(eq("invoice-template"), any(Context.class));
+    }
+
+    @Test
+    void testGenerateInvoicePDF_updatedInvoiceRenderedAgain() throws IOException {
+        // Setup
+        Invoice invoice = createSavedInvoice();
+
+        String htmlContent = "<html><body><p>Invoice Content</p></body></html>";
+        when(templateEngine.process(eq("invoice-template"), any(Context.class))).thenReturn(htmlContent);
+
+        // Execute
+        pdfGenerator.generateInvoicePDF(invoice);
+        invoice.setUpdatedAt(new Date(invoice.getUpdatedAt().getTime() + 1000));
+        pdfGenerator.generateInvoicePDF(invoice);
+        invoice.getCustomer().setUpdatedAt(new Date(invoice.getCustomer().getUpdatedAt().getTime() + 1000));
+        pdfGenerator.generateInvoicePDF(invoice);
+
+        // Verify
+        verify(templateEngine, times(3)).process(eq("invoice-template"), any(Context.class));
+    }
+
+    @Test
+    void testGenerateInvoicePDF_leastRecentlyUsedEvicted() throws IOException {
+        // Setup, the cache holds two PDFs
+        Invoice first = createSavedInvoice();
+        Invoice second = createSavedInvoice();
+        Invoice third = createSavedInvoice();
+
+        String htmlContent = "<html><body><p>Invoice Content</p></body></html>";
+        when(templateEngine.process(eq("invoice-template"), any(Context.class))).thenReturn(htmlContent);
+
+        // Execute
+        pdfGenerator.generateInvoicePDF(first);
+        pdfGenerator.generateInvoicePDF(second);
+        pdfGenerator.generateInvoicePDF(first);
+        pdfGenerator.generateInvoicePDF(third);
+        pdfGenerator.generateInvoicePDF(first);
+        pdfGenerator.generateInvoicePDF(second);
+
+        // Verify, only the second invoice was evicted and rendered again
+        verify(templateEngine, times(4)).process(eq("invoice-template"), any(Context.class));
+    }
+
+    private Invoice createSavedInvoice() {
+        Customer customer = new Customer();
+        customer.setName("John Doe");
+        customer.setUpdatedAt(new Date());
+
+        Invoice invoice = new Invoice();
+        invoice.setId(UUID.randomUUID());
+        invoice.setUpdatedAt(new Date());
+        invoice.setCustomer(customer);
+        invoice.setInvoiceDetails(Collections.emptyList());
+        return invoice;
+    }
 }
 
@@ -0,0 +1,76 @@
+package com.example.fpt_midterm_pos.utils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/**
+ * Compares the insert throughput of random and time-ordered UUID keys into a {@code BINARY(16)} primary key as the table grows,
+ * reporting every million rows so the slowdown of the random keys shows once the index outgrows the buffer pool.
+ * The table size defaults to 10 million rows and can be changed with {@code -Dbenchmark.rows}. The effect only shows on a disk-backed
+ * database such as MySQL, so point {@code spring.datasource.url} at one rather than the in-memory test database.
+ * Run with {@code mvn test -Dtest=UUIDUtilsBenchmarkTest -Dbenchmark=true}.
+ */
+@SpringBootTest
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class UUIDUtilsBenchmarkTest {
+
+    private static final int ROWS = Integer.getInteger("benchmark.rows", 10_000_000);
+    private static final int REPORT_EVERY = 1_000_000;
+    private static final int BATCH_SIZE = 1000;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final List<String> createdTables = new ArrayList<>();
+
+    @AfterEach
+    public void tearDown() {
+        createdTables.forEach(table -> jdbcTemplate.execute("DROP TABLE IF EXISTS " + table));
+        createdTables.clear();
+    }
+
+    @Test
+    void benchmarkKeyInserts() {
+        report("random", UUID::randomUUID);
+        report("time-ordered", UUIDUtils::timeOrdered);
+    }
+
+    private void report(String name, Supplier<UUID> ids) {
+        String table = "uuid_benchmark_" + name.replace('-', '_');
+        jdbcTemplate.execute("DROP TABLE IF EXISTS " + table);
+        jdbcTemplate.execute("CREATE TABLE " + table + " (id BINARY(16) NOT NULL PRIMARY KEY, amount DOUBLE NOT NULL, created_at TIMESTAMP NOT NULL)");
+        createdTables.add(table);
+        String insertSql = "INSERT INTO " + table + " (id, amount, created_at) VALUES (?, ?, CURRENT_TIMESTAMP)";
+
+        long startedAt = System.nanoTime();
+        long segmentStartedAt = startedAt;
+        for (int inserted = 0; inserted < ROWS; inserted += BATCH_SIZE) {
+            List<Object[]> batchArgs = new ArrayList<>(BATCH_SIZE);
+            for (int i = 0; i < Math.min(BATCH_SIZE, ROWS - inserted); i++) {
+                batchArgs.add(new Object[] { UUIDUtils.toBytes(ids.get()), 10.0 });
+            }
+            jdbcTemplate.batchUpdate(insertSql, batchArgs);
+
+            int total = inserted + batchArgs.size();
+            if (total % REPORT_EVERY == 0 || total == ROWS) {
+                long segmentMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - segmentStartedAt);
+                int segmentRows = total % REPORT_EVERY == 0 ? REPORT_EVERY : total % REPORT_EVERY;
+                System.out.printf("%-14s %9d rows, last %8d in %7d ms (%9.1f rows/s)%n",
+                        name, total, segmentRows, segmentMillis, segmentRows * 1000.0 / Math.max(segmentMillis, 1));
+                segmentStartedAt = System.nanoTime();
+            }
+        }
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt);
+        System.out.printf("%-14s %9d rows in %8d ms (%9.1f rows/s)%n", name, ROWS, elapsedMillis, ROWS * 1000.0 / Math.max(elapsedMillis, 1));
+    }
+}
@@ -0,0 +1,46 @@
+package com.example.fpt_midterm_pos.utils;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.UUID;
+
+import org.junit.jupiter.api.Test;
+
+class UUIDUtilsTest {
+
+    @Test
+    void testTimeOrdered_isVersion7() {
+        long before = System.currentTimeMillis();
+        UUID uuid = UUIDUtils.timeOrdered();
+
+        assertThat(uuid.version()).isEqualTo(7);
+        assertThat(uuid.variant()).isEqualTo(2);
+        // The top 48 bits hold the time the UUID was generated at
+        assertThat(uuid.getMostSignificantBits() >>> 16).isGreaterThanOrEqualTo(before);
+    }
+
+    @Test
+    void testTimeOrdered_increasesAsStoredBytes() {
+        List<UUID> uuids = new ArrayList<>();
+        // More UUIDs than the sequence counts within a millisecond
+        for (int i = 0; i < 20000; i++) {
+            uuids.add(UUIDUtils.timeOrdered());
+        }
+
+        assertThat(new HashSet<>(uuids)).hasSize(uuids.size());
+        for (int i = 1; i < uuids.size(); i++) {
+            assertThat(Arrays.compareUnsigned(UUIDUtils.toBytes(uuids.get(i - 1)), UUIDUtils.toBytes(uuids.get(i)))).isNegative();
+        }
+    }
+
+    @Test
+    void testToBytes_roundTrips() {
+        UUID uuid = UUIDUtils.timeOrdered();
+
+        assertThat(UUIDUtils.fromBytes(UUIDUtils.toBytes(uuid))).isEqualTo(uuid);
+    }
+}